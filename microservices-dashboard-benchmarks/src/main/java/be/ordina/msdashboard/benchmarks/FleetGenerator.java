@@ -0,0 +1,250 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.graph.MergedNodes;
+import be.ordina.msdashboard.nodes.aggregators.health.HealthProperties;
+import be.ordina.msdashboard.nodes.aggregators.health.HealthToNodeConverter;
+import be.ordina.msdashboard.nodes.aggregators.index.IndexProperties;
+import be.ordina.msdashboard.nodes.aggregators.index.IndexToNodeConverter;
+import be.ordina.msdashboard.nodes.aggregators.mappings.MappingsToNodeConverter;
+import be.ordina.msdashboard.nodes.model.Node;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates the actuator responses of a synthetic fleet of services, and the
+ * nodes the aggregators would emit for them.
+ * <p>
+ * Every service exposes {@code nodesPerService} health components, request
+ * mappings and index links. With a {@code linkDensity} of {@code d}, every
+ * service depends on each other service with probability {@code d}, which
+ * shows up as a health component named after that service. The same seed
+ * always generates the same fleet.
+ */
+public class FleetGenerator {
+
+	private static final long SEED = 42L;
+
+	private final int services;
+	private final int nodesPerService;
+	private final List<List<Integer>> dependencies;
+
+	public FleetGenerator(int services, int nodesPerService, double linkDensity) {
+		this.services = services;
+		this.nodesPerService = nodesPerService;
+		this.dependencies = generateDependencies(services, linkDensity);
+	}
+
+	private static List<List<Integer>> generateDependencies(int services, double linkDensity) {
+		Random random = new Random(SEED);
+		List<List<Integer>> dependencies = new ArrayList<>(services);
+		for (int service = 0; service < services; service++) {
+			List<Integer> dependenciesOfService = new ArrayList<>();
+			for (int other = 0; other < services; other++) {
+				if (other != service && random.nextDouble() < linkDensity) {
+					dependenciesOfService.add(other);
+				}
+			}
+			dependencies.add(dependenciesOfService);
+		}
+		return dependencies;
+	}
+
+	public int getServices() {
+		return services;
+	}
+
+	public static String serviceId(int service) {
+		return "service-" + service;
+	}
+
+	public static String serviceUri(int service) {
+		return "http://" + serviceId(service) + ":8080";
+	}
+
+	/**
+	 * @return the response of the health endpoint of the given service
+	 */
+	public Map<String, Object> health(int service) {
+		Map<String, Object> health = new LinkedHashMap<>();
+		health.put("status", "UP");
+		health.put(HealthProperties.DISK_SPACE, component("UP", "total", 249769230336L, "free", 75437002752L));
+		for (int i = 0; i < nodesPerService; i++) {
+			health.put(serviceId(service) + "-backend-" + i,
+					component(i % 10 == 0 ? "DOWN" : "UP", "database", "PostgreSQL", "hello", 1));
+		}
+		for (Integer other : dependencies.get(service)) {
+			health.put(serviceId(other), component("UP", "url", serviceUri(other), "hello", 1));
+		}
+		return health;
+	}
+
+	private static Map<String, Object> component(String status, String key1, Object value1, String key2, Object value2) {
+		Map<String, Object> component = new LinkedHashMap<>();
+		component.put("status", status);
+		component.put(key1, value1);
+		component.put(key2, value2);
+		return component;
+	}
+
+	/**
+	 * @return the response of the mappings endpoint of the given service,
+	 * in the flat format of Spring Boot 1.x
+	 */
+	public Map<String, Object> mappings(int service) {
+		Map<String, Object> mappings = new LinkedHashMap<>();
+		mappings.put("/webjars/**", mapping("resourceHandlerMapping", null));
+		mappings.put("/**/favicon.ico", mapping("faviconHandlerMapping", null));
+		for (int i = 0; i < nodesPerService; i++) {
+			String method = i % 2 == 0 ? "GET" : "POST";
+			mappings.put("{[/" + serviceId(service) + "/resource-" + i + "],methods=[" + method
+							+ "],produces=[application/json]}",
+					mapping("requestMappingHandlerMapping", "public java.util.List<com.example.Resource> "
+							+ "com.example.ResourceController.resource" + i + "()"));
+		}
+		mappings.put("{[/error],produces=[text/html]}", mapping("requestMappingHandlerMapping",
+				"public org.springframework.web.servlet.ModelAndView "
+						+ "org.springframework.boot.autoconfigure.web.BasicErrorController.errorHtml("
+						+ "javax.servlet.http.HttpServletRequest,javax.servlet.http.HttpServletResponse)"));
+		mappings.put("{[/health || /health.json],methods=[GET],produces=[application/json]}",
+				mapping("endpointHandlerMapping", "public java.lang.Object "
+						+ "org.springframework.boot.actuate.endpoint.mvc.HealthMvcEndpoint.invoke("
+						+ "javax.servlet.http.HttpServletRequest,java.security.Principal)"));
+		return mappings;
+	}
+
+	/**
+	 * @return the response of the mappings endpoint of the given service,
+	 * in the format of Spring Boot 2.x
+	 */
+	public Map<String, Object> mappingsBoot2(int service) {
+		List<Object> dispatcherServlet = new ArrayList<>();
+		dispatcherServlet.add(handlerMapping("ResourceHttpRequestHandler [class path resource [static/]]",
+				"/webjars/**", null));
+		for (int i = 0; i < nodesPerService; i++) {
+			String path = "/" + serviceId(service) + "/resource-" + i;
+			String method = i % 2 == 0 ? "GET" : "POST";
+			dispatcherServlet.add(handlerMapping("public java.util.List<com.example.Resource> "
+							+ "com.example.ResourceController.resource" + i + "()",
+					"{[" + path + "],methods=[" + method + "],produces=[application/json]}",
+					handlerDetails("com.example.ResourceController", path, method)));
+		}
+		dispatcherServlet.add(handlerMapping("public java.lang.Object org.springframework.boot.actuate.endpoint.web."
+						+ "servlet.AbstractWebMvcEndpointHandlerMapping$OperationHandler.handle("
+						+ "javax.servlet.http.HttpServletRequest,java.util.Map)",
+				"{[/actuator/health],methods=[GET],produces=[application/json]}",
+				handlerDetails("org.springframework.boot.actuate.endpoint.web.servlet."
+						+ "AbstractWebMvcEndpointHandlerMapping.OperationHandler", "/actuator/health", "GET")));
+
+		Map<String, Object> context = new LinkedHashMap<>();
+		context.put("mappings", Collections.singletonMap("dispatcherServlets",
+				Collections.singletonMap("dispatcherServlet", dispatcherServlet)));
+		context.put("parentId", null);
+		return Collections.singletonMap("contexts", Collections.singletonMap(serviceId(service), context));
+	}
+
+	private static Map<String, Object> handlerMapping(String handler, String predicate, Map<String, Object> details) {
+		Map<String, Object> mapping = new LinkedHashMap<>();
+		mapping.put("handler", handler);
+		mapping.put("predicate", predicate);
+		mapping.put("details", details);
+		return mapping;
+	}
+
+	private static Map<String, Object> handlerDetails(String className, String path, String method) {
+		Map<String, Object> conditions = new LinkedHashMap<>();
+		conditions.put("consumes", Collections.emptyList());
+		conditions.put("headers", Collections.emptyList());
+		conditions.put("methods", Collections.singletonList(method));
+		conditions.put("params", Collections.emptyList());
+		conditions.put("patterns", Collections.singletonList(path));
+		conditions.put("produces", Collections.emptyList());
+		Map<String, Object> details = new LinkedHashMap<>();
+		details.put("handlerMethod", Collections.singletonMap("className", className));
+		details.put("requestMappingConditions", conditions);
+		return details;
+	}
+
+	private static Map<String, Object> mapping(String bean, String method) {
+		Map<String, Object> mapping = new LinkedHashMap<>();
+		mapping.put("bean", bean);
+		if (method != null) {
+			mapping.put("method", method);
+		}
+		return mapping;
+	}
+
+	/**
+	 * @return the HAL response of the index endpoint of the given service
+	 */
+	public String index(int service) {
+		JSONObject links = new JSONObject();
+		JSONObject curie = new JSONObject();
+		curie.put("name", "svc");
+		curie.put("href", "/docs/{rel}.html");
+		curie.put("templated", true);
+		links.put("curies", new JSONArray().put(curie));
+		for (int i = 0; i < nodesPerService; i++) {
+			links.put("svc:" + serviceId(service) + "-rel-" + i,
+					new JSONObject().put("href", serviceUri(service) + "/resource-" + i));
+		}
+		return new JSONObject().put("_links", links).toString();
+	}
+
+	/**
+	 * Converts the actuator responses of all services into nodes, using the
+	 * same converters as the aggregators. Nodes are ordered per aggregator and
+	 * per service, as if the aggregators responded one after the other.
+	 * @return freshly created nodes, which can be merged without affecting other calls
+	 */
+	public List<Node> nodes() {
+		HealthToNodeConverter healthConverter = new HealthToNodeConverter(new HealthProperties());
+		IndexToNodeConverter indexConverter = new IndexToNodeConverter(new IndexProperties());
+		List<Node> nodes = new ArrayList<>();
+		for (int service = 0; service < services; service++) {
+			nodes.addAll(healthConverter.convertToNodes(serviceId(service), health(service))
+					.toList().toBlocking().single());
+		}
+		for (int service = 0; service < services; service++) {
+			nodes.addAll(MappingsToNodeConverter.convertToNodes(serviceId(service), mappings(service))
+					.toList().toBlocking().single());
+		}
+		for (int service = 0; service < services; service++) {
+			nodes.addAll(indexConverter.convert(serviceId(service), serviceUri(service), index(service))
+					.toList().toBlocking().single());
+		}
+		return nodes;
+	}
+
+	/**
+	 * @return the nodes of the fleet after merging, as served by the graph
+	 */
+	public List<Node> mergedNodes() {
+		MergedNodes mergedNodes = new MergedNodes();
+		for (Node node : nodes()) {
+			mergedNodes.merge(node);
+		}
+		return mergedNodes.toList();
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.graph.GraphMapper;
+import be.ordina.msdashboard.nodes.model.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.functions.Func1;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks mapping the merged nodes onto the nodes and links of the graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphMapperBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int services;
+
+	@Param({ "5", "20" })
+	private int nodesPerService;
+
+	@Param({ "0.01", "0.1" })
+	private double linkDensity;
+
+	private List<Node> mergedNodes;
+	private Func1<List<Node>, Map<String, Object>> toGraph;
+
+	@Setup
+	public void generateFleet() {
+		mergedNodes = new FleetGenerator(services, nodesPerService, linkDensity).mergedNodes();
+		toGraph = GraphMapper.toGraph();
+	}
+
+	@Benchmark
+	public Map<String, Object> toGraph() {
+		return toGraph.call(mergedNodes);
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.nodes.aggregators.health.HealthProperties;
+import be.ordina.msdashboard.nodes.aggregators.health.HealthToNodeConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks converting the health response of a single service into nodes.
+ * The number of services only matters through the dependencies on other
+ * services, which grow with the service count and link density.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HealthToNodeConverterBenchmark {
+
+	@Param({ "100" })
+	private int services;
+
+	@Param({ "5", "20", "100" })
+	private int nodesPerService;
+
+	@Param({ "0.05" })
+	private double linkDensity;
+
+	private HealthToNodeConverter converter;
+	private Map<String, Object> health;
+
+	@Setup
+	public void generateFleet() {
+		converter = new HealthToNodeConverter(new HealthProperties());
+		health = new FleetGenerator(services, nodesPerService, linkDensity).health(0);
+	}
+
+	@Benchmark
+	public void convertToNodes(Blackhole blackhole) {
+		converter.convertToNodes(FleetGenerator.serviceId(0), health).subscribe(blackhole::consume);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.nodes.aggregators.index.IndexProperties;
+import be.ordina.msdashboard.nodes.aggregators.index.IndexToNodeConverter;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks converting the HAL index response of a single service into nodes,
+ * both from the response body and from the already parsed response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexToNodeConverterBenchmark {
+
+	@Param({ "5", "20", "100" })
+	private int nodesPerService;
+
+	private IndexToNodeConverter converter;
+	private String index;
+	private JSONObject parsedIndex;
+
+	@Setup
+	public void generateFleet() {
+		converter = new IndexToNodeConverter(new IndexProperties());
+		index = new FleetGenerator(1, nodesPerService, 0).index(0);
+		parsedIndex = new JSONObject(index);
+	}
+
+	@Benchmark
+	public void convert(Blackhole blackhole) {
+		converter.convert(FleetGenerator.serviceId(0), FleetGenerator.serviceUri(0), index)
+				.subscribe(blackhole::consume);
+	}
+
+	@Benchmark
+	public void convertParsed(Blackhole blackhole) {
+		converter.convert(FleetGenerator.serviceId(0), FleetGenerator.serviceUri(0), parsedIndex)
+				.subscribe(blackhole::consume);
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.nodes.model.Node;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A node as it was kept before the well-known details got fields of their own
+ * and the links became sorted arrays of shared ids: a map of details and two
+ * hash sets of ids, each id an instance of its own as parsed from the actuator
+ * responses. Kept as the baseline of {@link NodeFootprint}.
+ */
+class LegacyNode {
+
+	private String id;
+
+	private Map<String, Object> details = new HashMap<>();
+
+	private Integer lane;
+
+	private Set<String> linkedToNodeIds = new HashSet<>();
+
+	private Set<String> linkedFromNodeIds = new HashSet<>();
+
+	static LegacyNode of(Node node) {
+		LegacyNode legacyNode = new LegacyNode();
+		legacyNode.id = new String(node.getId());
+		legacyNode.lane = node.getLane();
+		node.getDetails().forEach((key, value) ->
+				legacyNode.details.put(key, value instanceof String ? new String((String) value) : value));
+		for (String id : node.getLinkedToNodeIds()) {
+			legacyNode.linkedToNodeIds.add(new String(id));
+		}
+		for (String id : node.getLinkedFromNodeIds()) {
+			legacyNode.linkedFromNodeIds.add(new String(id));
+		}
+		return legacyNode;
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.nodes.aggregators.mappings.MappingsToNodeConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks converting the mappings response of a single service into nodes,
+ * in both the Spring Boot 1.x and 2.x format. The regular expression based
+ * conversion which preceded the mapping key parser serves as baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingsToNodeConverterBenchmark {
+
+	@Param({ "5", "20", "100" })
+	private int nodesPerService;
+
+	private Map<String, Object> mappings;
+	private Map<String, Object> mappingsBoot2;
+
+	@Setup
+	public void generateFleet() {
+		FleetGenerator fleetGenerator = new FleetGenerator(1, nodesPerService, 0);
+		mappings = fleetGenerator.mappings(0);
+		mappingsBoot2 = fleetGenerator.mappingsBoot2(0);
+	}
+
+	@Benchmark
+	public void convertToNodes(Blackhole blackhole) {
+		MappingsToNodeConverter.convertToNodes(FleetGenerator.serviceId(0), mappings).subscribe(blackhole::consume);
+	}
+
+	@Benchmark
+	public void convertToNodesBoot2(Blackhole blackhole) {
+		MappingsToNodeConverter.convertToNodes(FleetGenerator.serviceId(0), mappingsBoot2).subscribe(blackhole::consume);
+	}
+
+	@Benchmark
+	public void convertToNodesLegacy(Blackhole blackhole) {
+		LegacyMappingsToNodeConverter.convertToNodes(FleetGenerator.serviceId(0), mappings).subscribe(blackhole::consume);
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the memory taken by the merged nodes of a fleet with the memory the
+ * same nodes took as {@link LegacyNode}s, measuring the whole object graph of
+ * the nodes with JOL. Every object reachable from the nodes is counted once,
+ * so ids and detail values shared between nodes are only counted once as well.
+ * <p>
+ * Run with the number of services, nodes per service and link density of the
+ * fleets to compare, for instance {@code 1000 20 0.1}, or without arguments to
+ * compare a few fleets.
+ */
+public class NodeFootprint {
+
+	public static void main(String[] args) {
+		System.out.printf("%10s %16s %10s %8s %14s %14s %8s%n",
+				"services", "nodesPerService", "density", "nodes", "legacy bytes", "bytes", "ratio");
+		if (args.length == 3) {
+			print(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Double.parseDouble(args[2]));
+			return;
+		}
+		for (int services : new int[] { 10, 100, 1000 }) {
+			for (int nodesPerService : new int[] { 5, 20 }) {
+				print(services, nodesPerService, 0.1);
+			}
+		}
+	}
+
+	private static void print(int services, int nodesPerService, double linkDensity) {
+		List<Node> nodes = new FleetGenerator(services, nodesPerService, linkDensity).mergedNodes();
+		List<LegacyNode> legacyNodes = new ArrayList<>(nodes.size());
+		for (Node node : nodes) {
+			legacyNodes.add(LegacyNode.of(node));
+		}
+		long legacySize = GraphLayout.parseInstance(legacyNodes.toArray()).totalSize();
+		long size = GraphLayout.parseInstance(nodes.toArray()).totalSize();
+		System.out.printf("%10d %16d %10.2f %8d %14d %14d %8.2f%n",
+				services, nodesPerService, linkDensity, nodes.size(), legacySize, size, (double) size / legacySize);
+	}
+}
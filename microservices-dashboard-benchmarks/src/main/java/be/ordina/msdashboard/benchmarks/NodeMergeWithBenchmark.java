@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import be.ordina.msdashboard.nodes.model.NodeBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+
+/**
+ * Benchmarks merging a single node into another node with the same id.
+ * <p>
+ * {@link #mergeWithMergedNode()} merges into a node which already contains
+ * everything of the other node, the common case when the same service is
+ * reported by several aggregators. {@link #mergeWithCopy()} merges into a
+ * fresh copy, and includes the cost of {@link #copy()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeMergeWithBenchmark {
+
+	@Param({ "4", "16" })
+	private int details;
+
+	@Param({ "4", "64" })
+	private int links;
+
+	private Node node;
+	private Node other;
+
+	@Setup
+	public void createNodes() {
+		node = createNode("UP");
+		other = createNode("DOWN");
+		node.mergeWith(other);
+	}
+
+	private Node createNode(String status) {
+		NodeBuilder builder = node().withId(FleetGenerator.serviceId(0)).withDetail(Node.STATUS, status);
+		for (int i = 0; i < details; i++) {
+			builder.withDetail("detail-" + i, status + "-" + i);
+		}
+		for (int i = 0; i < links; i++) {
+			builder.withLinkedToNodeId(FleetGenerator.serviceId(i + 1));
+			builder.withLinkedFromNodeId(FleetGenerator.serviceId(0) + "-rel-" + i);
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public Node mergeWithMergedNode() {
+		node.mergeWith(other);
+		return node;
+	}
+
+	@Benchmark
+	public Node mergeWithCopy() {
+		Node copy = Node.copyOf(other);
+		copy.mergeWith(node);
+		return copy;
+	}
+
+	@Benchmark
+	public Node copy() {
+		return Node.copyOf(other);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.benchmarks;
+
+import be.ordina.msdashboard.graph.MergedNodes;
+import be.ordina.msdashboard.graph.NodeMerger;
+import be.ordina.msdashboard.nodes.model.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import rx.functions.Func2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reducing the nodes emitted by the aggregators into merged nodes.
+ * <p>
+ * Merging changes the nodes, so every invocation merges fresh copies of the
+ * emitted nodes, which are created outside of the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeMergerBenchmark {
+
+	@Param({ "10", "100", "500" })
+	private int services;
+
+	@Param({ "5", "20" })
+	private int nodesPerService;
+
+	@Param({ "0.05" })
+	private double linkDensity;
+
+	private List<Node> emittedNodes;
+	private List<Node> nodes;
+
+	@Setup
+	public void generateFleet() {
+		emittedNodes = new FleetGenerator(services, nodesPerService, linkDensity).nodes();
+	}
+
+	@Setup(Level.Invocation)
+	public void copyNodes() {
+		nodes = Node.copyAll(emittedNodes);
+	}
+
+	@Benchmark
+	public List<Node> merge() {
+		Func2<List<Node>, Node, List<Node>> merge = NodeMerger.merge();
+		List<Node> mergedNodes = new ArrayList<>();
+		for (Node node : nodes) {
+			mergedNodes = merge.call(mergedNodes, node);
+		}
+		return mergedNodes;
+	}
+
+	@Benchmark
+	public List<Node> mergeIndexed() {
+		Func2<MergedNodes, Node, MergedNodes> merge = NodeMerger.mergeIndexed();
+		MergedNodes mergedNodes = new MergedNodes();
+		for (Node node : nodes) {
+			mergedNodes = merge.call(mergedNodes, node);
+		}
+		return mergedNodes.toList();
+	}
+}
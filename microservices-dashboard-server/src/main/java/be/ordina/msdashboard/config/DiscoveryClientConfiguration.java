@@ -15,14 +15,21 @@
  */
 package be.ordina.msdashboard.config;
 
+import be.ordina.msdashboard.nodes.discovery.DiscoveryRegistry;
+import be.ordina.msdashboard.nodes.discovery.DiscoveryRegistryProperties;
+import be.ordina.msdashboard.nodes.uriresolvers.EurekaInstanceFingerprintResolver;
 import be.ordina.msdashboard.nodes.uriresolvers.EurekaUriResolver;
+import be.ordina.msdashboard.nodes.uriresolvers.InstanceFingerprintResolver;
 import be.ordina.msdashboard.nodes.uriresolvers.UriResolver;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.discovery.noop.NoopDiscoveryClientAutoConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -43,4 +50,24 @@ public class DiscoveryClientConfiguration {
         return new EurekaUriResolver();
     }
 
+    @Bean
+    @ConditionalOnClass(name = "com.netflix.discovery.EurekaClient")
+    @ConditionalOnMissingBean
+    public InstanceFingerprintResolver instanceFingerprintResolver() {
+        return new EurekaInstanceFingerprintResolver();
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "msdashboard.discovery.enabled", matchIfMissing = true)
+    @ConditionalOnMissingBean
+    public DiscoveryRegistry discoveryRegistry(DiscoveryClient discoveryClient, ApplicationEventPublisher publisher) {
+        return new DiscoveryRegistry(discoveryClient, publisher, discoveryRegistryProperties());
+    }
+
+    @ConfigurationProperties("msdashboard.discovery")
+    @Bean
+    public DiscoveryRegistryProperties discoveryRegistryProperties() {
+        return new DiscoveryRegistryProperties();
+    }
+
 }
@@ -21,8 +21,10 @@ import be.ordina.msdashboard.nodes.aggregators.health.HealthIndicatorsAggregator
 import be.ordina.msdashboard.nodes.aggregators.health.HealthProperties;
 import be.ordina.msdashboard.nodes.aggregators.health.HealthToNodeConverter;
 import be.ordina.msdashboard.nodes.aggregators.health.MicroserviceGrouper;
+import be.ordina.msdashboard.nodes.discovery.DiscoveryRegistry;
 import be.ordina.msdashboard.nodes.uriresolvers.UriResolver;
 import be.ordina.msdashboard.security.outbound.SecurityStrategyFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -51,12 +53,16 @@ public class HealthAggregatorConfiguration {
 	private UriResolver uriResolver;
 	@Autowired(required = false)
 	private SecurityStrategyFactory securityStrategyFactory;
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+	@Autowired(required = false)
+	private DiscoveryRegistry discoveryRegistry;
 
 	@Bean
 	@ConditionalOnMissingBean
 	public HealthIndicatorsAggregator healthIndicatorsAggregator(HealthToNodeConverter healthToNodeConverter) {
-		return new HealthIndicatorsAggregator(discoveryClient, uriResolver, healthProperties(),
-				caller, errorHandler, healthToNodeConverter, securityStrategyFactory);
+		return new HealthIndicatorsAggregator(discovery(), uriResolver, healthProperties(),
+				healthCaller(), errorHandler, healthToNodeConverter, securityStrategyFactory);
 	}
 
 	@Bean
@@ -78,4 +84,15 @@ public class HealthAggregatorConfiguration {
 		return new MicroserviceGrouper();
 	}
 
+	private NettyServiceCaller healthCaller() {
+		HealthProperties properties = healthProperties();
+		return caller.withBulkhead(properties.getBulkhead())
+				.withTimeouts(properties.getTimeout())
+				.withHedging(properties.getHedging())
+				.withCircuitBreaker("health", properties.getCircuitBreaker(), meterRegistry);
+	}
+
+	private DiscoveryClient discovery() {
+		return discoveryRegistry != null ? discoveryRegistry.asDiscoveryClient() : discoveryClient;
+	}
 }
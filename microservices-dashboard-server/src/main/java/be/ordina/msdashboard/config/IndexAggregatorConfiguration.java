@@ -15,12 +15,16 @@
  */
 package be.ordina.msdashboard.config;
 
+import be.ordina.msdashboard.nodes.aggregators.InstanceResultCache;
 import be.ordina.msdashboard.nodes.aggregators.NettyServiceCaller;
 import be.ordina.msdashboard.nodes.aggregators.index.IndexProperties;
 import be.ordina.msdashboard.nodes.aggregators.index.IndexToNodeConverter;
 import be.ordina.msdashboard.nodes.aggregators.index.IndexesAggregator;
+import be.ordina.msdashboard.nodes.discovery.DiscoveryRegistry;
+import be.ordina.msdashboard.nodes.uriresolvers.InstanceFingerprintResolver;
 import be.ordina.msdashboard.nodes.uriresolvers.UriResolver;
 import be.ordina.msdashboard.security.outbound.SecurityStrategyFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -32,6 +36,8 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Paths;
+
 /**
  * Autoconfiguration for the index aggregator.
  *
@@ -52,12 +58,18 @@ public class IndexAggregatorConfiguration {
 	private UriResolver uriResolver;
 	@Autowired(required = false)
 	private SecurityStrategyFactory securityStrategyFactory;
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+	@Autowired(required = false)
+	private DiscoveryRegistry discoveryRegistry;
+	@Autowired(required = false)
+	private InstanceFingerprintResolver fingerprintResolver;
 
 	@Bean
 	@ConditionalOnMissingBean
 	public IndexesAggregator indexesAggregator(IndexToNodeConverter indexToNodeConverter, ApplicationEventPublisher publisher) {
-		return new IndexesAggregator(indexToNodeConverter, discoveryClient, uriResolver, indexProperties(),
-				publisher, caller, securityStrategyFactory);
+		return new IndexesAggregator(indexToNodeConverter, discovery(), uriResolver, indexProperties(),
+				publisher, indexCaller(), securityStrategyFactory, indexResultCache());
 	}
 
 	@Bean
@@ -71,4 +83,25 @@ public class IndexAggregatorConfiguration {
 	public IndexProperties indexProperties() {
 		return new IndexProperties();
 	}
+
+	private NettyServiceCaller indexCaller() {
+		IndexProperties properties = indexProperties();
+		return caller.withBulkhead(properties.getBulkhead())
+				.withTimeouts(properties.getTimeout())
+				.withHedging(properties.getHedging())
+				.withCircuitBreaker("index", properties.getCircuitBreaker(), meterRegistry)
+				.withResponseCache(properties.isCacheResponses());
+	}
+
+	private InstanceResultCache indexResultCache() {
+		if (!indexProperties().isRefreshOnChange() || fingerprintResolver == null) {
+			return null;
+		}
+		String directory = indexProperties().getResultCacheDirectory();
+		return new InstanceResultCache(fingerprintResolver, directory != null ? Paths.get(directory) : null);
+	}
+
+	private DiscoveryClient discovery() {
+		return discoveryRegistry != null ? discoveryRegistry.asDiscoveryClient() : discoveryClient;
+	}
 }
@@ -16,11 +16,15 @@
 package be.ordina.msdashboard.config;
 
 import be.ordina.msdashboard.nodes.aggregators.ErrorHandler;
+import be.ordina.msdashboard.nodes.aggregators.InstanceResultCache;
 import be.ordina.msdashboard.nodes.aggregators.NettyServiceCaller;
 import be.ordina.msdashboard.nodes.aggregators.mappings.MappingsAggregator;
 import be.ordina.msdashboard.nodes.aggregators.mappings.MappingsProperties;
+import be.ordina.msdashboard.nodes.discovery.DiscoveryRegistry;
+import be.ordina.msdashboard.nodes.uriresolvers.InstanceFingerprintResolver;
 import be.ordina.msdashboard.nodes.uriresolvers.UriResolver;
 import be.ordina.msdashboard.security.outbound.SecurityStrategyFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -31,6 +35,8 @@ import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Paths;
+
 /**
  * Autoconfiguration for the mappings aggregator.
  *
@@ -53,12 +59,18 @@ public class MappingsAggregatorConfiguration {
 	private UriResolver uriResolver;
 	@Autowired(required = false)
 	private SecurityStrategyFactory securityStrategyFactory;
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+	@Autowired(required = false)
+	private DiscoveryRegistry discoveryRegistry;
+	@Autowired(required = false)
+	private InstanceFingerprintResolver fingerprintResolver;
 
 	@Bean
 	@ConditionalOnMissingBean
 	public MappingsAggregator mappingsAggregator() {
-		return new MappingsAggregator(discoveryClient, uriResolver, mappingsProperties(), caller,
-				errorHandler, securityStrategyFactory);
+		return new MappingsAggregator(discovery(), uriResolver, mappingsProperties(),
+				mappingsCaller(), errorHandler, securityStrategyFactory, mappingsResultCache());
 	}
 
 	@ConfigurationProperties("msdashboard.mappings")
@@ -66,4 +78,25 @@ public class MappingsAggregatorConfiguration {
 	public MappingsProperties mappingsProperties() {
 		return new MappingsProperties();
 	}
+
+	private NettyServiceCaller mappingsCaller() {
+		MappingsProperties properties = mappingsProperties();
+		return caller.withBulkhead(properties.getBulkhead())
+				.withTimeouts(properties.getTimeout())
+				.withHedging(properties.getHedging())
+				.withCircuitBreaker("mappings", properties.getCircuitBreaker(), meterRegistry)
+				.withResponseCache(properties.isCacheResponses());
+	}
+
+	private InstanceResultCache mappingsResultCache() {
+		if (!mappingsProperties().isRefreshOnChange() || fingerprintResolver == null) {
+			return null;
+		}
+		String directory = mappingsProperties().getResultCacheDirectory();
+		return new InstanceResultCache(fingerprintResolver, directory != null ? Paths.get(directory) : null);
+	}
+
+	private DiscoveryClient discovery() {
+		return discoveryRegistry != null ? discoveryRegistry.asDiscoveryClient() : discoveryClient;
+	}
 }
@@ -18,7 +18,13 @@ package be.ordina.msdashboard.config;
 
 import be.ordina.msdashboard.cache.CacheProperties;
 import be.ordina.msdashboard.config.RedisConfiguration.RedisOrMockCondition;
+import be.ordina.msdashboard.nodes.stores.JsonNodeCodec;
+import be.ordina.msdashboard.nodes.stores.NodeCodec;
+import be.ordina.msdashboard.nodes.stores.NodeRedisSerializer;
+import be.ordina.msdashboard.nodes.stores.NodesNearCache;
 import be.ordina.msdashboard.nodes.stores.RedisStore;
+import be.ordina.msdashboard.nodes.stores.RedisStoreProperties;
+import be.ordina.msdashboard.nodes.stores.SmileNodeCodec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
@@ -35,7 +41,8 @@ import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import redis.embedded.RedisServer;
 
@@ -71,7 +78,31 @@ public class RedisConfiguration {
 	@Bean(name = {"nodeStore", "nodeCache"})
 	public RedisStore nodeStore(final RedisConnectionFactory factory) {
 
-		return new RedisStore(redisTemplate(factory), factory);
+		return new RedisStore(redisTemplate(factory), factory, redisStoreProperties(),
+				redisStoreProperties().isNearCache() ? nodesNearCache() : null);
+	}
+
+	@Bean
+	public NodesNearCache nodesNearCache() {
+
+		return new NodesNearCache(redisStoreProperties().getNearCacheTimeToLive());
+	}
+
+	@Bean
+	@ConditionalOnProperty("msdashboard.redis.near-cache")
+	public RedisMessageListenerContainer nodesNearCacheListenerContainer(final RedisConnectionFactory factory) {
+
+		final RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(factory);
+		container.addMessageListener(nodesNearCache(), new ChannelTopic(NodesNearCache.INVALIDATION_CHANNEL));
+		return container;
+	}
+
+	@ConfigurationProperties("msdashboard.redis")
+	@Bean
+	public RedisStoreProperties redisStoreProperties() {
+
+		return new RedisStoreProperties();
 	}
 
 	@Bean
@@ -80,10 +111,20 @@ public class RedisConfiguration {
 		final RedisTemplate<String, Object> virtualNodeTemplate = new RedisTemplate<>();
 		virtualNodeTemplate.setConnectionFactory(factory);
 		virtualNodeTemplate.setKeySerializer(new StringRedisSerializer());
-		virtualNodeTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+		final NodeRedisSerializer nodeSerializer = new NodeRedisSerializer(nodeCodec());
+		virtualNodeTemplate.setValueSerializer(nodeSerializer);
+		virtualNodeTemplate.setHashKeySerializer(new StringRedisSerializer());
+		virtualNodeTemplate.setHashValueSerializer(nodeSerializer);
 		return virtualNodeTemplate;
 	}
 
+	@Bean
+	public NodeCodec nodeCodec() {
+
+		return redisStoreProperties().getCodec() == RedisStoreProperties.Codec.JSON ?
+				new JsonNodeCodec() : new SmileNodeCodec();
+	}
+
 	@Bean
 	@ConditionalOnProperty("redis.mock")
 	public InMemoryRedis inMemoryRedis() {
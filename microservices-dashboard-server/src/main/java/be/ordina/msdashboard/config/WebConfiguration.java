@@ -18,23 +18,36 @@ package be.ordina.msdashboard.config;
 import be.ordina.msdashboard.cache.CacheProperties;
 import be.ordina.msdashboard.cache.NodeCache;
 import be.ordina.msdashboard.controllers.CacheController;
+import be.ordina.msdashboard.controllers.EventHistoryController;
+import be.ordina.msdashboard.controllers.EventStreamController;
 import be.ordina.msdashboard.controllers.EventsController;
 import be.ordina.msdashboard.controllers.GraphController;
+import be.ordina.msdashboard.controllers.GraphStreamController;
+import be.ordina.msdashboard.graph.GraphContentCache;
+import be.ordina.msdashboard.graph.GraphJsonWriter;
 import be.ordina.msdashboard.graph.GraphProperties;
+import be.ordina.msdashboard.graph.GraphRefresher;
 import be.ordina.msdashboard.graph.GraphRetriever;
 import be.ordina.msdashboard.nodes.aggregators.ErrorHandler;
+import be.ordina.msdashboard.nodes.aggregators.ErrorHandlerProperties;
 import be.ordina.msdashboard.nodes.aggregators.NettyServiceCaller;
 import be.ordina.msdashboard.nodes.aggregators.NodeAggregator;
+import be.ordina.msdashboard.nodes.stores.EventLog;
+import be.ordina.msdashboard.nodes.stores.EventLogProperties;
 import be.ordina.msdashboard.nodes.stores.EventStore;
+import be.ordina.msdashboard.nodes.stores.EventStoreProperties;
 import be.ordina.msdashboard.nodes.stores.NodeStore;
 import be.ordina.msdashboard.nodes.stores.SimpleStore;
 import be.ordina.msdashboard.nodes.uriresolvers.DefaultUriResolver;
 import be.ordina.msdashboard.nodes.uriresolvers.UriResolver;
 import be.ordina.msdashboard.security.config.MSDashboardSecurityProperties;
 import be.ordina.msdashboard.security.outbound.SecurityStrategyFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.buffer.ByteBuf;
 import io.reactivex.netty.protocol.http.client.CompositeHttpClient;
 import io.reactivex.netty.protocol.http.client.CompositeHttpClientBuilder;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
@@ -48,6 +61,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -64,6 +78,9 @@ import static io.reactivex.netty.client.MaxConnectionsBasedStrategy.DEFAULT_MAX_
 @AutoConfigureAfter({ RedisConfiguration.class })
 public class WebConfiguration extends WebMvcConfigurerAdapter {
 
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
     @ConditionalOnMissingBean
     @ConfigurationProperties("msdashboard.cache")
     @Bean
@@ -82,8 +99,8 @@ public class WebConfiguration extends WebMvcConfigurerAdapter {
 
         @Bean
         @ConditionalOnMissingBean
-        public CacheController cacheController() {
-                return new CacheController(cacheProperties, nodeCache);
+        public CacheController cacheController(ObjectProvider<GraphRefresher> graphRefresher) {
+                return new CacheController(cacheProperties, nodeCache, graphRefresher.getIfAvailable());
             }
     }
 
@@ -105,8 +122,38 @@ public class WebConfiguration extends WebMvcConfigurerAdapter {
 
         @Bean
         @ConditionalOnMissingBean
-        public GraphController graphController() {
-            return new GraphController(graphRetriever(), nodeStore);
+        public GraphController graphController(ObjectProvider<ObjectMapper> objectMapper,
+                                               ObjectProvider<GraphRefresher> graphRefresher) {
+            GraphJsonWriter graphJsonWriter = graphProperties().isStreaming() ? graphJsonWriter(objectMapper) : null;
+            GraphContentCache graphContentCache = graphProperties().isEtag() ? graphContentCache(objectMapper) : null;
+            return new GraphController(graphRetriever(), nodeStore, graphJsonWriter, graphRefresher.getIfAvailable(),
+                    graphContentCache);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public GraphContentCache graphContentCache(ObjectProvider<ObjectMapper> objectMapper) {
+            return new GraphContentCache(graphJsonWriter(objectMapper), graphProperties());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty("msdashboard.graph.refresh.enabled")
+        public GraphRefresher graphRefresher(ApplicationEventPublisher publisher) {
+            return new GraphRefresher(graphRetriever(), graphProperties(), publisher);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty("msdashboard.graph.refresh.enabled")
+        public GraphStreamController graphStreamController(GraphRefresher graphRefresher) {
+            return new GraphStreamController(graphRefresher);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public GraphJsonWriter graphJsonWriter(ObjectProvider<ObjectMapper> objectMapper) {
+            return new GraphJsonWriter(graphProperties(), objectMapper.getIfAvailable(ObjectMapper::new));
         }
 
         @ConfigurationProperties("msdashboard.graph")
@@ -121,21 +168,59 @@ public class WebConfiguration extends WebMvcConfigurerAdapter {
 
         @Bean
         @ConditionalOnMissingBean
-        public EventsController eventsController() {
-            return new EventsController(eventListener());
+        public EventsController eventsController(ObjectProvider<ErrorHandler> errorHandler) {
+            return new EventsController(eventListener(), errorHandler.getIfAvailable());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public EventStreamController eventStreamController() {
+            return new EventStreamController(eventListener());
         }
 
         @Bean
         @ConditionalOnMissingBean
         public EventStore eventListener() {
-            return new EventStore();
+            return new EventStore(eventStoreProperties());
+        }
+
+        @ConfigurationProperties("msdashboard.events")
+        @Bean
+        public EventStoreProperties eventStoreProperties() {
+            return new EventStoreProperties();
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty("msdashboard.events.log.enabled")
+        public EventLog eventLog() throws IOException {
+            return new EventLog(eventLogProperties());
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty("msdashboard.events.log.enabled")
+        public EventHistoryController eventHistoryController() throws IOException {
+            return new EventHistoryController(eventLog(), eventLogProperties().getMaxLimit());
+        }
+
+        @ConfigurationProperties("msdashboard.events.log")
+        @Bean
+        public EventLogProperties eventLogProperties() {
+            return new EventLogProperties();
         }
     }
 
     @Bean
     @ConditionalOnMissingBean
     public ErrorHandler errorHandler(ApplicationEventPublisher publisher) {
-        return new ErrorHandler(publisher);
+        return new ErrorHandler(publisher, errorHandlerProperties(), meterRegistry);
+    }
+
+    @ConfigurationProperties("msdashboard.errors")
+    @Bean
+    public ErrorHandlerProperties errorHandlerProperties() {
+        return new ErrorHandlerProperties();
     }
 
     @Bean
@@ -147,8 +232,9 @@ public class WebConfiguration extends WebMvcConfigurerAdapter {
 
     @Bean
     @ConditionalOnMissingBean
-    public NettyServiceCaller nettyServiceCaller(ApplicationEventPublisher publisher, CompositeHttpClient<ByteBuf, ByteBuf> rxClient) {
-        return new NettyServiceCaller(errorHandler(publisher), rxClient);
+    public NettyServiceCaller nettyServiceCaller(ApplicationEventPublisher publisher, CompositeHttpClient<ByteBuf, ByteBuf> rxClient,
+                                                 ObjectProvider<ObjectMapper> objectMapper) {
+        return new NettyServiceCaller(errorHandler(publisher), rxClient, objectMapper.getIfAvailable(ObjectMapper::new));
     }
 
     @Bean
@@ -17,6 +17,7 @@ package be.ordina.msdashboard.controllers;
 
 import be.ordina.msdashboard.cache.CacheProperties;
 import be.ordina.msdashboard.cache.NodeCache;
+import be.ordina.msdashboard.graph.GraphRefresher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -38,18 +39,28 @@ public class CacheController {
 
 	private final CacheProperties cacheProperties;
 	private final NodeCache nodeCache;
+	private GraphRefresher graphRefresher;
 
 	public CacheController(CacheProperties cacheProperties, NodeCache nodeCache) {
 		this.cacheProperties = cacheProperties;
 		this.nodeCache = nodeCache;
 	}
 
+	public CacheController(CacheProperties cacheProperties, NodeCache nodeCache, GraphRefresher graphRefresher) {
+		this(cacheProperties, nodeCache);
+		this.graphRefresher = graphRefresher;
+	}
+
 	@RequestMapping(value = "/evictCache", method = POST)
 	public void evictCache(){
 		if (nodeCache != null && cacheProperties.isEvict()) {
 			logger.info("Cleaning cache");
 			nodeCache.evictGraphCache();
 		}
+		if (graphRefresher != null && cacheProperties.isEvict()) {
+			logger.info("Refreshing graph snapshot");
+			graphRefresher.requestRefresh();
+		}
 	}
 
 }
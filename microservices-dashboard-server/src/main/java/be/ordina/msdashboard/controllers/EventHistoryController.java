@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.controllers;
+
+import be.ordina.msdashboard.nodes.stores.EventLog;
+import be.ordina.msdashboard.nodes.stores.EventLogProperties;
+import be.ordina.msdashboard.nodes.stores.EventRecord;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+/**
+ * Serves the history of events kept in the {@link EventLog}.
+ */
+@CrossOrigin(maxAge = 3600)
+@RestController
+public class EventHistoryController {
+
+    static final int DEFAULT_LIMIT = 1000;
+
+    private final EventLog eventLog;
+    private final int maxLimit;
+
+    public EventHistoryController(EventLog eventLog) {
+        this(eventLog, new EventLogProperties().getMaxLimit());
+    }
+
+    public EventHistoryController(EventLog eventLog, int maxLimit) {
+        this.eventLog = eventLog;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Returns the events which occurred within the given time range in
+     * milliseconds since the epoch, both inclusive, oldest first. At most the
+     * configured maximum number of events is returned, whatever the limit.
+     */
+    @RequestMapping(value = "/events/history", method = GET)
+    public List<EventRecord> getHistory(@RequestParam(required = false) Long from,
+                                        @RequestParam(required = false) Long to,
+                                        @RequestParam(required = false) Integer limit) {
+        if (limit != null && limit < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must not be negative");
+        }
+        return eventLog.getEvents(from != null ? from : 0, to != null ? to : Long.MAX_VALUE,
+                Math.min(limit != null ? limit : DEFAULT_LIMIT, maxLimit));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.controllers;
+
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.model.SystemEvent;
+import be.ordina.msdashboard.nodes.stores.EventFilter;
+import be.ordina.msdashboard.nodes.stores.EventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+/**
+ * Streams the events kept by the {@link EventStore} as Server-Sent Events.
+ * <p>
+ * Every subscriber receives an {@code event} event for every newly stored event
+ * accepted by its filter, by node, minimum severity and type. The id of every
+ * event is its sequence number, so a subscriber reconnecting with a
+ * {@code Last-Event-ID} first receives the kept events it missed.
+ * <p>
+ * Events are sent on a thread of their own, so a slow subscriber never holds up
+ * the thread storing the events.
+ */
+@CrossOrigin(maxAge = 3600)
+@RestController
+public class EventStreamController {
+
+	private static final Logger logger = LoggerFactory.getLogger(EventStreamController.class);
+
+	static final String EVENT = "event";
+
+	private final EventStore eventStore;
+	private final Executor executor;
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean sending = new AtomicBoolean();
+
+	public EventStreamController(EventStore eventStore) {
+		this(eventStore, Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "msdashboard-event-stream");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	EventStreamController(EventStore eventStore, Executor executor) {
+		this.eventStore = eventStore;
+		this.executor = executor;
+		eventStore.addListener(event -> handleEvent());
+	}
+
+	@RequestMapping(value = "/events/stream", method = GET, produces = "text/event-stream")
+	public SseEmitter streamEvents(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+								   @RequestParam(required = false) String nodeId,
+								   @RequestParam(required = false) Severity severity,
+								   @RequestParam(required = false) String type) {
+		SseEmitter emitter = createEmitter();
+		Subscription subscription = new Subscription(emitter, new EventFilter(nodeId, severity, type),
+				lastEventId != null ? lastEventId : eventStore.getLastSequence());
+		emitter.onCompletion(() -> subscriptions.remove(subscription));
+		emitter.onTimeout(() -> subscriptions.remove(subscription));
+		subscriptions.add(subscription);
+		// An event stored while subscribing may have been missed, so catch up afterwards
+		subscription.sendNewEvents();
+		return emitter;
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (executor instanceof ExecutorService) {
+			((ExecutorService) executor).shutdown();
+		}
+	}
+
+	/**
+	 * Schedules sending the new events to all subscribers, unless that is
+	 * already scheduled, as all events stored by then are sent at once.
+	 */
+	private void handleEvent() {
+		if (!sending.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(() -> {
+				sending.set(false);
+				for (Subscription subscription : subscriptions) {
+					subscription.sendNewEvents();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			sending.set(false);
+			logger.debug("Not sending events, the event stream is shut down");
+		}
+	}
+
+	int getSubscriptionCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * Creates the emitter for a new subscriber, which never times out.
+	 */
+	protected SseEmitter createEmitter() {
+		return new SseEmitter(0L);
+	}
+
+	private final class Subscription {
+
+		private final SseEmitter emitter;
+		private final EventFilter filter;
+		private long sequence;
+
+		private Subscription(SseEmitter emitter, EventFilter filter, long sequence) {
+			this.emitter = emitter;
+			this.filter = filter;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Sends the events published after the ones already sent, so events are
+		 * sent in order and only once, even when stored concurrently. The events
+		 * are read up to the published watermark of the store, which never passes
+		 * an event still being stored, so continuing after it skips no event.
+		 */
+		private synchronized void sendNewEvents() {
+			long published = eventStore.getLastSequence();
+			for (SystemEvent event : eventStore.getEvents(sequence, Integer.MAX_VALUE, filter)) {
+				try {
+					emitter.send(SseEmitter.event().name(EVENT).id(Long.toString(event.getSequence())).data(event));
+					sequence = event.getSequence();
+				} catch (IOException | IllegalStateException e) {
+					logger.debug("Removing event stream subscriber: {}", e.getMessage());
+					subscriptions.remove(this);
+					emitter.completeWithError(e);
+					return;
+				}
+			}
+			sequence = Math.max(sequence, published);
+		}
+	}
+}
@@ -15,14 +15,20 @@
  */
 package be.ordina.msdashboard.controllers;
 
+import be.ordina.msdashboard.nodes.aggregators.ErrorHandler;
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.stores.EventFilter;
 import be.ordina.msdashboard.nodes.stores.EventStore;
 import be.ordina.msdashboard.nodes.model.SystemEvent;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 import static org.springframework.web.bind.annotation.RequestMethod.*;
 
@@ -35,16 +41,49 @@ import static org.springframework.web.bind.annotation.RequestMethod.*;
 public class EventsController {
 
     private EventStore eventStore;
+    private ErrorHandler errorHandler;
 
     public EventsController(EventStore eventStore) {
+        this(eventStore, null);
+    }
+
+    public EventsController(EventStore eventStore, ErrorHandler errorHandler) {
         this.eventStore = eventStore;
+        this.errorHandler = errorHandler;
     }
 
-    @RequestMapping(value = "/events", method = GET)
     public Collection<SystemEvent> getEvents() {
         return eventStore.getEvents();
     }
 
+    /**
+     * Returns the events stored after the {@code since} sequence number, at most
+     * {@code limit} of them, or all events when neither is given. The sequence
+     * number of the last event returned is the cursor for the next page. Events
+     * can be filtered by node, minimum severity and type.
+     */
+    @RequestMapping(value = "/events", method = GET)
+    public Collection<SystemEvent> getEvents(@RequestParam(required = false) Long since,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String nodeId,
+                                             @RequestParam(required = false) Severity severity,
+                                             @RequestParam(required = false) String type) {
+        EventFilter filter = new EventFilter(nodeId, severity, type);
+        if (since == null && limit == null) {
+            return eventStore.getEvents(-1, Integer.MAX_VALUE, filter);
+        }
+        return eventStore.getEvents(since != null ? since : -1, limit != null ? limit : eventStore.getPageSize(), filter);
+    }
+
+    /**
+     * Returns the number of events which were suppressed per service and kind
+     * of event, instead of being published.
+     */
+    @RequestMapping(value = "/events/suppressed", method = GET)
+    public Map<String, Long> getSuppressedEvents() {
+        return errorHandler != null ? errorHandler.getSuppressedEvents() : Collections.emptyMap();
+    }
+
     @RequestMapping(value = "/events", method = DELETE)
     public void deleteEvents() {
         eventStore.deleteEvents();
@@ -15,15 +15,30 @@
  */
 package be.ordina.msdashboard.controllers;
 
+import be.ordina.msdashboard.graph.GraphContent;
+import be.ordina.msdashboard.graph.GraphContentCache;
+import be.ordina.msdashboard.graph.GraphJsonWriter;
+import be.ordina.msdashboard.graph.GraphRefresher;
 import be.ordina.msdashboard.graph.GraphRetriever;
+import be.ordina.msdashboard.graph.GraphSnapshot;
 import be.ordina.msdashboard.nodes.model.Node;
 import be.ordina.msdashboard.nodes.stores.NodeStore;
 import org.springframework.http.HttpEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
+import static org.springframework.http.HttpHeaders.WARNING;
+import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
 import static org.springframework.http.ResponseEntity.ok;
 import static org.springframework.web.bind.annotation.RequestMethod.*;
 
@@ -35,20 +50,101 @@ import static org.springframework.web.bind.annotation.RequestMethod.*;
 @ResponseBody
 public class GraphController {
 
+	static final String STALE_WARNING = "110 - \"Response is Stale\"";
+	private static final String GZIP = "gzip";
+
 	private GraphRetriever graphRetriever;
 	private NodeStore nodeStore;
+	private GraphJsonWriter graphJsonWriter;
+	private GraphRefresher graphRefresher;
+	private GraphContentCache graphContentCache;
 
 	public GraphController(GraphRetriever graphRetriever, NodeStore nodeStore) {
 		this.graphRetriever = graphRetriever;
 		this.nodeStore = nodeStore;
 	}
 
+	/**
+	 * Creates a controller which streams the graph using the given writer.
+	 */
+	public GraphController(GraphRetriever graphRetriever, NodeStore nodeStore, GraphJsonWriter graphJsonWriter) {
+		this(graphRetriever, nodeStore);
+		this.graphJsonWriter = graphJsonWriter;
+	}
+
+	/**
+	 * Creates a controller which serves the graph from the snapshot kept by the
+	 * given refresher, streaming it when a writer is given.
+	 */
+	public GraphController(GraphRetriever graphRetriever, NodeStore nodeStore, GraphJsonWriter graphJsonWriter,
+						   GraphRefresher graphRefresher) {
+		this(graphRetriever, nodeStore, graphJsonWriter);
+		this.graphRefresher = graphRefresher;
+	}
+
+	/**
+	 * Creates a controller which serves the graph with an ETag, using the
+	 * serialized graph kept by the given cache.
+	 */
+	public GraphController(GraphRetriever graphRetriever, NodeStore nodeStore, GraphJsonWriter graphJsonWriter,
+						   GraphRefresher graphRefresher, GraphContentCache graphContentCache) {
+		this(graphRetriever, nodeStore, graphJsonWriter, graphRefresher);
+		this.graphContentCache = graphContentCache;
+	}
+
 	//TODO: Support table response?
 	@RequestMapping(value = "/graph", produces = "application/json")
+	public HttpEntity<Map<String, Object>> retrieveGraph(HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		GraphSnapshot snapshot = null;
+		if (graphRefresher != null) {
+			snapshot = graphRefresher.getSnapshot();
+			if (graphRefresher.isStale(snapshot)) {
+				response.setHeader(WARNING, STALE_WARNING);
+			}
+		}
+		if (graphContentCache != null) {
+			List<Node> nodes = snapshot != null ? snapshot.getNodes() : graphRetriever.retrieveNodes();
+			writeContent(graphContentCache.getContent(nodes), request, response);
+			return null;
+		}
+		if (graphJsonWriter != null) {
+			List<Node> nodes = snapshot != null ? snapshot.getNodes() : graphRetriever.retrieveNodes();
+			response.setContentType(APPLICATION_JSON_UTF8_VALUE);
+			graphJsonWriter.write(nodes, response.getOutputStream());
+			return null;
+		}
+		return snapshot != null ? ok().body(snapshot.getGraph()) : retrieveGraph();
+	}
+
 	public HttpEntity<Map<String, Object>> retrieveGraph() {
 		return ok().body(graphRetriever.retrieve());
 	}
 
+	private void writeContent(GraphContent content, HttpServletRequest request, HttpServletResponse response)
+			throws IOException {
+		boolean gzip = graphContentCache.isGzip() && acceptsGzip(request);
+		if (graphContentCache.isGzip()) {
+			response.setHeader(VARY, ACCEPT_ENCODING);
+		}
+		String eTag = gzip ? content.getGzippedETag() : content.getETag();
+		if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+			return;
+		}
+		byte[] body = gzip ? content.getGzipped() : content.getJson();
+		if (gzip) {
+			response.setHeader(CONTENT_ENCODING, GZIP);
+		}
+		response.setContentType(APPLICATION_JSON_UTF8_VALUE);
+		response.setContentLength(body.length);
+		response.getOutputStream().write(body);
+	}
+
+	private static boolean acceptsGzip(HttpServletRequest request) {
+		String acceptEncoding = request.getHeader(ACCEPT_ENCODING);
+		return acceptEncoding != null && acceptEncoding.toLowerCase().contains(GZIP);
+	}
+
 	@RequestMapping(value = "/node", method = POST)
 	public void saveNode(@RequestBody final String nodeData) {
 		nodeStore.saveNode(nodeData);
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.controllers;
+
+import be.ordina.msdashboard.graph.GraphRefresher;
+import be.ordina.msdashboard.graph.GraphSnapshot;
+import be.ordina.msdashboard.graph.GraphUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+
+/**
+ * Streams the graph as Server-Sent Events.
+ * <p>
+ * Every subscriber first receives a {@code snapshot} event holding the current
+ * graph, followed by a {@code delta} event for every {@link GraphUpdate}. The id
+ * of every event is the version of the graph after applying it. When a
+ * subscriber missed an update, it receives a new snapshot instead, and a
+ * subscriber reconnecting with the {@code Last-Event-ID} of the current
+ * version does not receive a snapshot at all.
+ * <p>
+ * Updates are sent on a thread of their own, so a slow subscriber never holds
+ * up the refresh of the graph.
+ */
+@CrossOrigin(maxAge = 3600)
+@RestController
+public class GraphStreamController {
+
+	private static final Logger logger = LoggerFactory.getLogger(GraphStreamController.class);
+
+	static final String SNAPSHOT_EVENT = "snapshot";
+	static final String DELTA_EVENT = "delta";
+
+	private final GraphRefresher graphRefresher;
+	private final Executor executor;
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final Queue<GraphUpdate> pendingUpdates = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean sending = new AtomicBoolean();
+
+	public GraphStreamController(GraphRefresher graphRefresher) {
+		this(graphRefresher, Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "msdashboard-graph-stream");
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+
+	GraphStreamController(GraphRefresher graphRefresher, Executor executor) {
+		this.graphRefresher = graphRefresher;
+		this.executor = executor;
+	}
+
+	@RequestMapping(value = "/graph/stream", method = GET, produces = "text/event-stream")
+	public SseEmitter streamGraph(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+		SseEmitter emitter = createEmitter();
+		Subscription subscription = new Subscription(emitter, lastEventId != null ? lastEventId : -1);
+		emitter.onCompletion(() -> subscriptions.remove(subscription));
+		emitter.onTimeout(() -> subscriptions.remove(subscription));
+		subscriptions.add(subscription);
+		// An update published while subscribing may have been missed, so compare with the latest snapshot afterwards
+		subscription.sendSnapshotUnlessCurrent(graphRefresher.getSnapshot());
+		return emitter;
+	}
+
+	/**
+	 * Schedules sending the update to all subscribers, unless sending is
+	 * already scheduled, as all updates pending by then are sent at once.
+	 */
+	@EventListener
+	public void handleGraphUpdate(GraphUpdate update) {
+		pendingUpdates.add(update);
+		if (!sending.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(this::sendPendingUpdates);
+		} catch (RejectedExecutionException e) {
+			sending.set(false);
+			pendingUpdates.clear();
+			logger.debug("Not sending graph updates, the graph stream is shut down");
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (executor instanceof ExecutorService) {
+			((ExecutorService) executor).shutdown();
+		}
+	}
+
+	private void sendPendingUpdates() {
+		sending.set(false);
+		GraphUpdate update;
+		while ((update = pendingUpdates.poll()) != null) {
+			for (Subscription subscription : subscriptions) {
+				subscription.send(update);
+			}
+		}
+	}
+
+	int getSubscriptionCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * Creates the emitter for a new subscriber, which never times out.
+	 */
+	protected SseEmitter createEmitter() {
+		return new SseEmitter(0L);
+	}
+
+	private final class Subscription {
+
+		private final SseEmitter emitter;
+		private long version;
+
+		private Subscription(SseEmitter emitter, long version) {
+			this.emitter = emitter;
+			this.version = version;
+		}
+
+		private synchronized void send(GraphUpdate update) {
+			if (update.getVersion() <= version) {
+				return;
+			}
+			if (update.getPreviousVersion() != version) {
+				sendSnapshotUnlessCurrent(graphRefresher.getSnapshot());
+				return;
+			}
+			send(SseEmitter.event().name(DELTA_EVENT).id(Long.toString(update.getVersion())).data(update),
+					update.getVersion());
+		}
+
+		private synchronized void sendSnapshotUnlessCurrent(GraphSnapshot snapshot) {
+			if (snapshot.getVersion() == version) {
+				return;
+			}
+			Map<String, Object> data = new LinkedHashMap<>();
+			data.put("version", snapshot.getVersion());
+			data.put("graph", snapshot.getGraph());
+			send(SseEmitter.event().name(SNAPSHOT_EVENT).id(Long.toString(snapshot.getVersion())).data(data),
+					snapshot.getVersion());
+		}
+
+		private void send(SseEmitter.SseEventBuilder event, long eventVersion) {
+			try {
+				emitter.send(event);
+				version = eventVersion;
+			} catch (IOException | IllegalStateException e) {
+				logger.debug("Removing graph stream subscriber: {}", e.getMessage());
+				subscriptions.remove(this);
+				emitter.completeWithError(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The serialized graph together with its strong ETag, which is a hash of the
+ * serialized bytes. The gzip compressed graph is created once, the first time
+ * it is requested.
+ */
+public final class GraphContent {
+
+	private static final String GZIP_SUFFIX = "-gzip";
+
+	private final byte[] json;
+	private final String hash;
+
+	private volatile byte[] gzipped;
+
+	public GraphContent(byte[] json) {
+		this.json = json;
+		this.hash = DigestUtils.md5DigestAsHex(json);
+	}
+
+	public byte[] getJson() {
+		return json;
+	}
+
+	/**
+	 * @return the strong ETag of the uncompressed graph, including quotes
+	 */
+	public String getETag() {
+		return "\"" + hash + "\"";
+	}
+
+	/**
+	 * @return the strong ETag of the gzip compressed graph, including quotes
+	 */
+	public String getGzippedETag() {
+		return "\"" + hash + GZIP_SUFFIX + "\"";
+	}
+
+	public byte[] getGzipped() {
+		byte[] result = gzipped;
+		if (result == null) {
+			result = gzip(json);
+			gzipped = result;
+		}
+		return result;
+	}
+
+	private static byte[] gzip(byte[] bytes) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(bytes.length / 8, 64));
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Serializes merged nodes into {@link GraphContent} using the {@link GraphJsonWriter}.
+ * <p>
+ * The content of the last list of nodes is kept, so the graph is only
+ * serialized again when a different list is served. All snapshots of the same
+ * graph version share their list of nodes, as do graphs served from an
+ * in-memory cache.
+ */
+public class GraphContentCache {
+
+	private final GraphJsonWriter graphJsonWriter;
+	private final GraphProperties graphProperties;
+
+	private volatile CachedContent last;
+
+	public GraphContentCache(GraphJsonWriter graphJsonWriter, GraphProperties graphProperties) {
+		this.graphJsonWriter = graphJsonWriter;
+		this.graphProperties = graphProperties;
+	}
+
+	/**
+	 * @param nodes the merged nodes of the graph
+	 * @return the serialized graph, reused if the same list of nodes was serialized last
+	 * @throws IOException when serializing the graph fails
+	 */
+	public GraphContent getContent(List<Node> nodes) throws IOException {
+		CachedContent cached = last;
+		if (cached != null && cached.nodes == nodes) {
+			return cached.content;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(cached != null ? cached.content.getJson().length : 8192);
+		graphJsonWriter.write(nodes, out);
+		GraphContent content = new GraphContent(out.toByteArray());
+		last = new CachedContent(nodes, content);
+		return content;
+	}
+
+	/**
+	 * @return whether the gzip compressed graph should be served to clients accepting it
+	 */
+	public boolean isGzip() {
+		return graphProperties.isGzip();
+	}
+
+	private static final class CachedContent {
+
+		private final List<Node> nodes;
+		private final GraphContent content;
+
+		private CachedContent(List<Node> nodes, GraphContent content) {
+			this.nodes = nodes;
+			this.content = content;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+/**
+ * A single change between two versions of the graph.
+ * <p>
+ * Unlike the graph itself, deltas refer to nodes by id instead of by index,
+ * so links are identified by the ids of their source and target nodes.
+ */
+@JsonInclude(NON_NULL)
+@JsonPropertyOrder({ "type", "id", "lane", "details", "source", "target" })
+public final class GraphDelta {
+
+	public enum Type {
+		NODE_ADDED, NODE_REMOVED, NODE_DETAILS_CHANGED, LINK_ADDED, LINK_REMOVED
+	}
+
+	private final Type type;
+	private final String id;
+	private final Integer lane;
+	private final Map<String, Object> details;
+	private final String source;
+	private final String target;
+
+	private GraphDelta(Type type, String id, Integer lane, Map<String, Object> details, String source, String target) {
+		this.type = type;
+		this.id = id;
+		this.lane = lane;
+		this.details = details;
+		this.source = source;
+		this.target = target;
+	}
+
+	public static GraphDelta nodeAdded(Node node) {
+		return new GraphDelta(Type.NODE_ADDED, node.getId(), GraphMapper.determineLane(node.getDetails()),
+				node.getDetails(), null, null);
+	}
+
+	public static GraphDelta nodeRemoved(String id) {
+		return new GraphDelta(Type.NODE_REMOVED, id, null, null, null, null);
+	}
+
+	public static GraphDelta nodeDetailsChanged(Node node) {
+		return new GraphDelta(Type.NODE_DETAILS_CHANGED, node.getId(), GraphMapper.determineLane(node.getDetails()),
+				node.getDetails(), null, null);
+	}
+
+	public static GraphDelta linkAdded(String source, String target) {
+		return new GraphDelta(Type.LINK_ADDED, null, null, null, source, target);
+	}
+
+	public static GraphDelta linkRemoved(String source, String target) {
+		return new GraphDelta(Type.LINK_REMOVED, null, null, null, source, target);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the id of the added, removed or changed node, or {@code null} for links
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the lane of the added or changed node, or {@code null} otherwise
+	 */
+	public Integer getLane() {
+		return lane;
+	}
+
+	/**
+	 * @return the details of the added or changed node, or {@code null} otherwise
+	 */
+	public Map<String, Object> getDetails() {
+		return details;
+	}
+
+	/**
+	 * @return the id of the source node of the added or removed link, or {@code null} for nodes
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the id of the target node of the added or removed link, or {@code null} for nodes
+	 */
+	public String getTarget() {
+		return target;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		GraphDelta delta = (GraphDelta) o;
+		return type == delta.type
+				&& Objects.equals(id, delta.id)
+				&& Objects.equals(lane, delta.lane)
+				&& Objects.equals(details, delta.details)
+				&& Objects.equals(source, delta.source)
+				&& Objects.equals(target, delta.target);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(type, id, source, target);
+	}
+
+	@Override
+	public String toString() {
+		return "GraphDelta{" +
+				"type=" + type +
+				(id != null ? ", id='" + id + '\'' : "") +
+				(source != null ? ", source='" + source + "', target='" + target + '\'' : "") +
+				'}';
+	}
+}
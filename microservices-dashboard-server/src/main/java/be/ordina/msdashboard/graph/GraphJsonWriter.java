@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static be.ordina.msdashboard.graph.GraphLinks.SOURCE;
+import static be.ordina.msdashboard.graph.GraphLinks.TARGET;
+import static be.ordina.msdashboard.graph.GraphRetriever.DIRECTED;
+import static be.ordina.msdashboard.graph.GraphRetriever.GRAPH;
+import static be.ordina.msdashboard.graph.GraphRetriever.LANES;
+import static be.ordina.msdashboard.graph.GraphRetriever.LINKS;
+import static be.ordina.msdashboard.graph.GraphRetriever.MULTIGRAPH;
+import static be.ordina.msdashboard.graph.GraphRetriever.NODES;
+import static be.ordina.msdashboard.graph.GraphRetriever.TYPES;
+import static be.ordina.msdashboard.nodes.model.Node.DETAILS;
+import static be.ordina.msdashboard.nodes.model.Node.ID;
+import static be.ordina.msdashboard.nodes.model.Node.LANE;
+import static com.fasterxml.jackson.databind.SerializationFeature.FLUSH_AFTER_WRITE_VALUE;
+
+/**
+ * Writes the graph JSON straight from the merged nodes using a
+ * {@link JsonGenerator}, without building the intermediate maps that
+ * {@link GraphRetriever#retrieve()} and {@link GraphMapper} create.
+ * <p>
+ * The output is the same as serializing the map returned by
+ * {@link GraphRetriever#retrieve()} with the given {@link ObjectMapper},
+ * including the order of the fields.
+ */
+public class GraphJsonWriter {
+
+	private final GraphProperties graphProperties;
+	private final ObjectMapper objectMapper;
+	private final ObjectWriter valueWriter;
+
+	public GraphJsonWriter(GraphProperties graphProperties, ObjectMapper objectMapper) {
+		this.graphProperties = graphProperties;
+		this.objectMapper = objectMapper;
+		this.valueWriter = objectMapper.writer().without(FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	/**
+	 * Writes the graph for the given nodes to the output stream, encoded as UTF-8.
+	 * The stream is flushed but not closed.
+	 * @param nodes the merged nodes of the graph
+	 * @param out the stream to write to
+	 * @throws IOException when writing to the stream fails
+	 */
+	public void write(List<Node> nodes, OutputStream out) throws IOException {
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		objectMapper.getSerializationConfig().initialize(generator);
+		try {
+			write(nodes, generator);
+		} finally {
+			generator.close();
+		}
+	}
+
+	/**
+	 * Writes the graph for the given nodes as a JSON object. Fields are written
+	 * in the iteration order of the {@link java.util.HashMap} built by
+	 * {@link GraphRetriever#retrieve()}.
+	 */
+	public void write(List<Node> nodes, JsonGenerator generator) throws IOException {
+		generator.writeStartObject();
+		generator.writeBooleanField(DIRECTED, true);
+		generator.writeFieldName(TYPES);
+		valueWriter.writeValue(generator, graphProperties.getTypes());
+		generator.writeFieldName(NODES);
+		writeNodes(nodes, generator);
+		generator.writeFieldName(LANES);
+		writeLanes(generator);
+		generator.writeFieldName(LINKS);
+		writeLinks(GraphMapper.createLinks(nodes), generator);
+		generator.writeBooleanField(MULTIGRAPH, false);
+		generator.writeFieldName(GRAPH);
+		valueWriter.writeValue(generator, new String[0]);
+		generator.writeEndObject();
+	}
+
+	private void writeNodes(List<Node> nodes, JsonGenerator generator) throws IOException {
+		generator.writeStartArray();
+		for (Node node : nodes) {
+			generator.writeStartObject();
+			generator.writeFieldName(DETAILS);
+			valueWriter.writeValue(generator, node.getDetails());
+			generator.writeStringField(ID, node.getId());
+			generator.writeNumberField(LANE, GraphMapper.determineLane(node.getDetails()));
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+	}
+
+	private void writeLanes(JsonGenerator generator) throws IOException {
+		generator.writeStartArray();
+		writeLane(generator, 0, graphProperties.getUi());
+		writeLane(generator, 1, graphProperties.getResources());
+		writeLane(generator, 2, graphProperties.getMicroservices());
+		writeLane(generator, 3, graphProperties.getBackends());
+		generator.writeEndArray();
+	}
+
+	private static void writeLane(JsonGenerator generator, int lane, String type) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField(Node.TYPE, type);
+		generator.writeNumberField(LANE, lane);
+		generator.writeEndObject();
+	}
+
+	private static void writeLinks(GraphLinks links, JsonGenerator generator) throws IOException {
+		generator.writeStartArray();
+		for (int i = 0; i < links.size(); i++) {
+			generator.writeStartObject();
+			generator.writeNumberField(SOURCE, links.source(i));
+			generator.writeNumberField(TARGET, links.target(i));
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * De-duplicated set of links between nodes in the graph, stored as pairs of
+ * source and target node indexes.
+ * <p>
+ * Links are kept in primitive arrays instead of one map per link. To stay
+ * compatible with the JSON format of the graph, the set is exposed as a set
+ * of {@code {"source": x, "target": y}} maps, which are only created while
+ * iterating. Links are iterated in the order they were first added.
+ */
+public class GraphLinks extends AbstractSet<Map<String, Integer>> {
+
+	public static final String SOURCE = "source";
+	public static final String TARGET = "target";
+
+	private static final long EMPTY = -1L;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] sources;
+	private int[] targets;
+	private long[] table;
+	private int size;
+
+	public GraphLinks() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public GraphLinks(int expectedLinks) {
+		int capacity = Math.max(expectedLinks, DEFAULT_CAPACITY);
+		sources = new int[capacity];
+		targets = new int[capacity];
+		table = newTable(tableSizeFor(capacity));
+	}
+
+	/**
+	 * Adds a link between the nodes at the given indexes.
+	 * @param source index of the node the link starts from
+	 * @param target index of the node the link points to
+	 * @return {@code true} if the link was not present yet
+	 */
+	public boolean add(int source, int target) {
+		if (source < 0 || target < 0) {
+			throw new IllegalArgumentException("Link indexes must not be negative: " + source + " -> " + target);
+		}
+		long key = key(source, target);
+		int slot = slot(table, key);
+		if (table[slot] == key) {
+			return false;
+		}
+		table[slot] = key;
+		if (size == sources.length) {
+			sources = Arrays.copyOf(sources, size * 2);
+			targets = Arrays.copyOf(targets, size * 2);
+		}
+		sources[size] = source;
+		targets[size] = target;
+		size++;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return true;
+	}
+
+	public boolean contains(int source, int target) {
+		if (source < 0 || target < 0) {
+			return false;
+		}
+		long key = key(source, target);
+		return table[slot(table, key)] == key;
+	}
+
+	/**
+	 * @param index the position of the link, in the order links were added
+	 * @return the index of the source node of that link
+	 */
+	public int source(int index) {
+		checkIndex(index);
+		return sources[index];
+	}
+
+	/**
+	 * @param index the position of the link, in the order links were added
+	 * @return the index of the target node of that link
+	 */
+	public int target(int index) {
+		checkIndex(index);
+		return targets[index];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean add(Map<String, Integer> link) {
+		return add(link.get(SOURCE), link.get(TARGET));
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof Map)) {
+			return false;
+		}
+		Map<?, ?> link = (Map<?, ?>) o;
+		if (link.size() != 2) {
+			return false;
+		}
+		Object source = link.get(SOURCE);
+		Object target = link.get(TARGET);
+		return source instanceof Integer && target instanceof Integer
+				&& contains((Integer) source, (Integer) target);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(table, EMPTY);
+		size = 0;
+	}
+
+	@Override
+	public Iterator<Map<String, Integer>> iterator() {
+		return new Iterator<Map<String, Integer>>() {
+
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Map<String, Integer> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Map<String, Integer> link = new Link(sources[next], targets[next]);
+				next++;
+				return link;
+			}
+		};
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	private void rehash() {
+		long[] newTable = newTable(table.length * 2);
+		for (int i = 0; i < size; i++) {
+			long key = key(sources[i], targets[i]);
+			newTable[slot(newTable, key)] = key;
+		}
+		table = newTable;
+	}
+
+	private static long key(int source, int target) {
+		return ((long) source << 32) | (target & 0xffffffffL);
+	}
+
+	/**
+	 * Linear probing for the slot holding the key, or the empty slot where it
+	 * should be inserted.
+	 */
+	private static int slot(long[] table, long key) {
+		int mask = table.length - 1;
+		int slot = mix(key) & mask;
+		while (table[slot] != EMPTY && table[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int mix(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private static long[] newTable(int length) {
+		long[] table = new long[length];
+		Arrays.fill(table, EMPTY);
+		return table;
+	}
+
+	private static int tableSizeFor(int capacity) {
+		int n = Integer.highestOneBit(capacity * 2 - 1);
+		return Math.max(n, DEFAULT_CAPACITY) * 2;
+	}
+
+	/**
+	 * Read-only view of a single link, serialized as {@code {"source": x, "target": y}}.
+	 */
+	private static final class Link extends AbstractMap<String, Integer> {
+
+		private final int source;
+		private final int target;
+
+		private Link(int source, int target) {
+			this.source = source;
+			this.target = target;
+		}
+
+		@Override
+		public Integer get(Object key) {
+			if (SOURCE.equals(key)) {
+				return source;
+			} else if (TARGET.equals(key)) {
+				return target;
+			}
+			return null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return SOURCE.equals(key) || TARGET.equals(key);
+		}
+
+		@Override
+		public int size() {
+			return 2;
+		}
+
+		@Override
+		public Set<Entry<String, Integer>> entrySet() {
+			return new AbstractSet<Entry<String, Integer>>() {
+
+				@Override
+				public Iterator<Entry<String, Integer>> iterator() {
+					return Arrays.<Entry<String, Integer>>asList(
+							new SimpleImmutableEntry<>(SOURCE, source),
+							new SimpleImmutableEntry<>(TARGET, target)).iterator();
+				}
+
+				@Override
+				public int size() {
+					return 2;
+				}
+			};
+		}
+	}
+}
@@ -20,7 +20,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import rx.functions.Func1;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static be.ordina.msdashboard.nodes.model.NodeTypes.*;
 import static be.ordina.msdashboard.graph.GraphRetriever.LINKS;
@@ -36,55 +39,61 @@ public class GraphMapper {
 
     private static final Logger logger = LoggerFactory.getLogger(GraphMapper.class);
 
+    /**
+     * Maps the merged nodes onto the nodes and links of the graph.
+     * Node ids are indexed once, so links are resolved in linear time.
+     * @return a function mapping a list of nodes onto a map with nodes and links
+     */
     public static Func1<List<Node>, Map<String, Object>> toGraph() {
         return (nodes) -> {
-            List<Map<String, Object>> displayableNodes = new ArrayList<>();
-            Set<Map<String, Integer>> links = new HashSet<>();
-
-            nodes.stream()
-                    .forEach(node -> {
-                        displayableNodes.add(createDisplayableNode(node));
-
-                        int mappedNodeIndex = nodes.indexOf(node);
-
-                        Set<String> linkedToNodeIds = node.getLinkedToNodeIds();
-                        for (String nodeId : linkedToNodeIds) {
-                            Optional<Integer> nodeIndex = findNodeIndexById(nodes, nodeId);
-                            if (nodeIndex.isPresent()) {
-                                links.add(createLink(mappedNodeIndex, nodeIndex.get()));
-                            }
-                        }
-
-                        Set<String> linkedFromNodeIds = node.getLinkedFromNodeIds();
-                        for (String nodeId : linkedFromNodeIds) {
-                            Optional<Integer> nodeIndex = findNodeIndexById(nodes, nodeId);
-                            if (nodeIndex.isPresent()) {
-                                links.add(createLink(nodeIndex.get(), mappedNodeIndex));
-                            }
-                        }
-                    });
+            List<Map<String, Object>> displayableNodes = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                displayableNodes.add(createDisplayableNode(node));
+            }
 
             Map<String, Object> nodesAndLinksMap = new HashMap<>();
 
             nodesAndLinksMap.put(NODES, displayableNodes);
-            nodesAndLinksMap.put(LINKS, links);
+            nodesAndLinksMap.put(LINKS, createLinks(nodes));
 
             return nodesAndLinksMap;
         };
     }
 
-    private static Optional<Integer> findNodeIndexById(List<Node> nodes, String nodeId) {
-        return nodes.stream()
-                .filter(n -> n.getId().equals(nodeId))
-                .map(nodes::indexOf)
-                .findFirst();
+    /**
+     * Resolves the links of all nodes to pairs of node indexes.
+     * Links to nodes which are not part of the list are dropped.
+     */
+    static GraphLinks createLinks(List<Node> nodes) {
+        Map<String, Integer> nodeIndexes = indexNodesById(nodes);
+        GraphLinks links = new GraphLinks(nodes.size() * 2);
+
+        int mappedNodeIndex = 0;
+        for (Node node : nodes) {
+            for (String nodeId : node.getLinkedToNodeIds()) {
+                Integer nodeIndex = nodeIndexes.get(nodeId);
+                if (nodeIndex != null) {
+                    links.add(mappedNodeIndex, nodeIndex);
+                }
+            }
+            for (String nodeId : node.getLinkedFromNodeIds()) {
+                Integer nodeIndex = nodeIndexes.get(nodeId);
+                if (nodeIndex != null) {
+                    links.add(nodeIndex, mappedNodeIndex);
+                }
+            }
+            mappedNodeIndex++;
+        }
+        return links;
     }
 
-    private static Map<String, Integer> createLink(final int source, final int target) {
-        Map<String, Integer> link = new HashMap<>();
-        link.put("source", source);
-        link.put("target", target);
-        return link;
+    private static Map<String, Integer> indexNodesById(List<Node> nodes) {
+        Map<String, Integer> nodeIndexes = new HashMap<>(nodes.size() * 2);
+        int index = 0;
+        for (Node node : nodes) {
+            nodeIndexes.putIfAbsent(node.getId(), index++);
+        }
+        return nodeIndexes;
     }
 
     private static Map<String, Object> createDisplayableNode(final Node node) {
@@ -101,7 +110,7 @@ public class GraphMapper {
         return node;
     }
 
-    private static Integer determineLane(Map<String, Object> details) {
+    static Integer determineLane(Map<String, Object> details) {
         String type = (String) details.get(Node.TYPE);
         if (type == null) {
             return new Integer("3");
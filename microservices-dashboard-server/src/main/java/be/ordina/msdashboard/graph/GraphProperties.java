@@ -42,6 +42,26 @@ public class GraphProperties {
 
     private List<String> types = Arrays.asList(DB, MICROSERVICE, REST, SOAP, JMS, RESOURCE);
 
+    /**
+     * Whether the graph is written straight to the response while it is
+     * serialized, instead of first being converted into nested maps.
+     */
+    private boolean streaming = false;
+
+    /**
+     * Whether the graph is served with an ETag, so unchanged graphs are
+     * answered with 304 Not Modified.
+     */
+    private boolean etag = false;
+
+    /**
+     * Whether a gzip compressed graph is kept next to every serialized graph
+     * and served to clients accepting it. Only used together with the ETag.
+     */
+    private boolean gzip = false;
+
+    private Refresh refresh = new Refresh();
+
     public String getUi() {
         return ui;
     }
@@ -81,4 +101,97 @@ public class GraphProperties {
     public void setTypes(List<String> types) {
         this.types = types;
     }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isEtag() {
+        return etag;
+    }
+
+    public void setEtag(boolean etag) {
+        this.etag = etag;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public Refresh getRefresh() {
+        return refresh;
+    }
+
+    public void setRefresh(Refresh refresh) {
+        this.refresh = refresh;
+    }
+
+    /**
+     * Properties for refreshing the graph in the background.
+     */
+    public static class Refresh {
+
+        /**
+         * Whether the graph is served from a snapshot refreshed in the
+         * background instead of being retrieved on request.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Time in milliseconds between two refreshes of the snapshot.
+         */
+        private long interval = 30000;
+
+        /**
+         * Maximum random time in milliseconds added to every interval,
+         * to spread the load on the services.
+         */
+        private long jitter = 5000;
+
+        /**
+         * Time in milliseconds an overdue snapshot is still served without
+         * being reported as stale, while it is refreshed in the background.
+         */
+        private long staleWhileRevalidate = 60000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getInterval() {
+            return interval;
+        }
+
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+
+        public long getJitter() {
+            return jitter;
+        }
+
+        public void setJitter(long jitter) {
+            this.jitter = jitter;
+        }
+
+        public long getStaleWhileRevalidate() {
+            return staleWhileRevalidate;
+        }
+
+        public void setStaleWhileRevalidate(long staleWhileRevalidate) {
+            this.staleWhileRevalidate = staleWhileRevalidate;
+        }
+    }
 }
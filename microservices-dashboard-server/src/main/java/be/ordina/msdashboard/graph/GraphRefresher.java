@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Keeps a {@link GraphSnapshot} up to date in the background, so requests for
+ * the graph never have to wait for the aggregators.
+ * <p>
+ * The snapshot is rebuilt on a single thread every
+ * {@link GraphProperties.Refresh#getInterval() interval}, extended with a random
+ * {@link GraphProperties.Refresh#getJitter() jitter}, and swapped atomically.
+ * The version of the snapshot only increases when the graph changed, in which
+ * case the changes are published as a {@link GraphUpdate}.
+ * When a snapshot is read after its next refresh was due, a refresh is
+ * triggered and the old snapshot is served in the meantime. Once the
+ * {@link GraphProperties.Refresh#getStaleWhileRevalidate() stale-while-revalidate}
+ * window has passed as well, the snapshot is reported as stale.
+ */
+public class GraphRefresher {
+
+	private static final Logger logger = LoggerFactory.getLogger(GraphRefresher.class);
+
+	private final GraphRetriever graphRetriever;
+	private final GraphProperties.Refresh properties;
+	private final ApplicationEventPublisher publisher;
+
+	private final AtomicReference<GraphSnapshot> snapshot;
+	private final AtomicLong version = new AtomicLong();
+	private final AtomicBoolean refreshing = new AtomicBoolean();
+	private final AtomicBoolean refreshRequested = new AtomicBoolean();
+
+	private volatile ScheduledExecutorService executor;
+
+	public GraphRefresher(GraphRetriever graphRetriever, GraphProperties graphProperties) {
+		this(graphRetriever, graphProperties, null);
+	}
+
+	/**
+	 * Creates a refresher which publishes a {@link GraphUpdate} with the
+	 * publisher every time a refresh changed the graph.
+	 */
+	public GraphRefresher(GraphRetriever graphRetriever, GraphProperties graphProperties,
+						  ApplicationEventPublisher publisher) {
+		this.graphRetriever = graphRetriever;
+		this.properties = graphProperties.getRefresh();
+		this.publisher = publisher;
+		this.snapshot = new AtomicReference<>(
+				new GraphSnapshot(0, 0, Collections.emptyList(), graphRetriever::toGraph));
+	}
+
+	/**
+	 * Starts refreshing the snapshot in the background, beginning immediately.
+	 */
+	@PostConstruct
+	public void start() {
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "graph-refresher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.execute(this::refreshAndReschedule);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the latest snapshot without blocking. Triggers a refresh in the
+	 * background if the next refresh of the snapshot is overdue.
+	 * @return the latest snapshot, which is empty until the first refresh completed
+	 */
+	public GraphSnapshot getSnapshot() {
+		GraphSnapshot current = snapshot.get();
+		if (age(current) > maxRefreshDelay()) {
+			requestRefresh();
+		}
+		return current;
+	}
+
+	/**
+	 * @param snapshot a snapshot returned by {@link #getSnapshot()}
+	 * @return whether the snapshot is older than the refresh interval, jitter
+	 * and stale-while-revalidate window combined
+	 */
+	public boolean isStale(GraphSnapshot snapshot) {
+		return age(snapshot) > maxRefreshDelay() + properties.getStaleWhileRevalidate();
+	}
+
+	/**
+	 * Requests a refresh in the background, unless one is already pending. A
+	 * request made while a refresh is running is kept pending until that refresh
+	 * finished, so the nodes are retrieved again afterwards.
+	 */
+	public void requestRefresh() {
+		ScheduledExecutorService current = executor;
+		if (current != null && !current.isShutdown() && refreshRequested.compareAndSet(false, true)) {
+			current.execute(() -> {
+				refreshRequested.set(false);
+				refresh();
+			});
+		}
+	}
+
+	/**
+	 * Rebuilds the snapshot on the calling thread. The current snapshot is kept
+	 * if retrieving the nodes fails, and only gets a new timestamp if the graph
+	 * did not change.
+	 * @return whether the snapshot was refreshed
+	 */
+	public boolean refresh() {
+		if (!refreshing.compareAndSet(false, true)) {
+			logger.debug("Graph snapshot is already being refreshed");
+			return false;
+		}
+		try {
+			long startTime = System.currentTimeMillis();
+			List<Node> nodes = graphRetriever.mergeNodes().toBlocking().firstOrDefault(null);
+			if (nodes == null) {
+				logger.warn("No nodes retrieved, keeping graph snapshot {}", snapshot.get().getVersion());
+				return false;
+			}
+			GraphSnapshot current = snapshot.get();
+			List<GraphDelta> deltas = GraphUpdate.deltas(current.getNodes(), nodes);
+			if (deltas.isEmpty() && current.getVersion() > 0) {
+				snapshot.set(current.withTimestamp(System.currentTimeMillis()));
+				logger.info("Graph snapshot {} is unchanged after {} ms", current.getVersion(),
+						System.currentTimeMillis() - startTime);
+				return true;
+			}
+			GraphSnapshot refreshed = new GraphSnapshot(version.incrementAndGet(), System.currentTimeMillis(),
+					nodes, graphRetriever::toGraph);
+			snapshot.set(refreshed);
+			logger.info("Refreshed graph snapshot {} with {} nodes and {} changes in {} ms", refreshed.getVersion(),
+					nodes.size(), deltas.size(), refreshed.getTimestamp() - startTime);
+			if (publisher != null) {
+				publisher.publishEvent(new GraphUpdate(current.getVersion(), refreshed.getVersion(), deltas));
+			}
+			return true;
+		} catch (RuntimeException e) {
+			logger.error("An error occurred while refreshing the graph snapshot:", e);
+			return false;
+		} finally {
+			refreshing.set(false);
+		}
+	}
+
+	private void refreshAndReschedule() {
+		try {
+			refresh();
+		} finally {
+			ScheduledExecutorService current = executor;
+			if (current != null && !current.isShutdown()) {
+				current.schedule(this::refreshAndReschedule, nextDelay(), MILLISECONDS);
+			}
+		}
+	}
+
+	private long nextDelay() {
+		long jitter = properties.getJitter();
+		return properties.getInterval() + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+	}
+
+	private long maxRefreshDelay() {
+		return properties.getInterval() + Math.max(properties.getJitter(), 0);
+	}
+
+	private static long age(GraphSnapshot snapshot) {
+		return System.currentTimeMillis() - snapshot.getTimestamp();
+	}
+}
@@ -18,6 +18,7 @@ package be.ordina.msdashboard.graph;
 import be.ordina.msdashboard.nodes.aggregators.NodeAggregator;
 import be.ordina.msdashboard.nodes.model.Node;
 import be.ordina.msdashboard.nodes.stores.NodeStore;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
@@ -28,7 +29,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static be.ordina.msdashboard.nodes.model.Node.LANE;
 import static com.google.common.collect.Maps.newHashMap;
@@ -50,10 +50,13 @@ public class GraphRetriever {
 	public static final String TYPES = "types";
 	public static final String NODES = "nodes";
 	public static final String LINKS = "links";
+
+	private static final String NODE_STORE_PARTITION = "store";
 	
 	private final List<NodeAggregator> aggregators;
 	private final NodeStore redisService;
 	private GraphProperties graphProperties;
+	private final PartitionedNodes partitionedNodes = new PartitionedNodes();
 
 	public GraphRetriever(List<NodeAggregator> aggregators, NodeStore redisService,
 						  GraphProperties graphProperties) {
@@ -64,10 +67,24 @@ public class GraphRetriever {
 
 	@Cacheable(value = GRAPH_CACHE_NAME, keyGenerator = "simpleKeyGenerator")
 	public Map<String, Object> retrieve() {
-		List<Observable<Node>> observables = aggregators.stream()
-				.collect(Collectors.mapping(NodeAggregator::aggregateNodes, Collectors.toList()));
-		observables.add(redisService.getAllNodesAsObservable());
+		Map<String, Object> graph = mergeNodes()
+                .map(this::toGraph)
+					.doOnNext(nodesAndLinksMap -> logger.info("Converted to nodes and links map"))
+                	.doOnError(throwable -> logger.error("An error occurred during mapping:", throwable))
+					.onErrorResumeNext(Observable.empty())
+				.toBlocking()
+                .first();
+		logger.info("Graph retrieved: {}", graph);
 
+		return graph;
+	}
+
+	/**
+	 * Maps merged nodes onto the graph structure returned by {@link #retrieve()}.
+	 * @param nodes the merged nodes
+	 * @return the graph, including lanes, types, nodes and links
+	 */
+	public Map<String, Object> toGraph(List<Node> nodes) {
 		Map<String, Object> graph = new HashMap<>();
 		graph.put(DIRECTED, true);
 		graph.put(MULTIGRAPH, false);
@@ -75,26 +92,63 @@ public class GraphRetriever {
 		graph.put(LANES, constructLanes());
 		graph.put(TYPES, graphProperties.getTypes());
 
-        Map<String, Object> nodesAndLinks = Observable.mergeDelayError(observables)
+		Map<String, Object> nodesAndLinks = GraphMapper.toGraph().call(nodes);
+		graph.put(NODES, nodesAndLinks.get(NODES));
+		graph.put(LINKS, nodesAndLinks.get(LINKS));
+
+		return graph;
+	}
+
+	/**
+	 * Retrieves and merges the nodes of all aggregators and the node store,
+	 * without mapping them onto a graph.
+	 * Used by {@link GraphJsonWriter} to stream the graph.
+	 * @return the merged nodes
+	 */
+	@Cacheable(value = GRAPH_CACHE_NAME, keyGenerator = "simpleKeyGenerator")
+	public List<Node> retrieveNodes() {
+		return mergeNodes()
+				.toBlocking()
+				.first();
+	}
+
+	/**
+	 * Retrieves the nodes of all aggregators and the node store, and merges them.
+	 * Unlike {@link #retrieveNodes()}, the result is never cached.
+	 * <p>
+	 * The nodes each aggregator retrieved for a service are kept between calls,
+	 * so only the nodes of services whose nodes changed are merged again.
+	 * @return an {@link Observable} emitting the merged nodes once
+	 * @see PartitionedNodes
+	 */
+	public Observable<List<Node>> mergeNodes() {
+		List<Observable<Pair<PartitionedNodes.Key, List<Node>>>> observables = new ArrayList<>();
+		for (int i = 0; i < aggregators.size(); i++) {
+			final int source = i;
+			final NodeAggregator aggregator = aggregators.get(i);
+			observables.add(Observable.defer(aggregator::aggregateNodesPerService)
+					.flatMap(nodes -> nodes.toList()
+							.map(list -> Pair.of(new PartitionedNodes.Key(source, nodes.getKey()), list))));
+		}
+		observables.add(Observable.defer(redisService::getAllNodesAsObservable)
+				.toList()
+				.map(list -> Pair.of(new PartitionedNodes.Key(aggregators.size(), NODE_STORE_PARTITION), list)));
+
+		return Observable.mergeDelayError(observables)
 					.doOnError(throwable -> logger.error("An error occurred during merging aggregators:", throwable))
 					.onErrorResumeNext(Observable.empty())
 				.observeOn(Schedulers.io())
-					.doOnNext(node -> logger.info("Merging node with id '{}'", node.getId()))
-				.reduce(new ArrayList<>(), NodeMerger.merge())
+					.doOnNext(partition -> logger.info("Merging nodes of partition '{}'", partition.getKey()))
+				.toMap(Pair::getKey, Pair::getValue)
+				.map(partitions -> {
+					synchronized (partitionedNodes) {
+						partitionedNodes.update(partitions);
+						return partitionedNodes.toList();
+					}
+				})
 					.doOnError(throwable -> logger.error("An error occurred during reducing:", throwable))
 					.onErrorResumeNext(Observable.empty())
-					.doOnNext(nodes -> logger.info("Merged all emitted nodes, converting to map"))
-                .map(GraphMapper.toGraph())
-					.doOnNext(nodesAndLinksMap -> logger.info("Converted to nodes and links map"))
-                	.doOnError(throwable -> logger.error("An error occurred during mapping:", throwable))
-					.onErrorResumeNext(Observable.empty())
-				.toBlocking()
-                .first();
-		logger.info("Graph retrieved: {}", nodesAndLinks);
-        graph.put(NODES, nodesAndLinks.get(NODES));
-        graph.put(LINKS, nodesAndLinks.get(LINKS));
-
-		return graph;
+					.doOnNext(nodes -> logger.info("Merged all emitted nodes"));
 	}
 
 	private List<Map<Object, Object>> constructLanes() {
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Immutable view of the graph at the time it was built by the {@link GraphRefresher}.
+ * <p>
+ * The graph map is only created the first time it is requested, so a
+ * snapshot which is only streamed using {@link GraphJsonWriter} never holds
+ * more than the merged nodes.
+ */
+public final class GraphSnapshot {
+
+	private final long version;
+	private final long timestamp;
+	private final List<Node> nodes;
+	private final Function<List<Node>, Map<String, Object>> graphMapper;
+
+	private volatile Map<String, Object> graph;
+
+	public GraphSnapshot(long version, long timestamp, List<Node> nodes,
+						 Function<List<Node>, Map<String, Object>> graphMapper) {
+		this.version = version;
+		this.timestamp = timestamp;
+		this.nodes = Collections.unmodifiableList(nodes);
+		this.graphMapper = graphMapper;
+	}
+
+	private GraphSnapshot(GraphSnapshot snapshot, long timestamp) {
+		this.version = snapshot.version;
+		this.timestamp = timestamp;
+		this.nodes = snapshot.nodes;
+		this.graphMapper = snapshot.graphMapper;
+		this.graph = snapshot.graph;
+	}
+
+	/**
+	 * @param timestamp the time at which the graph was last found to be unchanged
+	 * @return a snapshot of the same version and graph, with the given timestamp
+	 */
+	public GraphSnapshot withTimestamp(long timestamp) {
+		return new GraphSnapshot(this, timestamp);
+	}
+
+	/**
+	 * @return the version of the graph, starting at 1 for the first refresh and
+	 * increasing with every refresh which changed the graph, or 0 for the empty
+	 * snapshot served until the first refresh
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the time at which the snapshot was last refreshed, in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public List<Node> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the graph in the same structure as {@link GraphRetriever#retrieve()}
+	 */
+	public Map<String, Object> getGraph() {
+		Map<String, Object> result = graph;
+		if (result == null) {
+			result = Collections.unmodifiableMap(graphMapper.apply(nodes));
+			graph = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Event published by the {@link GraphRefresher} when a refresh changed the graph,
+ * holding the deltas needed to go from the previous version to the new one.
+ * <p>
+ * Deltas are ordered so they can be applied one by one without ever
+ * referring to a node which does not exist: removed links come first,
+ * followed by removed, added and changed nodes, and finally added links.
+ */
+@JsonPropertyOrder({ "previousVersion", "version", "deltas" })
+public final class GraphUpdate {
+
+	private final long previousVersion;
+	private final long version;
+	private final List<GraphDelta> deltas;
+
+	public GraphUpdate(long previousVersion, long version, List<GraphDelta> deltas) {
+		this.previousVersion = previousVersion;
+		this.version = version;
+		this.deltas = Collections.unmodifiableList(deltas);
+	}
+
+	public long getPreviousVersion() {
+		return previousVersion;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public List<GraphDelta> getDeltas() {
+		return deltas;
+	}
+
+	/**
+	 * Determines the deltas between two lists of merged nodes. Nodes and links
+	 * are matched the same way {@link GraphMapper} does, by their exact id.
+	 * @param previous the nodes of the previous version
+	 * @param current the nodes of the new version
+	 * @return the deltas, empty if both versions result in the same graph
+	 */
+	public static List<GraphDelta> deltas(List<Node> previous, List<Node> current) {
+		Map<String, Node> previousNodes = indexNodesById(previous);
+		Map<String, Node> currentNodes = indexNodesById(current);
+		Set<Map.Entry<String, String>> previousLinks = createLinks(previousNodes);
+		Set<Map.Entry<String, String>> currentLinks = createLinks(currentNodes);
+
+		List<GraphDelta> deltas = new ArrayList<>();
+		for (Map.Entry<String, String> link : previousLinks) {
+			if (!currentLinks.contains(link)) {
+				deltas.add(GraphDelta.linkRemoved(link.getKey(), link.getValue()));
+			}
+		}
+		for (String id : previousNodes.keySet()) {
+			if (!currentNodes.containsKey(id)) {
+				deltas.add(GraphDelta.nodeRemoved(id));
+			}
+		}
+		for (Node node : currentNodes.values()) {
+			Node previousNode = previousNodes.get(node.getId());
+			if (previousNode == null) {
+				deltas.add(GraphDelta.nodeAdded(node));
+			} else if (!previousNode.getDetails().equals(node.getDetails())) {
+				deltas.add(GraphDelta.nodeDetailsChanged(node));
+			}
+		}
+		for (Map.Entry<String, String> link : currentLinks) {
+			if (!previousLinks.contains(link)) {
+				deltas.add(GraphDelta.linkAdded(link.getKey(), link.getValue()));
+			}
+		}
+		return deltas;
+	}
+
+	private static Map<String, Node> indexNodesById(List<Node> nodes) {
+		Map<String, Node> nodesById = new LinkedHashMap<>(nodes.size() * 2);
+		for (Node node : nodes) {
+			if (node.getId() != null) {
+				nodesById.putIfAbsent(node.getId(), node);
+			}
+		}
+		return nodesById;
+	}
+
+	private static Set<Map.Entry<String, String>> createLinks(Map<String, Node> nodesById) {
+		Set<Map.Entry<String, String>> links = new LinkedHashSet<>(nodesById.size() * 2);
+		for (Node node : nodesById.values()) {
+			for (String nodeId : node.getLinkedToNodeIds()) {
+				if (nodesById.containsKey(nodeId)) {
+					links.add(new SimpleImmutableEntry<>(node.getId(), nodeId));
+				}
+			}
+			for (String nodeId : node.getLinkedFromNodeIds()) {
+				if (nodesById.containsKey(nodeId)) {
+					links.add(new SimpleImmutableEntry<>(nodeId, node.getId()));
+				}
+			}
+		}
+		return links;
+	}
+
+	@Override
+	public String toString() {
+		return "GraphUpdate{" +
+				"previousVersion=" + previousVersion +
+				", version=" + version +
+				", deltas=" + deltas.size() +
+				'}';
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accumulator used by {@link NodeMerger} to reduce emitted nodes into a
+ * list of unique nodes.
+ * <p>
+ * Nodes are indexed by their case-insensitive id, so looking up a previously
+ * merged node does not require a scan over all nodes merged so far.
+ * The order in which nodes were first added is kept.
+ */
+public class MergedNodes {
+
+	private final List<Node> nodes = new ArrayList<>();
+	private final Map<String, Node> nodesById = new HashMap<>();
+
+	/**
+	 * Merges the given node with the previously added node having the same
+	 * id, ignoring case, or adds it when no such node was added before.
+	 * @param node the node to merge
+	 * @return {@code true} if the node was merged into an existing node,
+	 * {@code false} if it was added
+	 */
+	public boolean merge(Node node) {
+		String id = node.getId();
+		if (id == null) {
+			nodes.add(node);
+			return false;
+		}
+		String key = normalizeId(id);
+		Node existing = nodesById.get(key);
+		if (existing != null) {
+			existing.mergeWith(node);
+			return true;
+		}
+		nodesById.put(key, node);
+		nodes.add(node);
+		return false;
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * @return the merged nodes, in the order they were first added
+	 */
+	public List<Node> toList() {
+		return new ArrayList<>(nodes);
+	}
+
+	/**
+	 * Normalizes a node id the same way {@link String#equalsIgnoreCase(String)}
+	 * compares characters, so two ids have the same key if and only if they
+	 * are equal ignoring case.
+	 */
+	static String normalizeId(String id) {
+		int length = id.length();
+		int i = 0;
+		while (i < length && id.charAt(i) == normalizeChar(id.charAt(i))) {
+			i++;
+		}
+		if (i == length) {
+			return id;
+		}
+		char[] chars = id.toCharArray();
+		for (; i < length; i++) {
+			chars[i] = normalizeChar(chars[i]);
+		}
+		return new String(chars);
+	}
+
+	private static char normalizeChar(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+}
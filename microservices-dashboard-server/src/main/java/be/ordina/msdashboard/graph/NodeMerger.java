@@ -24,12 +24,21 @@ import java.util.List;
 import java.util.Optional;
 
 /**
+ * Reduces the nodes emitted by the aggregators into a set of unique nodes,
+ * merging nodes which share the same id (ignoring case).
+ *
  * @author Tim Ysewyn
  */
 public class NodeMerger {
 
     private static final Logger logger = LoggerFactory.getLogger(NodeMerger.class);
 
+    /**
+     * Merges nodes into a plain list. Every merge scans the list for a node
+     * with the same id, so a full reduce takes quadratic time.
+     * Use {@link #mergeIndexed()} when reducing large amounts of nodes.
+     * @return a reduce function merging a node into a list of nodes
+     */
     public static Func2<List<Node>, Node, List<Node>> merge() {
         return (mergedNodes, node) -> {
 
@@ -52,4 +61,21 @@ public class NodeMerger {
             return mergedNodes;
         };
     }
+
+    /**
+     * Merges nodes into a {@link MergedNodes} accumulator, which indexes the
+     * nodes by id so a full reduce takes linear time. The resulting order and
+     * merge semantics are the same as those of {@link #merge()}.
+     * @return a reduce function merging a node into a {@link MergedNodes}
+     */
+    public static Func2<MergedNodes, Node, MergedNodes> mergeIndexed() {
+        return (mergedNodes, node) -> {
+            if (mergedNodes.merge(node)) {
+                logger.debug("Node with id '{}' previously added, merged", node.getId());
+            } else {
+                logger.debug("Node with id '{}' was not merged before, added it to the list", node.getId());
+            }
+            return mergedNodes;
+        };
+    }
 }
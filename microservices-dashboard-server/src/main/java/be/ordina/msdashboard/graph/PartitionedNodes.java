@@ -0,0 +1,262 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static be.ordina.msdashboard.graph.MergedNodes.normalizeId;
+
+/**
+ * Merged nodes which remember the nodes contributed by every partition, so
+ * that only the nodes of partitions which changed have to be merged again.
+ * <p>
+ * A partition holds the nodes one source, such as an aggregator, retrieved for
+ * one service. Nodes with the same id, ignoring case, are merged in the order
+ * of their partition {@link Key keys}, so the result does not depend on the
+ * order in which partitions changed. New nodes are added in the order of
+ * their partition keys as well. Merging never changes the contributed nodes
+ * themselves.
+ */
+public class PartitionedNodes {
+
+	private static final Logger logger = LoggerFactory.getLogger(PartitionedNodes.class);
+
+	private final Map<Key, Partition> partitions = new HashMap<>();
+	private final Map<String, Set<Key>> keysByNodeId = new HashMap<>();
+	private final Map<String, Node> nodesById = new LinkedHashMap<>();
+	private int nodesWithoutId;
+
+	/**
+	 * Replaces the contributions of all partitions. Partitions which are not
+	 * part of the given map are removed, and only the nodes contributed by
+	 * added, changed or removed partitions are merged again.
+	 * @param contributions the nodes of every partition
+	 * @return the normalized ids of the merged nodes which were added, changed or removed
+	 */
+	public synchronized Set<String> update(Map<Key, List<Node>> contributions) {
+		Set<String> affectedIds = new LinkedHashSet<>();
+		int changedPartitions = 0;
+
+		Iterator<Map.Entry<Key, Partition>> iterator = partitions.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Key, Partition> entry = iterator.next();
+			if (!contributions.containsKey(entry.getKey())) {
+				removeContribution(entry.getKey(), entry.getValue(), affectedIds);
+				iterator.remove();
+				changedPartitions++;
+			}
+		}
+		for (Map.Entry<Key, List<Node>> entry : new TreeMap<>(contributions).entrySet()) {
+			Partition previous = partitions.get(entry.getKey());
+			if (previous != null && previous.hasSameNodes(entry.getValue())) {
+				continue;
+			}
+			if (previous != null) {
+				removeContribution(entry.getKey(), previous, affectedIds);
+			}
+			Partition partition = new Partition(entry.getValue());
+			partitions.put(entry.getKey(), partition);
+			addContribution(entry.getKey(), partition, affectedIds);
+			changedPartitions++;
+		}
+
+		Set<String> changedIds = new HashSet<>();
+		for (String id : affectedIds) {
+			if (remerge(id)) {
+				changedIds.add(id);
+			}
+		}
+		logger.debug("Merged {} changed partitions of {}, changing {} nodes", changedPartitions,
+				partitions.size(), changedIds.size());
+		return changedIds;
+	}
+
+	/**
+	 * @return the merged nodes, in the order they were first added, followed
+	 * by the nodes without an id
+	 */
+	public synchronized List<Node> toList() {
+		List<Node> nodes = new ArrayList<>(nodesById.size() + nodesWithoutId);
+		nodes.addAll(nodesById.values());
+		if (nodesWithoutId > 0) {
+			for (Key key : new TreeSet<>(partitions.keySet())) {
+				nodes.addAll(partitions.get(key).nodesWithoutId);
+			}
+		}
+		return nodes;
+	}
+
+	private void addContribution(Key key, Partition partition, Set<String> affectedIds) {
+		for (String id : partition.nodesById.keySet()) {
+			keysByNodeId.computeIfAbsent(id, k -> new TreeSet<>()).add(key);
+			affectedIds.add(id);
+		}
+		nodesWithoutId += partition.nodesWithoutId.size();
+	}
+
+	private void removeContribution(Key key, Partition partition, Set<String> affectedIds) {
+		for (String id : partition.nodesById.keySet()) {
+			Set<Key> keys = keysByNodeId.get(id);
+			keys.remove(key);
+			if (keys.isEmpty()) {
+				keysByNodeId.remove(id);
+			}
+			affectedIds.add(id);
+		}
+		nodesWithoutId -= partition.nodesWithoutId.size();
+	}
+
+	private boolean remerge(String id) {
+		Set<Key> keys = keysByNodeId.get(id);
+		if (keys == null) {
+			return nodesById.remove(id) != null;
+		}
+		Node merged = null;
+		for (Key key : keys) {
+			for (Node node : partitions.get(key).nodesById.get(id)) {
+				// Node.mergeWith can adopt the details and links of the given node, so merge copies only
+				if (merged == null) {
+					merged = Node.copyOf(node);
+				} else {
+					merged.mergeWith(Node.copyOf(node));
+				}
+			}
+		}
+		Node previous = nodesById.get(id);
+		if (previous != null && isSameNode(merged, previous)) {
+			return false;
+		}
+		nodesById.put(id, merged);
+		return true;
+	}
+
+	/**
+	 * Compares nodes the way they are shown in the graph, treating missing
+	 * details and links as empty.
+	 */
+	private static boolean isSameNode(Node node, Node other) {
+		return node.getId().equals(other.getId())
+				&& Objects.equals(node.getLane(), other.getLane())
+				&& node.getDetails().equals(other.getDetails())
+				&& node.getLinkedToNodeIds().equals(other.getLinkedToNodeIds())
+				&& node.getLinkedFromNodeIds().equals(other.getLinkedFromNodeIds());
+	}
+
+	/**
+	 * Identifies a partition by the index of its source and the id of the
+	 * service its nodes were retrieved for. Keys are ordered by source first.
+	 */
+	public static final class Key implements Comparable<Key> {
+
+		private final int source;
+		private final String serviceId;
+
+		public Key(int source, String serviceId) {
+			this.source = source;
+			this.serviceId = serviceId;
+		}
+
+		public int getSource() {
+			return source;
+		}
+
+		public String getServiceId() {
+			return serviceId;
+		}
+
+		@Override
+		public int compareTo(Key other) {
+			int result = Integer.compare(source, other.source);
+			if (result != 0 || Objects.equals(serviceId, other.serviceId)) {
+				return result;
+			}
+			if (serviceId == null || other.serviceId == null) {
+				return serviceId == null ? -1 : 1;
+			}
+			return serviceId.compareTo(other.serviceId);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+
+			Key key = (Key) o;
+			return source == key.source && Objects.equals(serviceId, key.serviceId);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * source + Objects.hashCode(serviceId);
+		}
+
+		@Override
+		public String toString() {
+			return source + "/" + serviceId;
+		}
+	}
+
+	private static final class Partition {
+
+		private final List<Node> nodes;
+		private final Map<String, List<Node>> nodesById = new LinkedHashMap<>();
+		private final List<Node> nodesWithoutId = new ArrayList<>();
+
+		private Partition(List<Node> nodes) {
+			this.nodes = new ArrayList<>(nodes);
+			for (Node node : nodes) {
+				if (node.getId() == null) {
+					nodesWithoutId.add(node);
+				} else {
+					nodesById.computeIfAbsent(normalizeId(node.getId()), k -> new ArrayList<>(1)).add(node);
+				}
+			}
+		}
+
+		private boolean hasSameNodes(List<Node> other) {
+			if (nodes.size() != other.size()) {
+				return false;
+			}
+			for (int i = 0; i < nodes.size(); i++) {
+				Node node = nodes.get(i);
+				Node otherNode = other.get(i);
+				if (node.getId() == null || otherNode.getId() == null) {
+					if (node != otherNode) {
+						return false;
+					}
+				} else if (!node.equals(otherNode)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
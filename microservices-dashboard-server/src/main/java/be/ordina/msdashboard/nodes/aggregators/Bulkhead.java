@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import io.reactivex.netty.client.RxClient;
+import rx.Observable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Limits the requests in flight of a single aggregator, both in total and per
+ * host, as configured by its {@link BulkheadProperties}.
+ */
+public class Bulkhead {
+
+	private final ConcurrencyLimiter limiter;
+	private final int maxInFlightPerHost;
+	private final ConcurrentMap<String, ConcurrencyLimiter> hostLimiters = new ConcurrentHashMap<>();
+
+	public Bulkhead(BulkheadProperties properties) {
+		this.limiter = new ConcurrencyLimiter(properties.getMaxInFlight());
+		this.maxInFlightPerHost = properties.getMaxInFlightPerHost();
+	}
+
+	/**
+	 * @param server the host the request is sent to
+	 * @param request the request, which is only made once permitted for the host and in total
+	 * @return the limited request
+	 */
+	public <T> Observable<T> limit(RxClient.ServerInfo server, Observable<T> request) {
+		Observable<T> limited = limiter.limit(request);
+		if (maxInFlightPerHost > 0 && server != null) {
+			String host = server.getHost() + ":" + server.getPort();
+			limited = hostLimiters.computeIfAbsent(host, h -> new ConcurrencyLimiter(maxInFlightPerHost)).limit(limited);
+		}
+		return limited;
+	}
+
+	/**
+	 * Forgets the limit of a host which left the discovery registry. Requests
+	 * still in flight to the host keep their permit.
+	 *
+	 * @param host the host and port of the instance, as {@code host:port}
+	 */
+	public void evict(String host) {
+		hostLimiters.remove(host);
+	}
+
+	/**
+	 * @return the number of hosts which have a limit of their own
+	 */
+	public int getHosts() {
+		return hostLimiters.size();
+	}
+
+	/**
+	 * @return the number of requests in flight
+	 */
+	public int getInFlight() {
+		return limiter.getInFlight();
+	}
+
+	/**
+	 * @return the number of requests waiting to be sent
+	 */
+	public int getWaiting() {
+		return limiter.getWaiting();
+	}
+}
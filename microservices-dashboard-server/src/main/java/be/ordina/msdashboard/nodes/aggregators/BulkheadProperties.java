@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import static io.reactivex.netty.client.MaxConnectionsBasedStrategy.DEFAULT_MAX_CONNECTIONS;
+
+/**
+ * Limits the calls made by a single aggregator, so it can neither flood the
+ * services it calls nor starve the other aggregators. Nothing is limited by
+ * default.
+ */
+public class BulkheadProperties {
+
+	/**
+	 * Maximum number of requests the aggregator has in flight at the same time, 0 for no limit.
+	 */
+	private int maxInFlight = 0;
+
+	/**
+	 * Maximum number of requests the aggregator has in flight to the same host, 0 for no limit.
+	 */
+	private int maxInFlightPerHost = 0;
+
+	/**
+	 * Whether the aggregator uses a connection pool of its own instead of the shared one.
+	 */
+	private boolean isolated = false;
+
+	/**
+	 * Maximum number of connections of the connection pool of the aggregator, when isolated.
+	 */
+	private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+	}
+
+	public int getMaxInFlightPerHost() {
+		return maxInFlightPerHost;
+	}
+
+	public void setMaxInFlightPerHost(int maxInFlightPerHost) {
+		this.maxInFlightPerHost = maxInFlightPerHost;
+	}
+
+	public boolean isIsolated() {
+		return isolated;
+	}
+
+	public void setIsolated(boolean isolated) {
+		this.isolated = isolated;
+	}
+
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * @return whether any limit or isolation is configured
+	 */
+	public boolean isEnabled() {
+		return maxInFlight > 0 || maxInFlightPerHost > 0 || isolated;
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import be.ordina.msdashboard.nodes.model.CircuitBreakerEvent;
+import be.ordina.msdashboard.nodes.model.Node;
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixObservableCommand;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import rx.Observable;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy.SEMAPHORE;
+
+/**
+ * Hystrix circuit breakers of a single aggregator, one per service, or one
+ * per instance when the aggregator calls every instance of a service.
+ * <p>
+ * While the circuit of a service is open, the service is not called and the
+ * nodes it returned last are served instead, with their {@link Node#STALE}
+ * detail set. Changes of the state of a circuit are handed to the
+ * {@link ErrorHandler} as {@link CircuitBreakerEvent}s, and the state is
+ * exposed as the {@value #OPEN_METRIC} gauge when a {@link MeterRegistry} is given.
+ * <p>
+ * Timeouts are left to the {@link NettyServiceCaller}, so the Hystrix
+ * execution timeout is disabled.
+ * <p>
+ * Hystrix keeps the state of every command key for good, so the command keys
+ * of the circuits of instances are reused once their instance left: a key is
+ * handed to a new instance of the same service only after a rolling window has
+ * passed since its instance left, closing its circuit if it was left open, so
+ * no instance inherits the state of another one.
+ */
+public class CircuitBreaker {
+
+	static final String OPEN_METRIC = "msdashboard.circuit.open";
+
+	private final String aggregator;
+	private final HystrixCommandGroupKey groupKey;
+	private final HystrixCommandProperties.Setter commandProperties;
+	private final ErrorHandler errorHandler;
+	private final MeterRegistry meterRegistry;
+	private final long rollingWindow;
+	private final ConcurrentMap<String, ServiceCircuit> circuits = new ConcurrentHashMap<>();
+	private final Map<String, Deque<ReleasedKey>> releasedKeys = new HashMap<>();
+	private final Map<String, Integer> createdKeys = new HashMap<>();
+
+	public CircuitBreaker(String aggregator, CircuitBreakerProperties properties, ErrorHandler errorHandler,
+						  MeterRegistry meterRegistry) {
+		this.aggregator = aggregator;
+		this.groupKey = HystrixCommandGroupKey.Factory.asKey("msdashboard." + aggregator);
+		this.commandProperties = HystrixCommandProperties.Setter()
+				.withExecutionTimeoutEnabled(false)
+				.withExecutionIsolationStrategy(SEMAPHORE)
+				.withExecutionIsolationSemaphoreMaxConcurrentRequests(Integer.MAX_VALUE)
+				.withFallbackIsolationSemaphoreMaxConcurrentRequests(Integer.MAX_VALUE)
+				.withCircuitBreakerRequestVolumeThreshold(properties.getRequestVolumeThreshold())
+				.withCircuitBreakerErrorThresholdPercentage(properties.getErrorThresholdPercentage())
+				.withCircuitBreakerSleepWindowInMilliseconds(properties.getSleepWindow())
+				.withMetricsRollingStatisticalWindowInMilliseconds(properties.getRollingWindow());
+		this.errorHandler = errorHandler;
+		this.meterRegistry = meterRegistry;
+		this.rollingWindow = properties.getRollingWindow();
+	}
+
+	/**
+	 * @param serviceId the id of the service the nodes are retrieved from
+	 * @param nodes the nodes retrieved from the service, failing when the service could not be called
+	 * @return the nodes of the service, or its last known nodes marked stale while its circuit is open
+	 */
+	public Observable<Node> execute(String serviceId, Observable<Node> nodes) {
+		return execute(serviceId, null, nodes);
+	}
+
+	/**
+	 * Same as {@link #execute(String, Observable)}, for a single instance of
+	 * the service, which has a circuit of its own.
+	 *
+	 * @param instance the host and port of the instance, as {@code host:port},
+	 *                 or {@code null} for the circuit of the whole service
+	 */
+	public Observable<Node> execute(String serviceId, String instance, Observable<Node> nodes) {
+		ServiceCircuit circuit = circuits.computeIfAbsent(key(serviceId, instance),
+				key -> createCircuit(key, serviceId, instance));
+		NodesCommand command = new NodesCommand(circuit, nodes);
+		return command.toObservable()
+				.doOnTerminate(() -> circuit.update(command.isCircuitBreakerOpen()));
+	}
+
+	/**
+	 * @param serviceId the id of the service
+	 * @return whether the circuit of the service is open
+	 */
+	public boolean isOpen(String serviceId) {
+		return isOpen(serviceId, null);
+	}
+
+	/**
+	 * @param serviceId the id of the service
+	 * @param instance the host and port of the instance, or {@code null} for the whole service
+	 * @return whether the circuit of the instance is open
+	 */
+	public boolean isOpen(String serviceId, String instance) {
+		ServiceCircuit circuit = circuits.get(key(serviceId, instance));
+		return circuit != null && circuit.open.get();
+	}
+
+	/**
+	 * Forgets the circuit, gauge and last known nodes of an instance which left
+	 * the discovery registry, releasing its command key to be reused.
+	 *
+	 * @param serviceId the id of the service
+	 * @param instance the host and port of the instance, as {@code host:port}
+	 */
+	public void evict(String serviceId, String instance) {
+		ServiceCircuit circuit = circuits.remove(key(serviceId, instance));
+		if (circuit == null) {
+			return;
+		}
+		if (circuit.gauge != null) {
+			meterRegistry.remove(circuit.gauge);
+		}
+		releaseCommandKey(serviceId, circuit.commandKey);
+	}
+
+	private static String key(String serviceId, String instance) {
+		return instance != null ? serviceId + "@" + instance : serviceId;
+	}
+
+	private ServiceCircuit createCircuit(String key, String serviceId, String instance) {
+		HystrixCommandKey commandKey = instance != null ? acquireCommandKey(serviceId)
+				: HystrixCommandKey.Factory.asKey(aggregator + "." + key);
+		Gauge gauge = null;
+		if (meterRegistry != null) {
+			// Looked up by key, as the circuit of an instance is replaced when it registers again
+			gauge = Gauge.builder(OPEN_METRIC, this, breaker -> breaker.isOpen(serviceId, instance) ? 1 : 0)
+					.tag("aggregator", aggregator)
+					.tag("service", serviceId)
+					.tag("instance", instance != null ? instance : "all")
+					.register(meterRegistry);
+		}
+		return new ServiceCircuit(serviceId, instance, commandKey, gauge);
+	}
+
+	/**
+	 * @return the command key released longest ago by an instance of the
+	 * service, once its rolling window passed, or else a new command key
+	 */
+	private synchronized HystrixCommandKey acquireCommandKey(String serviceId) {
+		Deque<ReleasedKey> released = releasedKeys.get(serviceId);
+		ReleasedKey reusable = released != null ? released.peekFirst() : null;
+		if (reusable != null && System.currentTimeMillis() - reusable.releasedAt >= rollingWindow) {
+			released.pollFirst();
+			HystrixCircuitBreaker breaker = HystrixCircuitBreaker.Factory.getInstance(reusable.commandKey);
+			if (breaker != null) {
+				// Closes a circuit left open and resets its health counts
+				breaker.markSuccess();
+			}
+			return reusable.commandKey;
+		}
+		int number = createdKeys.merge(serviceId, 1, Integer::sum);
+		return HystrixCommandKey.Factory.asKey(aggregator + "." + serviceId + "#" + number);
+	}
+
+	private synchronized void releaseCommandKey(String serviceId, HystrixCommandKey commandKey) {
+		releasedKeys.computeIfAbsent(serviceId, id -> new ArrayDeque<>())
+				.addLast(new ReleasedKey(commandKey, System.currentTimeMillis()));
+	}
+
+	private static Node markStale(Node node) {
+		Node stale = Node.copyOf(node);
+		Map<String, Object> details = new HashMap<>(node.getDetails());
+		details.put(Node.STALE, true);
+		stale.setDetails(details);
+		return stale;
+	}
+
+	private final class ServiceCircuit {
+
+		private final String serviceId;
+		private final String instance;
+		private final HystrixCommandKey commandKey;
+		private final Gauge gauge;
+		private final AtomicBoolean open = new AtomicBoolean();
+		private volatile List<Node> lastNodes = Collections.emptyList();
+
+		private ServiceCircuit(String serviceId, String instance, HystrixCommandKey commandKey, Gauge gauge) {
+			this.serviceId = serviceId;
+			this.instance = instance;
+			this.commandKey = commandKey;
+			this.gauge = gauge;
+		}
+
+		private void update(boolean nowOpen) {
+			if (open.compareAndSet(!nowOpen, nowOpen)) {
+				errorHandler.handleCircuitBreakerEvent(new CircuitBreakerEvent(serviceId, instance, aggregator, nowOpen));
+			}
+		}
+	}
+
+	private static final class ReleasedKey {
+
+		private final HystrixCommandKey commandKey;
+		private final long releasedAt;
+
+		private ReleasedKey(HystrixCommandKey commandKey, long releasedAt) {
+			this.commandKey = commandKey;
+			this.releasedAt = releasedAt;
+		}
+	}
+
+	private final class NodesCommand extends HystrixObservableCommand<Node> {
+
+		private final ServiceCircuit circuit;
+		private final Observable<Node> nodes;
+
+		private NodesCommand(ServiceCircuit circuit, Observable<Node> nodes) {
+			super(Setter.withGroupKey(groupKey)
+					.andCommandKey(circuit.commandKey)
+					.andCommandPropertiesDefaults(commandProperties));
+			this.circuit = circuit;
+			this.nodes = nodes;
+		}
+
+		@Override
+		protected Observable<Node> construct() {
+			return nodes.toList()
+					.doOnNext(list -> circuit.lastNodes = Node.copyAll(list))
+					.flatMapIterable(list -> list);
+		}
+
+		/**
+		 * Serves the last known nodes when the service was not called because
+		 * its circuit is open. Other failures result in no nodes, as they have
+		 * already been handled by the caller.
+		 */
+		@Override
+		protected Observable<Node> resumeWithFallback() {
+			if (!isResponseShortCircuited()) {
+				return Observable.empty();
+			}
+			return Observable.from(circuit.lastNodes).map(CircuitBreaker::markStale);
+		}
+	}
+}
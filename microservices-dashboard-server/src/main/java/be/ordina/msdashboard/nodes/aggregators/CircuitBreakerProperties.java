@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+/**
+ * Configures the circuit breaker of an aggregator, which stops calling a
+ * service which keeps failing and serves its last known nodes instead.
+ * <p>
+ * A service is called about once per graph refresh, so the rolling window
+ * has to span at least as many refresh intervals as the request volume
+ * threshold for a circuit to ever open, and the sleep window should span a
+ * few refresh intervals for an open circuit to save any calls. The defaults
+ * suit the default refresh interval of 30 seconds with up to 5 seconds of
+ * jitter: three failed refreshes within three minutes open the circuit, after
+ * which the service is tried again every two minutes. Scale them along when
+ * changing {@code msdashboard.graph.refresh.interval}.
+ */
+public class CircuitBreakerProperties {
+
+	/**
+	 * Whether to stop calling services which keep failing.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Minimum number of calls to a service within the rolling window before its circuit can open.
+	 */
+	private int requestVolumeThreshold = 3;
+
+	/**
+	 * Percentage of failed calls to a service within the rolling window which opens its circuit.
+	 */
+	private int errorThresholdPercentage = 50;
+
+	/**
+	 * Milliseconds an open circuit waits before letting a single call through to try the service again.
+	 */
+	private int sleepWindow = 120000;
+
+	/**
+	 * Milliseconds of the rolling window in which calls are counted, a multiple of 10.
+	 */
+	private int rollingWindow = 180000;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getRequestVolumeThreshold() {
+		return requestVolumeThreshold;
+	}
+
+	public void setRequestVolumeThreshold(int requestVolumeThreshold) {
+		this.requestVolumeThreshold = requestVolumeThreshold;
+	}
+
+	public int getErrorThresholdPercentage() {
+		return errorThresholdPercentage;
+	}
+
+	public void setErrorThresholdPercentage(int errorThresholdPercentage) {
+		this.errorThresholdPercentage = errorThresholdPercentage;
+	}
+
+	public int getSleepWindow() {
+		return sleepWindow;
+	}
+
+	public void setSleepWindow(int sleepWindow) {
+		this.sleepWindow = sleepWindow;
+	}
+
+	public int getRollingWindow() {
+		return rollingWindow;
+	}
+
+	public void setRollingWindow(int rollingWindow) {
+		this.rollingWindow = rollingWindow;
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.observers.Subscribers;
+import rx.subscriptions.Subscriptions;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of observables which are subscribed to at the same time.
+ * <p>
+ * Subscriptions beyond the limit are queued without blocking any thread, and
+ * are made in order as soon as an earlier observable terminates or is
+ * unsubscribed from.
+ */
+public class ConcurrencyLimiter {
+
+	private final int maxConcurrent;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger draining = new AtomicInteger();
+	private final Queue<Permit<?>> waiting = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * @param maxConcurrent the maximum number of concurrent subscriptions, or 0 for no limit
+	 */
+	public ConcurrencyLimiter(int maxConcurrent) {
+		this.maxConcurrent = maxConcurrent;
+	}
+
+	/**
+	 * @param observable the observable to limit, typically a remote call
+	 * @return an observable which only subscribes to the given one once a permit is available
+	 */
+	public <T> Observable<T> limit(Observable<T> observable) {
+		if (maxConcurrent <= 0) {
+			return observable;
+		}
+		return Observable.create(subscriber -> {
+			Permit<T> permit = new Permit<>(observable, subscriber);
+			subscriber.add(Subscriptions.create(permit::cancel));
+			waiting.offer(permit);
+			drain();
+		});
+	}
+
+	/**
+	 * @return the number of observables currently subscribed to
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * @return the number of observables waiting for a permit
+	 */
+	public int getWaiting() {
+		return waiting.size();
+	}
+
+	/**
+	 * Starts waiting observables while permits are available. Only one thread
+	 * drains at a time: a drain requested meanwhile, for instance by an
+	 * observable which terminated while it was being started, is picked up by
+	 * the draining thread in its next pass instead of recursing.
+	 */
+	private void drain() {
+		if (draining.getAndIncrement() != 0) {
+			return;
+		}
+		int missed = 1;
+		do {
+			while (!waiting.isEmpty()) {
+				int current = inFlight.get();
+				if (current >= maxConcurrent) {
+					break;
+				}
+				if (inFlight.compareAndSet(current, current + 1)) {
+					Permit<?> permit = waiting.poll();
+					if (permit == null) {
+						inFlight.decrementAndGet();
+					} else {
+						permit.start();
+					}
+				}
+			}
+			missed = draining.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private final class Permit<T> {
+
+		private static final int WAITING = 0;
+		private static final int RUNNING = 1;
+		private static final int DONE = 2;
+
+		private final Observable<T> observable;
+		private final Subscriber<? super T> subscriber;
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+
+		private Permit(Observable<T> observable, Subscriber<? super T> subscriber) {
+			this.observable = observable;
+			this.subscriber = subscriber;
+		}
+
+		private void start() {
+			if (!state.compareAndSet(WAITING, RUNNING)) {
+				// Unsubscribed while waiting, hand the permit to the next one
+				inFlight.decrementAndGet();
+				return;
+			}
+			observable.doOnTerminate(this::release).unsafeSubscribe(Subscribers.wrap(subscriber));
+		}
+
+		private void cancel() {
+			if (!state.compareAndSet(WAITING, DONE)) {
+				release();
+			}
+		}
+
+		private void release() {
+			if (state.compareAndSet(RUNNING, DONE)) {
+				inFlight.decrementAndGet();
+				drain();
+			}
+		}
+	}
+}
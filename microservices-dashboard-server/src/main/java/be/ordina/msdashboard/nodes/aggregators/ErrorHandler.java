@@ -15,14 +15,31 @@
  */
 package be.ordina.msdashboard.nodes.aggregators;
 
+import be.ordina.msdashboard.nodes.model.CircuitBreakerEvent;
 import be.ordina.msdashboard.nodes.model.NodeEvent;
 import be.ordina.msdashboard.nodes.model.SystemEvent;
 import be.ordina.msdashboard.nodes.stores.EventStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import rx.Observable;
 
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
 /**
  * Handler of errors emitted by {@link Observable}s.
  * <p>Its function is twofold:
@@ -32,14 +49,30 @@ import rx.Observable;
  * </ol>
  * Event listeners can then pick up the published events for
  * instance how {@link EventStore} populates its store.
+ * <p>When configured with a window, only the first warning or error of a
+ * service within that window is logged and published, further ones of the
+ * same kind are counted as suppressed. The number of suppressed events is
+ * exposed through {@link #getSuppressedEvents()}, and as the
+ * {@value #SUPPRESSED_METRIC} counter when a {@link MeterRegistry} is given.
+ * Messages are only formatted for events which are not suppressed, on a
+ * thread of their own when publishing asynchronously.
  *
  * @author Andreas Evers
  */
 public class ErrorHandler {
 
+    static final String SUPPRESSED_METRIC = "msdashboard.events.suppressed";
+
     private static final Logger logger = LoggerFactory.getLogger(ErrorHandler.class);
 
+    private static final String WARNING = "warning";
+    private static final String ERROR = "error";
+
     private ApplicationEventPublisher publisher;
+    private final long window;
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, EventWindow> windows = new ConcurrentHashMap<>();
 
     /**
      * Creates a new {@link ErrorHandler} that will handle passed in errors.
@@ -47,7 +80,23 @@ public class ErrorHandler {
      *                  publishing error events
      */
     public ErrorHandler(ApplicationEventPublisher publisher) {
+        this(publisher, new ErrorHandlerProperties(), null);
+    }
+
+    /**
+     * Creates a new {@link ErrorHandler} that will handle passed in errors,
+     * coalescing and publishing them as configured.
+     * @param publisher an {@link ApplicationEventPublisher} capable of
+     *                  publishing error events
+     * @param properties configures how events are coalesced and published
+     * @param meterRegistry the registry counting suppressed events, or null
+     */
+    public ErrorHandler(ApplicationEventPublisher publisher, ErrorHandlerProperties properties,
+                        MeterRegistry meterRegistry) {
         this.publisher = publisher;
+        this.window = properties.getWindow();
+        this.executor = properties.isAsync() ? createExecutor(properties.getQueueCapacity()) : null;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -57,8 +106,22 @@ public class ErrorHandler {
      * @param message the message of the warning
      */
     public void handleNodeWarning(String serviceId, String message) {
-        logger.warn(message);
-        publisher.publishEvent(new NodeEvent(serviceId, message));
+        handleNodeWarning(serviceId, () -> message);
+    }
+
+    /**
+     * Handles a node warning of which the message is only created when it
+     * is logged and published.
+     * @param serviceId id of the service the warning occurred for
+     * @param message supplies the message of the warning
+     * @see #handleNodeWarning(String, String)
+     */
+    public void handleNodeWarning(String serviceId, Supplier<String> message) {
+        handle(serviceId, WARNING, suppressed -> {
+            String text = message.get();
+            logger.warn(withSuppressed(text, suppressed));
+            publisher.publishEvent(new NodeEvent(serviceId, text));
+        });
     }
 
     /**
@@ -70,8 +133,41 @@ public class ErrorHandler {
      * @param el the throwable itself
      */
     public void handleNodeError(String serviceId, String message, Throwable el) {
-        logger.error(message, el);
-        publisher.publishEvent(new NodeEvent(serviceId, message, el));
+        handleNodeError(serviceId, () -> message, el);
+    }
+
+    /**
+     * Handles a node error of which the message is only created when it
+     * is logged and published.
+     * @param serviceId id of the service the error occurred for
+     * @param message supplies the message of the error
+     * @param el the throwable itself
+     * @see #handleNodeError(String, String, Throwable)
+     */
+    public void handleNodeError(String serviceId, Supplier<String> message, Throwable el) {
+        handle(serviceId, ERROR, suppressed -> {
+            String text = message.get();
+            logger.error(withSuppressed(text, suppressed), el);
+            publisher.publishEvent(new NodeEvent(serviceId, text, el));
+        });
+    }
+
+    /**
+     * Handles a change of the state of a circuit breaker. Will log a warning
+     * when the circuit opened, or an info message when it closed again, and
+     * publish the {@link CircuitBreakerEvent}. These events are never
+     * suppressed.
+     * @param event the event describing the new state of the circuit breaker
+     */
+    public void handleCircuitBreakerEvent(CircuitBreakerEvent event) {
+        dispatch(() -> {
+            if (event.isOpen()) {
+                logger.warn(event.getMessage());
+            } else {
+                logger.info(event.getMessage());
+            }
+            publisher.publishEvent(event);
+        }, null);
     }
 
     /**
@@ -84,7 +180,109 @@ public class ErrorHandler {
      * @param el the throwable itself
      */
     public void handleSystemError(String message, Throwable el) {
-        logger.error(message, el);
-        publisher.publishEvent(new SystemEvent(message, el));
+        handle(null, ERROR, suppressed -> {
+            logger.error(withSuppressed(message, suppressed), el);
+            publisher.publishEvent(new SystemEvent(message, el));
+        });
+    }
+
+    /**
+     * Stops the thread publishing events asynchronously, after it published
+     * the events already waiting.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of suppressed events per service and kind of event,
+     * keyed as {@code serviceId:kind}
+     */
+    public Map<String, Long> getSuppressedEvents() {
+        Map<String, Long> suppressedEvents = new TreeMap<>();
+        windows.forEach((key, eventWindow) -> suppressedEvents.put(key, eventWindow.suppressed.get()));
+        return suppressedEvents;
+    }
+
+    private void handle(String serviceId, String kind, LongConsumer publish) {
+        if (window <= 0) {
+            dispatch(() -> publish.accept(0), null);
+            return;
+        }
+        String service = serviceId != null ? serviceId : "none";
+        EventWindow eventWindow = windows.computeIfAbsent(service + ":" + kind,
+                key -> new EventWindow(service, kind));
+        long suppressed = eventWindow.open(System.currentTimeMillis());
+        if (suppressed >= 0) {
+            dispatch(() -> publish.accept(suppressed), eventWindow);
+        }
+    }
+
+    private void dispatch(Runnable publish, EventWindow eventWindow) {
+        if (executor == null) {
+            publish.run();
+            return;
+        }
+        try {
+            executor.execute(publish);
+        } catch (RejectedExecutionException e) {
+            if (eventWindow != null) {
+                eventWindow.suppress();
+            } else {
+                logger.warn("Dropped event, too many events are waiting to be published");
+            }
+        }
+    }
+
+    private static String withSuppressed(String message, long suppressed) {
+        return suppressed > 0 ? message + " (" + suppressed + " similar events suppressed)" : message;
+    }
+
+    private static ExecutorService createExecutor(int queueCapacity) {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "msdashboard-events");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private final class EventWindow {
+
+        private final AtomicLong start = new AtomicLong();
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicLong suppressed = new AtomicLong();
+        private final Counter counter;
+
+        private EventWindow(String serviceId, String kind) {
+            this.counter = meterRegistry == null ? null : Counter.builder(SUPPRESSED_METRIC)
+                    .tag("service", serviceId)
+                    .tag("kind", kind)
+                    .register(meterRegistry);
+        }
+
+        /**
+         * @return the number of events suppressed since the previous window
+         * when a new window opened, or -1 when the event is suppressed
+         */
+        private long open(long now) {
+            long current = start.get();
+            if (now - current >= window && start.compareAndSet(current, now)) {
+                return pending.getAndSet(0);
+            }
+            suppress();
+            return -1;
+        }
+
+        private void suppress() {
+            pending.incrementAndGet();
+            suppressed.incrementAndGet();
+            if (counter != null) {
+                counter.increment();
+            }
+        }
     }
 }
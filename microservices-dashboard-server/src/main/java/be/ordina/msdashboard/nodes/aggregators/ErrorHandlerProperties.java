@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+/**
+ * Configures how the {@link ErrorHandler} publishes events.
+ */
+public class ErrorHandlerProperties {
+
+	/**
+	 * Milliseconds during which further warnings or errors of a service are
+	 * suppressed after one got published, 0 to publish all of them.
+	 */
+	private long window = 0;
+
+	/**
+	 * Whether to log and publish events on a thread of their own instead of the
+	 * thread which handled the call.
+	 */
+	private boolean async = false;
+
+	/**
+	 * Maximum number of events waiting to be published asynchronously, further
+	 * events are suppressed.
+	 */
+	private int queueCapacity = 1000;
+
+	public long getWindow() {
+		return window;
+	}
+
+	public void setWindow(long window) {
+		this.window = window;
+	}
+
+	public boolean isAsync() {
+		return async;
+	}
+
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+}
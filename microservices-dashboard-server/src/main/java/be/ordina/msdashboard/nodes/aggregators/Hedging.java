@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import rx.Observable;
+import rx.Scheduler;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Sends a hedged request when the first one takes longer than usual for a
+ * service, as configured by the {@link HedgingProperties} of an aggregator.
+ * <p>
+ * The response times of the last requests are kept per service, and the
+ * hedged request is sent after the configured percentile of them.
+ */
+public class Hedging {
+
+	private final HedgingProperties properties;
+	private final Scheduler scheduler;
+	private final ConcurrentMap<String, ResponseTimes> responseTimes = new ConcurrentHashMap<>();
+
+	public Hedging(HedgingProperties properties, Scheduler scheduler) {
+		this.properties = properties;
+		this.scheduler = scheduler;
+	}
+
+	public HedgingProperties getProperties() {
+		return properties;
+	}
+
+	/**
+	 * The response time of whichever request emits first is recorded. When
+	 * the hedged request wins, the time the first request was waited for is
+	 * recorded as well, as it took at least that long: leaving it out would
+	 * only keep the fast responses and lower the percentile over time.
+	 *
+	 * @param serviceId the id of the service both requests are sent to
+	 * @param request the request to the first instance
+	 * @param hedgedRequest the same request to another instance, which is only
+	 * subscribed to when the first request is slow
+	 * @return an observable mirroring whichever request emits first
+	 */
+	public <T> Observable<T> hedge(String serviceId, Observable<T> request, Observable<T> hedgedRequest) {
+		Observable<T> measured = measure(serviceId, request, true);
+		Observable<T> delayed = Observable.defer(() ->
+				measure(serviceId, hedgedRequest, false).delaySubscription(getDelay(serviceId), MILLISECONDS, scheduler));
+		return Observable.amb(measured, delayed);
+	}
+
+	/**
+	 * @param serviceId the id of the service
+	 * @return the milliseconds to wait before a hedged request is sent to the service
+	 */
+	public long getDelay(String serviceId) {
+		ResponseTimes times = responseTimes.get(serviceId);
+		long percentile = times != null ? times.percentile(properties.getPercentile()) : -1;
+		return Math.max(percentile, properties.getMinDelay());
+	}
+
+	/**
+	 * @param whenCancelled whether to record the time waited for the request
+	 * as well when it is unsubscribed from before it completed
+	 */
+	private <T> Observable<T> measure(String serviceId, Observable<T> request, boolean whenCancelled) {
+		return Observable.defer(() -> {
+			long start = scheduler.now();
+			AtomicBoolean done = new AtomicBoolean();
+			Observable<T> measured = request
+					.doOnError(e -> done.set(true))
+					.doOnCompleted(() -> {
+						if (done.compareAndSet(false, true)) {
+							record(serviceId, scheduler.now() - start);
+						}
+					});
+			if (whenCancelled) {
+				measured = measured.doOnUnsubscribe(() -> {
+					if (done.compareAndSet(false, true)) {
+						record(serviceId, scheduler.now() - start);
+					}
+				});
+			}
+			return measured;
+		});
+	}
+
+	void record(String serviceId, long millis) {
+		responseTimes.computeIfAbsent(serviceId, id -> new ResponseTimes(properties.getSamples())).add(millis);
+	}
+
+	private static final class ResponseTimes {
+
+		private final long[] times;
+		private int count;
+		private int next;
+
+		private ResponseTimes(int samples) {
+			this.times = new long[Math.max(samples, 1)];
+		}
+
+		private synchronized void add(long millis) {
+			times[next] = millis;
+			next = (next + 1) % times.length;
+			count = Math.min(count + 1, times.length);
+		}
+
+		/**
+		 * @return the percentile of the recorded times, or -1 while less than
+		 * 20 times are known, which is too few to derive a percentile from
+		 */
+		private long percentile(double percentile) {
+			long[] sorted;
+			synchronized (this) {
+				if (count < Math.min(20, times.length)) {
+					return -1;
+				}
+				sorted = Arrays.copyOf(times, count);
+			}
+			Arrays.sort(sorted);
+			int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+			return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+		}
+	}
+}
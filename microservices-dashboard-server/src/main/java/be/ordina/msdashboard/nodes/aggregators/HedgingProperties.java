@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+/**
+ * Configures hedged requests: when a service has not answered after the
+ * configured percentile of its recent response times, the same request is
+ * sent to another instance of the service and the first answer is used.
+ */
+public class HedgingProperties {
+
+	/**
+	 * Whether to send hedged requests to another instance of slow services.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Percentile of the recent response times of a service after which a hedged request is sent.
+	 */
+	private double percentile = 95;
+
+	/**
+	 * Minimum delay in milliseconds before a hedged request is sent, also used
+	 * while too few response times of a service are known.
+	 */
+	private long minDelay = 100;
+
+	/**
+	 * Number of recent response times kept per service.
+	 */
+	private int samples = 128;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public double getPercentile() {
+		return percentile;
+	}
+
+	public void setPercentile(double percentile) {
+		this.percentile = percentile;
+	}
+
+	public long getMinDelay() {
+		return minDelay;
+	}
+
+	public void setMinDelay(long minDelay) {
+		this.minDelay = minDelay;
+	}
+
+	public int getSamples() {
+		return samples;
+	}
+
+	public void setSamples(int samples) {
+		this.samples = samples;
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import be.ordina.msdashboard.nodes.uriresolvers.InstanceFingerprintResolver;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import rx.Observable;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Nodes retrieved by a single aggregator, by instance, together with the
+ * registration fingerprint the instance had when they were retrieved.
+ * <p>
+ * As long as the fingerprint of an instance does not change, the instance is
+ * not called again and its nodes are served from this cache. Only complete
+ * results are kept: nothing is kept when the instance returned no nodes, as
+ * the call might have failed, or when any of the nodes is {@link Node#STALE}.
+ * <p>
+ * When given a directory, each result is also written to a file of its own
+ * in it, and the results found there are loaded again on creation, so the
+ * instances which did not change are not called after a restart either.
+ * A result only changes when the registration of its instance changes, so
+ * the files are rarely written.
+ */
+public class InstanceResultCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(InstanceResultCache.class);
+
+	private static final TypeReference<List<Node>> NODES_TYPE = new TypeReference<List<Node>>() {
+	};
+	private static final String KEY = "key";
+	private static final String FINGERPRINT = "fingerprint";
+	private static final String NODES = "nodes";
+
+	private final InstanceFingerprintResolver fingerprintResolver;
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final Path directory;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	public InstanceResultCache(InstanceFingerprintResolver fingerprintResolver) {
+		this(fingerprintResolver, null);
+	}
+
+	/**
+	 * @param directory the directory to persist the results in, or {@code null}
+	 *                  to keep them in memory only
+	 */
+	public InstanceResultCache(InstanceFingerprintResolver fingerprintResolver, Path directory) {
+		this.fingerprintResolver = fingerprintResolver;
+		this.directory = directory;
+		if (directory != null) {
+			load();
+		}
+	}
+
+	/**
+	 * @param instance the instance to retrieve the nodes from
+	 * @param retrieval the retrieval of the nodes, used when the registration
+	 *                  of the instance changed since the nodes were last kept
+	 * @return the nodes of the instance
+	 */
+	public Observable<Node> get(ServiceInstance instance, Supplier<Observable<Node>> retrieval) {
+		return Observable.defer(() -> {
+			String key = key(instance);
+			String fingerprint = fingerprintResolver.resolveFingerprint(instance);
+			if (fingerprint == null) {
+				remove(key);
+				return retrieval.get();
+			}
+			Entry entry = entries.get(key);
+			if (entry != null && entry.fingerprint.equals(fingerprint)) {
+				logger.debug("Registration of instance {} did not change, reusing its nodes", key);
+				return Observable.from(entry.copyNodes());
+			}
+			return retrieval.get()
+					.toList()
+					.doOnNext(nodes -> {
+						if (isComplete(nodes)) {
+							put(key, new Entry(fingerprint, nodes));
+						} else {
+							remove(key);
+						}
+					})
+					.flatMapIterable(nodes -> nodes);
+		});
+	}
+
+	/**
+	 * Forgets the nodes of an instance which left the discovery registry.
+	 *
+	 * @param serviceId the id of the service of the instance
+	 * @param instance the host and port of the instance, as {@code host:port}
+	 */
+	public void evict(String serviceId, String instance) {
+		remove(serviceId.toLowerCase() + "@" + instance);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private void put(String key, Entry entry) {
+		entries.put(key, entry);
+		if (directory != null) {
+			write(key, entry);
+		}
+	}
+
+	private void remove(String key) {
+		if (entries.remove(key) != null && directory != null) {
+			try {
+				Files.deleteIfExists(file(key));
+			} catch (IOException e) {
+				logger.warn("Could not delete the persisted nodes of instance {}: {}", key, e.getMessage());
+			}
+		}
+	}
+
+	private void load() {
+		try {
+			Files.createDirectories(directory);
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+				for (Path file : files) {
+					try {
+						JsonNode stored = objectMapper.readTree(file.toFile());
+						List<Node> nodes = objectMapper.convertValue(stored.get(NODES), NODES_TYPE);
+						entries.put(stored.get(KEY).asText(), new Entry(stored.get(FINGERPRINT).asText(), nodes));
+					} catch (IOException | RuntimeException e) {
+						logger.warn("Skipping unreadable persisted nodes in {}: {}", file, e.getMessage());
+					}
+				}
+			}
+			logger.info("Loaded the persisted nodes of {} instances from {}", entries.size(), directory);
+		} catch (IOException e) {
+			logger.warn("Could not load the persisted nodes from {}: {}", directory, e.getMessage());
+		}
+	}
+
+	private void write(String key, Entry entry) {
+		ObjectNode stored = objectMapper.createObjectNode();
+		stored.put(KEY, key);
+		stored.put(FINGERPRINT, entry.fingerprint);
+		stored.set(NODES, objectMapper.valueToTree(entry.nodes));
+		Path file = file(key);
+		try {
+			Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			objectMapper.writeValue(temporary.toFile(), stored);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.warn("Could not persist the nodes of instance {}: {}", key, e.getMessage());
+		}
+	}
+
+	private Path file(String key) {
+		return directory.resolve(key.replaceAll("[^A-Za-z0-9._@-]", "_") + ".json");
+	}
+
+	private static String key(ServiceInstance instance) {
+		return instance.getServiceId().toLowerCase() + "@" + instance.getHost() + ":" + instance.getPort();
+	}
+
+	private static boolean isComplete(List<Node> nodes) {
+		if (nodes.isEmpty()) {
+			return false;
+		}
+		for (Node node : nodes) {
+			if (Boolean.TRUE.equals(node.getDetails().get(Node.STALE))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The nodes retrieved from an instance, along with the fingerprint of its
+	 * registration.
+	 */
+	private static final class Entry {
+
+		private final String fingerprint;
+		private final List<Node> nodes;
+
+		private Entry(String fingerprint, List<Node> nodes) {
+			this.fingerprint = fingerprint;
+			this.nodes = Collections.unmodifiableList(Node.copyAll(nodes));
+		}
+
+		private List<Node> copyNodes() {
+			return Node.copyAll(nodes);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Reads the JSON content of a response token by token, allowing converters
+ * to pick what they need without materializing the whole document.
+ *
+ * @param <T> the type read from the content
+ * @see NettyServiceCaller#retrieveFromRequest(String, io.reactivex.netty.protocol.http.client.HttpClientRequest, JsonContentReader)
+ */
+@FunctionalInterface
+public interface JsonContentReader<T> {
+
+	/**
+	 * @param parser a parser positioned before the first token of the content
+	 * @return what was read from the content
+	 * @throws IOException when the content can't be read
+	 */
+	T read(JsonParser parser) throws IOException;
+}
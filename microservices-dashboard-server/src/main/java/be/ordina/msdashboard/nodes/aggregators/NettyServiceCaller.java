@@ -15,24 +15,50 @@
  */
 package be.ordina.msdashboard.nodes.aggregators;
 
+import be.ordina.msdashboard.nodes.model.InstanceEvent;
+import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import io.reactivex.netty.client.RxClient;
-import io.reactivex.netty.protocol.http.AbstractHttpContentHolder;
 import io.reactivex.netty.protocol.http.client.CompositeHttpClient;
 import io.reactivex.netty.protocol.http.client.CompositeHttpClientBuilder;
 import io.reactivex.netty.protocol.http.client.HttpClientRequest;
+import io.reactivex.netty.protocol.http.client.HttpClientResponse;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.json.JacksonJsonParser;
+import org.springframework.context.event.EventListener;
 import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.Charset;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
 import static io.reactivex.netty.client.MaxConnectionsBasedStrategy.DEFAULT_MAX_CONNECTIONS;
 import static java.text.MessageFormat.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_MODIFIED_SINCE;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.LAST_MODIFIED;
 
 /**
  * Convenience class for retrieving JSON using
@@ -44,18 +70,222 @@ public class NettyServiceCaller {
 
 	private static final Logger logger = LoggerFactory.getLogger(NettyServiceCaller.class);
 
+	private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {
+	};
+
 	private final CompositeHttpClient<ByteBuf, ByteBuf> rxClient;
 	private final ErrorHandler errorHandler;
+	private final ObjectMapper objectMapper;
+	private final Bulkhead bulkhead;
+	private final TimeoutProperties timeouts;
+	private final Hedging hedging;
+	private final CircuitBreaker circuitBreaker;
+	private final ResponseCache responseCache;
+	private final Scheduler scheduler;
+	private final Set<NettyServiceCaller> callers;
+	private final boolean ownsClient;
 
 	@Deprecated
 	public NettyServiceCaller(ErrorHandler errorHandler) {
-		this.errorHandler = errorHandler;
-		this.rxClient = new CompositeHttpClientBuilder<ByteBuf, ByteBuf>().withMaxConnections(DEFAULT_MAX_CONNECTIONS).build();
+		this(errorHandler, new CompositeHttpClientBuilder<ByteBuf, ByteBuf>().withMaxConnections(DEFAULT_MAX_CONNECTIONS).build());
 	}
 
 	public NettyServiceCaller(ErrorHandler errorHandler, CompositeHttpClient<ByteBuf, ByteBuf> rxClient) {
+		this(errorHandler, rxClient, new ObjectMapper());
+	}
+
+	/**
+	 * @param objectMapper the mapper used to parse all responses, which is thread-safe
+	 */
+	public NettyServiceCaller(ErrorHandler errorHandler, CompositeHttpClient<ByteBuf, ByteBuf> rxClient,
+							  ObjectMapper objectMapper) {
+		this(errorHandler, rxClient, objectMapper, null);
+	}
+
+	/**
+	 * @param bulkhead the bulkhead limiting the requests in flight, or {@code null} for no limits
+	 */
+	public NettyServiceCaller(ErrorHandler errorHandler, CompositeHttpClient<ByteBuf, ByteBuf> rxClient,
+							  ObjectMapper objectMapper, Bulkhead bulkhead) {
+		this(errorHandler, rxClient, objectMapper, bulkhead, null, null, null, null, Schedulers.computation(),
+				new CopyOnWriteArraySet<>(), false);
+	}
+
+	private NettyServiceCaller(ErrorHandler errorHandler, CompositeHttpClient<ByteBuf, ByteBuf> rxClient,
+							   ObjectMapper objectMapper, Bulkhead bulkhead, TimeoutProperties timeouts,
+							   Hedging hedging, CircuitBreaker circuitBreaker, ResponseCache responseCache,
+							   Scheduler scheduler, Set<NettyServiceCaller> callers, boolean ownsClient) {
 		this.errorHandler = errorHandler;
 		this.rxClient = rxClient;
+		this.objectMapper = objectMapper;
+		this.bulkhead = bulkhead;
+		this.timeouts = timeouts;
+		this.hedging = hedging;
+		this.circuitBreaker = circuitBreaker;
+		this.responseCache = responseCache;
+		this.scheduler = scheduler;
+		this.callers = callers;
+		this.ownsClient = ownsClient;
+		callers.add(this);
+	}
+
+	/**
+	 * Creates a caller for a single aggregator, which limits its requests as
+	 * configured and uses a connection pool of its own when isolated. That
+	 * connection pool is shut down together with this caller.
+	 *
+	 * @param properties the bulkhead properties of the aggregator
+	 * @return a new caller, or this caller when nothing is configured
+	 */
+	public NettyServiceCaller withBulkhead(BulkheadProperties properties) {
+		if (!properties.isEnabled()) {
+			return this;
+		}
+		CompositeHttpClient<ByteBuf, ByteBuf> client = properties.isIsolated() ?
+				new CompositeHttpClientBuilder<ByteBuf, ByteBuf>().withMaxConnections(properties.getMaxConnections()).build() :
+				rxClient;
+		return new NettyServiceCaller(errorHandler, client, objectMapper, new Bulkhead(properties), timeouts, hedging,
+				circuitBreaker, responseCache, scheduler, callers, properties.isIsolated());
+	}
+
+	/**
+	 * Creates a caller for a single aggregator, which applies the given timeouts
+	 * to each of its calls.
+	 *
+	 * @param properties the timeouts of the aggregator
+	 * @return a new caller, or this caller when no timeout is configured
+	 */
+	public NettyServiceCaller withTimeouts(TimeoutProperties properties) {
+		if (!properties.isEnabled()) {
+			return this;
+		}
+		return new NettyServiceCaller(errorHandler, rxClient, objectMapper, bulkhead, properties, hedging,
+				circuitBreaker, responseCache, scheduler, callers, false);
+	}
+
+	/**
+	 * Creates a caller for a single aggregator, which sends hedged requests to
+	 * slow services when these are given.
+	 *
+	 * @param properties the hedging properties of the aggregator
+	 * @return a new caller, or this caller when hedging is disabled
+	 */
+	public NettyServiceCaller withHedging(HedgingProperties properties) {
+		if (!properties.isEnabled()) {
+			return this;
+		}
+		return new NettyServiceCaller(errorHandler, rxClient, objectMapper, bulkhead, timeouts,
+				new Hedging(properties, scheduler), circuitBreaker, responseCache, scheduler, callers, false);
+	}
+
+	NettyServiceCaller withScheduler(Scheduler scheduler) {
+		return new NettyServiceCaller(errorHandler, rxClient, objectMapper, bulkhead, timeouts,
+				hedging != null ? new Hedging(hedging.getProperties(), scheduler) : null, circuitBreaker, responseCache,
+				scheduler, callers, false);
+	}
+
+	/**
+	 * Creates a caller for a single aggregator, which stops calling services
+	 * which keep failing when nodes are retrieved through
+	 * {@link #retrieveNodesFromRequest(String, HttpClientRequest, Supplier, Function)}.
+	 *
+	 * @param aggregator the key of the aggregator, used to tell its circuits apart
+	 * @param properties the circuit breaker properties of the aggregator
+	 * @param meterRegistry the registry to expose the state of the circuits to, or {@code null}
+	 * @return a new caller, or this caller when the circuit breaker is disabled
+	 */
+	public NettyServiceCaller withCircuitBreaker(String aggregator, CircuitBreakerProperties properties,
+												 MeterRegistry meterRegistry) {
+		if (!properties.isEnabled()) {
+			return this;
+		}
+		return new NettyServiceCaller(errorHandler, rxClient, objectMapper, bulkhead, timeouts, hedging,
+				new CircuitBreaker(aggregator, properties, errorHandler, meterRegistry), responseCache, scheduler, callers, false);
+	}
+
+	/**
+	 * Creates a caller for a single aggregator, which keeps the response of
+	 * each instance together with the nodes converted from it, when nodes are
+	 * retrieved through {@link #retrieveNodesFromRequest(String, HttpClientRequest, Supplier, Function)}.
+	 * The next request to the instance is made conditional using the
+	 * validators of the response, and the kept nodes are reused when the
+	 * response did not change.
+	 *
+	 * @param enabled whether to cache responses
+	 * @return a new caller, or this caller when not caching responses
+	 */
+	public NettyServiceCaller withResponseCache(boolean enabled) {
+		if (!enabled) {
+			return this;
+		}
+		return new NettyServiceCaller(errorHandler, rxClient, objectMapper, bulkhead, timeouts, hedging,
+				circuitBreaker, new ResponseCache(), scheduler, callers, false);
+	}
+
+	/**
+	 * Forgets what this caller and the callers derived from it keep for an
+	 * instance which left the discovery registry.
+	 *
+	 * @param event the event published by the discovery registry
+	 */
+	@EventListener
+	public void onInstanceEvent(InstanceEvent event) {
+		if (event.isRegistered()) {
+			return;
+		}
+		for (NettyServiceCaller caller : callers) {
+			caller.evict(event.getNodeId(), event.getInstance());
+		}
+	}
+
+	/**
+	 * Shuts down the connection pools of the isolated callers derived from
+	 * this caller. The connection pool this caller was created with is left
+	 * to its owner.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		for (NettyServiceCaller caller : callers) {
+			if (caller.ownsClient) {
+				caller.rxClient.shutdown();
+			}
+		}
+	}
+
+	private void evict(String serviceId, String instance) {
+		if (bulkhead != null) {
+			bulkhead.evict(instance);
+		}
+		if (responseCache != null) {
+			responseCache.evictInstance(instance);
+		}
+		if (circuitBreaker != null) {
+			circuitBreaker.evict(serviceId, instance);
+		}
+	}
+
+	/**
+	 * @return whether this caller protects services with a circuit breaker
+	 */
+	public boolean isCircuitBreaking() {
+		return circuitBreaker != null;
+	}
+
+	/**
+	 * @return whether the aggregator should retrieve its nodes through
+	 * {@link #retrieveNodesFromRequest(String, HttpClientRequest, Supplier, Function)},
+	 * because this caller has a circuit breaker or caches responses
+	 */
+	public boolean isRetrievingNodes() {
+		return circuitBreaker != null || responseCache != null;
+	}
+
+	/**
+	 * @return whether this caller sends hedged requests, in which case the
+	 * aggregator should provide them
+	 */
+	public boolean isHedging() {
+		return hedging != null;
 	}
 
 	/**
@@ -69,28 +299,242 @@ public class NettyServiceCaller {
 	 * and Object values.
 	 */
 	public Observable<Map<String, Object>> retrieveJsonFromRequest(String serviceId, HttpClientRequest<ByteBuf> request) {
+		return retrieveJsonFromRequest(serviceId, request, null);
+	}
+
+	/**
+	 * Same as {@link #retrieveJsonFromRequest(String, HttpClientRequest)}, sending
+	 * the hedged request when the service is slow and this caller is hedging.
+	 *
+	 * @param hedgedRequest creates the same request to another instance of the
+	 * service, returning {@code null} when there is none
+	 */
+	public Observable<Map<String, Object>> retrieveJsonFromRequest(String serviceId, HttpClientRequest<ByteBuf> request,
+																   Supplier<HttpClientRequest<ByteBuf>> hedgedRequest) {
+		return retrieveFromRequest(serviceId, request, hedgedRequest,
+				parser -> objectMapper.<Map<String, Object>>readValue(parser, MAP_TYPE))
+				.doOnNext(r -> logger.info("Json retrieved from call: {}", r));
+	}
+
+	/**
+	 * Calls the remote service using the provided request, applies error handling and
+	 * hands the JSON response to the given reader, token by token. The response is
+	 * aggregated in memory as it arrives, without converting it into a String.
+	 * When this caller has a {@link Bulkhead}, the request is only sent once it
+	 * is permitted by the bulkhead. When it has timeouts, the response has to
+	 * start within the connect and read timeout combined, after which each part
+	 * has to arrive within the read timeout.
+	 *
+	 * @param serviceId the id of the service for which the request is made
+	 * @param request   the request which has to be executed using RxNetty
+	 * @param reader    the reader consuming the tokens of the response
+	 * @param <T>       the type read from the response
+	 * @return an {@link Observable} emitting what the reader read from the response
+	 */
+	public <T> Observable<T> retrieveFromRequest(String serviceId, HttpClientRequest<ByteBuf> request,
+												 JsonContentReader<T> reader) {
+		return retrieveFromRequest(serviceId, request, null, reader);
+	}
+
+	/**
+	 * Same as {@link #retrieveFromRequest(String, HttpClientRequest, JsonContentReader)},
+	 * sending the hedged request when the service is slow and this caller is hedging.
+	 *
+	 * @param hedgedRequest creates the same request to another instance of the
+	 * service, returning {@code null} when there is none
+	 */
+	public <T> Observable<T> retrieveFromRequest(String serviceId, HttpClientRequest<ByteBuf> request,
+												 Supplier<HttpClientRequest<ByteBuf>> hedgedRequest,
+												 JsonContentReader<T> reader) {
+		return callService(serviceId, request, hedgedRequest,
+				r -> submit(serviceId, r, response -> readContent(serviceId, response, content -> read(content, reader))))
+				.onErrorResumeNext(Observable.empty());
+	}
+
+	/**
+	 * Calls the remote service like {@link #retrieveJsonFromRequest(String, HttpClientRequest, Supplier)}
+	 * and converts the response into nodes. When this caller has a circuit
+	 * breaker, the service is not called while its circuit is open and its
+	 * last known nodes are returned instead, marked {@link Node#STALE}.
+	 *
+	 * @param serviceId     the id of the service for which the request is made
+	 * @param request       the request which has to be executed using RxNetty
+	 * @param hedgedRequest creates the same request to another instance of the
+	 *                      service, or {@code null} when not hedging
+	 * @param converter     converts the JSON response into nodes
+	 * @return an {@link Observable} emitting the nodes of the service
+	 */
+	public Observable<Node> retrieveNodesFromRequest(String serviceId, HttpClientRequest<ByteBuf> request,
+													 Supplier<HttpClientRequest<ByteBuf>> hedgedRequest,
+													 Function<Map<String, Object>, Observable<Node>> converter) {
+		return retrieveNodesFromRequest(serviceId, request, hedgedRequest,
+				parser -> objectMapper.<Map<String, Object>>readValue(parser, MAP_TYPE), converter);
+	}
+
+	/**
+	 * Same as {@link #retrieveNodesFromRequest(String, HttpClientRequest, Supplier, Function)},
+	 * handing the response to the given reader before converting it.
+	 *
+	 * @param reader the reader consuming the tokens of the response
+	 */
+	public <T> Observable<Node> retrieveNodesFromRequest(String serviceId, HttpClientRequest<ByteBuf> request,
+														 Supplier<HttpClientRequest<ByteBuf>> hedgedRequest,
+														 JsonContentReader<T> reader,
+														 Function<T, Observable<Node>> converter) {
+		return retrieveNodes(serviceId, null, request, hedgedRequest, reader, converter);
+	}
+
+	/**
+	 * Same as {@link #retrieveNodesFromRequest(String, HttpClientRequest, Supplier, Function)},
+	 * for a single instance of the service, which is not hedged. When this
+	 * caller has a circuit breaker, the instance has a circuit and last known
+	 * nodes of its own.
+	 *
+	 * @param instance the host and port of the instance, as {@code host:port}
+	 */
+	public Observable<Node> retrieveNodesFromInstance(String serviceId, String instance,
+													  HttpClientRequest<ByteBuf> request,
+													  Function<Map<String, Object>, Observable<Node>> converter) {
+		return retrieveNodes(serviceId, instance, request, null,
+				parser -> objectMapper.<Map<String, Object>>readValue(parser, MAP_TYPE), converter);
+	}
+
+	private <T> Observable<Node> retrieveNodes(String serviceId, String instance, HttpClientRequest<ByteBuf> request,
+											   Supplier<HttpClientRequest<ByteBuf>> hedgedRequest,
+											   JsonContentReader<T> reader, Function<T, Observable<Node>> converter) {
+		// Failures are only swallowed after the circuit breaker has counted them
+		Observable<Node> nodes = responseCache != null ?
+				callService(serviceId, request, hedgedRequest, r -> submitCached(serviceId, r, reader, converter)) :
+				callService(serviceId, request, hedgedRequest,
+						r -> submit(serviceId, r, response -> readContent(serviceId, response, content -> read(content, reader))))
+						.flatMap(converter::apply);
+		if (circuitBreaker != null) {
+			nodes = circuitBreaker.execute(serviceId, instance, nodes);
+		}
+		return nodes.onErrorResumeNext(Observable.empty());
+	}
+
+	private <R> Observable<R> callService(String serviceId, HttpClientRequest<ByteBuf> request,
+										  Supplier<HttpClientRequest<ByteBuf>> hedgedRequest,
+										  Function<HttpClientRequest<ByteBuf>, Observable<R>> submitter) {
+		Observable<R> call = submitter.apply(request);
+		if (hedging != null && hedgedRequest != null) {
+			call = hedging.hedge(serviceId, call, Observable.defer(() -> {
+				HttpClientRequest<ByteBuf> hedged = hedgedRequest.get();
+				if (hedged == null) {
+					return Observable.never();
+				}
+				logger.info("Sending hedged request for service {} to {}", serviceId, hedged.getUri());
+				return submitter.apply(hedged);
+			}));
+		}
+		return call;
+	}
+
+	private <R> Observable<R> submit(String serviceId, HttpClientRequest<ByteBuf> request,
+									 Function<HttpClientResponse<ByteBuf>, Observable<R>> handler) {
 		RxClient.ServerInfo serverInfo = getServerInfoFromRequestOrClient(request, rxClient);
+		long responseTimeout = timeouts != null ? timeouts.getResponseTimeout(serviceId) : 0;
 
-		return rxClient.submit(serverInfo, request)
+		Observable<HttpClientResponse<ByteBuf>> responses = rxClient.submit(serverInfo, request);
+		if (responseTimeout > 0) {
+			responses = responses.timeout(responseTimeout, MILLISECONDS, scheduler);
+		}
+		Observable<R> call = responses
 				.publish().autoConnect()
-				.doOnError(el -> errorHandler.handleNodeError(serviceId, format("Error retrieving node(s) for url {0} with headers {1}: {2}",
+				.doOnError(el -> errorHandler.handleNodeError(serviceId, () -> format("Error retrieving node(s) for url {0} with headers {1}: {2}",
 						request.getUri(), request.getHeaders().entries(), el), el))
-				.filter(r -> {
+				.flatMap(r -> {
 					if (r.getStatus().code() < 400) {
-						return true;
+						return Observable.just(r);
 					} else {
-						errorHandler.handleNodeWarning(serviceId, "Exception " + r.getStatus() + " for url " + request.getUri() + " with headers " + r.getHeaders().entries());
-						return false;
+						errorHandler.handleNodeWarning(serviceId, () -> "Exception " + r.getStatus() + " for url " + request.getUri() + " with headers " + r.getHeaders().entries());
+						// Fails the call, so a circuit breaker counts it
+						return Observable.<HttpClientResponse<ByteBuf>>error(
+								new IllegalStateException("Status " + r.getStatus() + " for url " + request.getUri()));
 					}
 				})
-				.flatMap(AbstractHttpContentHolder::getContent)
-				.map(data -> data.toString(Charset.defaultCharset()))
-				.map(response -> {
-					JacksonJsonParser jsonParser = new JacksonJsonParser();
-					return jsonParser.parseMap(response);
-				})
-				.doOnNext(r -> logger.info("Json retrieved from call: {}", r))
-				.onErrorResumeNext(Observable.empty());
+				.flatMap(response -> handler.apply(response)
+						.doOnError(el -> {
+							if (el instanceof TimeoutException) {
+								errorHandler.handleNodeError(serviceId, () -> format("Timeout reading the response of url {0}",
+										request.getUri()), el);
+							}
+						}));
+		if (bulkhead != null) {
+			call = bulkhead.limit(serverInfo, call);
+		}
+		return call;
+	}
+
+	/**
+	 * Sends the request conditionally when a response of the same url is
+	 * cached, and reuses the cached nodes when the service answers it did
+	 * not change, or when the content of its response hashes the same.
+	 */
+	private <T> Observable<Node> submitCached(String serviceId, HttpClientRequest<ByteBuf> request,
+											  JsonContentReader<T> reader, Function<T, Observable<Node>> converter) {
+		String url = request.getUri();
+		ResponseCache.Entry cached = responseCache.get(url);
+		if (cached != null && cached.getETag() != null) {
+			request.withHeader(IF_NONE_MATCH, cached.getETag());
+		}
+		if (cached != null && cached.getLastModified() != null) {
+			request.withHeader(IF_MODIFIED_SINCE, cached.getLastModified());
+		}
+		return submit(serviceId, request, response -> {
+			if (cached != null && response.getStatus().code() == NOT_MODIFIED.code()) {
+				logger.debug("Response of url {} not modified, reusing its nodes", url);
+				return response.getContent().ignoreElements().cast(Node.class)
+						.concatWith(Observable.defer(() -> Observable.from(cached.copyNodes())));
+			}
+			String eTag = response.getHeaders().get(ETAG);
+			String lastModified = response.getHeaders().get(LAST_MODIFIED);
+			return readContent(serviceId, response, content -> {
+				byte[] hash = ResponseCache.hash(content);
+				T source = cached != null && cached.hasContentHash(hash) ? null : read(content, reader);
+				return new ImmutablePair<>(hash, source);
+			}).flatMap(read -> {
+				if (cached != null && cached.hasContentHash(read.getLeft())) {
+					logger.debug("Response of url {} unchanged, reusing its nodes", url);
+					responseCache.put(url, cached.withValidators(eTag, lastModified));
+					return Observable.from(cached.copyNodes());
+				}
+				return converter.apply(read.getRight())
+						.toList()
+						.doOnNext(nodes -> responseCache.put(url,
+								new ResponseCache.Entry(eTag, lastModified, read.getLeft(), nodes)))
+						.flatMapIterable(nodes -> nodes);
+			});
+		});
+	}
+
+	/**
+	 * Aggregates the chunks of the response into a composite buffer, which is
+	 * read once the response is complete and released afterwards. When the
+	 * service has a read timeout, each chunk has to arrive within it.
+	 */
+	private <R> Observable<R> readContent(String serviceId, HttpClientResponse<ByteBuf> response,
+										  Function<ByteBuf, R> read) {
+		long readTimeout = timeouts != null ? timeouts.getReadTimeout(serviceId) : 0;
+		Observable<ByteBuf> chunks = readTimeout > 0 ?
+				response.getContent().timeout(readTimeout, MILLISECONDS, scheduler) :
+				response.getContent();
+		return Observable.using(
+				() -> Unpooled.compositeBuffer(Integer.MAX_VALUE),
+				content -> chunks
+						.reduce(content, (composite, chunk) -> composite.addComponent(true, chunk.retain()))
+						.map(read::apply),
+				CompositeByteBuf::release);
+	}
+
+	private <T> T read(ByteBuf content, JsonContentReader<T> reader) {
+		try (InputStream in = new ByteBufInputStream(content);
+			 JsonParser parser = objectMapper.getFactory().createParser(in)) {
+			return reader.read(parser);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
 	}
 
 	public static RxClient.ServerInfo getServerInfoFromRequestOrClient(HttpClientRequest<ByteBuf> request,
@@ -17,6 +17,7 @@ package be.ordina.msdashboard.nodes.aggregators;
 
 import be.ordina.msdashboard.nodes.model.Node;
 import rx.Observable;
+import rx.observables.GroupedObservable;
 
 /**
  * Interface for retrieving and aggregating nodes.
@@ -32,9 +33,27 @@ import rx.Observable;
  */
 public interface NodeAggregator {
 
+    /**
+     * Key of the single group emitted by the default implementation of
+     * {@link #aggregateNodesPerService()}.
+     */
+    String ALL_SERVICES = "*";
+
     /**
      * Retrieves and aggregated nodes from one or more external sources.
      * @return an Observable of Nodes, preferably hot
      */
     Observable<Node> aggregateNodes();
+
+    /**
+     * Retrieves and aggregates nodes like {@link #aggregateNodes()}, grouped by
+     * the id of the service they were retrieved from. This allows the graph to
+     * only merge the nodes of services which changed since the previous retrieval.
+     * <p>
+     * By default all nodes are emitted in a single group with key {@link #ALL_SERVICES}.
+     * @return an Observable of node groups, keyed by service id
+     */
+    default Observable<GroupedObservable<String, Node>> aggregateNodesPerService() {
+        return Observable.just(GroupedObservable.from(ALL_SERVICES, aggregateNodes()));
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import io.netty.buffer.ByteBuf;
+import io.reactivex.netty.protocol.http.client.HttpClientRequest;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Creates the requests an aggregator sends to the instances of a service,
+ * with the request headers and the outbound security of the aggregator
+ * applied to them.
+ */
+public class RequestFactory {
+
+	private final DiscoveryClient discoveryClient;
+	private final Function<ServiceInstance, String> urlResolver;
+	private final Supplier<Map<String, String>> requestHeaders;
+	private final BiConsumer<HttpClientRequest<ByteBuf>, Object> outboundSecurity;
+
+	/**
+	 * @param discoveryClient the client looking up the other instances of a service
+	 * @param urlResolver resolves the url of the endpoint of an instance
+	 * @param requestHeaders the headers added to each request
+	 * @param outboundSecurity applies the outbound security object, which may be
+	 *                         {@code null}, to a request
+	 */
+	public RequestFactory(DiscoveryClient discoveryClient, Function<ServiceInstance, String> urlResolver,
+						  Supplier<Map<String, String>> requestHeaders,
+						  BiConsumer<HttpClientRequest<ByteBuf>, Object> outboundSecurity) {
+		this.discoveryClient = discoveryClient;
+		this.urlResolver = urlResolver;
+		this.requestHeaders = requestHeaders;
+		this.outboundSecurity = outboundSecurity;
+	}
+
+	public HttpClientRequest<ByteBuf> createRequest(String url, Object outboundSecurityObject) {
+		HttpClientRequest<ByteBuf> request = HttpClientRequest.createGet(url);
+		outboundSecurity.accept(request, outboundSecurityObject);
+		for (Map.Entry<String, String> header : requestHeaders.get().entrySet()) {
+			request.withHeader(header.getKey(), header.getValue());
+		}
+		return request;
+	}
+
+	/**
+	 * @param serviceId the id of the service, in lower case like the ids the
+	 *                  aggregators key their services by
+	 * @param url the url the first request was sent to
+	 * @return the same request to another instance of the service, or
+	 * {@code null} when there is none
+	 */
+	public HttpClientRequest<ByteBuf> createHedgedRequest(String serviceId, String url, Object outboundSecurityObject) {
+		for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+			String hedgedUrl = urlResolver.apply(instance);
+			if (!url.equals(hedgedUrl)) {
+				return createRequest(hedgedUrl, outboundSecurityObject);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import io.netty.buffer.ByteBuf;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Responses of the instances called by a single aggregator, by url, together
+ * with the nodes converted from them.
+ * <p>
+ * Each response is kept with its validators, to make the next request to the
+ * same url conditional, and with a hash of its content, to recognize an
+ * unchanged response of a service which does not support validators.
+ */
+public class ResponseCache {
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	public Entry get(String url) {
+		return entries.get(url);
+	}
+
+	public void put(String url, Entry entry) {
+		entries.put(url, entry);
+	}
+
+	/**
+	 * Forgets the responses of an instance which left the discovery registry.
+	 *
+	 * @param instance the host and port of the instance, as {@code host:port}
+	 */
+	public void evictInstance(String instance) {
+		entries.keySet().removeIf(url -> instance.equals(hostAndPort(url)));
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private static String hostAndPort(String url) {
+		try {
+			URI uri = new URI(url);
+			int port = uri.getPort();
+			if (port < 0) {
+				port = "https".equals(uri.getScheme()) ? 443 : 80;
+			}
+			return uri.getHost() + ":" + port;
+		} catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param content the content of a response, which is left untouched
+	 * @return the MD5 hash of the readable bytes of the content
+	 */
+	public static byte[] hash(ByteBuf content) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 is not supported", e);
+		}
+		for (ByteBuffer buffer : content.nioBuffers()) {
+			digest.update(buffer);
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * A cached response, holding copies of the nodes converted from it.
+	 */
+	public static final class Entry {
+
+		private final String eTag;
+		private final String lastModified;
+		private final byte[] contentHash;
+		private final List<Node> nodes;
+
+		public Entry(String eTag, String lastModified, byte[] contentHash, List<Node> nodes) {
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.contentHash = contentHash;
+			this.nodes = Collections.unmodifiableList(Node.copyAll(nodes));
+		}
+
+		private Entry(Entry entry, String eTag, String lastModified) {
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+			this.contentHash = entry.contentHash;
+			this.nodes = entry.nodes;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		public boolean hasContentHash(byte[] hash) {
+			return MessageDigest.isEqual(contentHash, hash);
+		}
+
+		/**
+		 * @return copies of the nodes converted from the response
+		 */
+		public List<Node> copyNodes() {
+			return Node.copyAll(nodes);
+		}
+
+		/**
+		 * @return an entry with the same content and nodes, but with the given validators
+		 */
+		public Entry withValidators(String eTag, String lastModified) {
+			return new Entry(this, eTag, lastModified);
+		}
+	}
+}
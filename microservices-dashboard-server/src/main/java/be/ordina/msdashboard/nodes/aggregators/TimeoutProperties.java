@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Timeouts of the calls made by a single aggregator, which can be overridden
+ * per service. No timeouts are applied by default.
+ */
+public class TimeoutProperties {
+
+	/**
+	 * Milliseconds to wait for the response of a service to start, which includes
+	 * connecting to the service. 0 to wait as long as the read timeout.
+	 */
+	private long responseTimeout = 0;
+
+	/**
+	 * Milliseconds to wait for each next part of the response of a service. 0 for no timeout.
+	 */
+	private long readTimeout = 0;
+
+	/**
+	 * Timeouts overriding the ones above for specific services, by service id.
+	 */
+	private Map<String, TimeoutProperties> services = new HashMap<>();
+
+	public long getResponseTimeout() {
+		return responseTimeout;
+	}
+
+	public void setResponseTimeout(long responseTimeout) {
+		this.responseTimeout = responseTimeout;
+	}
+
+	public long getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(long readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	public Map<String, TimeoutProperties> getServices() {
+		return services;
+	}
+
+	/**
+	 * @param serviceId the id of the service
+	 * @return the response timeout of the service, falling back to the default
+	 * one and then to the read timeout of the service
+	 */
+	public long getResponseTimeout(String serviceId) {
+		TimeoutProperties service = services.get(serviceId);
+		long timeout = service != null && service.responseTimeout > 0 ? service.responseTimeout : responseTimeout;
+		return timeout > 0 ? timeout : getReadTimeout(serviceId);
+	}
+
+	/**
+	 * @param serviceId the id of the service
+	 * @return the read timeout of the service, falling back to the default one
+	 */
+	public long getReadTimeout(String serviceId) {
+		TimeoutProperties service = services.get(serviceId);
+		return service != null && service.readTimeout > 0 ? service.readTimeout : readTimeout;
+	}
+
+	/**
+	 * @return whether any timeout is configured
+	 */
+	public boolean isEnabled() {
+		return responseTimeout > 0 || readTimeout > 0 || services.values().stream().anyMatch(TimeoutProperties::isEnabled);
+	}
+}
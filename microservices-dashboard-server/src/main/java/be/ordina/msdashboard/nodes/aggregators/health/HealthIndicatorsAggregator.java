@@ -18,6 +18,7 @@ package be.ordina.msdashboard.nodes.aggregators.health;
 import be.ordina.msdashboard.nodes.aggregators.ErrorHandler;
 import be.ordina.msdashboard.nodes.aggregators.NettyServiceCaller;
 import be.ordina.msdashboard.nodes.aggregators.NodeAggregator;
+import be.ordina.msdashboard.nodes.aggregators.RequestFactory;
 import be.ordina.msdashboard.nodes.model.Node;
 import be.ordina.msdashboard.nodes.uriresolvers.UriResolver;
 import be.ordina.msdashboard.security.outbound.SecurityStrategyFactory;
@@ -29,10 +30,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import rx.Observable;
+import rx.observables.GroupedObservable;
 import rx.schedulers.Schedulers;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 import static be.ordina.msdashboard.nodes.aggregators.Constants.ZUUL;
 
@@ -77,6 +84,7 @@ public class HealthIndicatorsAggregator implements NodeAggregator {
 	private NettyServiceCaller caller;
 	private ErrorHandler errorHandler;
 	private HealthToNodeConverter healthToNodeConverter;
+	private RequestFactory requestFactory;
 	private SecurityStrategyFactory securityStrategyFactory;
 
 	@Deprecated
@@ -89,6 +97,8 @@ public class HealthIndicatorsAggregator implements NodeAggregator {
 		this.caller = caller;
 		this.errorHandler = errorHandler;
 		this.healthToNodeConverter = healthToNodeConverter;
+		this.requestFactory = new RequestFactory(discoveryClient, instance -> this.uriResolver.resolveHealthCheckUrl(instance),
+				() -> this.properties.getRequestHeaders(), this::applyOutboundSecurityStrategyOnRequest);
 	}
 
 	public HealthIndicatorsAggregator(final DiscoveryClient discoveryClient, final UriResolver uriResolver,
@@ -101,22 +111,31 @@ public class HealthIndicatorsAggregator implements NodeAggregator {
 
 	@Override
 	public Observable<Node> aggregateNodes() {
+		return Observable.merge(aggregateNodesPerService())
+				.doOnNext(el -> logger.debug("Merged health node: " + el.getId()))
+				.doOnError(e -> errorHandler.handleSystemError("Error filtering services: " + e.getMessage(), e))
+				.doOnCompleted(() -> logger.info("Completed merging all health observables"));
+	}
+
+	@Override
+	public Observable<GroupedObservable<String, Node>> aggregateNodesPerService() {
 		final Object outboundSecurityObject = getOutboundSecurityObject();
-		Observable<Observable<Node>> observableObservable = getServiceIdsFromDiscoveryClient()
-				.map(id -> new ImmutablePair<>(id, resolveHealthCheckUrl(id)))
-				.doOnNext(pair -> logger.info("Creating health observable: " + pair))
-				.map(pair -> outboundSecurityObject != null ?
-						getHealthNodesFromService(pair.getLeft(), pair.getRight(), outboundSecurityObject) :
-						getHealthNodesFromService(pair.getLeft(), pair.getRight())
-				)
+		Observable<GroupedObservable<String, Node>> observables = properties.getInstances().isAll() ?
+				getServiceIdsFromDiscoveryClient()
+						.doOnNext(id -> logger.info("Creating health observable for all instances of: " + id))
+						.map(id -> GroupedObservable.from(id, getHealthNodesFromInstances(id, outboundSecurityObject))) :
+				getServiceIdsFromDiscoveryClient()
+						.map(id -> new ImmutablePair<>(id, resolveHealthCheckUrl(id)))
+						.doOnNext(pair -> logger.info("Creating health observable: " + pair))
+						.map(pair -> GroupedObservable.from(pair.getLeft(), outboundSecurityObject != null ?
+								getHealthNodesFromService(pair.getLeft(), pair.getRight(), outboundSecurityObject) :
+								getHealthNodesFromService(pair.getLeft(), pair.getRight())
+						));
+		return observables
 				.doOnNext(el -> logger.debug("Unmerged health observable: " + el))
 				.doOnError(e -> errorHandler.handleSystemError("Error filtering services: " + e.getMessage(), e))
 				.doOnCompleted(() -> logger.info("Completed getting all health observables"))
 				.retry();
-		return Observable.merge(observableObservable)
-				.doOnNext(el -> logger.debug("Merged health node: " + el.getId()))
-				.doOnError(e -> errorHandler.handleSystemError("Error filtering services: " + e.getMessage(), e))
-				.doOnCompleted(() -> logger.info("Completed merging all health observables"));
 	}
 
 	private String resolveHealthCheckUrl(String id) {
@@ -128,6 +147,38 @@ public class HealthIndicatorsAggregator implements NodeAggregator {
 		}
 	}
 
+	/**
+	 * Calls every instance of the service, or a sample of them, without
+	 * hedging, and folds their health into a single node for the service.
+	 */
+	private Observable<Node> getHealthNodesFromInstances(String serviceId, final Object outboundSecurityObject) {
+		List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+		if (instances.isEmpty()) {
+			throw new IllegalStateException("No instances found for service " + serviceId);
+		}
+		InstancesProperties instancesProperties = properties.getInstances();
+		return Observable.from(sample(instances, instancesProperties.getSampleSize()))
+				.flatMap(instance -> {
+							String key = instance.getHost() + ":" + instance.getPort();
+							return retrieveHealthNodes(serviceId, key, uriResolver.resolveHealthCheckUrl(instance),
+									outboundSecurityObject, false)
+									.toList()
+									.map(nodes -> new ImmutablePair<>(key, nodes));
+						},
+						Math.max(1, instancesProperties.getMaxConcurrency()))
+				.toMap(ImmutablePair::getLeft, ImmutablePair::getRight, TreeMap::new)
+				.flatMap(nodesPerInstance -> HealthRollup.fold(serviceId, nodesPerInstance, instances.size()));
+	}
+
+	private static List<ServiceInstance> sample(List<ServiceInstance> instances, int sampleSize) {
+		if (sampleSize <= 0 || sampleSize >= instances.size()) {
+			return instances;
+		}
+		List<ServiceInstance> shuffled = new ArrayList<>(instances);
+		Collections.shuffle(shuffled, ThreadLocalRandom.current());
+		return shuffled.subList(0, sampleSize);
+	}
+
 	protected Observable<String> getServiceIdsFromDiscoveryClient() {
 		logger.info("Discovering services for health");
 		return Observable.from(discoveryClient.getServices()).subscribeOn(Schedulers.io()).publish().autoConnect()
@@ -143,14 +194,33 @@ public class HealthIndicatorsAggregator implements NodeAggregator {
 	}
 
 	protected Observable<Node> getHealthNodesFromService(String serviceId, String url, final Object outboundSecurityObject) {
-		HttpClientRequest<ByteBuf> request = HttpClientRequest.createGet(url);
-		applyOutboundSecurityStrategyOnRequest(request, outboundSecurityObject);
-		for (Entry<String, String> header : properties.getRequestHeaders().entrySet()) {
-			request.withHeader(header.getKey(), header.getValue());
+		return retrieveHealthNodes(serviceId, null, url, outboundSecurityObject, caller.isHedging());
+	}
+
+	/**
+	 * @param instance the host and port of the instance called, when calling
+	 *                 every instance, which gives it a circuit of its own
+	 */
+	private Observable<Node> retrieveHealthNodes(String serviceId, String instance, String url,
+												 final Object outboundSecurityObject, boolean hedge) {
+		HttpClientRequest<ByteBuf> request = requestFactory.createRequest(url, outboundSecurityObject);
+		Supplier<HttpClientRequest<ByteBuf>> hedgedRequest = hedge ?
+				() -> requestFactory.createHedgedRequest(serviceId, url, outboundSecurityObject) : null;
+		Observable<Node> nodes;
+		if (caller.isRetrievingNodes() && instance != null) {
+			nodes = caller.retrieveNodesFromInstance(serviceId, instance, request,
+					source -> healthToNodeConverter.convertToNodes(serviceId, source));
+		} else if (caller.isRetrievingNodes()) {
+			nodes = caller.retrieveNodesFromRequest(serviceId, request, hedgedRequest,
+					source -> healthToNodeConverter.convertToNodes(serviceId, source));
+		} else {
+			Observable<Map<String, Object>> sources = hedgedRequest != null ?
+					caller.retrieveJsonFromRequest(serviceId, request, hedgedRequest) :
+					caller.retrieveJsonFromRequest(serviceId, request);
+			nodes = sources.flatMap(el -> healthToNodeConverter.convertToNodes(serviceId, el));
 		}
 
-		return caller.retrieveJsonFromRequest(serviceId, request)
-				.flatMap(el -> healthToNodeConverter.convertToNodes(serviceId, el))
+		return nodes
 				.filter(node -> !properties.getFilteredServices().contains(node.getId()))
 				//TODO: .map(node -> springCloudEnricher.enrich(node))
 				.doOnNext(el -> logger.info("Health node {} discovered in url: {}", el.getId(), url))
@@ -159,7 +229,6 @@ public class HealthIndicatorsAggregator implements NodeAggregator {
 				.onErrorResumeNext(Observable.empty());
 	}
 
-
 	private Object getOutboundSecurityObject() {
 		if (securityStrategyFactory != null) {
 			return securityStrategyFactory.getStrategy(AGGREGATOR_KEY).getOutboundSecurityObjectProvider().getOutboundSecurityObject();
@@ -1,5 +1,9 @@
 package be.ordina.msdashboard.nodes.aggregators.health;
 
+import be.ordina.msdashboard.nodes.aggregators.BulkheadProperties;
+import be.ordina.msdashboard.nodes.aggregators.CircuitBreakerProperties;
+import be.ordina.msdashboard.nodes.aggregators.HedgingProperties;
+import be.ordina.msdashboard.nodes.aggregators.TimeoutProperties;
 import be.ordina.msdashboard.security.outbound.SecurityStrategyFactory;
 
 import java.util.Arrays;
@@ -26,6 +30,16 @@ public class HealthProperties {
 
 	private String security = SecurityStrategyFactory.NONE;
 
+	private BulkheadProperties bulkhead = new BulkheadProperties();
+
+	private TimeoutProperties timeout = new TimeoutProperties();
+
+	private HedgingProperties hedging = new HedgingProperties();
+
+	private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+
+	private InstancesProperties instances = new InstancesProperties();
+
 	public void setSecurity(String security) {
 		this.security = security;
 	}
@@ -41,4 +55,24 @@ public class HealthProperties {
 	public List<String> getFilteredServices() {
 		return filteredServices;
 	}
+
+	public BulkheadProperties getBulkhead() {
+		return bulkhead;
+	}
+
+	public TimeoutProperties getTimeout() {
+		return timeout;
+	}
+
+	public HedgingProperties getHedging() {
+		return hedging;
+	}
+
+	public CircuitBreakerProperties getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public InstancesProperties getInstances() {
+		return instances;
+	}
 }
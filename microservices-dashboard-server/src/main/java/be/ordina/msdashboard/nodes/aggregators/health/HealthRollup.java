@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators.health;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import rx.Observable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds the health nodes retrieved from several instances of a service into a
+ * single node for the service, carrying the status of each instance, the number
+ * of instances that are up and the worst status of all instances.
+ */
+public final class HealthRollup {
+
+	public static final String INSTANCES = "instances";
+	public static final String INSTANCES_UP = "instancesUp";
+	public static final String INSTANCES_CHECKED = "instancesChecked";
+	public static final String INSTANCES_TOTAL = "instancesTotal";
+
+	static final String UP = "UP";
+	static final String UNKNOWN = "UNKNOWN";
+	private static final String DOWN = "DOWN";
+	private static final String OUT_OF_SERVICE = "OUT_OF_SERVICE";
+
+	private HealthRollup() {
+	}
+
+	/**
+	 * @param serviceId the id of the service
+	 * @param nodesPerInstance the nodes retrieved per instance, empty for an instance which did not respond
+	 * @param total the number of instances of the service, including the ones which were not called
+	 * @return the node of the service followed by the nodes of its dependencies, merged over all instances,
+	 * or nothing when no instance responded
+	 */
+	public static Observable<Node> fold(String serviceId, Map<String, List<Node>> nodesPerInstance, int total) {
+		Node serviceNode = null;
+		Map<String, Node> dependencies = new LinkedHashMap<>();
+		Map<String, String> statuses = new LinkedHashMap<>();
+		String status = null;
+		int up = 0;
+		for (Map.Entry<String, List<Node>> instance : nodesPerInstance.entrySet()) {
+			String instanceStatus = UNKNOWN;
+			for (Node node : instance.getValue()) {
+				if (serviceId.equals(node.getId())) {
+					Object nodeStatus = node.getDetails().get(Node.STATUS);
+					instanceStatus = nodeStatus != null ? nodeStatus.toString() : UNKNOWN;
+					if (serviceNode == null) {
+						serviceNode = Node.copyOf(node);
+					} else {
+						serviceNode.mergeWith(node);
+					}
+				} else {
+					Node dependency = dependencies.get(node.getId());
+					if (dependency == null) {
+						dependencies.put(node.getId(), Node.copyOf(node));
+					} else {
+						dependency.mergeWith(node);
+					}
+				}
+			}
+			statuses.put(instance.getKey(), instanceStatus);
+			if (UP.equals(instanceStatus)) {
+				up++;
+			}
+			status = worstOf(status, instanceStatus);
+		}
+		if (serviceNode == null) {
+			return Observable.empty();
+		}
+		serviceNode.addDetail(Node.STATUS, status);
+		serviceNode.addDetail(INSTANCES, statuses);
+		serviceNode.addDetail(INSTANCES_UP, up);
+		serviceNode.addDetail(INSTANCES_CHECKED, nodesPerInstance.size());
+		serviceNode.addDetail(INSTANCES_TOTAL, total);
+		List<Node> nodes = new ArrayList<>(dependencies.size() + 1);
+		nodes.add(serviceNode);
+		nodes.addAll(dependencies.values());
+		return Observable.from(nodes);
+	}
+
+	static String worstOf(String status, String other) {
+		if (status == null) {
+			return other;
+		}
+		return severity(other) < severity(status) ? other : status;
+	}
+
+	private static int severity(String status) {
+		switch (status) {
+			case DOWN:
+				return 0;
+			case OUT_OF_SERVICE:
+				return 1;
+			case UP:
+				return 3;
+			default:
+				return 2;
+		}
+	}
+}
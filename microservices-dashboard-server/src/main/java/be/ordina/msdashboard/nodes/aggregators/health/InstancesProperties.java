@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators.health;
+
+/**
+ * Configures which instances of a service are called for its health. By
+ * default, only the first instance is called.
+ */
+public class InstancesProperties {
+
+	/**
+	 * Whether to call every instance of a service and fold their health into the
+	 * node of the service, instead of calling its first instance only.
+	 */
+	private boolean all = false;
+
+	/**
+	 * Number of randomly chosen instances to call per service, 0 to call all of them.
+	 */
+	private int sampleSize = 0;
+
+	/**
+	 * Maximum number of instances of a single service called at the same time.
+	 */
+	private int maxConcurrency = 16;
+
+	public boolean isAll() {
+		return all;
+	}
+
+	public void setAll(boolean all) {
+		this.all = all;
+	}
+
+	public int getSampleSize() {
+		return sampleSize;
+	}
+
+	public void setSampleSize(int sampleSize) {
+		this.sampleSize = sampleSize;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public void setMaxConcurrency(int maxConcurrency) {
+		this.maxConcurrency = maxConcurrency;
+	}
+}
@@ -15,8 +15,11 @@
  */
 package be.ordina.msdashboard.nodes.aggregators.index;
 
+import be.ordina.msdashboard.nodes.aggregators.InstanceResultCache;
 import be.ordina.msdashboard.nodes.aggregators.NettyServiceCaller;
 import be.ordina.msdashboard.nodes.aggregators.NodeAggregator;
+import be.ordina.msdashboard.nodes.aggregators.RequestFactory;
+import be.ordina.msdashboard.nodes.model.InstanceEvent;
 import be.ordina.msdashboard.nodes.model.Node;
 import be.ordina.msdashboard.nodes.model.NodeEvent;
 import be.ordina.msdashboard.nodes.model.SystemEvent;
@@ -30,11 +33,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import rx.Observable;
+import rx.observables.GroupedObservable;
 import rx.schedulers.Schedulers;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * @author Tim Ysewyn
@@ -52,7 +58,9 @@ public class IndexesAggregator implements NodeAggregator {
 	private final IndexProperties properties;
 	private final UriResolver uriResolver;
 	private final NettyServiceCaller caller;
+	private final RequestFactory requestFactory;
 	private SecurityStrategyFactory securityStrategyFactory;
+	private InstanceResultCache resultCache;
 
 	@Deprecated
 	public IndexesAggregator(final IndexToNodeConverter indexToNodeConverter, final DiscoveryClient discoveryClient,
@@ -64,6 +72,8 @@ public class IndexesAggregator implements NodeAggregator {
 		this.properties = properties;
 		this.publisher = publisher;
 		this.caller = caller;
+		this.requestFactory = new RequestFactory(discoveryClient, instance -> this.uriResolver.resolveHomePageUrl(instance),
+				() -> this.properties.getRequestHeaders(), this::applyOutboundSecurityStrategyOnRequest);
 	}
 
 	public IndexesAggregator(final IndexToNodeConverter indexToNodeConverter, final DiscoveryClient discoveryClient,
@@ -74,15 +84,17 @@ public class IndexesAggregator implements NodeAggregator {
 		this.securityStrategyFactory = securityStrategyFactory;
 	}
 
+	public IndexesAggregator(final IndexToNodeConverter indexToNodeConverter, final DiscoveryClient discoveryClient,
+							 final UriResolver uriResolver, final IndexProperties properties,
+							 final ApplicationEventPublisher publisher, final NettyServiceCaller caller,
+							 final SecurityStrategyFactory securityStrategyFactory, final InstanceResultCache resultCache) {
+		this(indexToNodeConverter, discoveryClient, uriResolver, properties, publisher, caller, securityStrategyFactory);
+		this.resultCache = resultCache;
+	}
+
 	@Override
 	public Observable<Node> aggregateNodes() {
-		final Object outboundSecurityObject = getOutboundSecurityObject();
-		return getServicesFromDiscoveryClient()
-				.flatMap(this::getFirstInstanceForService)
-				.flatMap((ServiceInstance serviceInstance) -> outboundSecurityObject != null ?
-						getIndexFromServiceInstance(serviceInstance, outboundSecurityObject) :
-						getIndexFromServiceInstance(serviceInstance)
-				)
+		return Observable.merge(aggregateNodesPerService())
 				.doOnNext(el -> logger.debug("Emitting node with id '{}'", el.getId()))
 				.doOnError(e -> {
 					String error = "Error while emitting a node: " + e.getMessage();
@@ -92,6 +104,34 @@ public class IndexesAggregator implements NodeAggregator {
 				.doOnCompleted(() -> logger.info("Completed emitting all index nodes"));
 	}
 
+	/**
+	 * Forgets the nodes kept for an instance which left the discovery registry.
+	 *
+	 * @param event the event published by the discovery registry
+	 */
+	@EventListener
+	public void onInstanceEvent(InstanceEvent event) {
+		if (resultCache != null && !event.isRegistered()) {
+			resultCache.evict(event.getNodeId(), event.getInstance());
+		}
+	}
+
+	@Override
+	public Observable<GroupedObservable<String, Node>> aggregateNodesPerService() {
+		final Object outboundSecurityObject = getOutboundSecurityObject();
+		return getServicesFromDiscoveryClient()
+				.flatMap(serviceId -> getFirstInstanceForService(serviceId)
+						.map((ServiceInstance serviceInstance) -> GroupedObservable.from(serviceId,
+								getIndexFromInstance(serviceInstance, outboundSecurityObject))));
+	}
+
+	private Observable<Node> getIndexFromInstance(ServiceInstance serviceInstance, final Object outboundSecurityObject) {
+		Supplier<Observable<Node>> retrieval = () -> outboundSecurityObject != null ?
+				getIndexFromServiceInstance(serviceInstance, outboundSecurityObject) :
+				getIndexFromServiceInstance(serviceInstance);
+		return resultCache != null ? resultCache.get(serviceInstance, retrieval) : retrieval.get();
+	}
+
 	private Observable<String> getServicesFromDiscoveryClient() {
 		logger.info("Discovering services");
 		return Observable.from(discoveryClient.getServices()).subscribeOn(Schedulers.io()).publish().autoConnect()
@@ -132,15 +172,23 @@ public class IndexesAggregator implements NodeAggregator {
 	private Observable<Node> getIndexFromServiceInstance(ServiceInstance serviceInstance, final Object outboundSecurityObject) {
 		final String url = uriResolver.resolveHomePageUrl(serviceInstance);
 		final String serviceId = serviceInstance.getServiceId().toLowerCase();
-		HttpClientRequest<ByteBuf> request = HttpClientRequest.createGet(url);
-		applyOutboundSecurityStrategyOnRequest(request, outboundSecurityObject);
-		for (Map.Entry<String, String> header : properties.getRequestHeaders().entrySet()) {
-			request.withHeader(header.getKey(), header.getValue());
+		HttpClientRequest<ByteBuf> request = requestFactory.createRequest(url, outboundSecurityObject);
+		Supplier<HttpClientRequest<ByteBuf>> hedgedRequest = caller.isHedging() ?
+				() -> requestFactory.createHedgedRequest(serviceId, url, outboundSecurityObject) : null;
+		Observable<Node> nodes;
+		if (caller.isRetrievingNodes()) {
+			nodes = caller.retrieveNodesFromRequest(serviceId, request, hedgedRequest,
+					source -> indexToNodeConverter.convert(serviceId, url, new JSONObject(source)));
+		} else {
+			Observable<Map<String, Object>> sources = hedgedRequest != null ?
+					caller.retrieveJsonFromRequest(serviceId, request, hedgedRequest) :
+					caller.retrieveJsonFromRequest(serviceId, request);
+			nodes = sources
+					.map(JSONObject::new)
+					.concatMap(source -> indexToNodeConverter.convert(serviceId, url, source));
 		}
 
-		return caller.retrieveJsonFromRequest(serviceId, request)
-				.map(JSONObject::new)
-				.concatMap(source -> indexToNodeConverter.convert(serviceInstance.getServiceId().toLowerCase(), url, source))
+		return nodes
 				.filter(node -> !properties.getFilteredServices().contains(node.getId()))
 				.doOnNext(el -> logger.info("Index node {} discovered in url: {}", el.getId(), url))
 				.doOnError(e -> logger.error("Error while fetching node: ", e))
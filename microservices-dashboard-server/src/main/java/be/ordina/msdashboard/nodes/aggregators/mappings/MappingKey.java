@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators.mappings;
+
+/**
+ * The path and methods of a request mapping, parsed from a key such as
+ * {@code {[/home],methods=[GET],produces=[application/json]}}.
+ * <p>
+ * A key is parsed in a single pass over its characters, without regular
+ * expressions. When a key holds several paths or methods, the last one
+ * within the braces is used.
+ */
+final class MappingKey {
+
+	private static final String METHODS = "methods=[";
+
+	private final String path;
+	private final String methods;
+	private final boolean valid;
+
+	private MappingKey(String path, String methods, boolean valid) {
+		this.path = path;
+		this.methods = methods;
+		this.valid = valid;
+	}
+
+	static MappingKey parse(String key) {
+		int length = key.length();
+		boolean braceOpened = false;
+		int pathStart = -1;
+		int pathEnd = -1;
+		int methodsStart = -1;
+		int methodsEnd = -1;
+		int openPath = -1;
+		int openMethods = -1;
+		int closedPathStart = -1;
+		int closedPathEnd = -1;
+		int closedMethodsStart = -1;
+		int closedMethodsEnd = -1;
+		for (int i = 0; i < length; i++) {
+			char c = key.charAt(i);
+			if (c == '{') {
+				braceOpened = true;
+			} else if (c == 'm' && braceOpened && key.startsWith(METHODS, i)) {
+				openMethods = i + METHODS.length();
+			} else if (c == '[' && braceOpened && i + 1 < length && key.charAt(i + 1) == '/') {
+				openPath = i + 1;
+			} else if (c == ']') {
+				if (openPath >= 0) {
+					closedPathStart = openPath;
+					closedPathEnd = i;
+					openPath = -1;
+				}
+				if (openMethods >= 0) {
+					closedMethodsStart = openMethods;
+					closedMethodsEnd = i;
+					openMethods = -1;
+				}
+			} else if (c == '}') {
+				pathStart = closedPathStart;
+				pathEnd = closedPathEnd;
+				methodsStart = closedMethodsStart;
+				methodsEnd = closedMethodsEnd;
+			}
+		}
+		String path = pathStart >= 0 ? key.substring(pathStart, pathEnd) : null;
+		String methods = methodsStart >= 0 ? key.substring(methodsStart, methodsEnd) : null;
+		boolean valid = path != null && key.charAt(0) == '{' && key.charAt(length - 1) == '}';
+		return new MappingKey(path, methods, valid);
+	}
+
+	/**
+	 * @return the path of the mapping, or {@code null} when the key has none
+	 */
+	String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the methods of the mapping, or {@code null} when the key has none
+	 */
+	String getMethods() {
+		return methods;
+	}
+
+	/**
+	 * @return whether the whole key is a mapping with a path, enclosed in braces
+	 */
+	boolean isValid() {
+		return valid;
+	}
+}
@@ -16,8 +16,11 @@
 package be.ordina.msdashboard.nodes.aggregators.mappings;
 
 import be.ordina.msdashboard.nodes.aggregators.ErrorHandler;
+import be.ordina.msdashboard.nodes.aggregators.InstanceResultCache;
 import be.ordina.msdashboard.nodes.aggregators.NettyServiceCaller;
 import be.ordina.msdashboard.nodes.aggregators.NodeAggregator;
+import be.ordina.msdashboard.nodes.aggregators.RequestFactory;
+import be.ordina.msdashboard.nodes.model.InstanceEvent;
 import be.ordina.msdashboard.nodes.model.Node;
 import be.ordina.msdashboard.nodes.uriresolvers.UriResolver;
 import be.ordina.msdashboard.security.outbound.SecurityStrategyFactory;
@@ -28,11 +31,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.event.EventListener;
 import rx.Observable;
+import rx.observables.GroupedObservable;
 import rx.schedulers.Schedulers;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static be.ordina.msdashboard.nodes.aggregators.Constants.ZUUL;
 
@@ -73,7 +79,9 @@ public class MappingsAggregator implements NodeAggregator {
 	private final MappingsProperties properties;
 	private final NettyServiceCaller caller;
 	private final ErrorHandler errorHandler;
+	private final RequestFactory requestFactory;
 	private SecurityStrategyFactory securityStrategyFactory;
+	private InstanceResultCache resultCache;
 
 	@Deprecated
 	public MappingsAggregator(final DiscoveryClient discoveryClient, final UriResolver uriResolver,
@@ -84,6 +92,8 @@ public class MappingsAggregator implements NodeAggregator {
 		this.properties = properties;
 		this.caller = caller;
 		this.errorHandler = errorHandler;
+		this.requestFactory = new RequestFactory(discoveryClient, instance -> this.uriResolver.resolveMappingsUrl(instance),
+				() -> this.properties.getRequestHeaders(), this::applyOutboundSecurityStrategyOnRequest);
 	}
 
 	public MappingsAggregator(final DiscoveryClient discoveryClient, final UriResolver uriResolver,
@@ -93,35 +103,66 @@ public class MappingsAggregator implements NodeAggregator {
 		this.securityStrategyFactory = securityStrategyFactory;
 	}
 
+	public MappingsAggregator(final DiscoveryClient discoveryClient, final UriResolver uriResolver,
+							  final MappingsProperties properties, final NettyServiceCaller caller,
+							  final ErrorHandler errorHandler, final SecurityStrategyFactory securityStrategyFactory,
+							  final InstanceResultCache resultCache) {
+		this(discoveryClient, uriResolver, properties, caller, errorHandler, securityStrategyFactory);
+		this.resultCache = resultCache;
+	}
+
 	@Override
 	public Observable<Node> aggregateNodes() {
+		return Observable.merge(aggregateNodesPerService())
+				.doOnNext(el -> logger.debug("Merged health node: " + el.getId()))
+				.doOnError(e -> errorHandler.handleSystemError("Error filtering services: " + e.getMessage(), e))
+				.doOnCompleted(() -> logger.info("Completed merging all mappings observables"));
+	}
+
+	/**
+	 * Forgets the nodes kept for an instance which left the discovery registry.
+	 *
+	 * @param event the event published by the discovery registry
+	 */
+	@EventListener
+	public void onInstanceEvent(InstanceEvent event) {
+		if (resultCache != null && !event.isRegistered()) {
+			resultCache.evict(event.getNodeId(), event.getInstance());
+		}
+	}
+
+	@Override
+	public Observable<GroupedObservable<String, Node>> aggregateNodesPerService() {
 		final Object outboundSecurityObject = getOutboundSecurityObject();
-		Observable<Observable<Node>> observableObservable = getServiceIdsFromDiscoveryClient()
-				.map(id -> new ImmutablePair<>(id, resolveMappingsUrl(id)))
+		return getServiceIdsFromDiscoveryClient()
+				.map(id -> new ImmutablePair<>(id, resolveInstance(id)))
 				.doOnNext(pair -> logger.info("Creating mappings observable: " + pair))
-				.map(pair -> outboundSecurityObject != null ?
-						getMappingNodesFromService(pair.getLeft(), pair.getRight(), outboundSecurityObject) :
-						getMappingNodesFromService(pair.getLeft(), pair.getRight())
-				)
+				.map(pair -> GroupedObservable.from(pair.getLeft(),
+						getMappingNodesFromInstance(pair.getLeft(), pair.getRight(), outboundSecurityObject)))
 				.doOnNext(el -> logger.debug("Unmerged mappings observable: " + el))
 				.doOnError(e -> errorHandler.handleSystemError("Error filtering services: " + e.getMessage(), e))
 				.doOnCompleted(() -> logger.info("Completed getting all mappings observables"))
 				.retry();
-		return Observable.merge(observableObservable)
-				.doOnNext(el -> logger.debug("Merged health node: " + el.getId()))
-				.doOnError(e -> errorHandler.handleSystemError("Error filtering services: " + e.getMessage(), e))
-				.doOnCompleted(() -> logger.info("Completed merging all mappings observables"));
 	}
 
-	private String resolveMappingsUrl(String id) {
+	private ServiceInstance resolveInstance(String id) {
 		List<ServiceInstance> instances = discoveryClient.getInstances(id);
 		if (instances.isEmpty()) {
 			throw new IllegalStateException("No instances found for service " + id);
 		} else {
-			return uriResolver.resolveMappingsUrl(instances.get(0));
+			return instances.get(0);
 		}
 	}
 
+	private Observable<Node> getMappingNodesFromInstance(String serviceId, ServiceInstance instance,
+														 final Object outboundSecurityObject) {
+		String url = uriResolver.resolveMappingsUrl(instance);
+		Supplier<Observable<Node>> retrieval = () -> outboundSecurityObject != null ?
+				getMappingNodesFromService(serviceId, url, outboundSecurityObject) :
+				getMappingNodesFromService(serviceId, url);
+		return resultCache != null ? resultCache.get(instance, retrieval) : retrieval.get();
+	}
+
 	protected Observable<String> getServiceIdsFromDiscoveryClient() {
 		logger.info("Discovering services for mappings");
 		return Observable.from(discoveryClient.getServices()).subscribeOn(Schedulers.io()).publish().autoConnect()
@@ -138,14 +179,30 @@ public class MappingsAggregator implements NodeAggregator {
 	}
 
 	protected Observable<Node> getMappingNodesFromService(String serviceId, String url, final Object outboundSecurityObject) {
-		HttpClientRequest<ByteBuf> request = HttpClientRequest.createGet(url);
-		applyOutboundSecurityStrategyOnRequest(request, outboundSecurityObject);
-		for (Map.Entry<String, String> header : properties.getRequestHeaders().entrySet()) {
-			request.withHeader(header.getKey(), header.getValue());
+		HttpClientRequest<ByteBuf> request = requestFactory.createRequest(url, outboundSecurityObject);
+		Supplier<HttpClientRequest<ByteBuf>> hedgedRequest = caller.isHedging() ?
+				() -> requestFactory.createHedgedRequest(serviceId, url, outboundSecurityObject) : null;
+		Observable<Node> nodes;
+		if (caller.isRetrievingNodes()) {
+			nodes = properties.isStreaming() ?
+					caller.retrieveNodesFromRequest(serviceId, request, hedgedRequest, MappingsToNodeConverter::readSource,
+							source -> MappingsToNodeConverter.convertToNodes(serviceId, source)) :
+					caller.retrieveNodesFromRequest(serviceId, request, hedgedRequest,
+							source -> MappingsToNodeConverter.convertToNodes(serviceId, source));
+		} else {
+			Observable<Map<String, Object>> sources;
+			if (properties.isStreaming()) {
+				sources = caller.retrieveFromRequest(serviceId, request, hedgedRequest, MappingsToNodeConverter::readSource);
+			} else if (hedgedRequest != null) {
+				sources = caller.retrieveJsonFromRequest(serviceId, request, hedgedRequest);
+			} else {
+				sources = caller.retrieveJsonFromRequest(serviceId, request);
+			}
+			nodes = sources
+					.map(source -> MappingsToNodeConverter.convertToNodes(serviceId, source))
+					.flatMap(el -> el);
 		}
-		return caller.retrieveJsonFromRequest(serviceId, request)
-				.map(source -> MappingsToNodeConverter.convertToNodes(serviceId, source))
-				.flatMap(el -> el)
+		return nodes
 				.filter(node -> !properties.getFilteredServices().contains(node.getId()))
 				.doOnNext(el -> logger.info("Mapping node {} discovered in url: {}", el.getId(), url))
 				.doOnError(e -> logger.error("Error during mapping node fetching: ", e))
@@ -1,5 +1,9 @@
 package be.ordina.msdashboard.nodes.aggregators.mappings;
 
+import be.ordina.msdashboard.nodes.aggregators.BulkheadProperties;
+import be.ordina.msdashboard.nodes.aggregators.CircuitBreakerProperties;
+import be.ordina.msdashboard.nodes.aggregators.HedgingProperties;
+import be.ordina.msdashboard.nodes.aggregators.TimeoutProperties;
 import be.ordina.msdashboard.security.outbound.SecurityStrategyFactory;
 
 import java.util.Arrays;
@@ -21,6 +25,40 @@ public class MappingsProperties {
 
 	private String security = SecurityStrategyFactory.NONE;
 
+	private BulkheadProperties bulkhead = new BulkheadProperties();
+
+	private TimeoutProperties timeout = new TimeoutProperties();
+
+	private HedgingProperties hedging = new HedgingProperties();
+
+	private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+
+	/**
+	 * Whether to keep the last response of each instance with the nodes converted
+	 * from it, sending conditional requests and reusing the nodes while the
+	 * response does not change.
+	 */
+	private boolean cacheResponses = false;
+
+	/**
+	 * Whether to call an instance again only when its registration changed since
+	 * its nodes were last retrieved, serving those nodes otherwise. Requires a
+	 * discovery client exposing registration changes, such as Eureka.
+	 */
+	private boolean refreshOnChange = false;
+
+	/**
+	 * Directory to persist the nodes kept when refreshing on change in, so they
+	 * survive a restart. The nodes are only kept in memory when not set.
+	 */
+	private String resultCacheDirectory;
+
+	/**
+	 * Whether to read the mappings responses token by token, keeping only what is
+	 * needed to create the nodes instead of materializing the whole response.
+	 */
+	private boolean streaming = false;
+
 	public void setSecurity(String security) {
 		this.security = security;
 	}
@@ -36,4 +74,52 @@ public class MappingsProperties {
 	public List<String> getFilteredServices() {
 		return filteredServices;
 	}
+
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	public BulkheadProperties getBulkhead() {
+		return bulkhead;
+	}
+
+	public TimeoutProperties getTimeout() {
+		return timeout;
+	}
+
+	public HedgingProperties getHedging() {
+		return hedging;
+	}
+
+	public CircuitBreakerProperties getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	public boolean isCacheResponses() {
+		return cacheResponses;
+	}
+
+	public void setCacheResponses(boolean cacheResponses) {
+		this.cacheResponses = cacheResponses;
+	}
+
+	public boolean isRefreshOnChange() {
+		return refreshOnChange;
+	}
+
+	public void setRefreshOnChange(boolean refreshOnChange) {
+		this.refreshOnChange = refreshOnChange;
+	}
+
+	public String getResultCacheDirectory() {
+		return resultCacheDirectory;
+	}
+
+	public void setResultCacheDirectory(String resultCacheDirectory) {
+		this.resultCacheDirectory = resultCacheDirectory;
+	}
 }
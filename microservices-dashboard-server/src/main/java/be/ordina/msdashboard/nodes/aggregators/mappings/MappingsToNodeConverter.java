@@ -16,14 +16,20 @@
 package be.ordina.msdashboard.nodes.aggregators.mappings;
 
 import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import rx.Observable;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static be.ordina.msdashboard.nodes.model.NodeTypes.MICROSERVICE;
 import static be.ordina.msdashboard.nodes.model.NodeTypes.RESOURCE;
@@ -31,11 +37,33 @@ import static be.ordina.msdashboard.nodes.model.Node.TYPE;
 import static be.ordina.msdashboard.nodes.model.Node.STATUS;
 
 /**
+ * Converts the response of the mappings endpoint into a node for the service
+ * and a node for each of its request mappings, leaving out those handled by
+ * Spring itself.
+ * <p>
+ * Both the flat response of Spring Boot 1.x, keyed by the mapping, and the
+ * response of Spring Boot 2.x, listing the mappings of every dispatcher
+ * servlet under {@code contexts/*}{@code /mappings/dispatcherServlets}, are supported.
+ *
  * @author Andreas Evers
  */
 public class MappingsToNodeConverter {
 
-	private static final Object METHOD = "method";
+	private static final String METHOD = "method";
+	private static final String SPRING_PACKAGE = "org.springframework.";
+	private static final String OR = " || ";
+
+	private static final String CONTEXTS = "contexts";
+	private static final String MAPPINGS = "mappings";
+	private static final String DISPATCHER_SERVLETS = "dispatcherServlets";
+	private static final String PREDICATE = "predicate";
+	private static final String HANDLER = "handler";
+	private static final String DETAILS = "details";
+	private static final String HANDLER_METHOD = "handlerMethod";
+	private static final String CLASS_NAME = "className";
+	private static final String REQUEST_MAPPING_CONDITIONS = "requestMappingConditions";
+	private static final String PATTERNS = "patterns";
+	private static final String METHODS = "methods";
 
 	public static Observable<Node> convertToNodes(final String serviceId, final Map<String, Object> source) {
 		Set<Node> nodes = new HashSet<>();
@@ -45,21 +73,17 @@ public class MappingsToNodeConverter {
 		ownDetails.put(TYPE, MICROSERVICE);
 		ownDetails.put(STATUS, "UP");
 		nodes.add(topLevelNode);
-		for (String key : source.keySet()) {
-			if (validMappingKey(key)) {
-				Object mapping = source.get(key);
+		if (source.get(CONTEXTS) instanceof Map) {
+			for (Object context : ((Map<?, ?>) source.get(CONTEXTS)).values()) {
+				convertContext(topLevelNode, context, nodes);
+			}
+		} else {
+			for (Map.Entry<String, Object> entry : source.entrySet()) {
+				Object mapping = entry.getValue();
 				if (mapping instanceof Map) {
-					if (isNonSpringMapping((Map) mapping)){
-						String url = extractUrl(key);
-						Node nestedNode = new Node(url);
-						nestedNode.setLane(1);
-						nestedNode.addDetail("url", url);
-						nestedNode.addDetail("type", RESOURCE);
-						nestedNode.addDetail("status", "UP");
-						extractMethods(key).ifPresent(methods -> nestedNode.addDetail("methods", methods));
-						topLevelNode.getLinkedFromNodeIds().add(nestedNode.getId());
-						nestedNode.getLinkedToNodeIds().add(topLevelNode.getId());
-						nodes.add(nestedNode);
+					MappingKey mappingKey = MappingKey.parse(entry.getKey());
+					if (mappingKey.isValid() && isNonSpringMapping((Map) mapping)) {
+						nodes.add(createResourceNode(topLevelNode, mappingKey.getPath(), mappingKey.getMethods()));
 					}
 				}
 			}
@@ -67,31 +91,161 @@ public class MappingsToNodeConverter {
 		return Observable.from(nodes);
 	}
 
+	/**
+	 * Reads the response of the mappings endpoint token by token, keeping only
+	 * what {@link #convertToNodes(String, Map)} needs. Of the flat format of
+	 * Spring Boot 1.x, only the handler method of each request mapping is kept.
+	 * The contexts of Spring Boot 2.x are read as a whole.
+	 * @param parser a parser positioned before the response
+	 * @return the response, without the parts that don't result in nodes
+	 * @throws IOException when the response can't be parsed
+	 */
+	public static Map<String, Object> readSource(JsonParser parser) throws IOException {
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			throw new JsonParseException(parser, "Expected mappings to be a JSON object");
+		}
+		Map<String, Object> source = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if (CONTEXTS.equals(key)) {
+				source.put(key, parser.readValueAs(Map.class));
+			} else if (token == JsonToken.START_OBJECT && MappingKey.parse(key).isValid()) {
+				source.put(key, readMapping(parser));
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return source;
+	}
+
+	private static Map<String, Object> readMapping(JsonParser parser) throws IOException {
+		Map<String, Object> mapping = new HashMap<>(2);
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			if (parser.nextToken() == JsonToken.VALUE_STRING && METHOD.equals(field)) {
+				mapping.put(METHOD, parser.getText());
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return mapping;
+	}
+
+	private static void convertContext(Node topLevelNode, Object context, Set<Node> nodes) {
+		Object mappings = context instanceof Map ? ((Map<?, ?>) context).get(MAPPINGS) : null;
+		Object dispatcherServlets = mappings instanceof Map ? ((Map<?, ?>) mappings).get(DISPATCHER_SERVLETS) : null;
+		if (!(dispatcherServlets instanceof Map)) {
+			return;
+		}
+		for (Object dispatcherServlet : ((Map<?, ?>) dispatcherServlets).values()) {
+			if (dispatcherServlet instanceof Collection) {
+				for (Object mapping : (Collection<?>) dispatcherServlet) {
+					if (mapping instanceof Map) {
+						convertDispatcherServletMapping(topLevelNode, (Map<?, ?>) mapping, nodes);
+					}
+				}
+			}
+		}
+	}
+
+	private static void convertDispatcherServletMapping(Node topLevelNode, Map<?, ?> mapping, Set<Node> nodes) {
+		Map<?, ?> details = mapping.get(DETAILS) instanceof Map ? (Map<?, ?>) mapping.get(DETAILS) : null;
+		Object handlerMethod = details != null ? details.get(HANDLER_METHOD) : null;
+		if (!(handlerMethod instanceof Map)) {
+			// Resource handlers, redirects and the like don't map onto a method
+			return;
+		}
+		Object className = ((Map<?, ?>) handlerMethod).get(CLASS_NAME);
+		if (className instanceof String && ((String) className).startsWith(SPRING_PACKAGE)) {
+			return;
+		}
+		Object conditions = details.get(REQUEST_MAPPING_CONDITIONS);
+		if (conditions instanceof Map) {
+			String path = join(((Map<?, ?>) conditions).get(PATTERNS));
+			if (path != null) {
+				nodes.add(createResourceNode(topLevelNode, path, join(((Map<?, ?>) conditions).get(METHODS))));
+			}
+		} else if (mapping.get(PREDICATE) instanceof String) {
+			MappingKey mappingKey = MappingKey.parse((String) mapping.get(PREDICATE));
+			if (mappingKey.isValid()) {
+				nodes.add(createResourceNode(topLevelNode, mappingKey.getPath(), mappingKey.getMethods()));
+			}
+		}
+	}
+
+	/**
+	 * Joins the patterns or methods of a mapping the same way Spring does in
+	 * the keys of Spring Boot 1.x.
+	 */
+	private static String join(Object values) {
+		if (!(values instanceof List) || ((List<?>) values).isEmpty()) {
+			return null;
+		}
+		StringBuilder joined = new StringBuilder();
+		for (Object value : (List<?>) values) {
+			if (joined.length() > 0) {
+				joined.append(OR);
+			}
+			joined.append(value);
+		}
+		return joined.toString();
+	}
+
+	private static Node createResourceNode(Node topLevelNode, String url, String methods) {
+		Node nestedNode = new Node(url);
+		nestedNode.setLane(1);
+		nestedNode.addDetail("url", url);
+		nestedNode.addDetail("type", RESOURCE);
+		nestedNode.addDetail("status", "UP");
+		if (methods != null) {
+			nestedNode.addDetail("methods", methods);
+		}
+		topLevelNode.getLinkedFromNodeIds().add(nestedNode.getId());
+		nestedNode.getLinkedToNodeIds().add(topLevelNode.getId());
+		return nestedNode;
+	}
+
 	protected static String extractUrl(String key) {
-		Pattern pattern = Pattern.compile("\\{.*\\[(\\/[^\\]]*)\\].*\\}");
-		Matcher matcher = pattern.matcher(key);
-		if (matcher.find()) {
-			return matcher.group(1);
-		} else {
+		String url = MappingKey.parse(key).getPath();
+		if (url == null) {
 			throw new IllegalStateException("No url found for mapping " + key);
 		}
+		return url;
 	}
 
 	protected static Optional<String> extractMethods(String key) {
-		Pattern pattern = Pattern.compile("\\{.*methods=\\[([^\\]]*)\\].*\\}");
-		Matcher matcher = pattern.matcher(key);
-		if (matcher.find()) {
-			return Optional.of(matcher.group(1));
-		} else {
-			return Optional.empty();
-		}
+		return Optional.ofNullable(MappingKey.parse(key).getMethods());
 	}
 
+	/**
+	 * Determines whether the handler method of a mapping, such as
+	 * {@code public java.lang.String be.ordina.HomeController.home()}, is
+	 * declared outside of Spring.
+	 */
 	protected static boolean isNonSpringMapping(Map<String, String> mapping) {
-		return !mapping.containsKey(METHOD) || !mapping.get(METHOD).matches("[a-z]* .* org\\.springframework.*");
+		Object method = mapping.get(METHOD);
+		if (!(method instanceof String)) {
+			return true;
+		}
+		String handlerClass = extractHandlerClass((String) method);
+		return handlerClass == null || !handlerClass.startsWith(SPRING_PACKAGE);
+	}
+
+	/**
+	 * @return the class declaring the given handler method, or {@code null} when it can't be determined
+	 */
+	static String extractHandlerClass(String method) {
+		int parameters = method.indexOf('(');
+		if (parameters < 0) {
+			return null;
+		}
+		int start = method.lastIndexOf(' ', parameters) + 1;
+		int end = method.lastIndexOf('.', parameters);
+		return end > start ? method.substring(start, end) : null;
 	}
 
 	protected static boolean validMappingKey(String key) {
-		return key.matches("(\\{.*\\[\\/.*].*\\})");
+		return MappingKey.parse(key).isValid();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.discovery;
+
+import be.ordina.msdashboard.nodes.model.InstanceEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps a single {@link DiscoverySnapshot} of a {@link DiscoveryClient} which
+ * is shared by all aggregators, so the registry is walked once per change
+ * instead of once per aggregator on every refresh.
+ * <p>
+ * The snapshot is taken again on every {@link HeartbeatEvent}, which the Eureka
+ * client publishes each time it applied the latest registry delta to its local
+ * cache, or once the snapshot is older than the configured maximum age. The
+ * instances that appeared or disappeared since the previous snapshot are
+ * published as {@link InstanceEvent}s.
+ */
+public class DiscoveryRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(DiscoveryRegistry.class);
+
+	private final DiscoveryClient discoveryClient;
+	private final ApplicationEventPublisher publisher;
+	private final long maxAge;
+	private final DiscoveryClient view = new SnapshotDiscoveryClient();
+
+	private volatile DiscoverySnapshot snapshot;
+
+	public DiscoveryRegistry(DiscoveryClient discoveryClient, ApplicationEventPublisher publisher,
+							 DiscoveryRegistryProperties properties) {
+		this.discoveryClient = discoveryClient;
+		this.publisher = publisher;
+		this.maxAge = properties.getMaxAge();
+	}
+
+	/**
+	 * @return the current snapshot, taken again first if it is older than the maximum age
+	 */
+	public DiscoverySnapshot getSnapshot() {
+		DiscoverySnapshot current = snapshot;
+		if (current == null || System.currentTimeMillis() - current.getTimestamp() > maxAge) {
+			return refresh(current);
+		}
+		return current;
+	}
+
+	@EventListener
+	public void onHeartbeat(HeartbeatEvent event) {
+		logger.debug("Discovery client signalled a registry change: {}", event.getValue());
+		refresh(snapshot);
+	}
+
+	/**
+	 * @return a {@link DiscoveryClient} answering from the current snapshot
+	 */
+	public DiscoveryClient asDiscoveryClient() {
+		return view;
+	}
+
+	private synchronized DiscoverySnapshot refresh(DiscoverySnapshot expected) {
+		DiscoverySnapshot previous = snapshot;
+		if (previous != expected) {
+			// Refreshed by another thread in the meantime
+			return previous;
+		}
+		DiscoverySnapshot next;
+		try {
+			next = DiscoverySnapshot.of(discoveryClient, previous);
+		} catch (RuntimeException e) {
+			if (previous == null) {
+				throw e;
+			}
+			logger.warn("Could not take a snapshot of the discovery registry, keeping the previous one: {}", e.getMessage());
+			return previous;
+		}
+		snapshot = next;
+		if (previous != null) {
+			publishChanges(previous, next);
+		}
+		return next;
+	}
+
+	private void publishChanges(DiscoverySnapshot previous, DiscoverySnapshot next) {
+		Set<String> services = new HashSet<>(previous.getServices());
+		services.addAll(next.getServices());
+		for (String service : services) {
+			Set<String> before = keys(previous.getInstances(service));
+			Set<String> after = keys(next.getInstances(service));
+			for (String instance : after) {
+				if (!before.contains(instance)) {
+					publisher.publishEvent(new InstanceEvent(service.toLowerCase(), instance, true));
+				}
+			}
+			for (String instance : before) {
+				if (!after.contains(instance)) {
+					publisher.publishEvent(new InstanceEvent(service.toLowerCase(), instance, false));
+				}
+			}
+		}
+	}
+
+	private static Set<String> keys(List<ServiceInstance> instances) {
+		Set<String> keys = new HashSet<>();
+		for (ServiceInstance instance : instances) {
+			keys.add(instance.getHost() + ":" + instance.getPort());
+		}
+		return keys;
+	}
+
+	private class SnapshotDiscoveryClient implements DiscoveryClient {
+
+		@Override
+		public String description() {
+			return "Snapshot of " + discoveryClient.description();
+		}
+
+		@Override
+		public ServiceInstance getLocalServiceInstance() {
+			return discoveryClient.getLocalServiceInstance();
+		}
+
+		@Override
+		public List<ServiceInstance> getInstances(String serviceId) {
+			return getSnapshot().getInstances(serviceId);
+		}
+
+		@Override
+		public List<String> getServices() {
+			return getSnapshot().getServices();
+		}
+	}
+}
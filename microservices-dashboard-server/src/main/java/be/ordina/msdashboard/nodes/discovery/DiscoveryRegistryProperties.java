@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.discovery;
+
+/**
+ * Configuration of the {@link DiscoveryRegistry} shared by the aggregators.
+ */
+public class DiscoveryRegistryProperties {
+
+	/**
+	 * Whether the aggregators share a snapshot of the discovery registry instead
+	 * of each walking the registry on every refresh.
+	 */
+	private boolean enabled = true;
+
+	/**
+	 * Maximum age of the snapshot in milliseconds, after which it is taken again
+	 * even when the discovery client did not signal a change.
+	 */
+	private long maxAge = 30000;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public long getMaxAge() {
+		return maxAge;
+	}
+
+	public void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.discovery;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable view of the services and instances known to a
+ * {@link DiscoveryClient} at a point in time.
+ */
+public final class DiscoverySnapshot {
+
+	private final List<String> services;
+	private final Map<String, List<ServiceInstance>> instances;
+	private final long timestamp;
+
+	DiscoverySnapshot(Map<String, List<ServiceInstance>> instances, long timestamp) {
+		Map<String, List<ServiceInstance>> byService = new HashMap<>();
+		for (Map.Entry<String, List<ServiceInstance>> entry : instances.entrySet()) {
+			byService.put(entry.getKey().toLowerCase(),
+					Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+		}
+		this.services = Collections.unmodifiableList(new ArrayList<>(instances.keySet()));
+		this.instances = Collections.unmodifiableMap(byService);
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Walks the services and instances of the given discovery client once.
+	 * Services whose instances could not be retrieved are kept with the
+	 * instances they had in the given previous snapshot, if any.
+	 * @param discoveryClient the discovery client to take the snapshot of
+	 * @param previous the previous snapshot, or {@code null}
+	 * @return the snapshot
+	 */
+	public static DiscoverySnapshot of(DiscoveryClient discoveryClient, DiscoverySnapshot previous) {
+		Map<String, List<ServiceInstance>> instances = new LinkedHashMap<>();
+		for (String service : discoveryClient.getServices()) {
+			if (service == null) {
+				continue;
+			}
+			try {
+				instances.put(service, discoveryClient.getInstances(service));
+			} catch (RuntimeException e) {
+				if (previous == null) {
+					throw e;
+				}
+				instances.put(service, previous.getInstances(service));
+			}
+		}
+		return new DiscoverySnapshot(instances, System.currentTimeMillis());
+	}
+
+	public List<String> getServices() {
+		return services;
+	}
+
+	/**
+	 * @param serviceId the id of the service, regardless of its case
+	 * @return the instances of the service, empty if the service is unknown
+	 */
+	public List<ServiceInstance> getInstances(String serviceId) {
+		List<ServiceInstance> serviceInstances = instances.get(serviceId.toLowerCase());
+		return serviceInstances != null ? serviceInstances : Collections.emptyList();
+	}
+
+	/**
+	 * @return the time this snapshot was taken, in milliseconds since the epoch
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
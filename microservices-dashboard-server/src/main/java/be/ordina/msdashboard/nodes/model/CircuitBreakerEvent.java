@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.model;
+
+import java.io.Serializable;
+
+/**
+ * Node event published when the circuit breaker of an aggregator opens or
+ * closes for a service, or for a single instance of it when the aggregator
+ * calls every instance.
+ */
+public class CircuitBreakerEvent extends NodeEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String instance;
+    private final String aggregator;
+    private final boolean open;
+
+    public CircuitBreakerEvent(String nodeId, String aggregator, boolean open) {
+        this(nodeId, null, aggregator, open);
+    }
+
+    /**
+     * @param instance the host and port of the instance, as {@code host:port},
+     *                 or {@code null} when the circuit is that of the whole service
+     */
+    public CircuitBreakerEvent(String nodeId, String instance, String aggregator, boolean open) {
+        super(nodeId, "Circuit breaker of the " + aggregator + " aggregator for "
+                + (instance != null ? "instance " + instance + " of " : "") + "service " + nodeId
+                + (open ? " opened, serving its last known nodes" : " closed"));
+        this.instance = instance;
+        this.aggregator = aggregator;
+        this.open = open;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public String getAggregator() {
+        return aggregator;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public Severity getSeverity() {
+        return open ? Severity.WARNING : Severity.INFO;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+
+        CircuitBreakerEvent that = (CircuitBreakerEvent) o;
+
+        return open == that.open && aggregator.equals(that.aggregator)
+                && (instance != null ? instance.equals(that.instance) : that.instance == null);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + (instance != null ? instance.hashCode() : 0);
+        result = 31 * result + aggregator.hashCode();
+        result = 31 * result + (open ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerEvent{" +
+                "nodeId='" + getNodeId() + '\'' +
+                ", instance='" + instance + '\'' +
+                ", aggregator='" + aggregator + '\'' +
+                ", open=" + open +
+                "}";
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.model;
+
+import java.io.Serializable;
+
+/**
+ * Node event published when an instance of a service appears in or disappears
+ * from the discovery registry.
+ */
+public class InstanceEvent extends NodeEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String instance;
+    private final boolean registered;
+
+    public InstanceEvent(String nodeId, String instance, boolean registered) {
+        super(nodeId, "Instance " + instance + " of service " + nodeId
+                + (registered ? " registered" : " deregistered"));
+        this.instance = instance;
+        this.registered = registered;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    @Override
+    public Severity getSeverity() {
+        return Severity.INFO;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+
+        InstanceEvent that = (InstanceEvent) o;
+
+        return registered == that.registered && instance.equals(that.instance);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + instance.hashCode();
+        result = 31 * result + (registered ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "InstanceEvent{" +
+                "nodeId='" + getNodeId() + '\'' +
+                ", instance='" + instance + '\'' +
+                ", registered=" + registered +
+                "}";
+    }
+}
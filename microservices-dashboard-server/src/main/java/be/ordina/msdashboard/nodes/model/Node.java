@@ -15,153 +15,427 @@
  */
 package be.ordina.msdashboard.nodes.model;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.NONE;
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY;
 
 /**
  * General representation of an item presented in the graph on the UI.
  * Nodes can have links to other nodes and contain a set of details.
+ * <p>
+ * To keep large graphs small, the well-known details are kept in fields of
+ * their own, the status and type as enums when they have a well-known value,
+ * and only other details are kept in a map. Links are kept as sorted arrays of
+ * node ids, and every id is a single instance shared through the weak
+ * {@link NodeIds} interner. The details and links are still handed out as a
+ * map and sets writing through to the node, and are written to and read from
+ * JSON as before.
  *
  * @author Andreas Evers
  */
+@JsonAutoDetect(fieldVisibility = NONE, getterVisibility = NONE, isGetterVisibility = NONE, setterVisibility = NONE)
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonInclude(NON_EMPTY)
+@JsonPropertyOrder({ Node.ID, Node.DETAILS, Node.LANE, Node.LINKED_TO_NODE_IDS, Node.LINKED_FROM_NODE_IDS })
 public class Node {
 
 	public static final String ID = "id";
 	public static final String STATUS = "status";
 	public static final String TYPE = "type";
+	public static final String GROUP = "group";
 	public static final String DETAILS = "details";
 	public static final String LANE = "lane";
+	public static final String STALE = "stale";
 	// TODO: Implement this field in the aggregators
 	public static final String VERSION = "version";
 
-	@JsonProperty(ID)
-	private String id;
+	static final String LINKED_TO_NODE_IDS = "linkedToNodeIds";
+	static final String LINKED_FROM_NODE_IDS = "linkedFromNodeIds";
 
-	@JsonProperty(DETAILS)
-	private Map<String, Object> details = new HashMap<>();
+	private static final String[] NO_LINKS = new String[0];
+
+	private String id;
 
-	@JsonProperty(LANE)
 	private Integer lane;
 
-	private Set<String> linkedToNodeIds = new HashSet<>();
+	private NodeStatus status;
+
+	private NodeType type;
+
+	private String group;
+
+	private Boolean stale;
+
+	private Map<String, Object> otherDetails;
 
-	private Set<String> linkedFromNodeIds = new HashSet<>();
+	private Details details;
+
+	private String[] linkedTo = NO_LINKS;
+	private int linkedToCount;
+
+	private String[] linkedFrom = NO_LINKS;
+	private int linkedFromCount;
 
 	Node() {
 		// For Jackson
 	}
 
 	public Node(String id) {
-		this.id = id;
-		details = new HashMap<>();
-		linkedToNodeIds = new HashSet<>();
-		linkedFromNodeIds = new HashSet<>();
+		this.id = NodeIds.intern(id);
+	}
+
+	/**
+	 * Creates a copy of the given node which can be merged with other nodes
+	 * without changing the given node.
+	 * @param node the node to copy
+	 * @return a node with copies of the details and links of the given node
+	 */
+	public static Node copyOf(Node node) {
+		Node copy = new Node();
+		copy.id = node.id;
+		copy.lane = node.lane;
+		copy.status = node.status;
+		copy.type = node.type;
+		copy.group = node.group;
+		copy.stale = node.stale;
+		copy.otherDetails = node.otherDetails != null ? new HashMap<>(node.otherDetails) : null;
+		copy.linkedTo = node.linkedToCount > 0 ? Arrays.copyOf(node.linkedTo, node.linkedToCount) : NO_LINKS;
+		copy.linkedToCount = node.linkedToCount;
+		copy.linkedFrom = node.linkedFromCount > 0 ? Arrays.copyOf(node.linkedFrom, node.linkedFromCount) : NO_LINKS;
+		copy.linkedFromCount = node.linkedFromCount;
+		return copy;
+	}
+
+	/**
+	 * Copies all given nodes, for instance to hand out the nodes kept by a
+	 * cache, as nodes are merged after they are emitted.
+	 * @param nodes the nodes to copy
+	 * @return copies of the given nodes, in the same order
+	 */
+	public static List<Node> copyAll(Collection<Node> nodes) {
+		List<Node> copies = new ArrayList<>(nodes.size());
+		for (Node node : nodes) {
+			copies.add(copyOf(node));
+		}
+		return copies;
 	}
 
+	@JsonProperty(LANE)
 	public void setLane(Integer lane) {
 		this.lane = lane;
 	}
 
+	@JsonProperty(LANE)
 	public Integer getLane() {
 		return lane;
 	}
 
+	@JsonProperty(ID)
 	public void setId(java.lang.String id) {
-		this.id = id;
+		this.id = NodeIds.intern(id);
 	}
 
+	@JsonProperty(ID)
 	public String getId() {
 		return id;
 	}
 
+	/**
+	 * @return the status of the node when it has a well-known one, or null
+	 */
+	public NodeStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return the type of the node when it has a well-known one, or null
+	 */
+	public NodeType getNodeType() {
+		return type;
+	}
+
+	/**
+	 * @return whether the node is {@link #STALE}
+	 */
+	public boolean isStale() {
+		return Boolean.TRUE.equals(stale);
+	}
+
+	/**
+	 * @return the ids of the nodes this node links to, as a set writing through to this node
+	 */
 	public Set<String> getLinkedToNodeIds() {
-		if (linkedToNodeIds == null) {
-			return new HashSet<>();
-		}
-		return linkedToNodeIds;
+		return new Links(true);
 	}
 
 	public void setLinkedToNodeIds(Set<String> linkedToNodeIds) {
-		this.linkedToNodeIds = linkedToNodeIds;
+		linkedTo = NO_LINKS;
+		linkedToCount = 0;
+		if (linkedToNodeIds != null) {
+			getLinkedToNodeIds().addAll(linkedToNodeIds);
+		}
 	}
 
+	/**
+	 * @return the ids of the nodes linking to this node, as a set writing through to this node
+	 */
 	public Set<String> getLinkedFromNodeIds() {
-		if (linkedFromNodeIds == null) {
-			return new HashSet<>();
-		}
-		return linkedFromNodeIds;
+		return new Links(false);
 	}
 
 	public void setLinkedFromNodeIds(Set<String> linkedFromNodeIds) {
-		this.linkedFromNodeIds = linkedFromNodeIds;
+		linkedFrom = NO_LINKS;
+		linkedFromCount = 0;
+		if (linkedFromNodeIds != null) {
+			getLinkedFromNodeIds().addAll(linkedFromNodeIds);
+		}
 	}
 
+	/**
+	 * @return the details of the node, as a map writing through to this node
+	 */
 	public Map<String, Object> getDetails() {
 		if (details == null) {
-			return new HashMap<>();
+			details = new Details();
 		}
 		return details;
 	}
 
 	public void setDetails(Map<String, Object> details) {
-		this.details = details;
+		status = null;
+		type = null;
+		group = null;
+		stale = null;
+		otherDetails = null;
+		if (details != null) {
+			details.forEach(this::addDetail);
+		}
 	}
 
 	public void addDetail(String key, Object value) {
-		details.put(key, value);
+		clearTypedDetail(key);
+		if (value == null || !setTypedDetail(key, value)) {
+			if (otherDetails == null) {
+				otherDetails = new HashMap<>(4);
+			}
+			otherDetails.put(key, value);
+		} else if (otherDetails != null) {
+			otherDetails.remove(key);
+		}
 	}
 
 	public void mergeWith(Node node) {
 		if (lane == null) {
 			lane = node.getLane();
 		}
-		if (linkedToNodeIds == null) {
-			linkedToNodeIds = node.getLinkedToNodeIds();
-		} else {
-			linkedToNodeIds.addAll(node.getLinkedToNodeIds());
+		for (int i = 0; i < node.linkedToCount; i++) {
+			addLink(true, node.linkedTo[i]);
 		}
-		if (linkedFromNodeIds == null) {
-			linkedFromNodeIds = node.getLinkedFromNodeIds();
-		} else {
-			linkedFromNodeIds.addAll(node.getLinkedFromNodeIds());
+		for (int i = 0; i < node.linkedFromCount; i++) {
+			addLink(false, node.linkedFrom[i]);
 		}
-		if (details == null) {
-			details = node.getDetails();
+		// Details of this node are kept, except for the status which becomes the most telling one
+		Object ownStatus = getDetail(STATUS);
+		Object otherStatus = node.getDetail(STATUS);
+		if (ownStatus != null && otherStatus != null) {
+			if ("DOWN".equals(ownStatus) || "DOWN".equals(otherStatus)) {
+				addDetail(STATUS, NodeStatus.DOWN.name());
+			} else if ("UP".equals(ownStatus) || "UP".equals(otherStatus)) {
+				addDetail(STATUS, NodeStatus.UP.name());
+			} else {
+				addDetail(STATUS, NodeStatus.UNKNOWN.name());
+			}
+		}
+	}
+
+	private Object getTypedDetail(String key) {
+		switch (key) {
+			case STATUS:
+				return status != null ? status.name() : null;
+			case TYPE:
+				return type != null ? type.name() : null;
+			case GROUP:
+				return group;
+			case STALE:
+				return stale;
+			default:
+				return null;
+		}
+	}
+
+	private boolean setTypedDetail(String key, Object value) {
+		switch (key) {
+			case STATUS:
+				status = value instanceof String ? NodeStatus.of(value) : null;
+				return status != null;
+			case TYPE:
+				type = value instanceof String ? NodeType.of(value) : null;
+				return type != null;
+			case GROUP:
+				group = value instanceof String ? (String) value : null;
+				return group != null;
+			case STALE:
+				stale = value instanceof Boolean ? (Boolean) value : null;
+				return stale != null;
+			default:
+				return false;
+		}
+	}
+
+	private void clearTypedDetail(String key) {
+		switch (key) {
+			case STATUS:
+				status = null;
+				break;
+			case TYPE:
+				type = null;
+				break;
+			case GROUP:
+				group = null;
+				break;
+			case STALE:
+				stale = null;
+				break;
+			default:
+		}
+	}
+
+	private Object getDetail(Object key) {
+		if (!(key instanceof String)) {
+			return null;
+		}
+		Object value = getTypedDetail((String) key);
+		if (value != null) {
+			return value;
+		}
+		return otherDetails != null ? otherDetails.get(key) : null;
+	}
+
+	private List<String> getDetailKeys() {
+		List<String> keys = new ArrayList<>(4 + (otherDetails != null ? otherDetails.size() : 0));
+		for (String key : new String[] { STATUS, TYPE, GROUP, STALE }) {
+			if (getTypedDetail(key) != null) {
+				keys.add(key);
+			}
+		}
+		if (otherDetails != null) {
+			keys.addAll(otherDetails.keySet());
+		}
+		return keys;
+	}
+
+	private int getDetailCount() {
+		int count = otherDetails != null ? otherDetails.size() : 0;
+		if (status != null) {
+			count++;
+		}
+		if (type != null) {
+			count++;
+		}
+		if (group != null) {
+			count++;
+		}
+		if (stale != null) {
+			count++;
+		}
+		return count;
+	}
+
+	private String[] links(boolean to) {
+		return to ? linkedTo : linkedFrom;
+	}
+
+	private int linkCount(boolean to) {
+		return to ? linkedToCount : linkedFromCount;
+	}
+
+	private int findLink(boolean to, String id) {
+		return Arrays.binarySearch(links(to), 0, linkCount(to), id);
+	}
+
+	private boolean addLink(boolean to, String id) {
+		int position = findLink(to, id);
+		if (position >= 0) {
+			return false;
+		}
+		position = -position - 1;
+		String[] links = links(to);
+		int count = linkCount(to);
+		if (count == links.length) {
+			links = Arrays.copyOf(links, Math.max(4, count * 2));
+		}
+		System.arraycopy(links, position, links, position + 1, count - position);
+		links[position] = id;
+		setLinks(to, links, count + 1);
+		return true;
+	}
+
+	private void removeLinkAt(boolean to, int position) {
+		String[] links = links(to);
+		int count = linkCount(to);
+		System.arraycopy(links, position + 1, links, position, count - position - 1);
+		links[count - 1] = null;
+		setLinks(to, links, count - 1);
+	}
+
+	private void setLinks(boolean to, String[] links, int count) {
+		if (to) {
+			linkedTo = links;
+			linkedToCount = count;
 		} else {
-			details.forEach((k, v) -> {
-				if (v != null) {
-					if (k.equals(STATUS)) {
-						if (node.getDetails().get(k) != null) {
-							details.merge(k, node.getDetails().get(k), (v1, v2) -> {
-								if ("DOWN".equals(v1) || "DOWN".equals(v2)) {
-									return "DOWN";
-								} else if ("UP".equals(v1) || "UP".equals(v2)) {
-									return "UP";
-								} else {
-									return "UNKNOWN";
-								}
-							});
-						}
-					} else {
-						if (node.getDetails().get(k) != null) {
-							details.merge(k, node.getDetails().get(k), (v1, v2) -> v1);
-						}
-					}
-				}
-			});
+			linkedFrom = links;
+			linkedFromCount = count;
 		}
 	}
 
+	@JsonProperty(DETAILS)
+	private Map<String, Object> getDetailsForJson() {
+		return new HashMap<>(getDetails());
+	}
+
+	@JsonProperty(DETAILS)
+	private void setDetailsFromJson(Map<String, Object> details) {
+		setDetails(details);
+	}
+
+	@JsonProperty(LINKED_TO_NODE_IDS)
+	private Set<String> getLinkedToNodeIdsForJson() {
+		return new HashSet<>(getLinkedToNodeIds());
+	}
+
+	@JsonProperty(LINKED_TO_NODE_IDS)
+	private void setLinkedToNodeIdsFromJson(Set<String> linkedToNodeIds) {
+		setLinkedToNodeIds(linkedToNodeIds);
+	}
+
+	@JsonProperty(LINKED_FROM_NODE_IDS)
+	private Set<String> getLinkedFromNodeIdsForJson() {
+		return new HashSet<>(getLinkedFromNodeIds());
+	}
+
+	@JsonProperty(LINKED_FROM_NODE_IDS)
+	private void setLinkedFromNodeIdsFromJson(Set<String> linkedFromNodeIds) {
+		setLinkedFromNodeIds(linkedFromNodeIds);
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -170,12 +444,22 @@ public class Node {
 		Node node = (Node) o;
 
 		if (!id.equals(node.id)) return false;
-		if (details != null ? !details.equals(node.details) : node.details != null) return false;
+		if (!getDetails().equals(node.getDetails())) return false;
 		if (lane != null ? !lane.equals(node.lane) : node.lane != null) return false;
-		if (linkedToNodeIds != null ? !linkedToNodeIds.equals(node.linkedToNodeIds) : node.linkedToNodeIds != null)
-			return false;
-		return !(linkedFromNodeIds != null ? !linkedFromNodeIds.equals(node.linkedFromNodeIds) : node.linkedFromNodeIds != null);
+		return sameLinks(linkedTo, linkedToCount, node.linkedTo, node.linkedToCount)
+				&& sameLinks(linkedFrom, linkedFromCount, node.linkedFrom, node.linkedFromCount);
+	}
 
+	private static boolean sameLinks(String[] links, int count, String[] otherLinks, int otherCount) {
+		if (count != otherCount) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (!links[i].equals(otherLinks[i])) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	@Override
@@ -187,10 +471,175 @@ public class Node {
 	public String toString() {
 		return "Node{" +
 				"id='" + id + '\'' +
-				", details=" + details +
+				", details=" + getDetails() +
 				", lane=" + lane +
-				", linkedToNodeIds=" + linkedToNodeIds +
-				", linkedFromNodeIds=" + linkedFromNodeIds +
+				", linkedToNodeIds=" + getLinkedToNodeIds() +
+				", linkedFromNodeIds=" + getLinkedFromNodeIds() +
 				'}';
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The details of the node as a map.
+	 */
+	private final class Details extends AbstractMap<String, Object> {
+
+		@Override
+		public Object get(Object key) {
+			return getDetail(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return getDetail(key) != null || otherDetails != null && otherDetails.containsKey(key);
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			Object previous = getDetail(key);
+			addDetail(key, value);
+			return previous;
+		}
+
+		@Override
+		public Object remove(Object key) {
+			Object previous = getDetail(key);
+			if (key instanceof String) {
+				clearTypedDetail((String) key);
+			}
+			if (otherDetails != null) {
+				otherDetails.remove(key);
+			}
+			return previous;
+		}
+
+		@Override
+		public void clear() {
+			setDetails(null);
+		}
+
+		@Override
+		public int size() {
+			return getDetailCount();
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return new AbstractSet<Entry<String, Object>>() {
+
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					Iterator<String> keys = getDetailKeys().iterator();
+					return new Iterator<Entry<String, Object>>() {
+
+						private String key;
+
+						@Override
+						public boolean hasNext() {
+							return keys.hasNext();
+						}
+
+						@Override
+						public Entry<String, Object> next() {
+							key = keys.next();
+							return new SimpleEntry<String, Object>(key, getDetail(key)) {
+								@Override
+								public Object setValue(Object value) {
+									super.setValue(value);
+									return put(getKey(), value);
+								}
+							};
+						}
+
+						@Override
+						public void remove() {
+							if (key == null) {
+								throw new IllegalStateException();
+							}
+							Details.this.remove(key);
+							key = null;
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return Details.this.size();
+				}
+			};
+		}
+	}
+
+	/**
+	 * The ids of the nodes linked to or from the node as a set.
+	 */
+	private final class Links extends AbstractSet<String> {
+
+		private final boolean to;
+
+		private Links(boolean to) {
+			this.to = to;
+		}
+
+		@Override
+		public boolean contains(Object id) {
+			return id instanceof String && findLink(to, (String) id) >= 0;
+		}
+
+		@Override
+		public boolean add(String id) {
+			return addLink(to, NodeIds.intern(id));
+		}
+
+		@Override
+		public boolean remove(Object id) {
+			int position = id instanceof String ? findLink(to, (String) id) : -1;
+			if (position < 0) {
+				return false;
+			}
+			removeLinkAt(to, position);
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			setLinks(to, NO_LINKS, 0);
+		}
+
+		@Override
+		public int size() {
+			return linkCount(to);
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return new Iterator<String>() {
+
+				private int position;
+				private boolean removable;
+
+				@Override
+				public boolean hasNext() {
+					return position < linkCount(to);
+				}
+
+				@Override
+				public String next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					removable = true;
+					return links(to)[position++];
+				}
+
+				@Override
+				public void remove() {
+					if (!removable) {
+						throw new IllegalStateException();
+					}
+					removeLinkAt(to, --position);
+					removable = false;
+				}
+			};
+		}
+	}
+}
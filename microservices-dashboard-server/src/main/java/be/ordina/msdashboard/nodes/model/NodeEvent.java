@@ -15,8 +15,6 @@
  */
 package be.ordina.msdashboard.nodes.model;
 
-import org.apache.commons.lang3.builder.CompareToBuilder;
-
 import java.io.Serializable;
 
 /**
@@ -63,11 +61,6 @@ public class NodeEvent extends SystemEvent implements Serializable {
         return result;
     }
 
-    @Override
-    public int compareTo(Object o) {
-        return CompareToBuilder.reflectionCompare(this, o);
-    }
-
     @Override
     public String toString() {
         return "NodeEvent{" +
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.model;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Weak interner of node ids, so the nodes of a graph share a single instance
+ * of every id they hold or link to.
+ * <p>
+ * Ids are only weakly held, so the id of a node which left the graph is
+ * forgotten once no node refers to it anymore. Interning never changes what
+ * an id equals, so nodes never depend on ids interned before.
+ */
+final class NodeIds {
+
+	private static final Interner<String> ids = Interners.newWeakInterner();
+
+	private NodeIds() {
+	}
+
+	/**
+	 * @return the single instance of the id, or null for a null id
+	 */
+	static String intern(String id) {
+		return id != null ? ids.intern(id) : null;
+	}
+}
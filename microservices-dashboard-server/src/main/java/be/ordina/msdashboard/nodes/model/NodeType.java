@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.model;
+
+/**
+ * Well-known values of the {@link Node#TYPE} detail of a node, as listed in
+ * {@link NodeTypes}.
+ */
+public enum NodeType {
+
+	BACKEND,
+	MICROSERVICE,
+	RESOURCE,
+	UI_COMPONENT;
+
+	private static final NodeType[] VALUES = values();
+
+	/**
+	 * @param value the value of a type detail
+	 * @return the type named by the value, or null when it names none
+	 */
+	public static NodeType of(Object value) {
+		if (value instanceof NodeType) {
+			return (NodeType) value;
+		}
+		for (NodeType type : VALUES) {
+			if (type.name().equals(value)) {
+				return type;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.model;
+
+/**
+ * Severity of a {@link SystemEvent}, from least to most severe.
+ */
+public enum Severity {
+
+    INFO,
+    WARNING,
+    ERROR;
+
+    /**
+     * @param minimum the least severe severity to accept, or null to accept all
+     * @return whether this severity is at least as severe as the given one
+     */
+    public boolean isAtLeast(Severity minimum) {
+        return minimum == null || compareTo(minimum) >= 0;
+    }
+}
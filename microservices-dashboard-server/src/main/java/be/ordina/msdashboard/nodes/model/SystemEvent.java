@@ -15,8 +15,6 @@
  */
 package be.ordina.msdashboard.nodes.model;
 
-import org.apache.commons.lang3.builder.CompareToBuilder;
-
 import java.io.Serializable;
 import java.util.Objects;
 
@@ -31,6 +29,10 @@ public class SystemEvent implements Serializable, Comparable {
 
     private String message;
     private Throwable throwable;
+    private long timestamp = System.currentTimeMillis();
+    private long lastTimestamp = timestamp;
+    private long sequence = -1;
+    private int count = 1;
 
     public SystemEvent(String message) {
         this.message = message;
@@ -57,6 +59,59 @@ public class SystemEvent implements Serializable, Comparable {
         this.throwable = throwable;
     }
 
+    /**
+     * Time at which the event first occurred.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Time at which the event last occurred, later than {@link #getTimestamp()}
+     * when it got repeated.
+     */
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public void setLastTimestamp(long lastTimestamp) {
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    /**
+     * Position of the event in the store, -1 while it has not been stored.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Number of times the event occurred.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    /**
+     * Severity of the event, an error when it was caused by a throwable and a
+     * warning otherwise.
+     */
+    public Severity getSeverity() {
+        return throwable != null ? Severity.ERROR : Severity.WARNING;
+    }
+
     @Override
     public boolean equals(Object o) {
         return Objects.deepEquals(this, o);
@@ -69,7 +124,9 @@ public class SystemEvent implements Serializable, Comparable {
 
     @Override
     public int compareTo(Object o) {
-        return CompareToBuilder.reflectionCompare(this, o);
+        SystemEvent other = (SystemEvent) o;
+        int result = Long.compare(timestamp, other.timestamp);
+        return result != 0 ? result : Long.compare(sequence, other.sequence);
     }
 
     @Override
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.NodeEvent;
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.model.SystemEvent;
+
+import java.util.function.Predicate;
+
+/**
+ * Selects {@link SystemEvent}s by node, minimum severity and type, each of
+ * which is optional.
+ */
+public class EventFilter implements Predicate<SystemEvent> {
+
+    /**
+     * Filter accepting all events.
+     */
+    public static final EventFilter ALL = new EventFilter(null, null, null);
+
+    private final String nodeId;
+    private final Severity severity;
+    private final String type;
+
+    /**
+     * @param nodeId the id of the node of the events, or null for all events
+     * @param severity the minimum severity of the events, or null for all events
+     * @param type the simple name of the class of the events or one of its
+     *             superclasses, ignoring case, or null for all events
+     */
+    public EventFilter(String nodeId, Severity severity, String type) {
+        this.nodeId = nodeId;
+        this.severity = severity;
+        this.type = type;
+    }
+
+    @Override
+    public boolean test(SystemEvent event) {
+        if (nodeId != null && !(event instanceof NodeEvent && nodeId.equals(((NodeEvent) event).getNodeId()))) {
+            return false;
+        }
+        return event.getSeverity().isAtLeast(severity) && (type == null || isOfType(event.getClass()));
+    }
+
+    private boolean isOfType(Class<?> eventClass) {
+        for (Class<?> current = eventClass; current != null; current = current.getSuperclass()) {
+            if (type.equalsIgnoreCase(current.getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
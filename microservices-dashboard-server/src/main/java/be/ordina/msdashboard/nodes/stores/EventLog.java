@@ -0,0 +1,176 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.SystemEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * History of all {@link SystemEvent}s, appended to a log on the local disk.
+ * <p>
+ * The log is split in segments of a fixed size, each being a memory-mapped
+ * file named after the time of its first event. A sparse index next to every
+ * segment holds the time of an event every few kilobytes, so the events within
+ * a time range are found by reading little more than those events. The time of
+ * an event is never before the time of the event appended before it, so the
+ * events of the log are in time order.
+ * <p>
+ * The oldest segments are deleted when the log exceeds its maximum size, or
+ * when all of their events are older than the maximum age. Events are written
+ * to disk when a segment is full and when the log is closed, leaving the
+ * operating system to write them in between.
+ */
+public class EventLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventLog.class);
+
+    private static final long RETENTION_CHECK_INTERVAL = 60000;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int indexInterval;
+    private final long maxSize;
+    private final long maxAge;
+    private final List<EventLogSegment> segments = new CopyOnWriteArrayList<>();
+    private long lastTimestamp;
+    private long lastRetentionCheck;
+
+    public EventLog(EventLogProperties properties) throws IOException {
+        this.directory = Paths.get(properties.getDirectory());
+        this.segmentSize = properties.getSegmentSize();
+        this.indexInterval = properties.getIndexInterval();
+        this.maxSize = properties.getMaxSize();
+        this.maxAge = properties.getMaxAge();
+        Files.createDirectories(directory);
+        List<Path> logFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EventLogSegment.LOG_SUFFIX)) {
+            files.forEach(logFiles::add);
+        }
+        logFiles.sort(null);
+        for (Path logFile : logFiles) {
+            EventLogSegment segment = EventLogSegment.open(logFile, indexInterval);
+            segments.add(segment);
+            lastTimestamp = Math.max(lastTimestamp, segment.getLastTimestamp());
+        }
+        applyRetention(System.currentTimeMillis());
+    }
+
+    @org.springframework.context.event.EventListener
+    public void handleEvent(SystemEvent event) {
+        append(event);
+    }
+
+    /**
+     * Appends the event to the log, logging a warning when it can't be written.
+     */
+    public synchronized void append(SystemEvent event) {
+        long timestamp = Math.max(event.getTimestamp(), lastTimestamp);
+        try {
+            byte[] record = EventLogSegment.encode(EventRecord.of(event, timestamp));
+            EventLogSegment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || !segment.append(timestamp, record)) {
+                if (segment != null) {
+                    segment.flush();
+                }
+                segment = EventLogSegment.create(directory, nextBaseTimestamp(timestamp), segmentSize, indexInterval);
+                segments.add(segment);
+                applyRetention(timestamp);
+                if (!segment.append(timestamp, record)) {
+                    logger.warn("Event of {} bytes does not fit in a segment of the event log", record.length);
+                    return;
+                }
+            }
+            lastTimestamp = timestamp;
+            if (timestamp - lastRetentionCheck >= RETENTION_CHECK_INTERVAL) {
+                applyRetention(timestamp);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not append event to the event log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the events of the log within the given time range, oldest first.
+     *
+     * @param from the time from which to return events, inclusive
+     * @param to the time until which to return events, inclusive
+     * @param limit the maximum number of events to return
+     */
+    public List<EventRecord> getEvents(long from, long to, int limit) {
+        List<EventRecord> records = new ArrayList<>();
+        for (EventLogSegment segment : segments) {
+            if (records.size() >= limit) {
+                break;
+            }
+            if (segment.isEmpty() || segment.getLastTimestamp() < from) {
+                continue;
+            }
+            if (segment.getFirstTimestamp() > to || segment.read(from, to, limit, records)) {
+                break;
+            }
+        }
+        return records;
+    }
+
+    private long nextBaseTimestamp(long timestamp) {
+        return segments.isEmpty() ? timestamp
+                : Math.max(timestamp, segments.get(segments.size() - 1).getBaseTimestamp() + 1);
+    }
+
+    /**
+     * Deletes the oldest segments exceeding the maximum size or age, but never
+     * the segment being appended to.
+     */
+    private synchronized void applyRetention(long now) {
+        lastRetentionCheck = now;
+        long size = 0;
+        for (EventLogSegment segment : segments) {
+            size += segment.getCapacity();
+        }
+        while (segments.size() > 1) {
+            EventLogSegment oldest = segments.get(0);
+            boolean expired = maxAge > 0 && (oldest.isEmpty() || oldest.getLastTimestamp() < now - maxAge);
+            if (size <= maxSize && !expired) {
+                break;
+            }
+            segments.remove(0);
+            size -= oldest.getCapacity();
+            try {
+                oldest.delete();
+            } catch (IOException e) {
+                logger.warn("Could not delete segment of the event log: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (EventLogSegment segment : segments) {
+            segment.close();
+        }
+    }
+}
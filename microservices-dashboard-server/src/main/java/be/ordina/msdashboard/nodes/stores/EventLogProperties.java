@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+/**
+ * Properties for appending {@link be.ordina.msdashboard.nodes.model.SystemEvent}s
+ * to the {@link EventLog} on the local disk.
+ */
+public class EventLogProperties {
+
+    /**
+     * Whether to keep the history of all events in a log on the local disk.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory holding the segments of the log.
+     */
+    private String directory = "event-log";
+
+    /**
+     * Size in bytes of a single segment of the log, allocated up front.
+     */
+    private int segmentSize = 16 * 1024 * 1024;
+
+    /**
+     * Number of bytes of events after which the time of the next event is
+     * indexed, so a time range is found without reading all events.
+     */
+    private int indexInterval = 4096;
+
+    /**
+     * Maximum size in bytes of the log files of all segments, the oldest
+     * segments are deleted once it is exceeded. The indexes next to the log
+     * files are not counted.
+     */
+    private long maxSize = 256L * 1024 * 1024;
+
+    /**
+     * Time in milliseconds after which segments of which all events are older
+     * are deleted, 0 to keep them until the maximum size is exceeded.
+     */
+    private long maxAge = 7L * 24 * 60 * 60 * 1000;
+
+    /**
+     * Maximum number of events returned by a single request for the history.
+     */
+    private int maxLimit = 10000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public int getIndexInterval() {
+        return indexInterval;
+    }
+
+    public void setIndexInterval(int indexInterval) {
+        this.indexInterval = indexInterval;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+}
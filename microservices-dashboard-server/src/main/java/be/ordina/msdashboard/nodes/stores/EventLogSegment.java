@@ -0,0 +1,293 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Severity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A single segment of the {@link EventLog}: a memory-mapped file of records
+ * appended in time order, along with a memory-mapped sparse index holding the
+ * time and position of a record every {@code indexInterval} bytes.
+ * <p>
+ * Every record is prefixed with its length, which is written after the record
+ * itself, so a record with a length is complete and a length of 0 marks the
+ * end of the segment. A segment is only appended to by a single thread, while
+ * any thread can read the records appended before.
+ */
+final class EventLogSegment implements Closeable {
+
+    static final String LOG_SUFFIX = ".log";
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+    private static final Severity[] SEVERITIES = Severity.values();
+
+    private final Path logFile;
+    private final Path indexFile;
+    private final long baseTimestamp;
+    private final int indexInterval;
+    private final FileChannel logChannel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer log;
+    private final MappedByteBuffer index;
+    private volatile int size;
+    private volatile int indexEntries;
+    private volatile long firstTimestamp;
+    private volatile long lastTimestamp;
+    private int lastIndexedPosition;
+
+    private EventLogSegment(Path directory, long baseTimestamp, int segmentSize, int indexInterval) throws IOException {
+        this.logFile = directory.resolve(fileName(baseTimestamp, LOG_SUFFIX));
+        this.indexFile = directory.resolve(fileName(baseTimestamp, INDEX_SUFFIX));
+        this.baseTimestamp = baseTimestamp;
+        this.indexInterval = indexInterval;
+        this.logChannel = FileChannel.open(logFile, CREATE, READ, WRITE);
+        this.indexChannel = FileChannel.open(indexFile, CREATE, READ, WRITE);
+        int logSize = Files.size(logFile) > 0 ? (int) Files.size(logFile) : segmentSize;
+        this.log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, logSize);
+        this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                (long) (logSize / indexInterval + 1) * INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * Creates a new empty segment, of which the files are named after the given timestamp.
+     */
+    static EventLogSegment create(Path directory, long baseTimestamp, int segmentSize, int indexInterval)
+            throws IOException {
+        return new EventLogSegment(directory, baseTimestamp, segmentSize, indexInterval);
+    }
+
+    /**
+     * Opens an existing segment, finding its end from the last indexed record.
+     */
+    static EventLogSegment open(Path logFile, int indexInterval) throws IOException {
+        String name = logFile.getFileName().toString();
+        long baseTimestamp = Long.parseLong(name.substring(0, name.length() - LOG_SUFFIX.length()));
+        EventLogSegment segment = new EventLogSegment(logFile.getParent(), baseTimestamp, 0, indexInterval);
+        segment.recover();
+        return segment;
+    }
+
+    static String fileName(long baseTimestamp, String suffix) {
+        return String.format("%019d%s", baseTimestamp, suffix);
+    }
+
+    private void recover() {
+        int entries = 0;
+        while ((entries + 1) * INDEX_ENTRY_SIZE <= index.capacity() && index.getLong(entries * INDEX_ENTRY_SIZE) != 0) {
+            entries++;
+        }
+        int position = 0;
+        if (entries > 0) {
+            firstTimestamp = index.getLong(0);
+            position = index.getInt((entries - 1) * INDEX_ENTRY_SIZE + Long.BYTES);
+            lastIndexedPosition = position;
+        }
+        while (position + Integer.BYTES <= log.capacity()) {
+            int length = log.getInt(position);
+            if (length <= 0 || position + Integer.BYTES + length > log.capacity()) {
+                break;
+            }
+            lastTimestamp = log.getLong(position + Integer.BYTES);
+            position += Integer.BYTES + length;
+        }
+        indexEntries = entries;
+        size = position;
+    }
+
+    /**
+     * Appends a record, unless the segment is too full to hold it.
+     *
+     * @param timestamp the time of the record, not before the time of the last record
+     * @param record the record, starting with its time
+     * @return whether the record was appended
+     */
+    boolean append(long timestamp, byte[] record) {
+        int position = size;
+        if (position + Integer.BYTES + record.length > log.capacity()) {
+            return false;
+        }
+        ByteBuffer buffer = log.duplicate();
+        buffer.position(position + Integer.BYTES);
+        buffer.put(record);
+        log.putInt(position, record.length);
+        if (indexEntries == 0 || position - lastIndexedPosition >= indexInterval) {
+            int entry = indexEntries * INDEX_ENTRY_SIZE;
+            index.putLong(entry, timestamp);
+            index.putInt(entry + Long.BYTES, position);
+            lastIndexedPosition = position;
+            if (indexEntries == 0) {
+                firstTimestamp = timestamp;
+            }
+            indexEntries++;
+        }
+        lastTimestamp = timestamp;
+        size = position + Integer.BYTES + record.length;
+        return true;
+    }
+
+    /**
+     * Reads the records within the given time range, oldest first.
+     *
+     * @return whether records after the time range were found, so later
+     * segments don't need to be read
+     */
+    boolean read(long from, long to, int limit, List<EventRecord> records) {
+        int end = size;
+        ByteBuffer buffer = log.duplicate();
+        int position = findPosition(from);
+        while (position + Integer.BYTES <= end && records.size() < limit) {
+            int length = buffer.getInt(position);
+            long timestamp = buffer.getLong(position + Integer.BYTES);
+            if (timestamp > to) {
+                return true;
+            }
+            if (timestamp >= from) {
+                records.add(decode(buffer, position + Integer.BYTES));
+            }
+            position += Integer.BYTES + length;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the position of the last indexed record before the given time, as
+     * all records before it are before that time as well.
+     */
+    private int findPosition(long from) {
+        int low = 0;
+        int high = indexEntries - 1;
+        int position = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (index.getLong(middle * INDEX_ENTRY_SIZE) < from) {
+                position = index.getInt(middle * INDEX_ENTRY_SIZE + Long.BYTES);
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return position;
+    }
+
+    static byte[] encode(EventRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(record.getTimestamp());
+        out.writeByte(record.getSeverity().ordinal());
+        writeString(out, record.getType());
+        writeString(out, record.getNodeId());
+        writeString(out, record.getMessage());
+        writeString(out, record.getCause());
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static EventRecord decode(ByteBuffer buffer, int position) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(position);
+        long timestamp = in.getLong();
+        Severity severity = SEVERITIES[in.get()];
+        return new EventRecord(timestamp, severity, readString(in), readString(in), readString(in), readString(in));
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    long getBaseTimestamp() {
+        return baseTimestamp;
+    }
+
+    long getFirstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of bytes the records of the segment take on disk, not
+     * counting the index, which is a small fraction of that
+     */
+    long getCapacity() {
+        return log.capacity();
+    }
+
+    /**
+     * Writes the appended records to disk.
+     */
+    void flush() {
+        log.force();
+        index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        logChannel.close();
+        indexChannel.close();
+    }
+
+    /**
+     * Closes and deletes the files of the segment. The files are not unmapped
+     * explicitly, as a reader may still be reading the segment: the mappings
+     * are released once the segment is garbage collected, and only then does
+     * the operating system free the disk space of the deleted files.
+     */
+    void delete() throws IOException {
+        logChannel.close();
+        indexChannel.close();
+        Files.deleteIfExists(logFile);
+        Files.deleteIfExists(indexFile);
+    }
+}
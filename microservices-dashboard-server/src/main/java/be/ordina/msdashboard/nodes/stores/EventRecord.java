@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.NodeEvent;
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.model.SystemEvent;
+
+import java.io.Serializable;
+
+/**
+ * A {@link SystemEvent} as kept in the {@link EventLog}.
+ */
+public class EventRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long timestamp;
+    private final Severity severity;
+    private final String type;
+    private final String nodeId;
+    private final String message;
+    private final String cause;
+
+    public EventRecord(long timestamp, Severity severity, String type, String nodeId, String message, String cause) {
+        this.timestamp = timestamp;
+        this.severity = severity;
+        this.type = type;
+        this.nodeId = nodeId;
+        this.message = message;
+        this.cause = cause;
+    }
+
+    /**
+     * @param event the event to keep
+     * @param timestamp the time at which the event is kept
+     * @return the record of the event, holding the description of its throwable
+     */
+    public static EventRecord of(SystemEvent event, long timestamp) {
+        String nodeId = event instanceof NodeEvent ? ((NodeEvent) event).getNodeId() : null;
+        String cause = event.getThrowable() != null ? event.getThrowable().toString() : null;
+        return new EventRecord(timestamp, event.getSeverity(), event.getClass().getSimpleName(), nodeId,
+                event.getMessage(), cause);
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    /**
+     * Simple name of the class of the event.
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Description of the throwable of the event.
+     */
+    public String getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return "EventRecord{" +
+                "timestamp=" + timestamp +
+                ", severity=" + severity +
+                ", type='" + type + '\'' +
+                ", nodeId='" + nodeId + '\'' +
+                ", message='" + message + '\'' +
+                ", cause='" + cause + '\'' +
+                '}';
+    }
+}
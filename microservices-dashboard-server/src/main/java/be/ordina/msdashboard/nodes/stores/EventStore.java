@@ -15,30 +15,224 @@
  */
 package be.ordina.msdashboard.nodes.stores;
 
+import be.ordina.msdashboard.nodes.model.NodeEvent;
 import be.ordina.msdashboard.nodes.model.SystemEvent;
 
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Store for {@link SystemEvent}s, populated by an
  * {@link org.springframework.context.event.EventListener} emitting events.
+ * <p>
+ * Events are kept in a fixed-capacity ring buffer in the order in which they
+ * were stored, each one getting the next sequence number, so the oldest events
+ * are overwritten once the capacity is reached. An event repeating one that is
+ * still kept, having the same type, node, message and cause, only increments the
+ * count of the kept one. The number of events kept per node can be limited as
+ * well, so a single flapping node can't push out the events of all others.
+ * <p>
+ * Sequence numbers are handed out before the events are stored, so an event
+ * only becomes visible once all events before it have been stored, up to the
+ * published watermark returned by {@link #getLastSequence()}.
+ * <p>
+ * Listeners are notified of every newly stored event, but not of repeats.
  *
  * @author Andreas Evers
  */
 public class EventStore {
 
-    private ConcurrentSkipListSet<SystemEvent> events = new ConcurrentSkipListSet<>();
+    private final AtomicReferenceArray<Entry> events;
+    private final int mask;
+    private final int maxEventsPerNode;
+    private final int pageSize;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final Map<String, Entry> repeatable = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Entry>> eventsPerNode = new ConcurrentHashMap<>();
+    private final List<Consumer<SystemEvent>> listeners = new CopyOnWriteArrayList<>();
+    private volatile long deletedBefore;
+
+    public EventStore() {
+        this(new EventStoreProperties());
+    }
+
+    public EventStore(EventStoreProperties properties) {
+        int capacity = Integer.highestOneBit(Math.max(properties.getCapacity(), 1) * 2 - 1);
+        this.events = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.maxEventsPerNode = properties.getMaxEventsPerNode();
+        this.pageSize = properties.getPageSize();
+    }
 
     @org.springframework.context.event.EventListener
     public void handleContextRefresh(SystemEvent event) {
-        events.add(event);
+        String key = keyOf(event);
+        Entry entry = repeatable.compute(key,
+                (k, kept) -> kept != null && kept.repeat(event) ? kept : new Entry(sequence.getAndIncrement(), k, event));
+        if (entry.event != event) {
+            return;
+        }
+        Entry overwritten = events.getAndSet(indexOf(entry.sequence), entry);
+        if (overwritten != null) {
+            drop(overwritten);
+        }
+        publish();
+        String nodeId = nodeIdOf(event);
+        if (nodeId != null && maxEventsPerNode > 0) {
+            Queue<Entry> nodeEvents = eventsPerNode.computeIfAbsent(nodeId, id -> new ConcurrentLinkedQueue<>());
+            nodeEvents.add(entry);
+            if (nodeEvents.size() > maxEventsPerNode) {
+                Entry oldest = nodeEvents.poll();
+                if (oldest != null) {
+                    drop(oldest);
+                }
+            }
+        }
+        for (Consumer<SystemEvent> listener : listeners) {
+            listener.accept(event);
+        }
+    }
+
+    public void addListener(Consumer<SystemEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<SystemEvent> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of events in a page when no limit is requested.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the sequence number of the last published event, or -1 when no
+     * event has been published yet. All events up to and including it have been
+     * stored, even when they were stored concurrently.
+     */
+    public long getLastSequence() {
+        return published.get() - 1;
+    }
+
+    /**
+     * Returns all kept events, oldest first.
+     */
+    public Collection<SystemEvent> getEvents() {
+        return getEvents(-1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns at most {@code limit} kept events stored after the given sequence
+     * number, oldest first. The sequence number of the last event returned is
+     * the cursor for the next page.
+     */
+    public List<SystemEvent> getEvents(long since, int limit) {
+        return getEvents(since, limit, EventFilter.ALL);
     }
 
-    public ConcurrentSkipListSet<SystemEvent> getEvents() {
-        return events;
+    /**
+     * Returns at most {@code limit} kept events accepted by the filter and stored
+     * after the given sequence number, oldest first. Only published events are
+     * returned, so a page never skips an event which is still being stored.
+     */
+    public List<SystemEvent> getEvents(long since, int limit, Predicate<? super SystemEvent> filter) {
+        long next = published.get();
+        long first = Math.max(Math.max(since + 1, next - events.length()), deletedBefore);
+        List<SystemEvent> page = new ArrayList<>((int) Math.min(Math.max(next - first, 0), Math.max(limit, 0)));
+        for (long current = first; current < next && page.size() < limit; current++) {
+            Entry entry = events.get(indexOf(current));
+            if (entry != null && entry.sequence == current && !entry.dropped && filter.test(entry.event)) {
+                page.add(entry.event);
+            }
+        }
+        return page;
     }
 
     public void deleteEvents() {
-        events.clear();
+        deletedBefore = sequence.get();
+        repeatable.clear();
+        eventsPerNode.clear();
+    }
+
+    /**
+     * Advances the published watermark past every stored event directly
+     * following it. Sequence numbers are handed out before their events are
+     * stored, so an event stored concurrently with a lower sequence number only
+     * becomes visible once that one has been stored as well.
+     */
+    private void publish() {
+        long next = published.get();
+        Entry entry = events.get(indexOf(next));
+        while (entry != null && entry.sequence == next) {
+            published.compareAndSet(next, next + 1);
+            next = published.get();
+            entry = events.get(indexOf(next));
+        }
+    }
+
+    private int indexOf(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    private void drop(Entry entry) {
+        entry.dropped = true;
+        repeatable.remove(entry.key, entry);
+        String nodeId = nodeIdOf(entry.event);
+        if (nodeId != null) {
+            Queue<Entry> nodeEvents = eventsPerNode.get(nodeId);
+            if (nodeEvents != null) {
+                nodeEvents.remove(entry);
+            }
+        }
+    }
+
+    private static String nodeIdOf(SystemEvent event) {
+        return event instanceof NodeEvent ? ((NodeEvent) event).getNodeId() : null;
+    }
+
+    private static String keyOf(SystemEvent event) {
+        Throwable throwable = event.getThrowable();
+        return event.getClass().getName() + '\u0000' + nodeIdOf(event) + '\u0000' + event.getMessage()
+                + '\u0000' + (throwable == null ? null : throwable.getClass().getName() + ':' + throwable.getMessage());
+    }
+
+    private static final class Entry {
+
+        private final long sequence;
+        private final String key;
+        private final SystemEvent event;
+        private final AtomicInteger count = new AtomicInteger(1);
+        private volatile boolean dropped;
+
+        private Entry(long sequence, String key, SystemEvent event) {
+            this.sequence = sequence;
+            this.key = key;
+            this.event = event;
+            event.setSequence(sequence);
+        }
+
+        private boolean repeat(SystemEvent repeated) {
+            if (dropped) {
+                return false;
+            }
+            event.setCount(count.incrementAndGet());
+            event.setLastTimestamp(Math.max(event.getLastTimestamp(), repeated.getTimestamp()));
+            return true;
+        }
     }
 }
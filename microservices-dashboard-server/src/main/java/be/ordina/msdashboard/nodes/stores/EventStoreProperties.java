@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+/**
+ * Properties for keeping {@link be.ordina.msdashboard.nodes.model.SystemEvent}s
+ * in the {@link EventStore}.
+ */
+public class EventStoreProperties {
+
+    /**
+     * Maximum number of events kept, rounded up to a power of two. The oldest
+     * events are dropped once it is reached.
+     */
+    private int capacity = 1024;
+
+    /**
+     * Maximum number of events kept per node, 0 to only be limited by the capacity.
+     */
+    private int maxEventsPerNode = 100;
+
+    /**
+     * Number of events returned per page when only a cursor is requested.
+     */
+    private int pageSize = 100;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getMaxEventsPerNode() {
+        return maxEventsPerNode;
+    }
+
+    public void setMaxEventsPerNode(int maxEventsPerNode) {
+        this.maxEventsPerNode = maxEventsPerNode;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+/**
+ * {@link NodeCodec} encoding nodes as JSON with their class name embedded, as
+ * nodes used to be stored.
+ */
+public class JsonNodeCodec implements NodeCodec {
+
+	private final GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+
+	@Override
+	public byte[] encode(final Node node) {
+
+		return serializer.serialize(node);
+	}
+
+	@Override
+	public Node decode(final byte[] bytes) {
+
+		return serializer.deserialize(bytes, Node.class);
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Node;
+
+/**
+ * Converts {@link Node}s from and to the bytes kept in a store. Implementations
+ * are thread-safe, so a single instance can be shared.
+ */
+public interface NodeCodec {
+
+	/**
+	 * @param node the node to encode
+	 * @return the encoded node
+	 * @throws org.springframework.data.redis.serializer.SerializationException when the node can not be encoded
+	 */
+	byte[] encode(Node node);
+
+	/**
+	 * @param bytes an encoded node
+	 * @return the decoded node
+	 * @throws org.springframework.data.redis.serializer.SerializationException when the bytes can not be decoded
+	 */
+	Node decode(byte[] bytes);
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * {@link RedisSerializer} storing {@link Node}s with a {@link NodeCodec}. Other
+ * values are stored as JSON.
+ */
+public class NodeRedisSerializer implements RedisSerializer<Object> {
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private final NodeCodec codec;
+
+	private final GenericJackson2JsonRedisSerializer fallback = new GenericJackson2JsonRedisSerializer();
+
+	public NodeRedisSerializer(final NodeCodec codec) {
+
+		this.codec = codec;
+	}
+
+	@Override
+	public byte[] serialize(final Object value) throws SerializationException {
+
+		if (value == null) {
+			return EMPTY;
+		}
+		return value instanceof Node ? codec.encode((Node) value) : fallback.serialize(value);
+	}
+
+	@Override
+	public Object deserialize(final byte[] bytes) throws SerializationException {
+
+		if (bytes == null || bytes.length == 0) {
+			return null;
+		}
+		return codec.decode(bytes);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of all virtual nodes kept in Redis.
+ * <p>
+ * Every {@link RedisStore} changing the virtual nodes publishes a message on
+ * {@link #INVALIDATION_CHANNEL}, on which the near caches of all dashboard
+ * instances listen to drop their nodes. The nodes are also dropped once they
+ * are older than the configured time to live, in case a message got lost.
+ */
+public class NodesNearCache implements MessageListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(NodesNearCache.class);
+
+	public static final String INVALIDATION_CHANNEL = "msdashboard:virtual-nodes";
+
+	private final long timeToLive;
+
+	private long generation;
+
+	private volatile Entry entry;
+
+	/**
+	 * @param timeToLive time in milliseconds after which the nodes are read again, 0 to keep them until invalidated
+	 */
+	public NodesNearCache(final long timeToLive) {
+
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * @param loader reads the nodes from Redis, when they are not cached
+	 * @return copies of the cached nodes
+	 */
+	public Collection<Node> get(final Supplier<Collection<Node>> loader) {
+
+		final Entry current = entry;
+		if (current != null && (timeToLive <= 0 || System.currentTimeMillis() - current.loadedAt < timeToLive)) {
+			return Node.copyAll(current.nodes);
+		}
+		final long loadingGeneration;
+		synchronized (this) {
+			loadingGeneration = generation;
+		}
+		final Collection<Node> nodes = loader.get();
+		synchronized (this) {
+			// Only keep the nodes when they were not invalidated while they were being read
+			if (generation == loadingGeneration) {
+				entry = new Entry(Collections.unmodifiableList(Node.copyAll(nodes)), System.currentTimeMillis());
+			}
+		}
+		return nodes;
+	}
+
+	public synchronized void invalidate() {
+
+		generation++;
+		entry = null;
+	}
+
+	@Override
+	public void onMessage(final Message message, final byte[] pattern) {
+
+		logger.debug("Virtual nodes changed, invalidating the near cache");
+		invalidate();
+	}
+
+	private static final class Entry {
+
+		private final List<Node> nodes;
+		private final long loadedAt;
+
+		private Entry(final List<Node> nodes, final long loadedAt) {
+
+			this.nodes = nodes;
+			this.loadedAt = loadedAt;
+		}
+	}
+}
@@ -23,13 +23,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import rx.Observable;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -45,14 +53,47 @@ public class RedisStore implements NodeCache, NodeStore {
 
 	private static final Logger logger = LoggerFactory.getLogger(RedisStore.class);
 
+	/**
+	 * Key of the hash holding all virtual nodes, when configured to use a hash.
+	 */
+	static final String HASH_KEY = "virtual-nodes";
+
+	/**
+	 * Reads the nodes given to {@link #saveNode(String)}, which carry no class name.
+	 */
+	private static final GenericJackson2JsonRedisSerializer NODE_DATA_SERIALIZER =
+			new GenericJackson2JsonRedisSerializer(new ObjectMapper());
+
 	private final RedisTemplate<String, Object> redisTemplate;
 
 	private final RedisConnectionFactory redisConnectionFactory;
 
+	private final RedisStoreProperties properties;
+
+	private final NodesNearCache nearCache;
+
 	@Autowired
 	public RedisStore(final RedisTemplate<String, Object> redisTemplate,
 	                  final RedisConnectionFactory redisConnectionFactory) {
 
+		this(redisTemplate, redisConnectionFactory, new RedisStoreProperties());
+	}
+
+	public RedisStore(final RedisTemplate<String, Object> redisTemplate,
+	                  final RedisConnectionFactory redisConnectionFactory,
+	                  final RedisStoreProperties properties) {
+
+		this(redisTemplate, redisConnectionFactory, properties, null);
+	}
+
+	/**
+	 * @param nearCache cache of the virtual nodes in front of Redis, or {@code null} to always read them from Redis
+	 */
+	public RedisStore(final RedisTemplate<String, Object> redisTemplate,
+	                  final RedisConnectionFactory redisConnectionFactory,
+	                  final RedisStoreProperties properties,
+	                  final NodesNearCache nearCache) {
+
 		if (redisTemplate == null) {
 			logger.error("RedisTemplate must not be NULL");
 		}
@@ -65,16 +106,66 @@ public class RedisStore implements NodeCache, NodeStore {
 
 		// ((JedisConnectionFactory) redisConnectionFactory).setTimeout(10000);
 		this.redisConnectionFactory = redisConnectionFactory;
+		this.properties = properties;
+		this.nearCache = nearCache;
 	}
 
 	@Override
 	public Collection<Node> getAllNodes() {
 
-		final List<Node> results = new ArrayList<>();
-		final Set<String> keys = redisTemplate.keys(KEY_PREFIX + "*");
-		for (final String key : keys) {
-			final Node node = (Node) redisTemplate.opsForValue().get(key);
-			results.add(node);
+		return nearCache != null ? nearCache.get(this::readAllNodes) : readAllNodes();
+	}
+
+	private Collection<Node> readAllNodes() {
+
+		if (properties.isHash()) {
+			final List<Node> results = new ArrayList<>();
+			for (final Object node : redisTemplate.opsForHash().values(HASH_KEY)) {
+				results.add((Node) node);
+			}
+			return results;
+		}
+		return redisTemplate.execute((RedisCallback<List<Node>>) this::scanAllNodes);
+	}
+
+	/**
+	 * Iterates the keys of the nodes with SCAN, then reads them with one MGET
+	 * per batch of keys, sending all MGETs in a single pipeline. SCAN may
+	 * return a key more than once, so the keys are deduplicated first.
+	 */
+	private List<Node> scanAllNodes(final RedisConnection connection) {
+
+		final int batchSize = Math.max(1, properties.getBatchSize());
+		final Set<ByteBuffer> scanned = new LinkedHashSet<>();
+		final ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(batchSize).build();
+		try (Cursor<byte[]> cursor = connection.scan(options)) {
+			while (cursor.hasNext()) {
+				scanned.add(ByteBuffer.wrap(cursor.next()));
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not close the cursor over the node keys", e);
+		}
+		final List<byte[]> keys = new ArrayList<>(scanned.size());
+		for (final ByteBuffer key : scanned) {
+			keys.add(key.array());
+		}
+
+		final List<Node> results = new ArrayList<>(keys.size());
+		if (keys.isEmpty()) {
+			return results;
+		}
+		connection.openPipeline();
+		for (int from = 0; from < keys.size(); from += batchSize) {
+			final List<byte[]> batch = keys.subList(from, Math.min(from + batchSize, keys.size()));
+			connection.mGet(batch.toArray(new byte[batch.size()][]));
+		}
+		final RedisSerializer<?> serializer = redisTemplate.getValueSerializer();
+		for (final Object values : connection.closePipeline()) {
+			for (final Object value : (List<?>) values) {
+				if (value != null) {
+					results.add((Node) serializer.deserialize((byte[]) value));
+				}
+			}
 		}
 		return results;
 	}
@@ -92,34 +183,89 @@ public class RedisStore implements NodeCache, NodeStore {
 		final Node node = getNode(nodeData);
 		final String nodeId = node.getId();
 		node.getDetails().put(VIRTUAL_FLAG, true);
-		redisTemplate.opsForValue().set(KEY_PREFIX + nodeId, node);
+		if (properties.isHash()) {
+			redisTemplate.opsForHash().put(HASH_KEY, nodeId, node);
+		} else {
+			redisTemplate.opsForValue().set(KEY_PREFIX + nodeId, node);
+		}
+		invalidateNearCaches(nodeId);
 		evictGraphCache();
 	}
 
 	@Override
 	public void deleteNode(final String nodeId) {
 
-		redisTemplate.delete(KEY_PREFIX + nodeId);
+		if (properties.isHash()) {
+			redisTemplate.opsForHash().delete(HASH_KEY, nodeId);
+		} else {
+			redisTemplate.delete(KEY_PREFIX + nodeId);
+		}
+		invalidateNearCaches(nodeId);
 		evictGraphCache();
 	}
 
 	@Override
 	public void deleteAllNodes() {
 
-		redisTemplate.delete(redisTemplate.keys("*"));
+		redisTemplate.execute((RedisCallback<Long>) connection -> deleteKeys(connection, "*"));
+		invalidateNearCaches("*");
 		evictGraphCache();
 	}
 
+	/**
+	 * Deletes the keys matching the pattern while iterating them with SCAN,
+	 * with one DEL per batch of keys, instead of blocking Redis with KEYS.
+	 */
+	private long deleteKeys(final RedisConnection connection, final String pattern) {
+
+		final int batchSize = Math.max(1, properties.getBatchSize());
+		final ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+		final List<byte[]> batch = new ArrayList<>(batchSize);
+		long deleted = 0;
+		try (Cursor<byte[]> cursor = connection.scan(options)) {
+			while (cursor.hasNext()) {
+				batch.add(cursor.next());
+				if (batch.size() == batchSize) {
+					deleted += delete(connection, batch);
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not close the cursor over the keys", e);
+		}
+		return deleted + delete(connection, batch);
+	}
+
+	private static long delete(final RedisConnection connection, final List<byte[]> keys) {
+
+		if (keys.isEmpty()) {
+			return 0;
+		}
+		final Long deleted = connection.del(keys.toArray(new byte[keys.size()][]));
+		keys.clear();
+		return deleted != null ? deleted : 0;
+	}
+
 	private Node getNode(final String nodeData) {
 
-		final GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(new ObjectMapper());
-		return serializer.deserialize(nodeData.getBytes(), Node.class);
+		return NODE_DATA_SERIALIZER.deserialize(nodeData.getBytes(), Node.class);
 	}
 
 	@Override
 	public void flushDB() {
 
 		redisConnectionFactory.getConnection().flushDb();
+		invalidateNearCaches("*");
+	}
+
+	/**
+	 * Invalidates the near cache of this and, through Redis, every other dashboard instance.
+	 */
+	private void invalidateNearCaches(final String nodeId) {
+
+		if (nearCache != null) {
+			nearCache.invalidate();
+			redisTemplate.convertAndSend(NodesNearCache.INVALIDATION_CHANNEL, nodeId);
+		}
 	}
 
 	@Override
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+/**
+ * Properties for storing virtual nodes in Redis.
+ */
+public class RedisStoreProperties {
+
+	/**
+	 * Format in which the virtual nodes are kept. Nodes kept as JSON are still
+	 * read when using the Smile format.
+	 */
+	private Codec codec = Codec.SMILE;
+
+	/**
+	 * Number of keys requested per SCAN and read per MGET when reading all nodes.
+	 */
+	private int batchSize = 500;
+
+	/**
+	 * Whether to keep all virtual nodes in a single Redis hash, read with one
+	 * command, instead of one key per node. Only suited for small sets of nodes.
+	 */
+	private boolean hash = false;
+
+	/**
+	 * Whether to keep the virtual nodes in memory, reading them from Redis again
+	 * only after any dashboard instance changed them.
+	 */
+	private boolean nearCache = false;
+
+	/**
+	 * Time in milliseconds after which the virtual nodes in memory are read from
+	 * Redis again, even without a change, 0 to keep them until they change.
+	 */
+	private long nearCacheTimeToLive = 60000;
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public boolean isHash() {
+		return hash;
+	}
+
+	public void setHash(boolean hash) {
+		this.hash = hash;
+	}
+
+	public boolean isNearCache() {
+		return nearCache;
+	}
+
+	public void setNearCache(boolean nearCache) {
+		this.nearCache = nearCache;
+	}
+
+	public long getNearCacheTimeToLive() {
+		return nearCacheTimeToLive;
+	}
+
+	public void setNearCacheTimeToLive(long nearCacheTimeToLive) {
+		this.nearCacheTimeToLive = nearCacheTimeToLive;
+	}
+
+	public Codec getCodec() {
+		return codec;
+	}
+
+	public void setCodec(Codec codec) {
+		this.codec = codec;
+	}
+
+	public enum Codec {
+
+		/**
+		 * JSON with the class name embedded, see {@link JsonNodeCodec}.
+		 */
+		JSON,
+
+		/**
+		 * Binary Smile, see {@link SmileNodeCodec}.
+		 */
+		SMILE
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * {@link NodeCodec} encoding nodes in the binary Smile format, without class
+ * names and with repeated names and values written only once.
+ * <p>
+ * Encoded nodes start with a two byte header: {@link #MAGIC}, which can not
+ * start a JSON document, followed by the version of the encoding. Bytes without
+ * the header are decoded as JSON by the {@link JsonNodeCodec}, so nodes stored
+ * before are still read, and are encoded in this format when saved again.
+ */
+public class SmileNodeCodec implements NodeCodec {
+
+	static final byte MAGIC = (byte) 0xFE;
+	static final byte VERSION = 1;
+	private static final int HEADER_LENGTH = 2;
+
+	private final ObjectMapper mapper = new ObjectMapper(new SmileFactory()
+			.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES));
+
+	private final NodeCodec legacyCodec = new JsonNodeCodec();
+
+	@Override
+	public byte[] encode(final Node node) {
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(MAGIC);
+		out.write(VERSION);
+		try {
+			mapper.writeValue(out, node);
+		} catch (IOException e) {
+			throw new SerializationException("Could not encode node " + node.getId(), e);
+		}
+		return out.toByteArray();
+	}
+
+	@Override
+	public Node decode(final byte[] bytes) {
+
+		if (bytes.length == 0 || bytes[0] != MAGIC) {
+			return legacyCodec.decode(bytes);
+		}
+		if (bytes.length < HEADER_LENGTH || bytes[1] != VERSION) {
+			throw new SerializationException("Unsupported node encoding version "
+					+ (bytes.length < HEADER_LENGTH ? "<none>" : bytes[1]));
+		}
+		try {
+			return mapper.readValue(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, Node.class);
+		} catch (IOException e) {
+			throw new SerializationException("Could not decode node", e);
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.uriresolvers;
+
+import com.netflix.appinfo.InstanceInfo;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.netflix.eureka.EurekaDiscoveryClient;
+
+/**
+ * Resolves registration fingerprints from a {@link ServiceInstance} using Eureka's
+ * {@link org.springframework.cloud.netflix.eureka.EurekaDiscoveryClient.EurekaServiceInstance}
+ * abstraction. The fingerprint consists of the instance id, the time the
+ * registration was last updated and the metadata of the instance.
+ */
+public class EurekaInstanceFingerprintResolver implements InstanceFingerprintResolver {
+
+    @Override
+    public String resolveFingerprint(ServiceInstance instance) {
+        if (!(instance instanceof EurekaDiscoveryClient.EurekaServiceInstance)) {
+            return null;
+        }
+        InstanceInfo instanceInfo = ((EurekaDiscoveryClient.EurekaServiceInstance) instance).getInstanceInfo();
+        return instanceInfo.getId() + "@" + instanceInfo.getLastUpdatedTimestamp()
+                + "#" + Integer.toHexString(instanceInfo.getMetadata().hashCode());
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.uriresolvers;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Resolves a fingerprint of the registration of a {@link ServiceInstance},
+ * which changes whenever the instance registers again or its metadata changes.
+ */
+public interface InstanceFingerprintResolver {
+
+    /**
+     * Resolves the registration fingerprint of the given instance
+     * @param instance the instance for which the fingerprint has to be resolved
+     * @return the fingerprint, or {@code null} when the registration of the instance can not be tracked
+     */
+    String resolveFingerprint(ServiceInstance instance);
+
+}
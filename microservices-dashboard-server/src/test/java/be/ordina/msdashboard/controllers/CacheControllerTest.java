@@ -27,6 +27,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import be.ordina.msdashboard.cache.CacheProperties;
 import be.ordina.msdashboard.cache.NodeCache;
+import be.ordina.msdashboard.graph.GraphRefresher;
 
 /**
  * Tests for {@link CacheController}
@@ -42,6 +43,8 @@ public class CacheControllerTest {
     private CacheProperties cacheProperties;
     @Mock
     private NodeCache nodeCache;
+    @Mock
+    private GraphRefresher graphRefresher;
 
     @Test
     public void shouldEvictCache() {
@@ -50,6 +53,7 @@ public class CacheControllerTest {
         cacheController.evictCache();
 
         verify(nodeCache).evictGraphCache();
+        verify(graphRefresher).requestRefresh();
     }
 
     @Test
@@ -58,7 +62,7 @@ public class CacheControllerTest {
 
         cacheController.evictCache();
 
-        verifyZeroInteractions(nodeCache);
+        verifyZeroInteractions(nodeCache, graphRefresher);
     }
     
     @Test
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.controllers;
+
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.stores.EventLog;
+import be.ordina.msdashboard.nodes.stores.EventRecord;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link EventHistoryController}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventHistoryControllerTest {
+
+    private EventHistoryController eventHistoryController;
+
+    @Mock
+    private EventLog eventLog;
+
+    @Before
+    public void setUp() {
+        eventHistoryController = new EventHistoryController(eventLog, 5000);
+    }
+
+    @Test
+    public void getHistoryWithinTimeRange() {
+        EventRecord record = new EventRecord(1500L, Severity.ERROR, "NodeEvent", "svc1", "down", null);
+        when(eventLog.getEvents(1000L, 2000L, 10)).thenReturn(Collections.singletonList(record));
+
+        List<EventRecord> history = eventHistoryController.getHistory(1000L, 2000L, 10);
+
+        assertThat(history).containsExactly(record);
+    }
+
+    @Test
+    public void getWholeHistory() {
+        eventHistoryController.getHistory(null, null, null);
+
+        verify(eventLog).getEvents(0L, Long.MAX_VALUE, EventHistoryController.DEFAULT_LIMIT);
+    }
+
+    @Test
+    public void shouldClampLimitToMaximum() {
+        eventHistoryController.getHistory(null, null, Integer.MAX_VALUE);
+
+        verify(eventLog).getEvents(0L, Long.MAX_VALUE, 5000);
+    }
+
+    @Test(expected = ResponseStatusException.class)
+    public void shouldRejectNegativeLimit() {
+        eventHistoryController.getHistory(null, null, -1);
+    }
+}
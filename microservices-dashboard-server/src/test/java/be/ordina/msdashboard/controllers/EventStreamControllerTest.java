@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.controllers;
+
+import be.ordina.msdashboard.nodes.model.CircuitBreakerEvent;
+import be.ordina.msdashboard.nodes.model.NodeEvent;
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.model.SystemEvent;
+import be.ordina.msdashboard.nodes.stores.EventStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link EventStreamController}
+ */
+public class EventStreamControllerTest {
+
+    private EventStore eventStore;
+    private List<String> sentEvents;
+    private boolean failSending;
+    private EventStreamController eventStreamController;
+
+    @Before
+    public void setUp() {
+        eventStore = new EventStore();
+        sentEvents = new ArrayList<>();
+        eventStreamController = new EventStreamController(eventStore, Runnable::run) {
+            @Override
+            protected SseEmitter createEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @Test
+    public void shouldOnlySendNewEvents() {
+        eventStore.handleContextRefresh(new SystemEvent("old"));
+
+        eventStreamController.streamEvents(null, null, null, null);
+        eventStore.handleContextRefresh(new SystemEvent("new"));
+
+        assertThat(sentEvents).hasSize(1);
+        assertThat(sentEvents.get(0)).startsWith("event:event\nid:1\n").contains("new");
+    }
+
+    @Test
+    public void shouldSendMissedEventsWhenReconnecting() {
+        eventStore.handleContextRefresh(new SystemEvent("first"));
+        eventStore.handleContextRefresh(new SystemEvent("second"));
+        eventStore.handleContextRefresh(new SystemEvent("third"));
+
+        eventStreamController.streamEvents(0L, null, null, null);
+
+        assertThat(sentEvents).hasSize(2);
+        assertThat(sentEvents.get(0)).startsWith("event:event\nid:1\n");
+        assertThat(sentEvents.get(1)).startsWith("event:event\nid:2\n");
+    }
+
+    @Test
+    public void shouldOnlySendEventsAcceptedByFilter() {
+        eventStreamController.streamEvents(null, "svc1", Severity.WARNING, "NodeEvent");
+
+        eventStore.handleContextRefresh(new NodeEvent("svc2", "other node"));
+        eventStore.handleContextRefresh(new CircuitBreakerEvent("svc1", "health", false));
+        eventStore.handleContextRefresh(new SystemEvent("system"));
+        eventStore.handleContextRefresh(new CircuitBreakerEvent("svc1", "health", true));
+
+        assertThat(sentEvents).hasSize(1);
+        assertThat(sentEvents.get(0)).startsWith("event:event\nid:3\n");
+    }
+
+    @Test
+    public void shouldRemoveSubscriptionWhenSendingFails() {
+        eventStreamController.streamEvents(null, null, null, null);
+        failSending = true;
+
+        eventStore.handleContextRefresh(new SystemEvent("event"));
+
+        assertThat(eventStreamController.getSubscriptionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldSendEventsOnThreadOfItsOwn() throws InterruptedException {
+        List<String> sendingThreads = new CopyOnWriteArrayList<>();
+        CountDownLatch sent = new CountDownLatch(1);
+        eventStreamController = new EventStreamController(eventStore) {
+            @Override
+            protected SseEmitter createEmitter() {
+                return new SseEmitter() {
+                    @Override
+                    public void send(SseEventBuilder builder) {
+                        sendingThreads.add(Thread.currentThread().getName());
+                        sent.countDown();
+                    }
+                };
+            }
+        };
+        eventStreamController.streamEvents(null, null, null, null);
+
+        eventStore.handleContextRefresh(new SystemEvent("event"));
+
+        assertThat(sent.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(sendingThreads).containsExactly("msdashboard-event-stream");
+        eventStreamController.shutdown();
+    }
+
+    private class RecordingEmitter extends SseEmitter {
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failSending) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder event = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                event.append(data.getData());
+            }
+            sentEvents.add(event.toString());
+        }
+    }
+}
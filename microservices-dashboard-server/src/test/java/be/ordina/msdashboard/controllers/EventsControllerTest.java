@@ -15,18 +15,26 @@
  */
 package be.ordina.msdashboard.controllers;
 
+import be.ordina.msdashboard.nodes.aggregators.ErrorHandler;
+import be.ordina.msdashboard.nodes.model.NodeEvent;
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.stores.EventFilter;
 import be.ordina.msdashboard.nodes.stores.EventStore;
 import be.ordina.msdashboard.nodes.model.SystemEvent;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.ConcurrentSkipListSet;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -43,6 +51,9 @@ public class EventsControllerTest {
     
     @Mock
     private EventStore eventStore;
+
+    @Mock
+    private ErrorHandler errorHandler;
     
     @Test
     public void getAllNodes() {
@@ -56,6 +67,46 @@ public class EventsControllerTest {
         assertThat(nodes.size()).isEqualTo(1);
     }
 
+    @Test
+    public void getPageOfEvents() {
+        when(eventStore.getEvents(eq(4L), eq(10), any(EventFilter.class)))
+                .thenReturn(Collections.singletonList(new SystemEvent("A system event occurred")));
+
+        Collection<SystemEvent> events = eventsController.getEvents(4L, 10, null, null, null);
+
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    public void getPageOfEventsOfDefaultSize() {
+        when(eventStore.getPageSize()).thenReturn(100);
+
+        eventsController.getEvents(null, null, null, null, null);
+        eventsController.getEvents(-1L, null, null, null, null);
+
+        verify(eventStore).getEvents(eq(-1L), eq(Integer.MAX_VALUE), any(EventFilter.class));
+        verify(eventStore).getEvents(eq(-1L), eq(100), any(EventFilter.class));
+    }
+
+    @Test
+    public void getFilteredEvents() {
+        ArgumentCaptor<EventFilter> filter = ArgumentCaptor.forClass(EventFilter.class);
+
+        eventsController.getEvents(null, 10, "svc1", Severity.ERROR, null);
+
+        verify(eventStore).getEvents(eq(-1L), eq(10), filter.capture());
+        assertThat(filter.getValue().test(new NodeEvent("svc1", "down", new IllegalStateException()))).isTrue();
+        assertThat(filter.getValue().test(new NodeEvent("svc1", "down"))).isFalse();
+        assertThat(filter.getValue().test(new NodeEvent("svc2", "down", new IllegalStateException()))).isFalse();
+    }
+
+    @Test
+    public void getSuppressedEvents() {
+        when(errorHandler.getSuppressedEvents()).thenReturn(Collections.singletonMap("serviceId:error", 3L));
+
+        assertThat(eventsController.getSuppressedEvents()).containsEntry("serviceId:error", 3L);
+    }
+
     @Test
     public void deleteAllNodes() {
     	eventsController.deleteEvents();
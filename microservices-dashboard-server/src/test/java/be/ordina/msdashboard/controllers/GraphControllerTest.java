@@ -15,7 +15,12 @@
  */
 package be.ordina.msdashboard.controllers;
 
+import be.ordina.msdashboard.graph.GraphContent;
+import be.ordina.msdashboard.graph.GraphContentCache;
+import be.ordina.msdashboard.graph.GraphJsonWriter;
+import be.ordina.msdashboard.graph.GraphRefresher;
 import be.ordina.msdashboard.graph.GraphRetriever;
+import be.ordina.msdashboard.graph.GraphSnapshot;
 import be.ordina.msdashboard.nodes.model.Node;
 import be.ordina.msdashboard.nodes.stores.NodeStore;
 import org.junit.Test;
@@ -24,14 +29,24 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.http.HttpEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.springframework.util.StreamUtils.copyToByteArray;
 
 /**
  * Tests for {@link GraphController}
@@ -57,6 +72,127 @@ public class GraphControllerTest {
         assertThat(httpEntity.getBody()).isEmpty();
     }
 
+    @Test
+    public void getDependenciesGraphJsonWithoutStreaming() throws IOException {
+        doReturn(Collections.emptyMap()).when(graphRetriever).retrieve();
+
+        HttpEntity<Map<String, Object>> httpEntity = graphController.retrieveGraph(new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        assertThat(httpEntity.getBody()).isEmpty();
+    }
+
+    @Test
+    public void streamDependenciesGraphJson() throws IOException {
+        GraphJsonWriter graphJsonWriter = mock(GraphJsonWriter.class);
+        GraphController streamingController = new GraphController(graphRetriever, nodeStore, graphJsonWriter);
+        List<Node> nodes = Collections.singletonList(new Node("service1"));
+        doReturn(nodes).when(graphRetriever).retrieveNodes();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpEntity<Map<String, Object>> httpEntity = streamingController.retrieveGraph(new MockHttpServletRequest(), response);
+
+        assertThat(httpEntity).isNull();
+        assertThat(response.getContentType()).startsWith("application/json");
+        verify(graphJsonWriter).write(nodes, response.getOutputStream());
+        verify(graphRetriever, never()).retrieve();
+    }
+
+    @Test
+    public void getDependenciesGraphJsonFromSnapshot() throws IOException {
+        GraphRefresher graphRefresher = mock(GraphRefresher.class);
+        GraphController snapshotController = new GraphController(graphRetriever, nodeStore, null, graphRefresher);
+        Map<String, Object> graph = Collections.singletonMap("directed", true);
+        GraphSnapshot snapshot = new GraphSnapshot(1, System.currentTimeMillis(), Collections.emptyList(), nodes -> graph);
+        doReturn(snapshot).when(graphRefresher).getSnapshot();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpEntity<Map<String, Object>> httpEntity = snapshotController.retrieveGraph(new MockHttpServletRequest(), response);
+
+        assertThat(httpEntity.getBody()).isEqualTo(graph);
+        assertThat(response.getHeader("Warning")).isNull();
+        verify(graphRetriever, never()).retrieve();
+    }
+
+    @Test
+    public void streamStaleDependenciesGraphJsonFromSnapshot() throws IOException {
+        GraphJsonWriter graphJsonWriter = mock(GraphJsonWriter.class);
+        GraphRefresher graphRefresher = mock(GraphRefresher.class);
+        GraphController snapshotController = new GraphController(graphRetriever, nodeStore, graphJsonWriter, graphRefresher);
+        List<Node> nodes = Collections.singletonList(new Node("service1"));
+        GraphSnapshot snapshot = new GraphSnapshot(1, 0, nodes, graphNodes -> Collections.emptyMap());
+        doReturn(snapshot).when(graphRefresher).getSnapshot();
+        doReturn(true).when(graphRefresher).isStale(snapshot);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpEntity<Map<String, Object>> httpEntity = snapshotController.retrieveGraph(new MockHttpServletRequest(), response);
+
+        assertThat(httpEntity).isNull();
+        assertThat(response.getHeader("Warning")).isEqualTo("110 - \"Response is Stale\"");
+        verify(graphJsonWriter).write(nodes, response.getOutputStream());
+        verify(graphRetriever, never()).retrieveNodes();
+    }
+
+    @Test
+    public void getDependenciesGraphJsonWithETag() throws IOException {
+        GraphContentCache graphContentCache = mock(GraphContentCache.class);
+        GraphController eTagController = new GraphController(graphRetriever, nodeStore, null, null, graphContentCache);
+        List<Node> nodes = Collections.singletonList(new Node("service1"));
+        GraphContent content = new GraphContent("{\"directed\":true}".getBytes(StandardCharsets.UTF_8));
+        doReturn(nodes).when(graphRetriever).retrieveNodes();
+        doReturn(content).when(graphContentCache).getContent(nodes);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/graph");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpEntity<Map<String, Object>> httpEntity = eTagController.retrieveGraph(request, response);
+
+        assertThat(httpEntity).isNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo(content.getETag());
+        assertThat(response.getHeader("Vary")).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("{\"directed\":true}");
+        verify(graphRetriever, never()).retrieve();
+    }
+
+    @Test
+    public void getNotModifiedWhenETagMatches() throws IOException {
+        GraphContentCache graphContentCache = mock(GraphContentCache.class);
+        GraphController eTagController = new GraphController(graphRetriever, nodeStore, null, null, graphContentCache);
+        List<Node> nodes = Collections.singletonList(new Node("service1"));
+        GraphContent content = new GraphContent("{\"directed\":true}".getBytes(StandardCharsets.UTF_8));
+        doReturn(nodes).when(graphRetriever).retrieveNodes();
+        doReturn(content).when(graphContentCache).getContent(nodes);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/graph");
+        request.addHeader("If-None-Match", content.getETag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        eTagController.retrieveGraph(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    public void getGzippedDependenciesGraphJsonWithETag() throws IOException {
+        GraphContentCache graphContentCache = mock(GraphContentCache.class);
+        GraphController eTagController = new GraphController(graphRetriever, nodeStore, null, null, graphContentCache);
+        List<Node> nodes = Collections.singletonList(new Node("service1"));
+        GraphContent content = new GraphContent("{\"directed\":true}".getBytes(StandardCharsets.UTF_8));
+        doReturn(nodes).when(graphRetriever).retrieveNodes();
+        doReturn(content).when(graphContentCache).getContent(nodes);
+        doReturn(true).when(graphContentCache).isGzip();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/graph");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        eTagController.retrieveGraph(request, response);
+
+        assertThat(response.getHeader("ETag")).isEqualTo(content.getGzippedETag());
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(response.getHeader("Vary")).isEqualTo("Accept-Encoding");
+        byte[] body = copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())));
+        assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo("{\"directed\":true}");
+    }
+
     @Test
     public void saveNode() {
         graphController.saveNode("nodeAsJson");
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.controllers;
+
+import be.ordina.msdashboard.graph.GraphDelta;
+import be.ordina.msdashboard.graph.GraphRefresher;
+import be.ordina.msdashboard.graph.GraphSnapshot;
+import be.ordina.msdashboard.graph.GraphUpdate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Tests for {@link GraphStreamController}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class GraphStreamControllerTest {
+
+    @Mock
+    private GraphRefresher graphRefresher;
+
+    private List<String> sentEvents;
+    private boolean failSending;
+    private GraphStreamController graphStreamController;
+
+    @Before
+    public void setUp() {
+        sentEvents = new ArrayList<>();
+        graphStreamController = new GraphStreamController(graphRefresher, Runnable::run) {
+            @Override
+            protected SseEmitter createEmitter() {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    @Test
+    public void shouldSendSnapshotFollowedByDeltas() {
+        doReturn(snapshot(1)).when(graphRefresher).getSnapshot();
+
+        graphStreamController.streamGraph(null);
+        graphStreamController.handleGraphUpdate(update(1, 2));
+
+        assertThat(sentEvents).containsExactly(
+                "event:snapshot\nid:1\ndata:{version=1, graph={directed=true}}\n\n",
+                "event:delta\nid:2\ndata:GraphUpdate{previousVersion=1, version=2, deltas=1}\n\n");
+    }
+
+    @Test
+    public void shouldNotSendSnapshotWhenReconnectingAtCurrentVersion() {
+        doReturn(snapshot(3)).when(graphRefresher).getSnapshot();
+
+        graphStreamController.streamGraph(3L);
+
+        assertThat(sentEvents).isEmpty();
+        assertThat(graphStreamController.getSubscriptionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldSendSnapshotWhenUpdateWasMissed() {
+        doReturn(snapshot(1)).when(graphRefresher).getSnapshot();
+        graphStreamController.streamGraph(null);
+        doReturn(snapshot(3)).when(graphRefresher).getSnapshot();
+
+        graphStreamController.handleGraphUpdate(update(2, 3));
+        graphStreamController.handleGraphUpdate(update(2, 3));
+
+        assertThat(sentEvents).hasSize(2);
+        assertThat(sentEvents.get(1)).startsWith("event:snapshot\nid:3\n");
+    }
+
+    @Test
+    public void shouldRemoveSubscriptionWhenSendingFails() {
+        doReturn(snapshot(1)).when(graphRefresher).getSnapshot();
+        graphStreamController.streamGraph(null);
+        failSending = true;
+
+        graphStreamController.handleGraphUpdate(update(1, 2));
+
+        assertThat(graphStreamController.getSubscriptionCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldSendUpdatesOnThreadOfItsOwn() throws InterruptedException {
+        doReturn(snapshot(1)).when(graphRefresher).getSnapshot();
+        List<String> sendingThreads = new CopyOnWriteArrayList<>();
+        CountDownLatch sent = new CountDownLatch(2);
+        graphStreamController = new GraphStreamController(graphRefresher) {
+            @Override
+            protected SseEmitter createEmitter() {
+                return new SseEmitter() {
+                    @Override
+                    public void send(SseEventBuilder builder) {
+                        sendingThreads.add(Thread.currentThread().getName());
+                        sent.countDown();
+                    }
+                };
+            }
+        };
+        graphStreamController.streamGraph(null);
+
+        graphStreamController.handleGraphUpdate(update(1, 2));
+
+        assertThat(sent.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(sendingThreads).containsExactly(Thread.currentThread().getName(), "msdashboard-graph-stream");
+        graphStreamController.shutdown();
+    }
+
+    private static GraphSnapshot snapshot(long version) {
+        Map<String, Object> graph = Collections.singletonMap("directed", true);
+        return new GraphSnapshot(version, System.currentTimeMillis(), Collections.emptyList(), nodes -> graph);
+    }
+
+    private static GraphUpdate update(long previousVersion, long version) {
+        return new GraphUpdate(previousVersion, version, Collections.singletonList(GraphDelta.nodeRemoved("svc1")));
+    }
+
+    private class RecordingEmitter extends SseEmitter {
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failSending) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder event = new StringBuilder();
+            for (DataWithMediaType data : builder.build()) {
+                event.append(data.getData());
+            }
+            sentEvents.add(event.toString());
+        }
+    }
+}
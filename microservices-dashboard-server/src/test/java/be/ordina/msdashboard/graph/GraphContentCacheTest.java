@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.util.StreamUtils.copyToByteArray;
+
+/**
+ * Tests for {@link GraphContentCache}
+ */
+public class GraphContentCacheTest {
+
+	private GraphJsonWriter graphJsonWriter;
+	private GraphContentCache graphContentCache;
+
+	@Before
+	public void setUp() {
+		GraphProperties graphProperties = new GraphProperties();
+		graphJsonWriter = new GraphJsonWriter(graphProperties, new ObjectMapper());
+		graphContentCache = new GraphContentCache(graphJsonWriter, graphProperties);
+	}
+
+	@Test
+	public void shouldSerializeNodesLikeTheGraphJsonWriter() throws IOException {
+		List<Node> nodes = Collections.singletonList(node().withId("service1").build());
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		graphJsonWriter.write(nodes, expected);
+
+		GraphContent content = graphContentCache.getContent(nodes);
+
+		assertThat(content.getJson()).isEqualTo(expected.toByteArray());
+	}
+
+	@Test
+	public void shouldReuseContentForSameListOfNodes() throws IOException {
+		List<Node> nodes = Collections.singletonList(node().withId("service1").build());
+
+		GraphContent first = graphContentCache.getContent(nodes);
+		GraphContent second = graphContentCache.getContent(nodes);
+
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	public void shouldKeepETagForEqualGraphs() throws IOException {
+		List<Node> nodes = Collections.singletonList(node().withId("service1").build());
+
+		GraphContent first = graphContentCache.getContent(nodes);
+		GraphContent second = graphContentCache.getContent(new ArrayList<>(nodes));
+
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getETag()).isEqualTo(first.getETag());
+	}
+
+	@Test
+	public void shouldChangeETagWhenGraphChanges() throws IOException {
+		GraphContent first = graphContentCache.getContent(Collections.singletonList(node().withId("service1").build()));
+		GraphContent second = graphContentCache.getContent(Collections.singletonList(node().withId("service2").build()));
+
+		assertThat(second.getETag()).isNotEqualTo(first.getETag());
+		assertThat(second.getETag()).startsWith("\"").endsWith("\"");
+	}
+
+	@Test
+	public void shouldGzipContentOnce() throws IOException {
+		GraphContent content = graphContentCache.getContent(Collections.singletonList(node().withId("service1").build()));
+
+		byte[] gzipped = content.getGzipped();
+
+		assertThat(content.getGzipped()).isSameAs(gzipped);
+		assertThat(content.getGzippedETag()).isNotEqualTo(content.getETag());
+		assertThat(copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped)))).isEqualTo(content.getJson());
+	}
+}
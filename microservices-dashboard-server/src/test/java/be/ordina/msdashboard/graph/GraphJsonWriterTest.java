@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import be.ordina.msdashboard.nodes.stores.NodeStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import rx.Observable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static be.ordina.msdashboard.nodes.model.NodeTypes.BACKEND;
+import static be.ordina.msdashboard.nodes.model.NodeTypes.MICROSERVICE;
+import static be.ordina.msdashboard.nodes.model.NodeTypes.RESOURCE;
+import static be.ordina.msdashboard.nodes.model.NodeTypes.UI_COMPONENT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link GraphJsonWriter}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class GraphJsonWriterTest {
+
+	@Mock
+	private NodeStore nodeStore;
+
+	private GraphRetriever graphRetriever;
+	private GraphProperties graphProperties;
+
+	@Before
+	public void setUp() {
+		List<Node> nodes = Arrays.asList(
+				node().withId("ui").withDetail(Node.TYPE, UI_COMPONENT).withLinkedToNodeId("resource").build(),
+				node().withId("resource").withDetail(Node.TYPE, RESOURCE).withLinkedToNodeId("service").build(),
+				node().withId("service").withDetail(Node.TYPE, MICROSERVICE).withDetail(Node.STATUS, "UP")
+						.withLinkedToNodeId("backend").withLinkedToNodeId("unknown").build(),
+				node().withId("backend").withDetail(Node.TYPE, BACKEND).withLinkedFromNodeId("service").build(),
+				node().withId("virtual").withLinkedFromNodeId("service").build());
+		when(nodeStore.getAllNodesAsObservable()).thenReturn(Observable.from(nodes));
+
+		graphProperties = new GraphProperties();
+		graphRetriever = new GraphRetriever(Collections.emptyList(), nodeStore, graphProperties);
+	}
+
+	@Test
+	public void shouldWriteSameJsonAsMappedGraph() throws Exception {
+		assertSameJson(new ObjectMapper());
+	}
+
+	@Test
+	public void shouldWriteSameIndentedJsonAsMappedGraph() throws Exception {
+		assertSameJson(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT));
+	}
+
+	private void assertSameJson(ObjectMapper objectMapper) throws Exception {
+		String expected = objectMapper.writeValueAsString(graphRetriever.retrieve());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new GraphJsonWriter(graphProperties, objectMapper).write(graphRetriever.retrieveNodes(), out);
+
+		assertThat(out.toString("UTF-8")).isEqualTo(expected);
+	}
+}
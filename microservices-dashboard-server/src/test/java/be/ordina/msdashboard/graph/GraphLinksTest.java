@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link GraphLinks}
+ */
+public class GraphLinksTest {
+
+    @Test
+    public void shouldDeduplicateLinks() {
+        GraphLinks links = new GraphLinks();
+
+        assertThat(links.add(0, 1)).isTrue();
+        assertThat(links.add(1, 0)).isTrue();
+        assertThat(links.add(0, 1)).isFalse();
+
+        assertThat(links).hasSize(2);
+        assertThat(links.source(0)).isEqualTo(0);
+        assertThat(links.target(0)).isEqualTo(1);
+        assertThat(links.source(1)).isEqualTo(1);
+        assertThat(links.target(1)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacity() {
+        GraphLinks links = new GraphLinks();
+
+        for (int source = 0; source < 200; source++) {
+            for (int target = 0; target < 50; target++) {
+                links.add(source, target);
+                links.add(source, target);
+            }
+        }
+
+        assertThat(links).hasSize(10000);
+        assertThat(links.contains(199, 49)).isTrue();
+        assertThat(links.contains(49, 199)).isFalse();
+    }
+
+    @Test
+    public void shouldBehaveAsSetOfLinkMaps() {
+        GraphLinks links = new GraphLinks();
+        links.add(2, 3);
+        links.add(createLink(3, 4));
+
+        Set<Map<String, Integer>> expected = new HashSet<>();
+        expected.add(createLink(2, 3));
+        expected.add(createLink(3, 4));
+
+        assertThat(links).isEqualTo(expected);
+        assertThat(links.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(links.contains(createLink(2, 3))).isTrue();
+        assertThat(links.contains(createLink(4, 3))).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldSerializeLikeLinkMaps() throws Exception {
+        GraphLinks links = new GraphLinks();
+        links.add(0, 1);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = objectMapper.writeValueAsString(links);
+
+        assertThat(json).isEqualTo("[{\"source\":0,\"target\":1}]");
+        List<Map<String, Integer>> deserialized = objectMapper.readValue(json, List.class);
+        assertThat(deserialized).containsExactly(createLink(0, 1));
+    }
+
+    private static Map<String, Integer> createLink(int source, int target) {
+        Map<String, Integer> link = new HashMap<>();
+        link.put("source", source);
+        link.put("target", target);
+        return link;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
+import rx.Observable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link GraphRefresher}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class GraphRefresherTest {
+
+	@Mock
+	private GraphRetriever graphRetriever;
+	@Mock
+	private ApplicationEventPublisher publisher;
+
+	private GraphProperties graphProperties;
+	private GraphRefresher graphRefresher;
+
+	@Before
+	public void setUp() {
+		graphProperties = new GraphProperties();
+		graphRefresher = new GraphRefresher(graphRetriever, graphProperties);
+	}
+
+	@Test
+	public void shouldServeEmptySnapshotBeforeFirstRefresh() {
+		GraphSnapshot snapshot = graphRefresher.getSnapshot();
+
+		assertThat(snapshot.getVersion()).isEqualTo(0);
+		assertThat(snapshot.getNodes()).isEmpty();
+	}
+
+	@Test
+	public void shouldSwapSnapshotOnRefresh() {
+		List<Node> nodes = Collections.singletonList(new Node("service1"));
+		Map<String, Object> graph = Collections.singletonMap("directed", true);
+		doReturn(Observable.just(nodes)).when(graphRetriever).mergeNodes();
+		doReturn(graph).when(graphRetriever).toGraph(nodes);
+
+		assertThat(graphRefresher.refresh()).isTrue();
+
+		GraphSnapshot snapshot = graphRefresher.getSnapshot();
+		assertThat(snapshot.getVersion()).isEqualTo(1);
+		assertThat(snapshot.getNodes()).containsExactlyElementsOf(nodes);
+		assertThat(snapshot.getGraph()).isEqualTo(graph);
+		assertThat(snapshot.getGraph()).isSameAs(snapshot.getGraph());
+	}
+
+	@Test
+	public void shouldKeepVersionAndGraphWhenGraphIsUnchanged() {
+		List<Node> nodes = Collections.singletonList(new Node("service1"));
+		List<Node> sameNodes = Collections.singletonList(new Node("service1"));
+		doReturn(Observable.just(nodes), Observable.just(sameNodes)).when(graphRetriever).mergeNodes();
+		doReturn(Collections.emptyMap()).when(graphRetriever).toGraph(nodes);
+		graphRefresher.refresh();
+		GraphSnapshot first = graphRefresher.getSnapshot();
+		first.getGraph();
+
+		assertThat(graphRefresher.refresh()).isTrue();
+
+		GraphSnapshot second = graphRefresher.getSnapshot();
+		assertThat(second.getVersion()).isEqualTo(1);
+		assertThat(second.getTimestamp()).isGreaterThanOrEqualTo(first.getTimestamp());
+		assertThat(second.getGraph()).isSameAs(first.getGraph());
+		verify(graphRetriever, times(1)).toGraph(nodes);
+	}
+
+	@Test
+	public void shouldPublishUpdateWhenGraphChanged() {
+		graphRefresher = new GraphRefresher(graphRetriever, graphProperties, publisher);
+		Node service = node().withId("service1").withDetail(Node.STATUS, "UP").build();
+		Node serviceDown = node().withId("service1").withDetail(Node.STATUS, "DOWN").build();
+		doReturn(Observable.just(Collections.singletonList(service)),
+				Observable.just(Collections.singletonList(serviceDown)))
+				.when(graphRetriever).mergeNodes();
+
+		graphRefresher.refresh();
+		graphRefresher.refresh();
+
+		ArgumentCaptor<GraphUpdate> captor = ArgumentCaptor.forClass(GraphUpdate.class);
+		verify(publisher, times(2)).publishEvent(captor.capture());
+		assertThat(captor.getAllValues()).extracting("previousVersion", "version")
+				.containsExactly(tuple(0L, 1L), tuple(1L, 2L));
+		assertThat(captor.getAllValues().get(1).getDeltas())
+				.containsExactly(GraphDelta.nodeDetailsChanged(serviceDown));
+	}
+
+	@Test
+	public void shouldKeepSnapshotWhenNoNodesAreRetrieved() {
+		List<Node> nodes = Collections.singletonList(new Node("service1"));
+		doReturn(Observable.just(nodes), Observable.empty()).when(graphRetriever).mergeNodes();
+		graphRefresher.refresh();
+
+		assertThat(graphRefresher.refresh()).isFalse();
+
+		assertThat(graphRefresher.getSnapshot().getVersion()).isEqualTo(1);
+		assertThat(graphRefresher.getSnapshot().getNodes()).containsExactlyElementsOf(nodes);
+	}
+
+	@Test
+	public void shouldKeepSnapshotWhenRefreshFails() {
+		List<Node> nodes = Collections.singletonList(new Node("service1"));
+		doReturn(Observable.just(nodes), Observable.error(new IllegalStateException("boom")))
+				.when(graphRetriever).mergeNodes();
+		graphRefresher.refresh();
+
+		assertThat(graphRefresher.refresh()).isFalse();
+
+		assertThat(graphRefresher.getSnapshot().getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldRefreshAgainWhenRequestedDuringRefresh() throws InterruptedException {
+		CountDownLatch refreshing = new CountDownLatch(1);
+		CountDownLatch requested = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			refreshing.countDown();
+			requested.await();
+			return Observable.just(Collections.singletonList(new Node("service1")));
+		}).doReturn(Observable.just(Collections.singletonList(new Node("service2"))))
+				.when(graphRetriever).mergeNodes();
+		graphRefresher.start();
+		try {
+			refreshing.await();
+
+			graphRefresher.requestRefresh();
+			requested.countDown();
+
+			verify(graphRetriever, timeout(1000).times(2)).mergeNodes();
+		} finally {
+			graphRefresher.stop();
+		}
+	}
+
+	@Test
+	public void shouldReportStaleSnapshotAfterStaleWhileRevalidateWindow() {
+		graphProperties.getRefresh().setInterval(1000);
+		graphProperties.getRefresh().setJitter(0);
+		graphProperties.getRefresh().setStaleWhileRevalidate(1000);
+		long now = System.currentTimeMillis();
+
+		assertThat(graphRefresher.isStale(snapshotBuiltAt(now))).isFalse();
+		assertThat(graphRefresher.isStale(snapshotBuiltAt(now - 1500))).isFalse();
+		assertThat(graphRefresher.isStale(snapshotBuiltAt(now - 5000))).isTrue();
+	}
+
+	private GraphSnapshot snapshotBuiltAt(long timestamp) {
+		return new GraphSnapshot(1, timestamp, Collections.emptyList(), nodes -> Collections.emptyMap());
+	}
+}
@@ -16,9 +16,11 @@
 
 package be.ordina.msdashboard.graph;
 
+import be.ordina.msdashboard.nodes.aggregators.NodeAggregator;
 import be.ordina.msdashboard.nodes.aggregators.health.HealthIndicatorsAggregator;
 import be.ordina.msdashboard.nodes.aggregators.index.IndexesAggregator;
 import be.ordina.msdashboard.nodes.aggregators.pact.PactsAggregator;
+import be.ordina.msdashboard.nodes.model.Node;
 import be.ordina.msdashboard.nodes.stores.NodeStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.json.JSONException;
@@ -33,10 +35,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import rx.Observable;
+import rx.observables.GroupedObservable;
 
 import java.io.FileNotFoundException;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static be.ordina.msdashboard.JsonHelper.load;
@@ -49,6 +54,7 @@ import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
 import static be.ordina.msdashboard.nodes.model.NodeTypes.MICROSERVICE;
 import static be.ordina.msdashboard.nodes.model.NodeTypes.RESOURCE;
 import static com.google.common.collect.Sets.newHashSet;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
 
@@ -89,21 +95,21 @@ public class GraphRetrieverTest {
 	@Test
 	public void retrieveGraph() throws FileNotFoundException, UnsupportedEncodingException, JSONException {
 
-		when(healthIndicatorsAggregator.aggregateNodes())
-				.thenReturn(Observable.from(newHashSet(
+		when(healthIndicatorsAggregator.aggregateNodesPerService())
+				.thenReturn(allServices(newHashSet(
 						node().withId("service1").havingLinkedToNodeIds(newHashSet("backend1")).build(),
 						node().withId("service2").havingLinkedToNodeIds(newHashSet("backend2")).build(),
 						node().withId("backend1").havingLinkedFromNodeIds(newHashSet("service1")).build(),
 						node().withId("backend2").havingLinkedFromNodeIds(newHashSet("service2")).build())));
-		when(indexesAggregator.aggregateNodes())
-				.thenReturn(Observable.from(newHashSet(
+		when(indexesAggregator.aggregateNodesPerService())
+				.thenReturn(allServices(newHashSet(
 						node().withId("svc1rsc1").havingLinkedToNodeIds(newHashSet("service1")).build(),
 						node().withId("svc1rsc2").havingLinkedToNodeIds(newHashSet("service1")).build(),
 						node().withId("svc2rsc1").havingLinkedToNodeIds(newHashSet("service2")).build(),
 						node().withId("service1").withDetail("test", "test").build(),
 						node().withId("service2").build())));
-		when(pactsAggregator.aggregateNodes())
-				.thenReturn(Observable.from(newHashSet(
+		when(pactsAggregator.aggregateNodesPerService())
+				.thenReturn(allServices(newHashSet(
 						node().withId("svc1rsc2").build(),
 						node().withId("svc2rsc1").build(),
 						node().withId("service1").havingLinkedToNodeIds(newHashSet("svc2rsc1")).build(),
@@ -126,4 +132,38 @@ public class GraphRetrieverTest {
 		JSONAssert.assertEquals(removeBlankNodes(load("src/test/resources/GraphRetrieverTest.json")),
 				removeBlankNodes(nodeAsJson), JSONCompareMode.LENIENT);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void mergeNodesShouldOnlyReplaceNodesOfChangedServices() {
+		Node service1 = node().withId("service1").withDetail("status", "UP").havingLinkedToNodeIds(newHashSet("backend1")).build();
+		Node service2 = node().withId("service2").withDetail("status", "UP").build();
+		Node backend1 = node().withId("backend1").havingLinkedFromNodeIds(newHashSet("service1")).build();
+		Node service2Down = node().withId("service2").withDetail("status", "DOWN").build();
+		when(healthIndicatorsAggregator.aggregateNodesPerService())
+				.thenReturn(Observable.just(
+						GroupedObservable.from("service1", Observable.just(service1, backend1)),
+						GroupedObservable.from("service2", Observable.just(service2))))
+				.thenReturn(Observable.just(
+						GroupedObservable.from("service1", Observable.just(service1, backend1)),
+						GroupedObservable.from("service2", Observable.just(service2Down))))
+				.thenReturn(Observable.just(
+						GroupedObservable.from("service1", Observable.just(service1, backend1))));
+		when(indexesAggregator.aggregateNodesPerService()).thenReturn(Observable.empty());
+		when(pactsAggregator.aggregateNodesPerService()).thenReturn(Observable.empty());
+		when(redisService.getAllNodesAsObservable()).thenReturn(Observable.empty());
+
+		List<Node> initial = graphRetriever.mergeNodes().toBlocking().first();
+		List<Node> changed = graphRetriever.mergeNodes().toBlocking().first();
+		List<Node> removed = graphRetriever.mergeNodes().toBlocking().first();
+
+		assertThat(initial).containsExactly(service1, backend1, service2);
+		assertThat(changed).containsExactly(service1, backend1, service2Down);
+		assertThat(changed.get(0)).isSameAs(initial.get(0));
+		assertThat(changed.get(1)).isSameAs(initial.get(1));
+		assertThat(removed).containsExactly(service1, backend1);
+	}
+
+	private static Observable<GroupedObservable<String, Node>> allServices(Collection<Node> nodes) {
+		return Observable.just(GroupedObservable.from(NodeAggregator.ALL_SERVICES, Observable.from(nodes)));
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static be.ordina.msdashboard.nodes.model.NodeTypes.MICROSERVICE;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link GraphUpdate}
+ */
+public class GraphUpdateTest {
+
+    @Test
+    public void shouldHaveNoDeltasForSameGraph() {
+        List<Node> nodes = Arrays.asList(
+                node().withId("svc1").withDetail(Node.STATUS, "UP").havingLinkedToNodeIds(newHashSet("db")).build(),
+                node().withId("db").build());
+        List<Node> sameNodes = Arrays.asList(
+                node().withId("db").build(),
+                node().withId("svc1").withDetail(Node.STATUS, "UP").havingLinkedToNodeIds(newHashSet("db")).build());
+
+        assertThat(GraphUpdate.deltas(nodes, sameNodes)).isEmpty();
+    }
+
+    @Test
+    public void shouldOrderDeltasSoTheyCanBeAppliedInSequence() {
+        Node svc1 = node().withId("svc1").withDetail(Node.STATUS, "UP").havingLinkedToNodeIds(newHashSet("db")).build();
+        Node svc1Down = node().withId("svc1").withDetail(Node.STATUS, "DOWN").havingLinkedToNodeIds(newHashSet("cache")).build();
+        Node db = node().withId("db").build();
+        Node cache = node().withId("cache").build();
+
+        List<GraphDelta> deltas = GraphUpdate.deltas(Arrays.asList(svc1, db), Arrays.asList(svc1Down, cache));
+
+        assertThat(deltas).containsExactly(
+                GraphDelta.linkRemoved("svc1", "db"),
+                GraphDelta.nodeRemoved("db"),
+                GraphDelta.nodeDetailsChanged(svc1Down),
+                GraphDelta.nodeAdded(cache),
+                GraphDelta.linkAdded("svc1", "cache"));
+    }
+
+    @Test
+    public void shouldOnlyReportLinksBetweenExistingNodes() {
+        Node svc1 = node().withId("svc1").havingLinkedToNodeIds(newHashSet("unknown")).build();
+        Node db = node().withId("db").havingLinkedFromNodeIds(newHashSet("svc1")).build();
+
+        List<GraphDelta> deltas = GraphUpdate.deltas(Collections.emptyList(), Arrays.asList(svc1, db));
+
+        assertThat(deltas).containsExactly(
+                GraphDelta.nodeAdded(svc1),
+                GraphDelta.nodeAdded(db),
+                GraphDelta.linkAdded("svc1", "db"));
+    }
+
+    @Test
+    public void shouldSerializeDeltasWithoutEmptyFields() throws Exception {
+        Node svc1 = node().withId("svc1").withDetail(Node.TYPE, MICROSERVICE).build();
+        GraphUpdate update = new GraphUpdate(1, 2, Arrays.asList(
+                GraphDelta.nodeAdded(svc1), GraphDelta.linkRemoved("svc1", "db")));
+
+        String json = new ObjectMapper().writeValueAsString(update);
+
+        assertThat(json).isEqualTo("{\"previousVersion\":1,\"version\":2,\"deltas\":["
+                + "{\"type\":\"NODE_ADDED\",\"id\":\"svc1\",\"lane\":2,\"details\":{\"type\":\"MICROSERVICE\"}},"
+                + "{\"type\":\"LINK_REMOVED\",\"source\":\"svc1\",\"target\":\"db\"}]}");
+    }
+}
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -124,4 +125,72 @@ public class NodeMergerTest {
         assertThat(details.get("status")).isEqualTo(status);
     }
 
+    @Test
+    public void indexedMergeShouldAddAndMergeNodes() {
+        Node node1 = new NodeBuilder().withId("service1").withLane(0).build();
+        Node node2 = new NodeBuilder().withId("Service1").withDetail("type", "microservice").build();
+        Node node3 = new NodeBuilder().withId("service2").build();
+
+        MergedNodes mergedNodes = new MergedNodes();
+        mergedNodes = NodeMerger.mergeIndexed().call(mergedNodes, node1);
+        mergedNodes = NodeMerger.mergeIndexed().call(mergedNodes, node2);
+        mergedNodes = NodeMerger.mergeIndexed().call(mergedNodes, node3);
+
+        List<Node> nodes = mergedNodes.toList();
+        assertThat(nodes).hasSize(2);
+        assertThat(nodes.get(0).getId()).isEqualTo("service1");
+        assertThat(nodes.get(0).getLane()).isEqualTo(0);
+        assertThat(nodes.get(0).getDetails().get("type")).isEqualTo("microservice");
+        assertThat(nodes.get(1)).isEqualTo(node3);
+    }
+
+    @Test
+    public void indexedMergeShouldMatchListMerge() {
+        for (long seed = 0; seed < 20; seed++) {
+            List<Node> listMerged = new ArrayList<>();
+            for (Node node : randomNodes(seed)) {
+                listMerged = NodeMerger.merge().call(listMerged, node);
+            }
+
+            MergedNodes indexMerged = new MergedNodes();
+            for (Node node : randomNodes(seed)) {
+                indexMerged = NodeMerger.mergeIndexed().call(indexMerged, node);
+            }
+
+            assertThat(indexMerged.toList()).containsExactlyElementsOf(listMerged);
+        }
+    }
+
+    private static List<Node> randomNodes(long seed) {
+        String[] statuses = { "UP", "DOWN", "UNKNOWN", null };
+        String[] types = { "MICROSERVICE", "RESOURCE", "BACKEND", null };
+        Random random = new Random(seed);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String id = "service" + random.nextInt(60);
+            if (random.nextBoolean()) {
+                id = id.toUpperCase();
+            }
+            NodeBuilder builder = new NodeBuilder().withId(id);
+            if (random.nextInt(3) == 0) {
+                builder.withLane(random.nextInt(4));
+            }
+            String status = statuses[random.nextInt(statuses.length)];
+            if (status != null) {
+                builder.withDetail("status", status);
+            }
+            String type = types[random.nextInt(types.length)];
+            if (type != null) {
+                builder.withDetail("type", type);
+            }
+            builder.withDetail("detail" + random.nextInt(5), "value" + random.nextInt(5));
+            builder.withLinkedToNodeId("service" + random.nextInt(60));
+            if (random.nextBoolean()) {
+                builder.withLinkedFromNodeId("service" + random.nextInt(60));
+            }
+            nodes.add(builder.build());
+        }
+        return nodes;
+    }
+
 }
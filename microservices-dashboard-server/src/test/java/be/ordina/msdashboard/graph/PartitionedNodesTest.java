@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.graph;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static com.google.common.collect.Sets.newHashSet;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link PartitionedNodes}
+ */
+public class PartitionedNodesTest {
+
+    private static final PartitionedNodes.Key HEALTH_SVC1 = new PartitionedNodes.Key(0, "svc1");
+    private static final PartitionedNodes.Key HEALTH_SVC2 = new PartitionedNodes.Key(0, "svc2");
+    private static final PartitionedNodes.Key INDEX_SVC1 = new PartitionedNodes.Key(1, "svc1");
+
+    @Test
+    public void shouldMergeNodesOfAllPartitions() {
+        PartitionedNodes partitionedNodes = new PartitionedNodes();
+        Map<PartitionedNodes.Key, List<Node>> contributions = new HashMap<>();
+        contributions.put(INDEX_SVC1, Arrays.asList(
+                node().withId("SVC1").withDetail("status", "DOWN").havingLinkedToNodeIds(newHashSet("rsc1")).build(),
+                node().withId("rsc1").build()));
+        contributions.put(HEALTH_SVC1, Arrays.asList(
+                node().withId("svc1").withDetail("status", "UP").havingLinkedToNodeIds(newHashSet("db")).build(),
+                node().withId("db").build()));
+
+        assertThat(partitionedNodes.update(contributions)).containsOnly("svc1", "db", "rsc1");
+
+        assertThat(partitionedNodes.toList()).extracting("id").containsExactly("svc1", "db", "rsc1");
+        Node merged = partitionedNodes.toList().get(0);
+        assertThat(merged.getDetails()).containsEntry("status", "DOWN");
+        assertThat(merged.getLinkedToNodeIds()).containsOnly("db", "rsc1");
+    }
+
+    @Test
+    public void shouldOnlyMergeNodesOfChangedPartitions() {
+        PartitionedNodes partitionedNodes = new PartitionedNodes();
+        Map<PartitionedNodes.Key, List<Node>> contributions = new HashMap<>();
+        contributions.put(HEALTH_SVC1, Arrays.asList(node().withId("svc1").withDetail("status", "UP").build()));
+        contributions.put(HEALTH_SVC2, Arrays.asList(node().withId("svc2").withDetail("status", "UP").build()));
+        partitionedNodes.update(contributions);
+        Node svc1 = partitionedNodes.toList().get(0);
+
+        contributions.put(HEALTH_SVC2, Arrays.asList(node().withId("svc2").withDetail("status", "DOWN").build()));
+        assertThat(partitionedNodes.update(contributions)).containsOnly("svc2");
+
+        assertThat(partitionedNodes.toList().get(0)).isSameAs(svc1);
+        assertThat(partitionedNodes.toList().get(1).getDetails()).containsEntry("status", "DOWN");
+        assertThat(partitionedNodes.update(contributions)).isEmpty();
+    }
+
+    @Test
+    public void shouldMergeInOrderOfPartitionKeysRegardlessOfChanges() {
+        PartitionedNodes partitionedNodes = new PartitionedNodes();
+        Map<PartitionedNodes.Key, List<Node>> contributions = new HashMap<>();
+        contributions.put(HEALTH_SVC1, Arrays.asList(node().withId("svc1").withDetail("status", "UP").build()));
+        contributions.put(INDEX_SVC1, Arrays.asList(node().withId("svc1").withDetail("type", "MICROSERVICE").build()));
+        partitionedNodes.update(contributions);
+
+        contributions.put(HEALTH_SVC1, Arrays.asList(node().withId("svc1").withDetail("status", "DOWN").build()));
+        partitionedNodes.update(contributions);
+
+        assertThat(partitionedNodes.toList()).hasSize(1);
+        assertThat(partitionedNodes.toList().get(0).getDetails())
+                .containsEntry("status", "DOWN")
+                .doesNotContainKey("type");
+    }
+
+    @Test
+    public void shouldRemoveNodesOfRemovedPartitions() {
+        PartitionedNodes partitionedNodes = new PartitionedNodes();
+        Map<PartitionedNodes.Key, List<Node>> contributions = new HashMap<>();
+        contributions.put(HEALTH_SVC1, Arrays.asList(node().withId("svc1").havingLinkedToNodeIds(newHashSet("db")).build(),
+                node().withId("db").build()));
+        contributions.put(HEALTH_SVC2, Arrays.asList(node().withId("svc2").havingLinkedToNodeIds(newHashSet("db")).build(),
+                node().withId("db").build()));
+        partitionedNodes.update(contributions);
+
+        contributions.remove(HEALTH_SVC1);
+
+        assertThat(partitionedNodes.update(contributions)).containsOnly("svc1");
+        assertThat(partitionedNodes.toList()).extracting("id").containsExactly("db", "svc2");
+    }
+
+    @Test
+    public void shouldNotChangeContributedNodes() {
+        PartitionedNodes partitionedNodes = new PartitionedNodes();
+        Node health = node().withId("svc1").withDetail("status", "UP").havingLinkedToNodeIds(newHashSet("db")).build();
+        Node index = node().withId("svc1").withDetail("status", "DOWN").havingLinkedToNodeIds(newHashSet("rsc1")).build();
+        Map<PartitionedNodes.Key, List<Node>> contributions = new HashMap<>();
+        contributions.put(HEALTH_SVC1, Arrays.asList(health));
+        contributions.put(INDEX_SVC1, Arrays.asList(index));
+
+        partitionedNodes.update(contributions);
+
+        assertThat(health.getDetails()).containsEntry("status", "UP");
+        assertThat(health.getLinkedToNodeIds()).containsOnly("db");
+        assertThat(partitionedNodes.toList().get(0)).isNotSameAs(health);
+    }
+}
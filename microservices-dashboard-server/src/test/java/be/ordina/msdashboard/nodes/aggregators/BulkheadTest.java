@@ -0,0 +1,87 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import io.reactivex.netty.client.RxClient;
+import org.junit.Test;
+import rx.subjects.PublishSubject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link Bulkhead}
+ */
+public class BulkheadTest {
+
+	private static final RxClient.ServerInfo HOST_A = new RxClient.ServerInfo("host-a", 8080);
+	private static final RxClient.ServerInfo HOST_B = new RxClient.ServerInfo("host-b", 8080);
+
+	@Test
+	public void shouldLimitRequestsPerHost() {
+		BulkheadProperties properties = new BulkheadProperties();
+		properties.setMaxInFlightPerHost(1);
+		Bulkhead bulkhead = new Bulkhead(properties);
+		PublishSubject<String> first = PublishSubject.create();
+		PublishSubject<String> second = PublishSubject.create();
+		PublishSubject<String> third = PublishSubject.create();
+
+		bulkhead.limit(HOST_A, first).subscribe();
+		bulkhead.limit(HOST_A, second).subscribe();
+		bulkhead.limit(HOST_B, third).subscribe();
+
+		assertThat(first.hasObservers()).isTrue();
+		assertThat(second.hasObservers()).isFalse();
+		assertThat(third.hasObservers()).isTrue();
+
+		first.onCompleted();
+
+		assertThat(second.hasObservers()).isTrue();
+	}
+
+	@Test
+	public void shouldLimitRequestsInTotal() {
+		BulkheadProperties properties = new BulkheadProperties();
+		properties.setMaxInFlight(1);
+		properties.setMaxInFlightPerHost(1);
+		Bulkhead bulkhead = new Bulkhead(properties);
+		PublishSubject<String> first = PublishSubject.create();
+		PublishSubject<String> second = PublishSubject.create();
+
+		bulkhead.limit(HOST_A, first).subscribe();
+		bulkhead.limit(HOST_B, second).subscribe();
+
+		assertThat(second.hasObservers()).isFalse();
+		assertThat(bulkhead.getInFlight()).isEqualTo(1);
+		assertThat(bulkhead.getWaiting()).isEqualTo(1);
+
+		first.onCompleted();
+
+		assertThat(second.hasObservers()).isTrue();
+	}
+
+	@Test
+	public void shouldForgetEvictedHost() {
+		BulkheadProperties properties = new BulkheadProperties();
+		properties.setMaxInFlightPerHost(1);
+		Bulkhead bulkhead = new Bulkhead(properties);
+
+		bulkhead.limit(HOST_A, PublishSubject.create()).subscribe();
+		bulkhead.limit(HOST_B, PublishSubject.create()).subscribe();
+		bulkhead.evict("host-a:8080");
+
+		assertThat(bulkhead.getHosts()).isEqualTo(1);
+	}
+}
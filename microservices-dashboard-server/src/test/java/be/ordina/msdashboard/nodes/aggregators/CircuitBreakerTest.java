@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import be.ordina.msdashboard.nodes.model.CircuitBreakerEvent;
+import be.ordina.msdashboard.nodes.model.Node;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import rx.Observable;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CircuitBreaker}
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CircuitBreakerTest {
+
+	@Mock
+	private ErrorHandler errorHandler;
+
+	private MeterRegistry meterRegistry;
+	private CircuitBreaker circuitBreaker;
+
+	@Before
+	public void setUp() {
+		CircuitBreakerProperties properties = new CircuitBreakerProperties();
+		properties.setEnabled(true);
+		properties.setRequestVolumeThreshold(1);
+		meterRegistry = new SimpleMeterRegistry();
+		// Hystrix keeps its state per command key, so each test uses an aggregator of its own
+		circuitBreaker = new CircuitBreaker("test-" + UUID.randomUUID(), properties, errorHandler, meterRegistry);
+	}
+
+	@Test
+	public void shouldPassNodesThroughWhileClosed() {
+		List<Node> nodes = circuitBreaker.execute("service", Observable.just(node().withId("service").build()))
+				.toList().toBlocking().single();
+
+		assertThat(nodes).extracting(Node::getId).containsExactly("service");
+		assertThat(nodes.get(0).getDetails()).doesNotContainKey(Node.STALE);
+		assertThat(circuitBreaker.isOpen("service")).isFalse();
+	}
+
+	@Test
+	public void shouldNotEmitNodesWhenCallFailsWhileClosed() {
+		List<Node> nodes = circuitBreaker.execute("service", Observable.error(new IllegalStateException()))
+				.toList().toBlocking().single();
+
+		assertThat(nodes).isEmpty();
+	}
+
+	@Test
+	public void shouldServeLastKnownNodesMarkedStaleWithoutCallingServiceWhenOpen() throws InterruptedException {
+		circuitBreaker.execute("service", Observable.just(node().withId("service").withDetail("status", "UP").build()))
+				.toBlocking().last();
+
+		openCircuit("service");
+
+		AtomicInteger calls = new AtomicInteger();
+		List<Node> nodes = circuitBreaker.execute("service", Observable.defer(() -> {
+			calls.incrementAndGet();
+			return Observable.just(node().withId("service").build());
+		})).toList().toBlocking().single();
+
+		assertThat(calls.get()).isEqualTo(0);
+		assertThat(nodes).hasSize(1);
+		assertThat(nodes.get(0).getDetails())
+				.containsEntry("status", "UP")
+				.containsEntry(Node.STALE, true);
+		assertThat(meterRegistry.get(CircuitBreaker.OPEN_METRIC).tag("service", "service").gauge().value())
+				.isEqualTo(1.0);
+
+		ArgumentCaptor<CircuitBreakerEvent> event = ArgumentCaptor.forClass(CircuitBreakerEvent.class);
+		verify(errorHandler).handleCircuitBreakerEvent(event.capture());
+		assertThat(event.getValue().getNodeId()).isEqualTo("service");
+		assertThat(event.getValue().isOpen()).isTrue();
+	}
+
+	@Test
+	public void shouldKeepCircuitPerInstance() throws InterruptedException {
+		for (int i = 0; i < 50 && !circuitBreaker.isOpen("service", "host1:8080"); i++) {
+			circuitBreaker.execute("service", "host1:8080", Observable.<Node>error(new IllegalStateException()))
+					.toList().toBlocking().single();
+			circuitBreaker.execute("service", "host2:8080", Observable.just(node().withId("service").build()))
+					.toList().toBlocking().single();
+			Thread.sleep(100);
+		}
+
+		assertThat(circuitBreaker.isOpen("service", "host1:8080")).isTrue();
+		assertThat(circuitBreaker.isOpen("service", "host2:8080")).isFalse();
+		assertThat(circuitBreaker.isOpen("service")).isFalse();
+		ArgumentCaptor<CircuitBreakerEvent> event = ArgumentCaptor.forClass(CircuitBreakerEvent.class);
+		verify(errorHandler).handleCircuitBreakerEvent(event.capture());
+		assertThat(event.getValue().getInstance()).isEqualTo("host1:8080");
+
+		circuitBreaker.evict("service", "host1:8080");
+
+		assertThat(circuitBreaker.isOpen("service", "host1:8080")).isFalse();
+		assertThat(meterRegistry.find(CircuitBreaker.OPEN_METRIC).tag("instance", "host1:8080").gauge()).isNull();
+		assertThat(meterRegistry.find(CircuitBreaker.OPEN_METRIC).tag("instance", "host2:8080").gauge()).isNotNull();
+	}
+
+	@Test
+	public void shouldNotReuseCommandKeyOfDepartedInstanceWithinRollingWindow() throws InterruptedException {
+		for (int i = 0; i < 50 && !circuitBreaker.isOpen("service", "host1:8080"); i++) {
+			circuitBreaker.execute("service", "host1:8080", Observable.<Node>error(new IllegalStateException()))
+					.toList().toBlocking().single();
+			Thread.sleep(100);
+		}
+		assertThat(circuitBreaker.isOpen("service", "host1:8080")).isTrue();
+
+		circuitBreaker.evict("service", "host1:8080");
+		List<Node> nodes = circuitBreaker.execute("service", "host1:8080",
+				Observable.just(node().withId("service").build())).toList().toBlocking().single();
+
+		assertThat(nodes).extracting(Node::getId).containsExactly("service");
+		assertThat(circuitBreaker.isOpen("service", "host1:8080")).isFalse();
+	}
+
+	@Test
+	public void shouldCloseCircuitOfCommandKeyReusedAfterRollingWindow() throws InterruptedException {
+		CircuitBreakerProperties properties = new CircuitBreakerProperties();
+		properties.setEnabled(true);
+		properties.setRequestVolumeThreshold(1);
+		properties.setRollingWindow(1000);
+		circuitBreaker = new CircuitBreaker("test-" + UUID.randomUUID(), properties, errorHandler, meterRegistry);
+		for (int i = 0; i < 50 && !circuitBreaker.isOpen("service", "host1:8080"); i++) {
+			circuitBreaker.execute("service", "host1:8080", Observable.<Node>error(new IllegalStateException()))
+					.toList().toBlocking().single();
+			Thread.sleep(100);
+		}
+		assertThat(circuitBreaker.isOpen("service", "host1:8080")).isTrue();
+
+		circuitBreaker.evict("service", "host1:8080");
+		Thread.sleep(1000);
+		List<Node> nodes = circuitBreaker.execute("service", "host2:8080",
+				Observable.just(node().withId("service").build())).toList().toBlocking().single();
+
+		assertThat(nodes).extracting(Node::getId).containsExactly("service");
+		assertThat(circuitBreaker.isOpen("service", "host2:8080")).isFalse();
+	}
+
+	private void openCircuit(String serviceId) throws InterruptedException {
+		for (int i = 0; i < 50 && !circuitBreaker.isOpen(serviceId); i++) {
+			circuitBreaker.execute(serviceId, Observable.<Node>error(new IllegalStateException()))
+					.toList().toBlocking().single();
+			Thread.sleep(100);
+		}
+		assertThat(circuitBreaker.isOpen(serviceId)).isTrue();
+	}
+}
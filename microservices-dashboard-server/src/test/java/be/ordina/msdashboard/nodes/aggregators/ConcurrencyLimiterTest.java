@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import org.junit.Test;
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.subjects.PublishSubject;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ConcurrencyLimiter}
+ */
+public class ConcurrencyLimiterTest {
+
+	@Test
+	public void shouldNotSubscribeBeyondLimit() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+		PublishSubject<String> first = PublishSubject.create();
+		PublishSubject<String> second = PublishSubject.create();
+		PublishSubject<String> third = PublishSubject.create();
+
+		Observable.merge(limiter.limit(first), limiter.limit(second), limiter.limit(third)).subscribe();
+
+		assertThat(first.hasObservers()).isTrue();
+		assertThat(second.hasObservers()).isTrue();
+		assertThat(third.hasObservers()).isFalse();
+		assertThat(limiter.getInFlight()).isEqualTo(2);
+		assertThat(limiter.getWaiting()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldSubscribeWaitingObservableWhenEarlierOneTerminates() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+		PublishSubject<String> first = PublishSubject.create();
+		PublishSubject<String> second = PublishSubject.create();
+		TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+		Observable.merge(limiter.limit(first), limiter.limit(second)).subscribe(testSubscriber);
+		first.onNext("first");
+		first.onCompleted();
+		second.onNext("second");
+		second.onError(new IllegalStateException());
+
+		testSubscriber.assertValues("first", "second");
+		testSubscriber.assertError(IllegalStateException.class);
+		assertThat(limiter.getInFlight()).isEqualTo(0);
+		assertThat(limiter.getWaiting()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldReleasePermitWhenUnsubscribed() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+		PublishSubject<String> first = PublishSubject.create();
+		PublishSubject<String> second = PublishSubject.create();
+
+		Subscription subscription = limiter.limit(first).subscribe();
+		limiter.limit(second).subscribe();
+		subscription.unsubscribe();
+
+		assertThat(first.hasObservers()).isFalse();
+		assertThat(second.hasObservers()).isTrue();
+		assertThat(limiter.getInFlight()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldSkipObservableUnsubscribedWhileWaiting() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+		PublishSubject<String> first = PublishSubject.create();
+		PublishSubject<String> second = PublishSubject.create();
+		PublishSubject<String> third = PublishSubject.create();
+
+		limiter.limit(first).subscribe();
+		limiter.limit(second).subscribe().unsubscribe();
+		limiter.limit(third).subscribe();
+		first.onCompleted();
+
+		assertThat(second.hasObservers()).isFalse();
+		assertThat(third.hasObservers()).isTrue();
+		assertThat(limiter.getInFlight()).isEqualTo(1);
+		assertThat(limiter.getWaiting()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldStartWaitingObservablesWhichCompleteImmediatelyWithoutRecursing() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+		PublishSubject<String> first = PublishSubject.create();
+		AtomicInteger received = new AtomicInteger();
+
+		limiter.limit(first).subscribe();
+		for (int i = 0; i < 100000; i++) {
+			limiter.limit(Observable.just("value")).subscribe(value -> received.incrementAndGet());
+		}
+		first.onCompleted();
+
+		assertThat(received.get()).isEqualTo(100000);
+		assertThat(limiter.getInFlight()).isEqualTo(0);
+		assertThat(limiter.getWaiting()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldNotLimitWithoutMaximum() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(0);
+		Observable<String> observable = Observable.just("value");
+
+		assertThat(limiter.limit(observable)).isSameAs(observable);
+	}
+}
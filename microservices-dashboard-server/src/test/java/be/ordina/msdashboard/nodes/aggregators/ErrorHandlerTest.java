@@ -16,6 +16,9 @@
 package be.ordina.msdashboard.nodes.aggregators;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import org.junit.Before;
@@ -25,6 +28,10 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.context.ApplicationEventPublisher;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import be.ordina.msdashboard.nodes.model.CircuitBreakerEvent;
 import be.ordina.msdashboard.nodes.model.NodeEvent;
 import be.ordina.msdashboard.nodes.model.SystemEvent;
 
@@ -83,4 +90,67 @@ public class ErrorHandlerTest {
 		assertThat(nodeEvent.getThrowable()).isEqualTo(t);
 		assertThat(nodeEvent.getMessage()).isEqualTo("some message");
     }
+
+	@Test
+	public void shouldSuppressEventsWithinWindow() {
+		errorHandler = new ErrorHandler(publisher, coalescing(60000, false), null);
+		AtomicInteger formatted = new AtomicInteger();
+
+		errorHandler.handleNodeError("serviceId", () -> "message " + formatted.incrementAndGet(), new Throwable());
+		errorHandler.handleNodeError("serviceId", () -> "message " + formatted.incrementAndGet(), new Throwable());
+		errorHandler.handleNodeError("serviceId", () -> "message " + formatted.incrementAndGet(), new Throwable());
+		errorHandler.handleNodeWarning("serviceId", "some warning");
+		errorHandler.handleNodeError("otherServiceId", "some message", new Throwable());
+
+		ArgumentCaptor<NodeEvent> captor = ArgumentCaptor.forClass(NodeEvent.class);
+		verify(publisher, times(3)).publishEvent(captor.capture());
+		List<NodeEvent> events = captor.getAllValues();
+		assertThat(events).extracting("nodeId").containsExactly("serviceId", "serviceId", "otherServiceId");
+		assertThat(events).extracting("message").containsExactly("message 1", "some warning", "some message");
+		assertThat(formatted.get()).isEqualTo(1);
+		assertThat(errorHandler.getSuppressedEvents())
+				.containsEntry("serviceId:error", 2L)
+				.containsEntry("serviceId:warning", 0L)
+				.containsEntry("otherServiceId:error", 0L);
+	}
+
+	@Test
+	public void shouldNotSuppressCircuitBreakerEvents() {
+		errorHandler = new ErrorHandler(publisher, coalescing(60000, false), null);
+
+		errorHandler.handleCircuitBreakerEvent(new CircuitBreakerEvent("serviceId", "health", true));
+		errorHandler.handleCircuitBreakerEvent(new CircuitBreakerEvent("serviceId", "health", false));
+
+		verify(publisher, times(2)).publishEvent(any(CircuitBreakerEvent.class));
+		assertThat(errorHandler.getSuppressedEvents()).isEmpty();
+	}
+
+	@Test
+	public void shouldPublishAsynchronously() {
+		errorHandler = new ErrorHandler(publisher, coalescing(0, true), null);
+
+		errorHandler.handleNodeWarning("serviceId", "some message");
+		errorHandler.handleSystemError("some message", new Throwable());
+
+		verify(publisher, timeout(1000)).publishEvent(any(NodeEvent.class));
+		verify(publisher, timeout(1000).times(2)).publishEvent(any(SystemEvent.class));
+	}
+
+	@Test
+	public void shouldPublishWaitingEventsWhenShutDown() {
+		errorHandler = new ErrorHandler(publisher, coalescing(0, true), null);
+
+		errorHandler.handleNodeWarning("serviceId", "some message");
+		errorHandler.shutdown();
+		errorHandler.handleNodeWarning("serviceId", "after shutdown");
+
+		verify(publisher, timeout(1000)).publishEvent(any(NodeEvent.class));
+	}
+
+	private static ErrorHandlerProperties coalescing(long window, boolean async) {
+		ErrorHandlerProperties properties = new ErrorHandlerProperties();
+		properties.setWindow(window);
+		properties.setAsync(async);
+		return properties;
+	}
 }
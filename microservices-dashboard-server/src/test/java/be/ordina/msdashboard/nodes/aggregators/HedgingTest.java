@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import org.junit.Before;
+import org.junit.Test;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link Hedging}
+ */
+public class HedgingTest {
+
+	private HedgingProperties properties;
+	private TestScheduler scheduler;
+	private Hedging hedging;
+
+	@Before
+	public void setUp() {
+		properties = new HedgingProperties();
+		properties.setEnabled(true);
+		properties.setMinDelay(10);
+		scheduler = new TestScheduler();
+		hedging = new Hedging(properties, scheduler);
+	}
+
+	@Test
+	public void shouldUseMinimumDelayWithoutEnoughResponseTimes() {
+		hedging.record("service", 500);
+
+		assertThat(hedging.getDelay("service")).isEqualTo(10);
+		assertThat(hedging.getDelay("other")).isEqualTo(10);
+	}
+
+	@Test
+	public void shouldDeriveDelayFromPercentileOfResponseTimes() {
+		for (int i = 1; i <= 100; i++) {
+			hedging.record("service", i);
+		}
+
+		assertThat(hedging.getDelay("service")).isEqualTo(95);
+		assertThat(hedging.getDelay("other")).isEqualTo(10);
+	}
+
+	@Test
+	public void shouldOnlyKeepRecentResponseTimes() {
+		properties.setSamples(20);
+		for (int i = 0; i < 40; i++) {
+			hedging.record("service", i < 20 ? 1000 : 20);
+		}
+
+		assertThat(hedging.getDelay("service")).isEqualTo(20);
+	}
+
+	@Test
+	public void shouldUseHedgedRequestWhenItAnswersFirst() {
+		PublishSubject<String> request = PublishSubject.create();
+		PublishSubject<String> hedgedRequest = PublishSubject.create();
+		TestSubscriber<String> testSubscriber = new TestSubscriber<>();
+
+		hedging.hedge("service", request, hedgedRequest).subscribe(testSubscriber);
+		scheduler.advanceTimeBy(9, TimeUnit.MILLISECONDS);
+		assertThat(hedgedRequest.hasObservers()).isFalse();
+		scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+		hedgedRequest.onNext("hedged");
+		hedgedRequest.onCompleted();
+
+		testSubscriber.assertValue("hedged");
+		testSubscriber.assertCompleted();
+		assertThat(request.hasObservers()).isFalse();
+	}
+
+	@Test
+	public void shouldRecordResponseTimeOfRequest() {
+		PublishSubject<String> request = PublishSubject.create();
+		PublishSubject<String> hedgedRequest = PublishSubject.create();
+
+		hedging.hedge("service", request, hedgedRequest).subscribe();
+		scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+		request.onNext("first");
+		request.onCompleted();
+		scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+		assertThat(hedgedRequest.hasObservers()).isFalse();
+		for (int i = 1; i < 20; i++) {
+			hedging.record("service", 50);
+		}
+		assertThat(hedging.getDelay("service")).isEqualTo(50);
+	}
+
+	@Test
+	public void shouldRecordTimeWaitedForRequestWhenHedgedRequestWins() {
+		properties.setPercentile(100);
+		for (int i = 0; i < 18; i++) {
+			hedging.record("service", 1);
+		}
+		PublishSubject<String> request = PublishSubject.create();
+		PublishSubject<String> hedgedRequest = PublishSubject.create();
+
+		hedging.hedge("service", request, hedgedRequest).subscribe();
+		scheduler.advanceTimeBy(13, TimeUnit.MILLISECONDS);
+		hedgedRequest.onNext("hedged");
+		hedgedRequest.onCompleted();
+
+		assertThat(request.hasObservers()).isFalse();
+		assertThat(hedging.getDelay("service")).isEqualTo(13);
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import be.ordina.msdashboard.nodes.uriresolvers.InstanceFingerprintResolver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import rx.Observable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link InstanceResultCache}
+ */
+public class InstanceResultCacheTest {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private InstanceFingerprintResolver fingerprintResolver;
+	private InstanceResultCache cache;
+	private ServiceInstance instance = new DefaultServiceInstance("svc", "host", 8080, false);
+	private AtomicInteger retrievals;
+
+	@Before
+	public void setUp() {
+		fingerprintResolver = mock(InstanceFingerprintResolver.class);
+		cache = new InstanceResultCache(fingerprintResolver);
+		retrievals = new AtomicInteger();
+	}
+
+	@Test
+	public void shouldReuseNodesWhileFingerprintIsUnchanged() {
+		when(fingerprintResolver.resolveFingerprint(instance)).thenReturn("svc:1@1");
+
+		List<Node> first = get(node().withId("svc").withDetail("status", "UP").build());
+		first.get(0).addDetail("status", "DOWN");
+		List<Node> second = get(node().withId("other").build());
+
+		assertThat(retrievals.get()).isEqualTo(1);
+		assertThat(second).extracting(Node::getId).containsExactly("svc");
+		assertThat(second.get(0).getDetails()).containsEntry("status", "UP");
+	}
+
+	@Test
+	public void shouldRetrieveNodesAgainWhenFingerprintChanges() {
+		when(fingerprintResolver.resolveFingerprint(instance)).thenReturn("svc:1@1", "svc:1@2");
+
+		get(node().withId("svc").build());
+		List<Node> nodes = get(node().withId("other").build());
+
+		assertThat(retrievals.get()).isEqualTo(2);
+		assertThat(nodes).extracting(Node::getId).containsExactly("other");
+	}
+
+	@Test
+	public void shouldAlwaysRetrieveNodesWithoutFingerprint() {
+		get(node().withId("svc").build());
+		get(node().withId("svc").build());
+
+		assertThat(retrievals.get()).isEqualTo(2);
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void shouldNotKeepEmptyOrStaleResults() {
+		when(fingerprintResolver.resolveFingerprint(instance)).thenReturn("svc:1@1");
+		Node stale = node().withId("svc").build();
+		stale.addDetail(Node.STALE, true);
+
+		get();
+		get(stale);
+		get(node().withId("svc").build());
+		get(node().withId("svc").build());
+
+		assertThat(retrievals.get()).isEqualTo(3);
+	}
+
+	@Test
+	public void shouldEvictInstance() {
+		when(fingerprintResolver.resolveFingerprint(instance)).thenReturn("svc:1@1");
+		get(node().withId("svc").build());
+
+		cache.evict("SVC", "host:8080");
+
+		assertThat(cache.size()).isZero();
+	}
+
+	@Test
+	public void shouldReloadPersistedNodes() throws IOException {
+		when(fingerprintResolver.resolveFingerprint(instance)).thenReturn("svc:1@1");
+		File directory = temporaryFolder.newFolder();
+		cache = new InstanceResultCache(fingerprintResolver, directory.toPath());
+		get(node().withId("svc").withDetail("status", "UP").build());
+
+		cache = new InstanceResultCache(fingerprintResolver, directory.toPath());
+		List<Node> nodes = get(node().withId("other").build());
+
+		assertThat(retrievals.get()).isEqualTo(1);
+		assertThat(nodes).extracting(Node::getId).containsExactly("svc");
+		assertThat(nodes.get(0).getDetails()).containsEntry("status", "UP");
+	}
+
+	@Test
+	public void shouldDeletePersistedNodesOfEvictedInstance() throws IOException {
+		when(fingerprintResolver.resolveFingerprint(instance)).thenReturn("svc:1@1");
+		File directory = temporaryFolder.newFolder();
+		cache = new InstanceResultCache(fingerprintResolver, directory.toPath());
+		get(node().withId("svc").build());
+
+		cache.evict("svc", "host:8080");
+
+		assertThat(directory.list()).isEmpty();
+		assertThat(new InstanceResultCache(fingerprintResolver, directory.toPath()).size()).isZero();
+	}
+
+	private List<Node> get(Node... nodes) {
+		return cache.get(instance, () -> {
+			retrievals.incrementAndGet();
+			return Observable.from(nodes);
+		}).toList().toBlocking().single();
+	}
+}
@@ -1,23 +1,38 @@
 package be.ordina.msdashboard.nodes.aggregators;
 
+import be.ordina.msdashboard.nodes.model.CircuitBreakerEvent;
+import be.ordina.msdashboard.nodes.model.InstanceEvent;
+import be.ordina.msdashboard.nodes.model.Node;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.reactivex.netty.client.RxClient;
 import io.reactivex.netty.protocol.http.client.*;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import rx.Observable;
 import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
@@ -27,13 +42,17 @@ import static org.mockito.Mockito.*;
 @RunWith(MockitoJUnitRunner.class)
 public class NettyServiceCallerTest {
 
-	@InjectMocks
 	private NettyServiceCaller nettyServiceCaller;
 
 	@Mock
 	private ErrorHandler errorHandler;
 	@Mock
 	private CompositeHttpClient<ByteBuf, ByteBuf> rxClient;
+
+	@Before
+	public void setUp() {
+		nettyServiceCaller = new NettyServiceCaller(errorHandler, rxClient, new ObjectMapper());
+	}
 	
 	@SuppressWarnings("unchecked")
 	@Test
@@ -55,7 +74,7 @@ public class NettyServiceCallerTest {
 		nettyServiceCaller.retrieveJsonFromRequest("serviceId", request).toBlocking().subscribe(testSubscriber);
         testSubscriber.assertNoErrors();
         
-        verify(errorHandler).handleNodeWarning(Mockito.eq("serviceId"), Mockito.anyString());
+        verify(errorHandler).handleNodeWarning(Mockito.eq("serviceId"), Mockito.any(Supplier.class));
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -108,6 +127,355 @@ public class NettyServiceCallerTest {
 		nettyServiceCaller.retrieveJsonFromRequest("serviceId", request).toBlocking().subscribe(testSubscriber);
         testSubscriber.assertNoErrors();
         
-        verify(errorHandler).handleNodeError(Mockito.eq("serviceId"), Mockito.anyString(), Mockito.any(RuntimeException.class));
+        verify(errorHandler).handleNodeError(Mockito.eq("serviceId"), Mockito.any(Supplier.class), Mockito.any(RuntimeException.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldAggregateChunksBeforeParsing(){
+		HttpClientRequest<ByteBuf> request = mock(HttpClientRequest.class);
+		when(request.getUri()).thenReturn("http://someUri.com");
+
+		HttpClientResponse<ByteBuf> response = mock(HttpClientResponse.class);
+		when(response.getStatus()).thenReturn(OK);
+		byte[] carJson = "{ \"brand\" : \"Merc\u00e9d\u00e8s\", \"doors\" : 5 }".getBytes(StandardCharsets.UTF_8);
+		// The second chunk starts in the middle of a two byte character
+		when(response.getContent()).thenReturn(Observable.just(
+				Unpooled.wrappedBuffer(carJson, 0, 18), Unpooled.wrappedBuffer(carJson, 18, 9),
+				Unpooled.wrappedBuffer(carJson, 27, carJson.length - 27)));
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(request))).thenReturn(Observable.just(response));
+
+		TestSubscriber<Map<String, Object>> testSubscriber = new TestSubscriber<>();
+		nettyServiceCaller.retrieveJsonFromRequest("serviceId", request).toBlocking().subscribe(testSubscriber);
+		testSubscriber.assertNoErrors();
+
+		List<Map<String, Object>> json = testSubscriber.getOnNextEvents();
+		assertThat(json).hasSize(1);
+		assertThat(json.get(0)).containsEntry("brand", "Merc\u00e9d\u00e8s").containsEntry("doors", 5);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldHandTokensToReader(){
+		HttpClientRequest<ByteBuf> request = mock(HttpClientRequest.class);
+		when(request.getUri()).thenReturn("http://someUri.com");
+
+		HttpClientResponse<ByteBuf> response = mock(HttpClientResponse.class);
+		when(response.getStatus()).thenReturn(OK);
+		ByteBuf content = utf8Buffer("{ \"brand\" : \"Mercedes\", \"doors\" : 5 }");
+		when(response.getContent()).thenReturn(Observable.just(content));
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(request))).thenReturn(Observable.just(response));
+
+		TestSubscriber<Integer> testSubscriber = new TestSubscriber<>();
+		nettyServiceCaller.retrieveFromRequest("serviceId", request, parser -> {
+			int fields = 0;
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				if (token == JsonToken.FIELD_NAME) {
+					fields++;
+				}
+			}
+			return fields;
+		}).toBlocking().subscribe(testSubscriber);
+		testSubscriber.assertNoErrors();
+
+		testSubscriber.assertValue(2);
+		assertThat(content.refCnt()).isEqualTo(1);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldNotEmitInvalidJson(){
+		HttpClientRequest<ByteBuf> request = mock(HttpClientRequest.class);
+		when(request.getUri()).thenReturn("http://someUri.com");
+
+		HttpClientResponse<ByteBuf> response = mock(HttpClientResponse.class);
+		when(response.getStatus()).thenReturn(OK);
+		when(response.getContent()).thenReturn(Observable.just(utf8Buffer("{ \"brand\" : ")));
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(request))).thenReturn(Observable.just(response));
+
+		TestSubscriber<Map<String, Object>> testSubscriber = new TestSubscriber<>();
+		nettyServiceCaller.retrieveJsonFromRequest("serviceId", request).toBlocking().subscribe(testSubscriber);
+
+		testSubscriber.assertNoErrors();
+		testSubscriber.assertNoValues();
+		testSubscriber.assertCompleted();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldTimeOutWhenResponseDoesNotStart(){
+		TestScheduler scheduler = new TestScheduler();
+		TimeoutProperties timeouts = new TimeoutProperties();
+		timeouts.setResponseTimeout(300);
+		timeouts.setReadTimeout(200);
+		NettyServiceCaller caller = nettyServiceCaller.withScheduler(scheduler).withTimeouts(timeouts);
+
+		HttpClientRequest<ByteBuf> request = mockRequest("http://someUri.com");
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(request))).thenReturn(Observable.never());
+
+		TestSubscriber<Map<String, Object>> testSubscriber = new TestSubscriber<>();
+		caller.retrieveJsonFromRequest("serviceId", request).subscribe(testSubscriber);
+		scheduler.advanceTimeBy(299, TimeUnit.MILLISECONDS);
+		testSubscriber.assertNoTerminalEvent();
+		scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+		testSubscriber.assertNoErrors();
+		testSubscriber.assertNoValues();
+		testSubscriber.assertCompleted();
+		verify(errorHandler).handleNodeError(eq("serviceId"), any(Supplier.class), any(TimeoutException.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldWaitForResponseAsLongAsReadTimeoutByDefault(){
+		TestScheduler scheduler = new TestScheduler();
+		TimeoutProperties timeouts = new TimeoutProperties();
+		timeouts.setReadTimeout(200);
+		NettyServiceCaller caller = nettyServiceCaller.withScheduler(scheduler).withTimeouts(timeouts);
+
+		HttpClientRequest<ByteBuf> request = mockRequest("http://someUri.com");
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(request))).thenReturn(Observable.never());
+
+		TestSubscriber<Map<String, Object>> testSubscriber = new TestSubscriber<>();
+		caller.retrieveJsonFromRequest("serviceId", request).subscribe(testSubscriber);
+		scheduler.advanceTimeBy(199, TimeUnit.MILLISECONDS);
+		testSubscriber.assertNoTerminalEvent();
+		scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+		testSubscriber.assertCompleted();
+		verify(errorHandler).handleNodeError(eq("serviceId"), any(Supplier.class), any(TimeoutException.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldTimeOutWhenContentStalls(){
+		TestScheduler scheduler = new TestScheduler();
+		TimeoutProperties timeouts = new TimeoutProperties();
+		timeouts.setReadTimeout(1000);
+		TimeoutProperties serviceTimeouts = new TimeoutProperties();
+		serviceTimeouts.setReadTimeout(200);
+		timeouts.getServices().put("serviceId", serviceTimeouts);
+		NettyServiceCaller caller = nettyServiceCaller.withScheduler(scheduler).withTimeouts(timeouts);
+
+		HttpClientRequest<ByteBuf> request = mockRequest("http://someUri.com");
+		HttpClientResponse<ByteBuf> response = mock(HttpClientResponse.class);
+		when(response.getStatus()).thenReturn(OK);
+		when(response.getContent()).thenReturn(Observable.never());
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(request))).thenReturn(Observable.just(response));
+
+		TestSubscriber<Map<String, Object>> testSubscriber = new TestSubscriber<>();
+		caller.retrieveJsonFromRequest("serviceId", request).subscribe(testSubscriber);
+		scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+
+		testSubscriber.assertNoValues();
+		testSubscriber.assertCompleted();
+		verify(errorHandler).handleNodeError(eq("serviceId"), any(Supplier.class), any(TimeoutException.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldSendHedgedRequestWhenServiceIsSlow(){
+		TestScheduler scheduler = new TestScheduler();
+		HedgingProperties hedging = new HedgingProperties();
+		hedging.setEnabled(true);
+		hedging.setMinDelay(100);
+		NettyServiceCaller caller = nettyServiceCaller.withScheduler(scheduler).withHedging(hedging);
+
+		HttpClientRequest<ByteBuf> request = mockRequest("http://first:8080/health");
+		HttpClientRequest<ByteBuf> hedgedRequest = mockRequest("http://second:8080/health");
+		HttpClientResponse<ByteBuf> response = mock(HttpClientResponse.class);
+		when(response.getStatus()).thenReturn(OK);
+		when(response.getContent()).thenReturn(Observable.just(utf8Buffer("{ \"status\" : \"UP\" }")));
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(request))).thenReturn(Observable.never());
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(hedgedRequest))).thenReturn(Observable.just(response));
+
+		TestSubscriber<Map<String, Object>> testSubscriber = new TestSubscriber<>();
+		caller.retrieveJsonFromRequest("serviceId", request, () -> hedgedRequest).subscribe(testSubscriber);
+		scheduler.advanceTimeBy(99, TimeUnit.MILLISECONDS);
+		testSubscriber.assertNoValues();
+		scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+
+		testSubscriber.assertNoErrors();
+		assertThat(testSubscriber.getOnNextEvents()).hasSize(1);
+		assertThat(testSubscriber.getOnNextEvents().get(0)).containsEntry("status", "UP");
+		testSubscriber.assertCompleted();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldNotSendHedgedRequestWhenServiceAnswers(){
+		TestScheduler scheduler = new TestScheduler();
+		HedgingProperties hedging = new HedgingProperties();
+		hedging.setEnabled(true);
+		NettyServiceCaller caller = nettyServiceCaller.withScheduler(scheduler).withHedging(hedging);
+
+		HttpClientRequest<ByteBuf> request = mockRequest("http://first:8080/health");
+		HttpClientResponse<ByteBuf> response = mock(HttpClientResponse.class);
+		when(response.getStatus()).thenReturn(OK);
+		when(response.getContent()).thenReturn(Observable.just(utf8Buffer("{ \"status\" : \"UP\" }")));
+		when(rxClient.submit(any(RxClient.ServerInfo.class), eq(request))).thenReturn(Observable.just(response));
+		AtomicInteger hedgedRequests = new AtomicInteger();
+
+		TestSubscriber<Map<String, Object>> testSubscriber = new TestSubscriber<>();
+		caller.retrieveJsonFromRequest("serviceId", request, () -> {
+			hedgedRequests.incrementAndGet();
+			return null;
+		}).subscribe(testSubscriber);
+		scheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+
+		testSubscriber.assertValueCount(1);
+		testSubscriber.assertCompleted();
+		assertThat(hedgedRequests.get()).isEqualTo(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldReuseNodesWhenResponseIsNotModified(){
+		NettyServiceCaller caller = nettyServiceCaller.withResponseCache(true);
+		HttpClientResponse<ByteBuf> modified = mockResponse(OK, "{ \"name\" : \"svc\" }");
+		when(modified.getHeaders().get(HttpHeaders.ETAG)).thenReturn("\"v1\"");
+		HttpClientResponse<ByteBuf> notModified = mockResponse(HttpResponseStatus.NOT_MODIFIED, "");
+		when(rxClient.submit(any(RxClient.ServerInfo.class), any(HttpClientRequest.class)))
+				.thenReturn(Observable.just(modified), Observable.just(notModified));
+		AtomicInteger conversions = new AtomicInteger();
+
+		List<Node> first = retrieveNodes(caller, mockRequest("http://svc/mappings"), conversions);
+		HttpClientRequest<ByteBuf> conditionalRequest = mockRequest("http://svc/mappings");
+		List<Node> second = retrieveNodes(caller, conditionalRequest, conversions);
+
+		verify(conditionalRequest).withHeader(HttpHeaders.IF_NONE_MATCH, "\"v1\"");
+		assertThat(conversions.get()).isEqualTo(1);
+		assertThat(first).extracting(Node::getId).containsExactly("svc");
+		assertThat(second).extracting(Node::getId).containsExactly("svc");
+		assertThat(second.get(0)).isNotSameAs(first.get(0));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldReuseNodesWhenContentIsUnchanged(){
+		NettyServiceCaller caller = nettyServiceCaller.withResponseCache(true);
+		HttpClientResponse<ByteBuf> first = mockResponse(OK, "{ \"name\" : \"svc\" }");
+		HttpClientResponse<ByteBuf> same = mockResponse(OK, "{ \"name\" : \"svc\" }");
+		HttpClientResponse<ByteBuf> other = mockResponse(OK, "{ \"name\" : \"other\" }");
+		when(rxClient.submit(any(RxClient.ServerInfo.class), any(HttpClientRequest.class)))
+				.thenReturn(Observable.just(first), Observable.just(same), Observable.just(other));
+		AtomicInteger conversions = new AtomicInteger();
+
+		retrieveNodes(caller, mockRequest("http://svc/mappings"), conversions);
+		List<Node> unchanged = retrieveNodes(caller, mockRequest("http://svc/mappings"), conversions);
+		assertThat(conversions.get()).isEqualTo(1);
+		assertThat(unchanged).extracting(Node::getId).containsExactly("svc");
+
+		List<Node> changed = retrieveNodes(caller, mockRequest("http://svc/mappings"), conversions);
+		assertThat(conversions.get()).isEqualTo(2);
+		assertThat(changed).extracting(Node::getId).containsExactly("other");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldCountErrorStatusAsFailedCall() throws InterruptedException {
+		NettyServiceCaller caller = nettyServiceCaller.withResponseCache(true)
+				.withCircuitBreaker("test-" + UUID.randomUUID(), circuitBreakerProperties(), null);
+		when(rxClient.submit(any(RxClient.ServerInfo.class), any(HttpClientRequest.class)))
+				.thenAnswer(invocation -> Observable.just(mockResponse(HttpResponseStatus.INTERNAL_SERVER_ERROR, "")));
+
+		assertThat(retrieveUntilCircuitOpens(caller)).isTrue();
+		verify(errorHandler, atLeastOnce()).handleNodeWarning(eq("serviceId"), any(Supplier.class));
+	}
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldOpenCircuitWhenCallsFailWithoutResponseCache() throws InterruptedException {
+		NettyServiceCaller caller = nettyServiceCaller
+				.withCircuitBreaker("test-" + UUID.randomUUID(), circuitBreakerProperties(), null);
+		when(rxClient.submit(any(RxClient.ServerInfo.class), any(HttpClientRequest.class)))
+				.thenReturn(Observable.error(new RuntimeException()));
+
+		assertThat(retrieveUntilCircuitOpens(caller)).isTrue();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void shouldForgetResponsesOfDeregisteredInstance(){
+		NettyServiceCaller caller = nettyServiceCaller.withResponseCache(true);
+		HttpClientResponse<ByteBuf> modified = mockResponse(OK, "{ \"name\" : \"svc\" }");
+		when(modified.getHeaders().get(HttpHeaders.ETAG)).thenReturn("\"v1\"");
+		when(rxClient.submit(any(RxClient.ServerInfo.class), any(HttpClientRequest.class)))
+				.thenReturn(Observable.just(modified), Observable.just(mockResponse(OK, "{ \"name\" : \"svc\" }")));
+
+		retrieveNodes(caller, mockRequest("http://svc:8080/mappings"), new AtomicInteger());
+		nettyServiceCaller.onInstanceEvent(new InstanceEvent("svc", "svc:8080", false));
+		HttpClientRequest<ByteBuf> request = mockRequest("http://svc:8080/mappings");
+		retrieveNodes(caller, request, new AtomicInteger());
+
+		verify(request, never()).withHeader(HttpHeaders.IF_NONE_MATCH, "\"v1\"");
+	}
+
+	@Test
+	public void shouldLeaveGivenClientRunningOnShutdown(){
+		BulkheadProperties properties = new BulkheadProperties();
+		properties.setIsolated(true);
+		nettyServiceCaller.withBulkhead(properties);
+
+		nettyServiceCaller.shutdown();
+
+		verify(rxClient, never()).shutdown();
+	}
+
+	private static CircuitBreakerProperties circuitBreakerProperties() {
+		CircuitBreakerProperties properties = new CircuitBreakerProperties();
+		properties.setEnabled(true);
+		properties.setRequestVolumeThreshold(1);
+		return properties;
+	}
+
+	/**
+	 * Hystrix only looks at the failures of a circuit periodically, so the
+	 * service is called until its circuit opens or the attempts run out.
+	 */
+	private boolean retrieveUntilCircuitOpens(NettyServiceCaller caller) throws InterruptedException {
+		AtomicBoolean open = new AtomicBoolean();
+		doAnswer(invocation -> {
+			open.set(invocation.getArgumentAt(0, CircuitBreakerEvent.class).isOpen());
+			return null;
+		}).when(errorHandler).handleCircuitBreakerEvent(any(CircuitBreakerEvent.class));
+		for (int i = 0; i < 50 && !open.get(); i++) {
+			retrieveNodes(caller, mockRequest("http://svc/health"), new AtomicInteger());
+			Thread.sleep(100);
+		}
+		return open.get();
+	}
+
+	private static List<Node> retrieveNodes(NettyServiceCaller caller, HttpClientRequest<ByteBuf> request,
+											AtomicInteger conversions) {
+		return caller.retrieveNodesFromRequest("serviceId", request, null, source -> {
+			conversions.incrementAndGet();
+			return Observable.just(new Node((String) source.get("name")));
+		}).toList().toBlocking().single();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static HttpClientResponse<ByteBuf> mockResponse(HttpResponseStatus status, String content) {
+		HttpClientResponse<ByteBuf> response = mock(HttpClientResponse.class);
+		when(response.getStatus()).thenReturn(status);
+		when(response.getHeaders()).thenReturn(mock(HttpResponseHeaders.class));
+		when(response.getContent()).thenReturn(content.isEmpty() ? Observable.empty() : Observable.just(utf8Buffer(content)));
+		return response;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static HttpClientRequest<ByteBuf> mockRequest(String uri) {
+		HttpClientRequest<ByteBuf> request = mock(HttpClientRequest.class);
+		when(request.getUri()).thenReturn(uri);
+		HttpRequestHeaders httpRequestHeaders = mock(HttpRequestHeaders.class);
+		when(httpRequestHeaders.entries()).thenReturn(Lists.newArrayList());
+		when(request.getHeaders()).thenReturn(httpRequestHeaders);
+		return request;
+	}
+
+	private static ByteBuf utf8Buffer(String content) {
+		ByteBuf byteBuf = (new PooledByteBufAllocator()).directBuffer();
+		ByteBufUtil.writeUtf8(byteBuf, content);
+		return byteBuf;
 	}
 }
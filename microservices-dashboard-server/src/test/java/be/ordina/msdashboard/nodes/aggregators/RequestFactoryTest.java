@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import io.netty.buffer.ByteBuf;
+import io.reactivex.netty.protocol.http.client.HttpClientRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link RequestFactory}
+ */
+public class RequestFactoryTest {
+
+	private static final ServiceInstance FIRST = new DefaultServiceInstance("service", "host-a", 8080, false);
+	private static final ServiceInstance SECOND = new DefaultServiceInstance("service", "host-b", 8080, false);
+
+	private DiscoveryClient discoveryClient;
+	private Map<String, String> requestHeaders;
+	private RequestFactory requestFactory;
+
+	@Before
+	public void setUp() {
+		discoveryClient = mock(DiscoveryClient.class);
+		requestHeaders = new HashMap<>();
+		requestFactory = new RequestFactory(discoveryClient, instance -> instance.getUri() + "/health",
+				() -> requestHeaders, (request, securityObject) -> {
+					if (securityObject != null) {
+						request.withHeader("Authorization", securityObject.toString());
+					}
+				});
+	}
+
+	@Test
+	public void shouldApplyHeadersAndOutboundSecurity() {
+		requestHeaders.put("Accept", "application/json");
+
+		HttpClientRequest<ByteBuf> request = requestFactory.createRequest("http://host-a:8080/health", "token");
+
+		assertThat(request.getUri()).isEqualTo("http://host-a:8080/health");
+		assertThat(request.getHeaders().get("Accept")).isEqualTo("application/json");
+		assertThat(request.getHeaders().get("Authorization")).isEqualTo("token");
+	}
+
+	@Test
+	public void shouldSendHedgedRequestToAnotherInstance() {
+		when(discoveryClient.getInstances("service")).thenReturn(Arrays.asList(FIRST, SECOND));
+
+		HttpClientRequest<ByteBuf> request = requestFactory.createHedgedRequest("service", "http://host-a:8080/health", null);
+
+		assertThat(request.getUri()).isEqualTo("http://host-b:8080/health");
+	}
+
+	@Test
+	public void shouldNotHedgeWithoutAnotherInstance() {
+		when(discoveryClient.getInstances("service")).thenReturn(Collections.singletonList(FIRST));
+
+		assertThat(requestFactory.createHedgedRequest("service", "http://host-a:8080/health", null)).isNull();
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link ResponseCache}
+ */
+public class ResponseCacheTest {
+
+	@Test
+	public void shouldHashContentRegardlessOfChunksWithoutReadingIt() {
+		byte[] bytes = "{ \"status\" : \"UP\" }".getBytes(StandardCharsets.UTF_8);
+		CompositeByteBuf chunked = Unpooled.compositeBuffer()
+				.addComponent(true, Unpooled.wrappedBuffer(bytes, 0, 5))
+				.addComponent(true, Unpooled.wrappedBuffer(bytes, 5, bytes.length - 5));
+		ByteBuf whole = Unpooled.wrappedBuffer(bytes);
+
+		byte[] hash = ResponseCache.hash(chunked);
+
+		assertThat(hash).isEqualTo(ResponseCache.hash(whole));
+		assertThat(chunked.readableBytes()).isEqualTo(bytes.length);
+		assertThat(hash).isNotEqualTo(ResponseCache.hash(Unpooled.wrappedBuffer(bytes, 1, bytes.length - 1)));
+	}
+
+	@Test
+	public void shouldHandOutCopiesOfNodes() {
+		Node node = node().withId("svc").withDetail("status", "UP").build();
+		ResponseCache.Entry entry = new ResponseCache.Entry("\"v1\"", null, new byte[] { 1 }, Collections.singletonList(node));
+		node.addDetail("status", "DOWN");
+
+		List<Node> nodes = entry.copyNodes();
+		nodes.get(0).addDetail("status", "UNKNOWN");
+
+		assertThat(entry.copyNodes().get(0).getDetails()).containsEntry("status", "UP");
+	}
+
+	@Test
+	public void shouldKeepContentAndNodesWhenReplacingValidators() {
+		ResponseCache.Entry entry = new ResponseCache.Entry("\"v1\"", null, new byte[] { 1 },
+				Collections.singletonList(node().withId("svc").build()));
+
+		ResponseCache.Entry replaced = entry.withValidators("\"v2\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+
+		assertThat(replaced.getETag()).isEqualTo("\"v2\"");
+		assertThat(replaced.getLastModified()).isEqualTo("Wed, 21 Oct 2015 07:28:00 GMT");
+		assertThat(replaced.hasContentHash(new byte[] { 1 })).isTrue();
+		assertThat(replaced.copyNodes()).extracting(Node::getId).containsExactly("svc");
+	}
+
+	@Test
+	public void shouldEvictResponsesOfInstance() {
+		ResponseCache cache = new ResponseCache();
+		ResponseCache.Entry entry = new ResponseCache.Entry(null, null, new byte[] { 1 }, Collections.emptyList());
+		cache.put("http://host-a:8080/mappings", entry);
+		cache.put("http://host-a:8080/index", entry);
+		cache.put("http://host-a/mappings", entry);
+		cache.put("http://host-b:8080/mappings", entry);
+
+		cache.evictInstance("host-a:8080");
+
+		assertThat(cache.get("http://host-a:8080/mappings")).isNull();
+		assertThat(cache.get("http://host-a:8080/index")).isNull();
+		assertThat(cache.size()).isEqualTo(2);
+
+		cache.evictInstance("host-a:80");
+
+		assertThat(cache.get("http://host-a/mappings")).isNull();
+		assertThat(cache.size()).isEqualTo(1);
+	}
+}
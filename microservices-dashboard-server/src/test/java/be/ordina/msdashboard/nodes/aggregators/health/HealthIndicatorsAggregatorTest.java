@@ -28,6 +28,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.*;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.cloud.client.DefaultServiceInstance;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import rx.Observable;
@@ -78,12 +79,15 @@ public class HealthIndicatorsAggregatorTest {
     @Captor
     private ArgumentCaptor<HttpClientRequest> requestCaptor;
 
+    private InstancesProperties instances = new InstancesProperties();
+
     @Before
     public void before() {
         MockitoAnnotations.initMocks(this);
         when(properties.getFilteredServices()).thenReturn(
                 newArrayList(HYSTRIX, DISK_SPACE, DISCOVERY, CONFIG_SERVER));
         when(properties.getSecurity()).thenReturn("none");
+        when(properties.getInstances()).thenReturn(instances);
         doReturn(new DefaultStrategyBeanProvider()).when(securityStrategyFactory).getStrategy(anyString());
     }
 
@@ -198,6 +202,71 @@ public class HealthIndicatorsAggregatorTest {
                 .containsExactlyElementsOf(requestHeaders().entrySet());
     }
 
+    @Test
+    public void shouldFoldHealthOfAllInstances() {
+        instances.setAll(true);
+        when(properties.getRequestHeaders()).thenReturn(requestHeaders());
+        aggregator = spy(new HealthIndicatorsAggregator(discoveryClient, uriResolver, properties, caller, errorHandler, converter, securityStrategyFactory));
+        doReturn(Observable.just("svc")).when(aggregator).getServiceIdsFromDiscoveryClient();
+        ServiceInstance first = new DefaultServiceInstance("svc", "host1", 8080, false);
+        ServiceInstance second = new DefaultServiceInstance("svc", "host2", 8080, false);
+        when(discoveryClient.getInstances("svc")).thenReturn(asList(first, second));
+        when(uriResolver.resolveHealthCheckUrl(any(ServiceInstance.class))).thenReturn("http://host1:8080/health", "http://host2:8080/health");
+        Map<String, Object> up = Collections.singletonMap("status", "UP");
+        Map<String, Object> down = Collections.singletonMap("status", "DOWN");
+        when(caller.retrieveJsonFromRequest(eq("svc"), any(HttpClientRequest.class)))
+                .thenReturn(Observable.just(up), Observable.just(down));
+        when(converter.convertToNodes(eq("svc"), anyMap())).then(i -> {
+            Object status = i.getArgumentAt(1, Map.class).get("status");
+            Node service = new Node("svc");
+            service.addDetail("status", status);
+            Node dependency = new Node("db");
+            dependency.addDetail("status", status);
+            return Observable.just(service, dependency);
+        });
+
+        TestSubscriber<Node> testSubscriber = new TestSubscriber<>();
+        aggregator.aggregateNodes().toBlocking().subscribe(testSubscriber);
+        List<Node> nodes = testSubscriber.getOnNextEvents();
+
+        assertThat(nodes).extracting("id").containsExactly("svc", "db");
+        assertThat(nodes.get(0).getDetails())
+                .containsEntry("status", "DOWN")
+                .containsEntry(HealthRollup.INSTANCES_UP, 1)
+                .containsEntry(HealthRollup.INSTANCES_TOTAL, 2);
+        assertThat((Map<String, String>) nodes.get(0).getDetails().get(HealthRollup.INSTANCES))
+                .containsEntry("host1:8080", "UP")
+                .containsEntry("host2:8080", "DOWN");
+        verify(caller, never()).retrieveJsonFromRequest(anyString(), any(HttpClientRequest.class), any());
+    }
+
+    @Test
+    public void shouldRetrieveNodesOfEachInstanceThroughItsOwnCircuit() {
+        instances.setAll(true);
+        when(properties.getRequestHeaders()).thenReturn(requestHeaders());
+        aggregator = spy(new HealthIndicatorsAggregator(discoveryClient, uriResolver, properties, caller, errorHandler, converter, securityStrategyFactory));
+        doReturn(Observable.just("svc")).when(aggregator).getServiceIdsFromDiscoveryClient();
+        ServiceInstance first = new DefaultServiceInstance("svc", "host1", 8080, false);
+        ServiceInstance second = new DefaultServiceInstance("svc", "host2", 8080, false);
+        when(discoveryClient.getInstances("svc")).thenReturn(asList(first, second));
+        when(uriResolver.resolveHealthCheckUrl(any(ServiceInstance.class))).thenReturn("http://host1:8080/health", "http://host2:8080/health");
+        when(caller.isRetrievingNodes()).thenReturn(true);
+        when(caller.retrieveNodesFromInstance(eq("svc"), anyString(), any(HttpClientRequest.class), any()))
+                .then(i -> {
+                    Node service = new Node("svc");
+                    service.addDetail("status", "UP");
+                    return Observable.just(service);
+                });
+
+        TestSubscriber<Node> testSubscriber = new TestSubscriber<>();
+        aggregator.aggregateNodes().toBlocking().subscribe(testSubscriber);
+
+        assertThat(testSubscriber.getOnNextEvents().get(0).getDetails()).containsEntry(HealthRollup.INSTANCES_UP, 2);
+        verify(caller).retrieveNodesFromInstance(eq("svc"), eq("host1:8080"), any(HttpClientRequest.class), any());
+        verify(caller).retrieveNodesFromInstance(eq("svc"), eq("host2:8080"), any(HttpClientRequest.class), any());
+        verify(caller, never()).retrieveNodesFromRequest(anyString(), any(HttpClientRequest.class), any(), any());
+    }
+
     private Map<String, String> requestHeaders() {
         Map<String, String> headers = new HashMap<>();
         headers.put("Accept", "application/hal+json");
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators.health;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link HealthRollup}
+ */
+public class HealthRollupTest {
+
+	@Test
+	public void shouldRollUpWorstStatus() {
+		assertThat(HealthRollup.worstOf("UP", "UNKNOWN")).isEqualTo("UNKNOWN");
+		assertThat(HealthRollup.worstOf("UNKNOWN", "OUT_OF_SERVICE")).isEqualTo("OUT_OF_SERVICE");
+		assertThat(HealthRollup.worstOf("DOWN", "OUT_OF_SERVICE")).isEqualTo("DOWN");
+		assertThat(HealthRollup.worstOf("UP", "CUSTOM")).isEqualTo("CUSTOM");
+		assertThat(HealthRollup.worstOf(null, "UP")).isEqualTo("UP");
+	}
+
+	@Test
+	public void shouldCountInstancesWithoutResponseAsUnknown() {
+		Map<String, List<Node>> nodesPerInstance = new TreeMap<>();
+		nodesPerInstance.put("host1:8080", asList(
+				node().withId("svc").withDetail("status", "UP").withLinkedToNodeId("db").build(),
+				node().withId("db").withDetail("status", "UP").build()));
+		nodesPerInstance.put("host2:8080", Collections.emptyList());
+		nodesPerInstance.put("host3:8080", asList(
+				node().withId("svc").withDetail("status", "UP").withLinkedToNodeId("queue").build()));
+
+		List<Node> nodes = HealthRollup.fold("svc", nodesPerInstance, 5).toList().toBlocking().single();
+
+		assertThat(nodes).extracting(Node::getId).containsExactly("svc", "db");
+		Node service = nodes.get(0);
+		assertThat(service.getLinkedToNodeIds()).containsOnly("db", "queue");
+		assertThat(service.getDetails())
+				.containsEntry("status", "UNKNOWN")
+				.containsEntry(HealthRollup.INSTANCES_UP, 2)
+				.containsEntry(HealthRollup.INSTANCES_CHECKED, 3)
+				.containsEntry(HealthRollup.INSTANCES_TOTAL, 5);
+		assertThat((Map<String, String>) service.getDetails().get(HealthRollup.INSTANCES))
+				.containsEntry("host2:8080", "UNKNOWN");
+	}
+
+	@Test
+	public void shouldEmitNothingWhenNoInstanceResponded() {
+		Map<String, List<Node>> nodesPerInstance = Collections.singletonMap("host1:8080", Collections.emptyList());
+
+		assertThat(HealthRollup.fold("svc", nodesPerInstance, 1).isEmpty().toBlocking().single()).isTrue();
+	}
+}
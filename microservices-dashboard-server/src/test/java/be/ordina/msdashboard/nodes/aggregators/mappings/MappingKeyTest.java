@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.aggregators.mappings;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link MappingKey}
+ */
+public class MappingKeyTest {
+
+    @Test
+    public void shouldParsePathAndMethods() {
+        MappingKey mappingKey = MappingKey.parse("{[/home],methods=[GET || PUT],produces=[application/json]}");
+
+        assertThat(mappingKey.isValid()).isTrue();
+        assertThat(mappingKey.getPath()).isEqualTo("/home");
+        assertThat(mappingKey.getMethods()).isEqualTo("GET || PUT");
+    }
+
+    @Test
+    public void shouldUseLastPathWithinBraces() {
+        MappingKey mappingKey = MappingKey.parse("{produces=[application/json],[/root/home/],methods=[GET]}");
+
+        assertThat(mappingKey.getPath()).isEqualTo("/root/home/");
+    }
+
+    @Test
+    public void shouldNotRequireMethods() {
+        MappingKey mappingKey = MappingKey.parse("{[/]}");
+
+        assertThat(mappingKey.isValid()).isTrue();
+        assertThat(mappingKey.getPath()).isEqualTo("/");
+        assertThat(mappingKey.getMethods()).isNull();
+    }
+
+    @Test
+    public void shouldNotTreatMethodsAsPath() {
+        MappingKey mappingKey = MappingKey.parse("{methods=[GET]}");
+
+        assertThat(mappingKey.isValid()).isFalse();
+        assertThat(mappingKey.getPath()).isNull();
+        assertThat(mappingKey.getMethods()).isEqualTo("GET");
+    }
+
+    @Test
+    public void shouldRejectKeysWithoutBraces() {
+        assertThat(MappingKey.parse("/webjars/**").isValid()).isFalse();
+        assertThat(MappingKey.parse("{[/home]} ").isValid()).isFalse();
+        assertThat(MappingKey.parse("_links").getPath()).isNull();
+    }
+
+    @Test
+    public void shouldIgnoreUnclosedPaths() {
+        MappingKey mappingKey = MappingKey.parse("{[/home}");
+
+        assertThat(mappingKey.isValid()).isFalse();
+        assertThat(mappingKey.getPath()).isNull();
+    }
+}
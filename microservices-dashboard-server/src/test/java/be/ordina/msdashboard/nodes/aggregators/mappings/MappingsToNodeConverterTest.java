@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 /**
  * Tests for {@link MappingsToNodeConverter}
@@ -262,4 +263,132 @@ public class MappingsToNodeConverterTest {
         assertThat(nodes).extracting("details").extracting("type").containsExactly("MICROSERVICE", "RESOURCE");
         testSubscriber.assertCompleted();
     }
+
+    @Test
+    public void shouldNotIgnoreHandlersReturningSpringTypes() {
+        Map<String, String> map = new HashMap<>();
+        map.put("method", "public org.springframework.http.ResponseEntity<java.lang.String> be.ordina.controllers.HomeController.home()");
+
+        assertThat(MappingsToNodeConverter.isNonSpringMapping(map)).isTrue();
+    }
+
+    @Test
+    public void shouldConvertSpringBoot2Mappings() throws IOException {
+        Map<String, Object> source = OBJECT_READER.forType(Map.class).readValue("{\"contexts\" : {" +
+                "  \"application\" : {" +
+                "    \"mappings\" : {" +
+                "      \"dispatcherServlets\" : {" +
+                "        \"dispatcherServlet\" : [ {" +
+                "          \"handler\" : \"ResourceHttpRequestHandler [class path resource [static/]]\"," +
+                "          \"predicate\" : \"/**\"," +
+                "          \"details\" : null" +
+                "        }, {" +
+                "          \"handler\" : \"public java.lang.String be.ordina.controllers.HomeController.home()\"," +
+                "          \"predicate\" : \"{[/home],methods=[GET || PUT]}\"," +
+                "          \"details\" : {" +
+                "            \"handlerMethod\" : {" +
+                "              \"className\" : \"be.ordina.controllers.HomeController\"," +
+                "              \"name\" : \"home\"," +
+                "              \"descriptor\" : \"()Ljava/lang/String;\"" +
+                "            }," +
+                "            \"requestMappingConditions\" : {" +
+                "              \"methods\" : [ \"GET\", \"PUT\" ]," +
+                "              \"patterns\" : [ \"/home\" ]" +
+                "            }" +
+                "          }" +
+                "        }, {" +
+                "          \"handler\" : \"public java.lang.Object org.springframework.boot.actuate.endpoint.web.servlet.AbstractWebMvcEndpointHandlerMapping$OperationHandler.handle(javax.servlet.http.HttpServletRequest,java.util.Map)\"," +
+                "          \"predicate\" : \"{[/actuator/health],methods=[GET]}\"," +
+                "          \"details\" : {" +
+                "            \"handlerMethod\" : {" +
+                "              \"className\" : \"org.springframework.boot.actuate.endpoint.web.servlet.AbstractWebMvcEndpointHandlerMapping.OperationHandler\"," +
+                "              \"name\" : \"handle\"" +
+                "            }," +
+                "            \"requestMappingConditions\" : {" +
+                "              \"methods\" : [ \"GET\" ]," +
+                "              \"patterns\" : [ \"/actuator/health\" ]" +
+                "            }" +
+                "          }" +
+                "        } ]" +
+                "      }" +
+                "    }," +
+                "    \"parentId\" : null" +
+                "  }" +
+                "}}");
+
+        Observable<Node> observable = MappingsToNodeConverter.convertToNodes("svc1", source);
+
+        TestSubscriber<Node> testSubscriber = new TestSubscriber<>();
+        observable.toBlocking().subscribe(testSubscriber);
+        List<Node> nodes = testSubscriber.getOnNextEvents();
+        assertThat(nodes).extracting("id").containsOnly("svc1", "/home");
+        Node resource = nodes.stream().filter(node -> "/home".equals(node.getId())).findFirst().get();
+        assertThat(resource.getLane()).isEqualTo(1);
+        assertThat(resource.getDetails()).containsEntry("url", "/home")
+                .containsEntry("type", "RESOURCE")
+                .containsEntry("methods", "GET || PUT");
+        assertThat(resource.getLinkedToNodeIds()).containsExactly("svc1");
+        testSubscriber.assertCompleted();
+    }
+
+    @Test
+    public void shouldFallBackToPredicateOfSpringBoot2Mappings() throws IOException {
+        Map<String, Object> source = OBJECT_READER.forType(Map.class).readValue("{\"contexts\" : {" +
+                "  \"application\" : {" +
+                "    \"mappings\" : {" +
+                "      \"dispatcherServlets\" : {" +
+                "        \"dispatcherServlet\" : [ {" +
+                "          \"predicate\" : \"{[/home],methods=[GET]}\"," +
+                "          \"details\" : {" +
+                "            \"handlerMethod\" : {" +
+                "              \"className\" : \"be.ordina.controllers.HomeController\"" +
+                "            }" +
+                "          }" +
+                "        } ]" +
+                "      }" +
+                "    }" +
+                "  }" +
+                "}}");
+
+        Observable<Node> observable = MappingsToNodeConverter.convertToNodes("svc1", source);
+
+        TestSubscriber<Node> testSubscriber = new TestSubscriber<>();
+        observable.toBlocking().subscribe(testSubscriber);
+        List<Node> nodes = testSubscriber.getOnNextEvents();
+        assertThat(nodes).extracting("id").containsOnly("svc1", "/home");
+        assertThat(nodes).extracting("details").extracting("methods").containsOnly(null, "GET");
+    }
+
+    @Test
+    public void shouldReadOnlyWhatIsNeededFromSource() throws IOException {
+        String json = "{\"_links\" : {" +
+                "    \"self\" : {" +
+                "      \"href\" : \"http://localhost:8080/mappings\"" +
+                "    }" +
+                "  }, \"/webjars/**\" : {" +
+                "    \"bean\" : \"resourceHandlerMapping\"" +
+                "  }, \"{[/home],methods=[GET]}\" : {" +
+                "    \"bean\" : \"requestMappingHandlerMapping\", " +
+                "    \"method\" : \"public java.lang.String be.ordina.controllers.HomeController.home()\"," +
+                "    \"produces\" : [ \"application/json\" ]" +
+                "}}";
+
+        Map<String, Object> source = MappingsToNodeConverter.readSource(new ObjectMapper().getFactory().createParser(json));
+
+        assertThat(source).containsOnlyKeys("{[/home],methods=[GET]}");
+        assertThat((Map<String, Object>) source.get("{[/home],methods=[GET]}"))
+                .containsOnly(entry("method", "public java.lang.String be.ordina.controllers.HomeController.home()"));
+        assertThat(MappingsToNodeConverter.convertToNodes("svc1", source).toList().toBlocking().single())
+                .extracting("id").containsOnly("svc1", "/home");
+    }
+
+    @Test
+    public void shouldReadSpringBoot2ContextsFromSource() throws IOException {
+        String json = "{\"contexts\" : { \"application\" : { \"mappings\" : {} } } }";
+
+        Map<String, Object> source = MappingsToNodeConverter.readSource(new ObjectMapper().getFactory().createParser(json));
+
+        assertThat(source).containsOnlyKeys("contexts");
+        assertThat((Map<String, Object>) source.get("contexts")).containsOnlyKeys("application");
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.discovery;
+
+import be.ordina.msdashboard.nodes.model.InstanceEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link DiscoveryRegistry}
+ */
+public class DiscoveryRegistryTest {
+
+	private DiscoveryClient discoveryClient;
+	private ApplicationEventPublisher publisher;
+	private DiscoveryRegistryProperties properties;
+
+	private ServiceInstance first = new DefaultServiceInstance("svc", "host1", 8080, false);
+	private ServiceInstance second = new DefaultServiceInstance("svc", "host2", 8080, false);
+
+	@Before
+	public void setUp() {
+		discoveryClient = mock(DiscoveryClient.class);
+		publisher = mock(ApplicationEventPublisher.class);
+		properties = new DiscoveryRegistryProperties();
+		properties.setMaxAge(Long.MAX_VALUE);
+		when(discoveryClient.getServices()).thenReturn(Collections.singletonList("SVC"));
+		when(discoveryClient.getInstances("SVC")).thenReturn(Collections.singletonList(first));
+	}
+
+	@Test
+	public void shouldWalkRegistryOnceForAllReads() {
+		DiscoveryRegistry registry = new DiscoveryRegistry(discoveryClient, publisher, properties);
+		DiscoveryClient view = registry.asDiscoveryClient();
+
+		assertThat(view.getServices()).containsExactly("SVC");
+		assertThat(view.getInstances("svc")).containsExactly(first);
+		assertThat(view.getInstances("SVC")).containsExactly(first);
+		assertThat(view.getInstances("unknown")).isEmpty();
+
+		verify(discoveryClient, times(1)).getServices();
+		verify(discoveryClient, times(1)).getInstances("SVC");
+		verifyZeroInteractions(publisher);
+	}
+
+	@Test
+	public void shouldTakeSnapshotAgainOnHeartbeatAndPublishChanges() {
+		DiscoveryRegistry registry = new DiscoveryRegistry(discoveryClient, publisher, properties);
+		DiscoverySnapshot snapshot = registry.getSnapshot();
+		List<ServiceInstance> instances = Collections.singletonList(second);
+		when(discoveryClient.getInstances("SVC")).thenReturn(instances);
+
+		registry.onHeartbeat(new HeartbeatEvent(discoveryClient, 1L));
+
+		assertThat(registry.getSnapshot()).isNotSameAs(snapshot);
+		assertThat(snapshot.getInstances("svc")).containsExactly(first);
+		assertThat(registry.getSnapshot().getInstances("svc")).containsExactly(second);
+		verify(publisher).publishEvent(new InstanceEvent("svc", "host2:8080", true));
+		verify(publisher).publishEvent(new InstanceEvent("svc", "host1:8080", false));
+	}
+
+	@Test
+	public void shouldTakeSnapshotAgainWhenTooOld() {
+		properties.setMaxAge(-1);
+		DiscoveryRegistry registry = new DiscoveryRegistry(discoveryClient, publisher, properties);
+
+		registry.getSnapshot();
+		registry.getSnapshot();
+
+		verify(discoveryClient, times(2)).getServices();
+	}
+
+	@Test
+	public void shouldKeepPreviousSnapshotWhenRegistryFails() {
+		DiscoveryRegistry registry = new DiscoveryRegistry(discoveryClient, publisher, properties);
+		DiscoverySnapshot snapshot = registry.getSnapshot();
+		when(discoveryClient.getServices()).thenThrow(new RuntimeException());
+
+		registry.onHeartbeat(new HeartbeatEvent(discoveryClient, 1L));
+
+		assertThat(registry.getSnapshot()).isSameAs(snapshot);
+		verifyZeroInteractions(publisher);
+	}
+
+	@Test
+	public void shouldKeepPreviousInstancesOfServiceWhenTheyCannotBeRetrieved() {
+		DiscoveryRegistry registry = new DiscoveryRegistry(discoveryClient, publisher, properties);
+		registry.getSnapshot();
+		when(discoveryClient.getServices()).thenReturn(Arrays.asList("SVC", "other"));
+		when(discoveryClient.getInstances("SVC")).thenThrow(new RuntimeException());
+		when(discoveryClient.getInstances("other")).thenReturn(Collections.emptyList());
+
+		registry.onHeartbeat(new HeartbeatEvent(discoveryClient, 1L));
+
+		assertThat(registry.getSnapshot().getServices()).containsExactly("SVC", "other");
+		assertThat(registry.getSnapshot().getInstances("svc")).containsExactly(first);
+	}
+}
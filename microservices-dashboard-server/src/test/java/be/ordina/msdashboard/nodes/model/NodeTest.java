@@ -0,0 +1,198 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link Node}
+ */
+public class NodeTest {
+
+	@Test
+	public void shouldKeepWellKnownDetailsTyped() {
+		Node node = new Node("svc1");
+		node.getDetails().put(Node.STATUS, "DOWN");
+		node.getDetails().put(Node.TYPE, "SOAP");
+		node.addDetail(Node.STALE, true);
+		node.addDetail("foo", "bar");
+
+		assertThat(node.getStatus()).isEqualTo(NodeStatus.DOWN);
+		assertThat(node.getNodeType()).isNull();
+		assertThat(node.isStale()).isTrue();
+		Map<String, Object> expected = new HashMap<>();
+		expected.put(Node.STATUS, "DOWN");
+		expected.put(Node.TYPE, "SOAP");
+		expected.put(Node.STALE, true);
+		expected.put("foo", "bar");
+		assertThat(node.getDetails()).isEqualTo(expected);
+
+		node.getDetails().put(Node.TYPE, NodeTypes.MICROSERVICE);
+		node.getDetails().remove(Node.STATUS);
+
+		assertThat(node.getNodeType()).isEqualTo(NodeType.MICROSERVICE);
+		assertThat(node.getDetails()).containsEntry(Node.TYPE, "MICROSERVICE").doesNotContainKey(Node.STATUS).hasSize(3);
+	}
+
+	@Test
+	public void shouldWriteDetailsThroughIterators() {
+		Node node = new Node("svc1");
+		node.addDetail(Node.STATUS, "UP");
+		node.addDetail("foo", "bar");
+
+		Iterator<Map.Entry<String, Object>> entries = node.getDetails().entrySet().iterator();
+		while (entries.hasNext()) {
+			Map.Entry<String, Object> entry = entries.next();
+			if (entry.getKey().equals("foo")) {
+				entries.remove();
+			} else {
+				entry.setValue("DOWN");
+			}
+		}
+
+		assertThat(node.getDetails()).containsOnlyKeys(Node.STATUS).containsEntry(Node.STATUS, "DOWN");
+	}
+
+	@Test
+	public void shouldKeepLinksAsSets() {
+		Node node = new Node("svc1");
+		node.getLinkedToNodeIds().add("svc2");
+		node.getLinkedToNodeIds().add("svc3");
+		node.getLinkedToNodeIds().add("svc2");
+		node.getLinkedFromNodeIds().add("svc4");
+
+		assertThat(node.getLinkedToNodeIds()).containsOnly("svc2", "svc3").hasSize(2);
+		assertThat(node.getLinkedToNodeIds()).isEqualTo(new HashSet<>(asList("svc2", "svc3")));
+		assertThat(node.getLinkedFromNodeIds()).containsOnly("svc4");
+
+		node.getLinkedToNodeIds().remove("svc2");
+		node.getLinkedToNodeIds().remove("unknown");
+
+		assertThat(node.getLinkedToNodeIds()).containsOnly("svc3");
+	}
+
+	@Test
+	public void shouldShareSingleInstanceOfIds() {
+		Node node = new Node(new String("svc1"));
+		node.getLinkedToNodeIds().add(new String("svc2"));
+		Node other = new Node(new String("svc2"));
+		other.getLinkedFromNodeIds().add(new String("svc1"));
+
+		assertThat(other.getId()).isSameAs(node.getLinkedToNodeIds().iterator().next());
+		assertThat(node.getId()).isSameAs(other.getLinkedFromNodeIds().iterator().next());
+	}
+
+	@Test
+	public void shouldHandOutSingleViewOfDetails() {
+		Node node = new Node("svc1");
+		Map<String, Object> details = node.getDetails();
+		node.addDetail(Node.STATUS, "UP");
+		node.addDetail(Node.TYPE, "SOAP");
+		node.addDetail("foo", null);
+
+		assertThat(node.getDetails()).isSameAs(details);
+		assertThat(details).hasSize(3);
+		assertThat(Node.copyOf(node).getDetails()).isNotSameAs(details).hasSize(3);
+	}
+
+	@Test
+	public void shouldMergeLinksAndStatus() {
+		Node node = new Node("svc1");
+		node.addDetail(Node.STATUS, "UP");
+		node.addDetail("foo", "bar");
+		node.getLinkedToNodeIds().add("svc2");
+		Node other = new Node("svc1");
+		other.addDetail(Node.STATUS, "DOWN");
+		other.addDetail("foo", "baz");
+		other.addDetail("other", "value");
+		other.setLane(2);
+		other.getLinkedToNodeIds().add("svc3");
+
+		node.mergeWith(other);
+
+		assertThat(node.getDetails()).containsEntry(Node.STATUS, "DOWN").containsEntry("foo", "bar")
+				.doesNotContainKey("other");
+		assertThat(node.getLane()).isEqualTo(2);
+		assertThat(node.getLinkedToNodeIds()).containsOnly("svc2", "svc3");
+		assertThat(other.getLinkedToNodeIds()).containsOnly("svc3");
+	}
+
+	@Test
+	public void shouldCopyNodes() {
+		Node node = NodeBuilder.node().withId("svc1").withDetail(Node.STATUS, "UP").withLinkedToNodeId("svc2").build();
+
+		Node copy = Node.copyOf(node);
+		copy.getLinkedToNodeIds().add("svc3");
+		copy.addDetail(Node.STATUS, "DOWN");
+
+		assertThat(node.getLinkedToNodeIds()).containsOnly("svc2");
+		assertThat(node.getDetails()).containsEntry(Node.STATUS, "UP");
+		assertThat(copy).isNotEqualTo(node);
+		assertThat(Node.copyOf(node)).isEqualTo(node);
+	}
+
+	@Test
+	public void shouldCopyAllNodesInOrder() {
+		Node first = NodeBuilder.node().withId("svc1").withLinkedToNodeId("svc2").build();
+		Node second = NodeBuilder.node().withId("svc2").build();
+
+		List<Node> copies = Node.copyAll(asList(first, second));
+		copies.get(0).getLinkedToNodeIds().add("svc3");
+
+		assertThat(copies).extracting(Node::getId).containsExactly("svc1", "svc2");
+		assertThat(copies.get(1)).isNotSameAs(second).isEqualTo(second);
+		assertThat(first.getLinkedToNodeIds()).containsOnly("svc2");
+	}
+
+	@Test
+	public void shouldKeepJsonFormat() throws Exception {
+		Node node = NodeBuilder.node().withId("svc1").withLane(2).withDetail(Node.STATUS, "UP")
+				.withLinkedToNodeId("svc2").build();
+
+		String json = new ObjectMapper().writeValueAsString(node);
+
+		assertThat(json).isEqualTo("{\"id\":\"svc1\",\"details\":{\"status\":\"UP\"},\"lane\":2,"
+				+ "\"linkedToNodeIds\":[\"svc2\"]}");
+		assertThat(new ObjectMapper().readValue(json, Node.class)).isEqualTo(node);
+	}
+
+	@Test
+	public void shouldReadNodesStoredWithClassNames() {
+		byte[] stored = ("{\"@class\":\"be.ordina.msdashboard.nodes.model.Node\",\"id\":\"svc1\","
+				+ "\"details\":{\"@class\":\"java.util.HashMap\",\"status\":\"UP\",\"type\":\"MICROSERVICE\"},"
+				+ "\"linkedToNodeIds\":[\"java.util.HashSet\",[\"svc2\"]],"
+				+ "\"linkedFromNodeIds\":[\"java.util.HashSet\",[]]}").getBytes();
+		GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+
+		Node node = serializer.deserialize(stored, Node.class);
+
+		assertThat(node.getStatus()).isEqualTo(NodeStatus.UP);
+		assertThat(node.getNodeType()).isEqualTo(NodeType.MICROSERVICE);
+		assertThat(node.getLinkedToNodeIds()).containsOnly("svc2");
+		assertThat(serializer.deserialize(serializer.serialize(node), Node.class)).isEqualTo(node);
+	}
+}
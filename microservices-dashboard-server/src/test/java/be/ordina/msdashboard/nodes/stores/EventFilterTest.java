@@ -0,0 +1,65 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.CircuitBreakerEvent;
+import be.ordina.msdashboard.nodes.model.InstanceEvent;
+import be.ordina.msdashboard.nodes.model.NodeEvent;
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.model.SystemEvent;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link EventFilter}
+ */
+public class EventFilterTest {
+
+	@Test
+	public void shouldAcceptAllEventsWithoutCriteria() {
+		assertThat(EventFilter.ALL.test(new SystemEvent("system"))).isTrue();
+		assertThat(EventFilter.ALL.test(new InstanceEvent("svc1", "host:8080", true))).isTrue();
+	}
+
+	@Test
+	public void shouldFilterByNode() {
+		EventFilter filter = new EventFilter("svc1", null, null);
+
+		assertThat(filter.test(new NodeEvent("svc1", "down"))).isTrue();
+		assertThat(filter.test(new NodeEvent("svc2", "down"))).isFalse();
+		assertThat(filter.test(new SystemEvent("system"))).isFalse();
+	}
+
+	@Test
+	public void shouldFilterByMinimumSeverity() {
+		EventFilter filter = new EventFilter(null, Severity.WARNING, null);
+
+		assertThat(filter.test(new NodeEvent("svc1", "down", new IllegalStateException()))).isTrue();
+		assertThat(filter.test(new CircuitBreakerEvent("svc1", "health", true))).isTrue();
+		assertThat(filter.test(new CircuitBreakerEvent("svc1", "health", false))).isFalse();
+		assertThat(filter.test(new InstanceEvent("svc1", "host:8080", false))).isFalse();
+	}
+
+	@Test
+	public void shouldFilterByTypeIncludingSubtypes() {
+		EventFilter filter = new EventFilter(null, null, "nodeevent");
+
+		assertThat(filter.test(new NodeEvent("svc1", "down"))).isTrue();
+		assertThat(filter.test(new CircuitBreakerEvent("svc1", "health", true))).isTrue();
+		assertThat(filter.test(new SystemEvent("system"))).isFalse();
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.CircuitBreakerEvent;
+import be.ordina.msdashboard.nodes.model.NodeEvent;
+import be.ordina.msdashboard.nodes.model.Severity;
+import be.ordina.msdashboard.nodes.model.SystemEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link EventLog}
+ */
+public class EventLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private EventLogProperties properties;
+	private EventLog eventLog;
+
+	@Before
+	public void setUp() throws IOException {
+		properties = new EventLogProperties();
+		properties.setDirectory(folder.getRoot().getAbsolutePath());
+		properties.setSegmentSize(4096);
+		properties.setIndexInterval(256);
+		properties.setMaxAge(0);
+		eventLog = new EventLog(properties);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		eventLog.close();
+	}
+
+	@Test
+	public void shouldReturnEventsWithinTimeRange() {
+		for (int i = 1; i <= 100; i++) {
+			eventLog.append(event("event " + i, i * 1000L));
+		}
+
+		List<EventRecord> records = eventLog.getEvents(20000, 24000, 100);
+
+		assertThat(records).extracting("message")
+				.containsExactly("event 20", "event 21", "event 22", "event 23", "event 24");
+		assertThat(eventLog.getEvents(20000, 24000, 2)).hasSize(2);
+		assertThat(eventLog.getEvents(0, Long.MAX_VALUE, 1000)).hasSize(100);
+		assertThat(new File(folder.getRoot(), EventLogSegment.fileName(1000, EventLogSegment.LOG_SUFFIX))).exists();
+	}
+
+	@Test
+	public void shouldKeepDetailsOfEvents() {
+		eventLog.append(new CircuitBreakerEvent("svc1", "health", true));
+		eventLog.append(new NodeEvent("svc2", "down", new IllegalStateException("Broken")));
+
+		List<EventRecord> records = eventLog.getEvents(0, Long.MAX_VALUE, 10);
+
+		assertThat(records).extracting("type").containsExactly("CircuitBreakerEvent", "NodeEvent");
+		assertThat(records).extracting("nodeId").containsExactly("svc1", "svc2");
+		assertThat(records).extracting("severity").containsExactly(Severity.WARNING, Severity.ERROR);
+		assertThat(records.get(1).getCause()).isEqualTo("java.lang.IllegalStateException: Broken");
+	}
+
+	@Test
+	public void shouldKeepEventsInTimeOrder() {
+		eventLog.append(event("late", 2000));
+		eventLog.append(event("early", 1000));
+
+		List<EventRecord> records = eventLog.getEvents(0, Long.MAX_VALUE, 10);
+
+		assertThat(records).extracting("message").containsExactly("late", "early");
+		assertThat(records).extracting("timestamp").containsExactly(2000L, 2000L);
+	}
+
+	@Test
+	public void shouldKeepEventsWhenReopened() throws IOException {
+		for (int i = 1; i <= 50; i++) {
+			eventLog.append(event("event " + i, i * 1000L));
+		}
+		eventLog.close();
+
+		eventLog = new EventLog(properties);
+		eventLog.append(event("event 51", 51000));
+
+		assertThat(eventLog.getEvents(49000, Long.MAX_VALUE, 10)).extracting("message")
+				.containsExactly("event 49", "event 50", "event 51");
+	}
+
+	@Test
+	public void shouldDeleteOldestSegmentsWhenExceedingMaximumSize() throws IOException {
+		eventLog.close();
+		properties.setMaxSize(3 * 4096);
+		eventLog = new EventLog(properties);
+		for (int i = 1; i <= 1000; i++) {
+			eventLog.append(event("event " + i, i * 1000L));
+		}
+
+		List<EventRecord> records = eventLog.getEvents(0, Long.MAX_VALUE, 1000);
+
+		assertThat(records).isNotEmpty();
+		assertThat(records.get(records.size() - 1).getMessage()).isEqualTo("event 1000");
+		assertThat(records.get(0).getMessage()).isNotEqualTo("event 1");
+		assertThat(folder.getRoot().list((dir, name) -> name.endsWith(EventLogSegment.LOG_SUFFIX))).hasSize(3);
+	}
+
+	@Test
+	public void shouldDeleteSegmentsOlderThanMaximumAge() throws IOException {
+		long now = System.currentTimeMillis();
+		for (int i = 1; i <= 100; i++) {
+			eventLog.append(event("old " + i, now - 600000 + i));
+		}
+		for (int i = 1; i <= 100; i++) {
+			eventLog.append(event("new " + i, now + i));
+		}
+		eventLog.close();
+		properties.setMaxAge(60000);
+
+		eventLog = new EventLog(properties);
+
+		List<EventRecord> records = eventLog.getEvents(0, Long.MAX_VALUE, 1000);
+		assertThat(records).extracting("message").doesNotContain("old 1").contains("new 1", "new 100");
+		assertThat(folder.getRoot().list((dir, name) -> name.endsWith(EventLogSegment.LOG_SUFFIX))).hasSize(2);
+	}
+
+	private static SystemEvent event(String message, long timestamp) {
+		SystemEvent event = new SystemEvent(message);
+		event.setTimestamp(timestamp);
+		return event;
+	}
+}
@@ -15,9 +15,13 @@
  */
 package be.ordina.msdashboard.nodes.stores;
 
+import be.ordina.msdashboard.nodes.model.NodeEvent;
 import be.ordina.msdashboard.nodes.model.SystemEvent;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -37,4 +41,148 @@ public class EventStoreTest {
 		eventStore.deleteEvents();
 		assertThat(eventStore.getEvents()).isEmpty();
 	}
+
+	@Test
+	public void shouldDropOldestEventsWhenFull() {
+		EventStoreProperties properties = new EventStoreProperties();
+		properties.setCapacity(3);
+		eventStore = new EventStore(properties);
+
+		for (int i = 0; i < 6; i++) {
+			eventStore.handleContextRefresh(new SystemEvent("event " + i));
+		}
+
+		assertThat(eventStore.getEvents()).extracting("message")
+				.containsExactly("event 2", "event 3", "event 4", "event 5");
+	}
+
+	@Test
+	public void shouldCountRepeatedEvents() {
+		eventStore.handleContextRefresh(new NodeEvent("service", "down"));
+		eventStore.handleContextRefresh(new NodeEvent("other", "down"));
+		eventStore.handleContextRefresh(new NodeEvent("service", "down"));
+		eventStore.handleContextRefresh(new NodeEvent("service", "down", new IllegalStateException()));
+
+		assertThat(eventStore.getEvents()).extracting("count").containsExactly(2, 1, 1);
+	}
+
+	@Test
+	public void shouldLimitEventsPerNode() {
+		EventStoreProperties properties = new EventStoreProperties();
+		properties.setMaxEventsPerNode(2);
+		eventStore = new EventStore(properties);
+
+		eventStore.handleContextRefresh(new NodeEvent("other", "down"));
+		for (int i = 0; i < 4; i++) {
+			eventStore.handleContextRefresh(new NodeEvent("service", "event " + i));
+		}
+
+		assertThat(eventStore.getEvents()).extracting("message")
+				.containsExactly("down", "event 2", "event 3");
+	}
+
+	@Test
+	public void shouldReturnPagesOfEvents() {
+		for (int i = 0; i < 5; i++) {
+			eventStore.handleContextRefresh(new SystemEvent("event " + i));
+		}
+
+		List<SystemEvent> page = eventStore.getEvents(-1, 2);
+		assertThat(page).extracting("message").containsExactly("event 0", "event 1");
+
+		page = eventStore.getEvents(page.get(1).getSequence(), 2);
+		assertThat(page).extracting("message").containsExactly("event 2", "event 3");
+
+		page = eventStore.getEvents(page.get(1).getSequence(), 2);
+		assertThat(page).extracting("message").containsExactly("event 4");
+	}
+
+	@Test
+	public void shouldNotReturnDeletedEvents() {
+		eventStore.handleContextRefresh(new SystemEvent("deleted"));
+		eventStore.deleteEvents();
+		eventStore.handleContextRefresh(new SystemEvent("deleted"));
+
+		assertThat(eventStore.getEvents(-1, 10)).extracting("count").containsExactly(1);
+	}
+
+	@Test
+	public void shouldNotifyListenersOfNewEvents() {
+		List<SystemEvent> notified = new ArrayList<>();
+		eventStore.addListener(notified::add);
+
+		eventStore.handleContextRefresh(new NodeEvent("service", "down"));
+		eventStore.handleContextRefresh(new NodeEvent("service", "down"));
+		eventStore.handleContextRefresh(new NodeEvent("other", "down"));
+
+		assertThat(notified).extracting("nodeId").containsExactly("service", "other");
+		assertThat(eventStore.getLastSequence()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldReturnFilteredPages() {
+		eventStore.handleContextRefresh(new NodeEvent("service", "event 0"));
+		eventStore.handleContextRefresh(new NodeEvent("other", "event 1"));
+		eventStore.handleContextRefresh(new NodeEvent("service", "event 2"));
+
+		List<SystemEvent> page = eventStore.getEvents(-1, 1, new EventFilter("service", null, null));
+		assertThat(page).extracting("message").containsExactly("event 0");
+
+		page = eventStore.getEvents(page.get(0).getSequence(), 1, new EventFilter("service", null, null));
+		assertThat(page).extracting("message").containsExactly("event 2");
+	}
+
+	@Test
+	public void shouldNotSkipEventsStoredConcurrently() throws InterruptedException {
+		EventStoreProperties properties = new EventStoreProperties();
+		properties.setCapacity(8192);
+		eventStore = new EventStore(properties);
+		List<Long> received = new ArrayList<>();
+		Runnable pager = () -> {
+			synchronized (received) {
+				long since = received.isEmpty() ? -1 : received.get(received.size() - 1);
+				for (SystemEvent event : eventStore.getEvents(since, Integer.MAX_VALUE)) {
+					received.add(event.getSequence());
+				}
+			}
+		};
+		eventStore.addListener(event -> pager.run());
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int thread = t;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					eventStore.handleContextRefresh(new SystemEvent("event " + thread + "-" + i));
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(received).hasSize(4000);
+		for (int i = 0; i < received.size(); i++) {
+			assertThat(received.get(i)).isEqualTo((long) i);
+		}
+	}
+
+	@Test
+	public void shouldCountRepeatedEventsStoredConcurrently() throws InterruptedException {
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					eventStore.handleContextRefresh(new NodeEvent("service", "down"));
+				}
+			}));
+		}
+		threads.forEach(Thread::start);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(eventStore.getEvents()).extracting("count").containsExactly(4000);
+	}
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NodeRedisSerializer}
+ */
+public class NodeRedisSerializerTest {
+
+	private final NodeRedisSerializer serializer = new NodeRedisSerializer(new SmileNodeCodec());
+
+	@Test
+	public void shouldEncodeNodesWithCodec() {
+		byte[] bytes = serializer.serialize(new Node("svc"));
+
+		assertThat(bytes[0]).isEqualTo(SmileNodeCodec.MAGIC);
+		assertThat(serializer.deserialize(bytes)).isEqualTo(new Node("svc"));
+	}
+
+	@Test
+	public void shouldSerializeOtherValuesAsJson() {
+		assertThat(new String(serializer.serialize("svc"))).isEqualTo("\"svc\"");
+	}
+
+	@Test
+	public void shouldHandleMissingValues() {
+		assertThat(serializer.serialize(null)).isEmpty();
+		assertThat(serializer.deserialize(null)).isNull();
+		assertThat(serializer.deserialize(new byte[0])).isNull();
+	}
+}
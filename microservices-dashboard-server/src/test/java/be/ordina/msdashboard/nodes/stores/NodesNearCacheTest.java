@@ -0,0 +1,79 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link NodesNearCache}
+ */
+public class NodesNearCacheTest {
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@Test
+	public void shouldHandOutCopiesUntilInvalidated() {
+		NodesNearCache nearCache = new NodesNearCache(0);
+
+		Collection<Node> first = nearCache.get(this::load);
+		first.iterator().next().addDetail("status", "DOWN");
+		Collection<Node> second = nearCache.get(this::load);
+
+		assertThat(loads.get()).isEqualTo(1);
+		assertThat(second).containsExactly(new Node("virtual"));
+		assertThat(second.iterator().next().getDetails()).doesNotContainKey("status");
+
+		nearCache.onMessage(null, null);
+		nearCache.get(this::load);
+
+		assertThat(loads.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldReadNodesAgainOnceExpired() {
+		NodesNearCache nearCache = new NodesNearCache(-1);
+
+		nearCache.get(this::load);
+		nearCache.get(this::load);
+
+		assertThat(loads.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldNotKeepNodesInvalidatedWhileBeingRead() {
+		NodesNearCache nearCache = new NodesNearCache(0);
+
+		nearCache.get(() -> {
+			nearCache.invalidate();
+			return load();
+		});
+		nearCache.get(this::load);
+
+		assertThat(loads.get()).isEqualTo(2);
+	}
+
+	private Collection<Node> load() {
+		loads.incrementAndGet();
+		return Collections.singletonList(new Node("virtual"));
+	}
+}
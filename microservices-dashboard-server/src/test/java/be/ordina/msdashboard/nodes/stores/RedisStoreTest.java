@@ -20,21 +20,32 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.jedis.JedisConnection;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Set;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -56,28 +67,86 @@ public class RedisStoreTest {
 	@Mock
 	private JedisConnectionFactory redisConnectionFactory;
 
+	@Spy
+	private RedisStoreProperties properties = new RedisStoreProperties();
+
 	@Test
+	@SuppressWarnings("unchecked")
 	public void getAllNodes() {
-		Set<String> keys = Collections.singleton("nodeId");
+		properties.setBatchSize(2);
+		RedisConnection connection = mock(RedisConnection.class);
+		doAnswer(invocation -> invocation.getArgumentAt(0, RedisCallback.class).doInRedis(connection))
+				.when(redisTemplate).execute(any(RedisCallback.class));
+
+		byte[] key1 = "virtual:node1".getBytes();
+		byte[] key2 = "virtual:node2".getBytes();
+		byte[] key3 = "virtual:node3".getBytes();
+		Cursor<byte[]> cursor = mock(Cursor.class);
+		doReturn(true, true, true, false).when(cursor).hasNext();
+		doReturn(key1, key2, key3).when(cursor).next();
+		doReturn(cursor).when(connection).scan(any(ScanOptions.class));
+
+		byte[] value1 = "node1".getBytes();
+		byte[] value3 = "node3".getBytes();
+		doReturn(asList(asList(value1, null), asList(value3))).when(connection).closePipeline();
+		RedisSerializer serializer = mock(RedisSerializer.class);
+		doReturn(serializer).when(redisTemplate).getValueSerializer();
+		Node node1 = new Node("node1");
+		Node node3 = new Node("node3");
+		doReturn(node1).when(serializer).deserialize(value1);
+		doReturn(node3).when(serializer).deserialize(value3);
 
-		doReturn(keys).when(redisTemplate).keys("virtual:*");
+		Collection<Node> nodes = redisService.getAllNodes();
 
-		ValueOperations opsForValue = mock(ValueOperations.class);
+		verify(redisTemplate, never()).keys(anyString());
+		verify(connection).openPipeline();
+		verify(connection).mGet(key1, key2);
+		verify(connection).mGet(key3);
+		assertThat(nodes).containsExactly(node1, node3);
+	}
 
-		doReturn(opsForValue).when(redisTemplate).opsForValue();
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getAllNodesReadsKeysReturnedTwiceByScanOnce() {
+		RedisConnection connection = mock(RedisConnection.class);
+		doAnswer(invocation -> invocation.getArgumentAt(0, RedisCallback.class).doInRedis(connection))
+				.when(redisTemplate).execute(any(RedisCallback.class));
+		byte[] key = "virtual:node1".getBytes();
+		Cursor<byte[]> cursor = mock(Cursor.class);
+		doReturn(true, true, false).when(cursor).hasNext();
+		doReturn(key, "virtual:node1".getBytes()).when(cursor).next();
+		doReturn(cursor).when(connection).scan(any(ScanOptions.class));
+		doReturn(Collections.singletonList(Collections.singletonList(null))).when(connection).closePipeline();
+
+		redisService.getAllNodes();
+
+		verify(connection).mGet(key);
+	}
 
-		Node node = new Node("redisnode");
+	@Test
+	public void getAllNodesWithoutKeys() {
+		RedisConnection connection = mock(RedisConnection.class);
+		doAnswer(invocation -> invocation.getArgumentAt(0, RedisCallback.class).doInRedis(connection))
+				.when(redisTemplate).execute(any(RedisCallback.class));
+		Cursor cursor = mock(Cursor.class);
+		doReturn(cursor).when(connection).scan(any(ScanOptions.class));
+
+		assertThat(redisService.getAllNodes()).isEmpty();
+		verify(connection, never()).openPipeline();
+	}
 
-		doReturn(node).when(opsForValue).get("nodeId");
+	@Test
+	public void getAllNodesFromHash() {
+		properties.setHash(true);
+		HashOperations opsForHash = mock(HashOperations.class);
+		doReturn(opsForHash).when(redisTemplate).opsForHash();
+		Node node = new Node("redisnode");
+		doReturn(Collections.singletonList(node)).when(opsForHash).values(RedisStore.HASH_KEY);
 
 		Collection<Node> nodes = redisService.getAllNodes();
 
-		verify(redisTemplate).keys("virtual:*");
-		verify(redisTemplate).opsForValue();
-		verify(opsForValue).get("nodeId");
-
-		assertThat(nodes).isNotEmpty();
-		assertThat(nodes.stream().findFirst().get()).isEqualTo(node);
+		verify(redisTemplate, never()).execute(any(RedisCallback.class));
+		assertThat(nodes).containsExactly(node);
 	}
 
 	@Test
@@ -93,6 +162,49 @@ public class RedisStoreTest {
 		verify(opsForValue).set(eq("virtual:key1"), any(Node.class));
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void getAllNodesFromNearCacheUntilNodeIsSaved() {
+		properties.setHash(true);
+		RedisStore store = new RedisStore((RedisTemplate) redisTemplate, redisConnectionFactory, properties, new NodesNearCache(0));
+		HashOperations opsForHash = mock(HashOperations.class);
+		doReturn(opsForHash).when(redisTemplate).opsForHash();
+		doReturn(Collections.singletonList(new Node("redisnode"))).when(opsForHash).values(RedisStore.HASH_KEY);
+
+		store.getAllNodes();
+		Collection<Node> nodes = store.getAllNodes();
+		store.saveNode(nodeAsJson);
+		store.getAllNodes();
+
+		assertThat(nodes).containsExactly(new Node("redisnode"));
+		verify(opsForHash, times(2)).values(RedisStore.HASH_KEY);
+		verify(redisTemplate).convertAndSend(NodesNearCache.INVALIDATION_CHANNEL, "key1");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void saveNodeInHash() {
+		properties.setHash(true);
+		HashOperations opsForHash = mock(HashOperations.class);
+		doReturn(opsForHash).when(redisTemplate).opsForHash();
+
+		redisService.saveNode(nodeAsJson);
+
+		verify(opsForHash).put(eq(RedisStore.HASH_KEY), eq("key1"), any(Node.class));
+	}
+
+	@Test
+	public void deleteNodeFromHash() {
+		properties.setHash(true);
+		HashOperations opsForHash = mock(HashOperations.class);
+		doReturn(opsForHash).when(redisTemplate).opsForHash();
+
+		redisService.deleteNode("nodeId");
+
+		verify(opsForHash).delete(RedisStore.HASH_KEY, "nodeId");
+		verify(redisTemplate, never()).delete(anyString());
+	}
+
 	@Test
 	public void deleteNode() {
 		redisService.deleteNode("nodeId");
@@ -101,15 +213,25 @@ public class RedisStoreTest {
 	}
 
 	@Test
+	@SuppressWarnings("unchecked")
 	public void deleteAllNodes() {
-		Set<String> keys = Collections.singleton("nodeId");
-
-		doReturn(keys).when(redisTemplate).keys("*");
+		properties.setBatchSize(2);
+		RedisConnection connection = mock(RedisConnection.class);
+		doAnswer(invocation -> invocation.getArgumentAt(0, RedisCallback.class).doInRedis(connection))
+				.when(redisTemplate).execute(any(RedisCallback.class));
+		byte[] key1 = "virtual:node1".getBytes();
+		byte[] key2 = "virtual:node2".getBytes();
+		byte[] key3 = "virtual:node3".getBytes();
+		Cursor<byte[]> cursor = mock(Cursor.class);
+		doReturn(true, true, true, false).when(cursor).hasNext();
+		doReturn(key1, key2, key3).when(cursor).next();
+		doReturn(cursor).when(connection).scan(any(ScanOptions.class));
 
 		redisService.deleteAllNodes();
 
-		verify(redisTemplate).keys("*");
-		verify(redisTemplate).delete(keys);
+		verify(redisTemplate, never()).keys(anyString());
+		verify(connection).del(key1, key2);
+		verify(connection).del(key3);
 	}
 
 	@Test
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.stores;
+
+import be.ordina.msdashboard.nodes.model.Node;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static be.ordina.msdashboard.nodes.model.NodeBuilder.node;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link SmileNodeCodec}
+ */
+public class SmileNodeCodecTest {
+
+	private final SmileNodeCodec codec = new SmileNodeCodec();
+
+	@Test
+	public void shouldDecodeEncodedNode() {
+		Node node = node().withId("svc").withLane(2).withDetail("status", "UP")
+				.withLinkedToNodeId("db").withLinkedFromNodeId("ui").build();
+		Map<String, Object> nested = new HashMap<>();
+		nested.put("threshold", 10485760);
+		nested.put("free", true);
+		node.addDetail("diskSpace", nested);
+
+		byte[] bytes = codec.encode(node);
+		Node decoded = codec.decode(bytes);
+
+		assertThat(bytes[0]).isEqualTo(SmileNodeCodec.MAGIC);
+		assertThat(bytes[1]).isEqualTo(SmileNodeCodec.VERSION);
+		assertThat(decoded.getId()).isEqualTo("svc");
+		assertThat(decoded.getLane()).isEqualTo(2);
+		assertThat(decoded.getDetails()).isEqualTo(node.getDetails());
+		assertThat(decoded.getLinkedToNodeIds()).containsExactly("db");
+		assertThat(decoded.getLinkedFromNodeIds()).containsExactly("ui");
+	}
+
+	@Test
+	public void shouldDecodeNodeStoredAsJson() {
+		Node node = node().withId("svc").withDetail("status", "UP").withDetail("virtual", "true").build();
+		byte[] json = new GenericJackson2JsonRedisSerializer().serialize(node);
+
+		Node decoded = codec.decode(json);
+
+		assertThat(decoded.getId()).isEqualTo("svc");
+		assertThat(decoded.getDetails()).isEqualTo(node.getDetails());
+	}
+
+	@Test
+	public void shouldEncodeMoreCompactlyThanJson() {
+		Node node = node().withId("svc").withDetail("status", "UP").withDetail("type", "MICROSERVICE")
+				.withLinkedToNodeId("db").build();
+
+		assertThat(codec.encode(node).length).isLessThan(new JsonNodeCodec().encode(node).length);
+	}
+
+	@Test(expected = SerializationException.class)
+	public void shouldRejectUnknownVersion() {
+		byte[] bytes = codec.encode(new Node("svc"));
+		bytes[1] = 2;
+
+		codec.decode(bytes);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2012-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package be.ordina.msdashboard.nodes.uriresolvers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.netflix.eureka.EurekaDiscoveryClient;
+
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * Tests for {@link EurekaInstanceFingerprintResolver}
+ */
+public class EurekaInstanceFingerprintResolverTest {
+
+    private EurekaInstanceFingerprintResolver resolver = new EurekaInstanceFingerprintResolver();
+
+    @Test
+    public void shouldChangeFingerprintWhenRegistrationIsUpdated() {
+        InstanceInfo instanceInfo = mock(InstanceInfo.class);
+        EurekaDiscoveryClient.EurekaServiceInstance instance = instance(instanceInfo);
+        when(instanceInfo.getId()).thenReturn("host:svc:8080");
+        when(instanceInfo.getMetadata()).thenReturn(Collections.singletonMap("version", "1"));
+        when(instanceInfo.getLastUpdatedTimestamp()).thenReturn(1L);
+
+        String fingerprint = resolver.resolveFingerprint(instance);
+
+        assertThat(resolver.resolveFingerprint(instance)).isEqualTo(fingerprint);
+        when(instanceInfo.getLastUpdatedTimestamp()).thenReturn(2L);
+        assertThat(resolver.resolveFingerprint(instance)).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    public void shouldChangeFingerprintWhenMetadataChanges() {
+        InstanceInfo instanceInfo = mock(InstanceInfo.class);
+        EurekaDiscoveryClient.EurekaServiceInstance instance = instance(instanceInfo);
+        when(instanceInfo.getId()).thenReturn("host:svc:8080");
+        when(instanceInfo.getLastUpdatedTimestamp()).thenReturn(1L);
+        when(instanceInfo.getMetadata()).thenReturn(Collections.singletonMap("version", "1"));
+
+        String fingerprint = resolver.resolveFingerprint(instance);
+
+        when(instanceInfo.getMetadata()).thenReturn(Collections.singletonMap("version", "2"));
+        assertThat(resolver.resolveFingerprint(instance)).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    public void shouldNotResolveFingerprintOfOtherInstances() {
+        assertThat(resolver.resolveFingerprint(new DefaultServiceInstance("svc", "host", 8080, false))).isNull();
+    }
+
+    private static EurekaDiscoveryClient.EurekaServiceInstance instance(InstanceInfo instanceInfo) {
+        EurekaDiscoveryClient.EurekaServiceInstance instance = mock(EurekaDiscoveryClient.EurekaServiceInstance.class);
+        when(instance.getInstanceInfo()).thenReturn(instanceInfo);
+        return instance;
+    }
+}